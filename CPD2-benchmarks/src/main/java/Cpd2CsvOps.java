@@ -0,0 +1,10 @@
+import cpd2.benchmarks.CsvOps;
+
+import java.io.IOException;
+
+public class Cpd2CsvOps implements CsvOps {
+    @Override
+    public void writeFile(double[][] table, String fileName, String delimiter, String[] header) throws IOException {
+        CSVExporter.writeFile(table, fileName, delimiter, header);
+    }
+}
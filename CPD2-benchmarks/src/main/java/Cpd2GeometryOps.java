@@ -0,0 +1,37 @@
+import cpd2.benchmarks.GeometryOps;
+
+import java.util.Arrays;
+
+public class Cpd2GeometryOps implements GeometryOps {
+    @Override
+    public Object points(double[] xs, double[] ys) {
+        Vec2[] points = new Vec2[xs.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Vec2(xs[i], ys[i]);
+        }
+        return points;
+    }
+
+    @Override
+    public int turns(Object points) {
+        Vec2[] p = (Vec2[]) points;
+        int sum = 0;
+        for (int i = 2; i < p.length; i++) {
+            sum += Vec2.isTurnedCW(p[i - 2], p[i - 1], p[i]);
+        }
+        return sum;
+    }
+
+    @Override
+    public Object sortByPolarAngle(Object points) {
+        Vec2[] sorted = ((Vec2[]) points).clone();
+        Vec2 lowest = sorted[0];
+        for (Vec2 p : sorted) {
+            if (p.compareTo(lowest) < 0) {
+                lowest = p;
+            }
+        }
+        Arrays.sort(sorted, lowest.byPolarAngle());
+        return sorted;
+    }
+}
@@ -0,0 +1,29 @@
+import cpd2.benchmarks.NeighborsOps;
+
+import java.util.concurrent.ForkJoinPool;
+
+public class Cpd2NeighborsOps implements NeighborsOps {
+    @Override
+    public Object neighbors(double[] xs, double[] ys) {
+        Vec2[] points = new Vec2[xs.length];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new Vec2(xs[i], ys[i]);
+        }
+        return new FastNeighbors(points);
+    }
+
+    @Override
+    public Object closestPair(Object neighbors) {
+        return ((FastNeighbors) neighbors).findClosestPair();
+    }
+
+    @Override
+    public Object closestPairParallel(Object neighbors) {
+        return ((FastNeighbors) neighbors).findClosestPair(ForkJoinPool.commonPool());
+    }
+
+    @Override
+    public Object closestPairAuto(Object neighbors) {
+        return ((FastNeighbors) neighbors).findClosestPair(ClosestPairStrategy.AUTO);
+    }
+}
@@ -0,0 +1,32 @@
+import cpd2.benchmarks.VecOps;
+
+public class Cpd2VecOps implements VecOps {
+    private static ExecutionPolicy policy(boolean parallel) {
+        return parallel ? ExecutionPolicy.PARALLEL : ExecutionPolicy.SEQUENTIAL;
+    }
+
+    @Override
+    public Object vec(double[] values) {
+        return new Vec(values);
+    }
+
+    @Override
+    public Object add(Object a, Object b, boolean parallel) {
+        return ((Vec) a).add((Vec) b, policy(parallel));
+    }
+
+    @Override
+    public Object scale(Object a, double factor, boolean parallel) {
+        return ((Vec) a).mul(factor, policy(parallel));
+    }
+
+    @Override
+    public double dot(Object a, Object b, boolean parallel) {
+        return ((Vec) a).dot((Vec) b, policy(parallel));
+    }
+
+    @Override
+    public Object axpy(Object y, double alpha, Object x, boolean parallel) {
+        return ((Vec) y).axpy(alpha, (Vec) x, policy(parallel));
+    }
+}
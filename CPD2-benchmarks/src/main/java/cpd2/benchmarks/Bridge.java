@@ -0,0 +1,24 @@
+package cpd2.benchmarks;
+
+/**
+ * Loads the adapters through which the benchmarks call into CPD2.
+ * <p>
+ * The CPD2 classes live in the default package, which cannot be imported, and JMH
+ * refuses benchmarks in the default package. So every adapter interface of this
+ * package is implemented by a default-package class with the same name prefixed by
+ * "Cpd2" (VecOps by Cpd2VecOps, and so on). Each benchmark keeps its adapter in a
+ * field that only ever holds that one class, so the JIT inlines the calls.
+ */
+final class Bridge {
+    private Bridge() {
+    }
+
+    static <T> T load(Class<T> type) {
+        String name = "Cpd2" + type.getSimpleName();
+        try {
+            return type.cast(Class.forName(name).getDeclaredConstructor().newInstance());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot load the adapter " + name, e);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package cpd2.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSVExporter.writeFile throughput in rows per second, for a table of random
+ * coordinates written to a temporary file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CSVExporterBenchmark {
+    @Param({"1000", "1000000"})
+    public int rows;
+
+    @Param({"2", "8"})
+    public int columns;
+
+    private CsvOps ops;
+    private double[][] table;
+    private String[] header;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        ops = Bridge.load(CsvOps.class);
+        SplittableRandom random = new SplittableRandom(42);
+        table = new double[rows][columns];
+        for (double[] row : table) {
+            for (int c = 0; c < columns; c++) {
+                row[c] = random.nextDouble() * 1000;
+            }
+        }
+        header = new String[columns];
+        for (int c = 0; c < columns; c++) {
+            header[c] = "c" + c;
+        }
+        file = Files.createTempFile("cpd2-benchmark", ".csv");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public void writeFile(RowCounter counter) throws IOException {
+        ops.writeFile(table, file.toString(), ";", header);
+        counter.rows += rows;
+    }
+
+    /**
+     * Reports the rows written next to the call rate.
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class RowCounter {
+        public long rows;
+    }
+}
@@ -0,0 +1,10 @@
+package cpd2.benchmarks;
+
+import java.io.IOException;
+
+/**
+ * CSV export.
+ */
+public interface CsvOps {
+    void writeFile(double[][] table, String fileName, String delimiter, String[] header) throws IOException;
+}
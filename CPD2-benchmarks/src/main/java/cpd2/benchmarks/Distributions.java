@@ -0,0 +1,74 @@
+package cpd2.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Point distributions that stress closest pair searches in different ways.
+ */
+final class Distributions {
+    private static final int CLUSTERS = 16;
+
+    private Distributions() {
+    }
+
+    /**
+     * Generates n points.
+     * @param name uniform (unit square), clustered (tight Gaussian blobs), collinear
+     *             (all on one sloped line) or duplicates (every point repeated ten times)
+     * @return the x and y coordinates
+     */
+    static double[][] generate(String name, int n, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        switch (name) {
+            case "uniform":
+                for (int i = 0; i < n; i++) {
+                    xs[i] = random.nextDouble();
+                    ys[i] = random.nextDouble();
+                }
+                break;
+            case "clustered":
+                double[] cx = new double[CLUSTERS];
+                double[] cy = new double[CLUSTERS];
+                for (int c = 0; c < CLUSTERS; c++) {
+                    cx[c] = random.nextDouble();
+                    cy[c] = random.nextDouble();
+                }
+                for (int i = 0; i < n; i++) {
+                    int c = random.nextInt(CLUSTERS);
+                    xs[i] = cx[c] + gaussian(random) * 1e-3;
+                    ys[i] = cy[c] + gaussian(random) * 1e-3;
+                }
+                break;
+            case "collinear":
+                for (int i = 0; i < n; i++) {
+                    xs[i] = random.nextDouble();
+                    ys[i] = 2 * xs[i] + 1;
+                }
+                break;
+            case "duplicates":
+                int distinct = Math.max(1, n / 10);
+                for (int i = 0; i < n; i++) {
+                    if (i < distinct) {
+                        xs[i] = random.nextDouble();
+                        ys[i] = random.nextDouble();
+                    } else {
+                        int j = random.nextInt(distinct);
+                        xs[i] = xs[j];
+                        ys[i] = ys[j];
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + name);
+        }
+        return new double[][]{xs, ys};
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller, one value per call is enough here
+        double u = 1 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+}
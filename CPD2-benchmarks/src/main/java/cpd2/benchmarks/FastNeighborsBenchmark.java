@@ -0,0 +1,58 @@
+package cpd2.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * FastNeighbors.findClosestPair across input sizes and point distributions, for
+ * the original recursion, the fork/join search and the automatically chosen algorithm.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastNeighborsBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"uniform", "clustered", "collinear", "duplicates"})
+    public String distribution;
+
+    private NeighborsOps ops;
+    private Object neighbors;
+
+    @Setup
+    public void setUp() {
+        ops = Bridge.load(NeighborsOps.class);
+        double[][] coordinates = Distributions.generate(distribution, size, 42);
+        neighbors = ops.neighbors(coordinates[0], coordinates[1]);
+    }
+
+    @Benchmark
+    public Object sequential() {
+        return ops.closestPair(neighbors);
+    }
+
+    @Benchmark
+    public Object parallel() {
+        return ops.closestPairParallel(neighbors);
+    }
+
+    @Benchmark
+    public Object auto() {
+        return ops.closestPairAuto(neighbors);
+    }
+}
@@ -0,0 +1,15 @@
+package cpd2.benchmarks;
+
+/**
+ * Vec2 predicates and sorting, on Vec2 arrays passed around as plain objects.
+ */
+public interface GeometryOps {
+    /** Returns a Vec2 array of the given coordinates. */
+    Object points(double[] xs, double[] ys);
+
+    /** Sums Vec2.isTurnedCW over all triples of consecutive points. */
+    int turns(Object points);
+
+    /** Returns a copy of the points sorted by polar angle around the lowest point. */
+    Object sortByPolarAngle(Object points);
+}
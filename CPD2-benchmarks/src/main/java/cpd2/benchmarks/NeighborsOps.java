@@ -0,0 +1,18 @@
+package cpd2.benchmarks;
+
+/**
+ * FastNeighbors searches, on instances passed around as plain objects.
+ */
+public interface NeighborsOps {
+    /** Returns a FastNeighbors over Vec2 points with the given coordinates. */
+    Object neighbors(double[] xs, double[] ys);
+
+    /** Runs the original sequential divide and conquer search. */
+    Object closestPair(Object neighbors);
+
+    /** Runs the fork/join search on the common pool. */
+    Object closestPairParallel(Object neighbors);
+
+    /** Runs the algorithm that ClosestPairStrategy.AUTO chooses. */
+    Object closestPairAuto(Object neighbors);
+}
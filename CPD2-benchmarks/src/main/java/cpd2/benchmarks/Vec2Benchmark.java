@@ -0,0 +1,53 @@
+package cpd2.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The orientation predicate and polar angle sorting of Vec2. turns() runs
+ * size - 2 predicates per call; collinear points force the exact fallback.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vec2Benchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    @Param({"uniform", "collinear"})
+    public String distribution;
+
+    private GeometryOps ops;
+    private Object points;
+
+    @Setup
+    public void setUp() {
+        ops = Bridge.load(GeometryOps.class);
+        double[][] coordinates = Distributions.generate(distribution, size, 42);
+        points = ops.points(coordinates[0], coordinates[1]);
+    }
+
+    @Benchmark
+    public int turns() {
+        return ops.turns(points);
+    }
+
+    @Benchmark
+    public Object sortByPolarAngle() {
+        return ops.sortByPolarAngle(points);
+    }
+}
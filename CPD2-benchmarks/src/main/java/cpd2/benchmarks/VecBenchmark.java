@@ -0,0 +1,76 @@
+package cpd2.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Element-wise Vec operations from tiny to very long vectors, sequential against
+ * the chunked parallel path. The allocating operations show up in the GC
+ * profiler's allocation rate; axpy works in place and should allocate nothing
+ * when sequential.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VecBenchmark {
+    @Param({"2", "100", "10000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private VecOps ops;
+    private Object a;
+    private Object b;
+
+    @Setup
+    public void setUp() {
+        ops = Bridge.load(VecOps.class);
+        SplittableRandom random = new SplittableRandom(42);
+        double[] x = new double[size];
+        double[] y = new double[size];
+        for (int i = 0; i < size; i++) {
+            x[i] = random.nextDouble();
+            y[i] = random.nextDouble();
+        }
+        a = ops.vec(x);
+        b = ops.vec(y);
+    }
+
+    @Benchmark
+    public Object add() {
+        return ops.add(a, b, parallel);
+    }
+
+    @Benchmark
+    public Object scale() {
+        return ops.scale(a, 1.5, parallel);
+    }
+
+    @Benchmark
+    public double dot() {
+        return ops.dot(a, b, parallel);
+    }
+
+    @Benchmark
+    public Object axpy() {
+        // alternating signs keep the values bounded across invocations
+        ops.axpy(a, 0.5, b, parallel);
+        return ops.axpy(a, -0.5, b, parallel);
+    }
+}
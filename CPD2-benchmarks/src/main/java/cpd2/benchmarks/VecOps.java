@@ -0,0 +1,19 @@
+package cpd2.benchmarks;
+
+/**
+ * Vec operations, on vectors passed around as plain objects.
+ */
+public interface VecOps {
+    Object vec(double[] values);
+
+    /** Returns a new vector holding a + b. */
+    Object add(Object a, Object b, boolean parallel);
+
+    /** Returns a new vector holding a * factor. */
+    Object scale(Object a, double factor, boolean parallel);
+
+    double dot(Object a, Object b, boolean parallel);
+
+    /** Adds alpha * x to y in place. */
+    Object axpy(Object y, double alpha, Object x, boolean parallel);
+}
@@ -0,0 +1,246 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The asynchronous back end of Logger: a bounded, lock-free ring of fixed-size
+ * byte records drained by a single background thread.
+ * <p>
+ * A producer encodes its message into a thread-local buffer, claims as many
+ * consecutive records as the message needs with one compare-and-set on the
+ * tail, copies the bytes in and publishes each record by advancing its sequence
+ * number. The consumer takes published records in order, collects them in a
+ * batch buffer and writes the batch with a single call once it is full or the
+ * ring runs empty. Memory is fixed when the sink is created: records times
+ * record size, plus one encoding buffer per logging thread.
+ */
+final class AsyncLogSink {
+    static final int RECORD_SIZE = 256;
+    static final int MAX_RECORDS = 1 << 20;
+    private static final int BATCH_SIZE = 1 << 16;
+    private static final int IDLE_SPINS = 64;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+
+    private final OutputStream out;
+    private final boolean closeOut;
+    private final boolean block;
+    private final int capacity;
+    private final int mask;
+    private final byte[] data;
+    private final int[] lengths;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();  // records written out and flushed
+    private final AtomicLong dropped = new AtomicLong();
+    private final ThreadLocal<byte[]> encoded = ThreadLocal.withInitial(() -> new byte[RECORD_SIZE]);
+    private final Thread consumer;
+    private volatile boolean running = true;
+    private IOException failure;
+
+    /**
+     * Creates the sink and starts its consumer thread.
+     * @param out      where the batches go
+     * @param closeOut whether to close out when the sink stops, rather than just flushing it
+     * @param records  the number of records, rounded up to a power of two
+     * @param block    whether producers wait for space in a full ring, rather than dropping messages
+     */
+    AsyncLogSink(OutputStream out, boolean closeOut, int records, boolean block) {
+        if (records < 1 || records > MAX_RECORDS) {
+            throw new IllegalArgumentException("The number of records must be between 1 and " + MAX_RECORDS);
+        }
+        this.out = out;
+        this.closeOut = closeOut;
+        this.block = block;
+        this.capacity = records == 1 ? 1 : Integer.highestOneBit(records - 1) << 1;
+        this.mask = capacity - 1;
+        this.data = new byte[capacity * RECORD_SIZE];
+        this.lengths = new int[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.consumer = new Thread(this::drain, "Logger");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    /**
+     * Queues a message, or drops it if the ring is full and the sink does not block.
+     * Messages longer than the whole ring are cut off.
+     */
+    void offer(CharSequence text) {
+        int length = Math.min(encode(text), capacity * RECORD_SIZE);
+        byte[] bytes = encoded.get();
+        if (length == 0) {
+            return;
+        }
+        int count = (length + RECORD_SIZE - 1) / RECORD_SIZE;
+        long position = claim(count);
+        if (position < 0) {
+            dropped.incrementAndGet();
+            return;
+        }
+        for (int r = 0; r < count; r++) {
+            int slot = (int) (position + r) & mask;
+            int from = r * RECORD_SIZE;
+            int n = Math.min(RECORD_SIZE, length - from);
+            System.arraycopy(bytes, from, data, slot * RECORD_SIZE, n);
+            lengths[slot] = n;
+            sequences.lazySet(slot, position + r + 1);
+        }
+    }
+
+    /**
+     * Waits until everything queued so far is written out and flushed.
+     */
+    void flush() {
+        long target = tail.get();
+        while (written.get() < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Writes out what is queued, stops the consumer and flushes or closes the output.
+     * Messages offered while the sink stops may be lost.
+     * @throws IOException the first error the consumer ran into, if any
+     */
+    void stop() throws IOException {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Claims count consecutive records.
+     * @return the position of the first record, or -1 if the message was dropped
+     */
+    private long claim(int count) {
+        while (true) {
+            long position = tail.get();
+            // the consumer frees records in order, so the last one being free means all are
+            long last = position + count - 1;
+            long sequence = sequences.get((int) last & mask);
+            if (sequence == last) {
+                if (tail.compareAndSet(position, position + count)) {
+                    return position;
+                }
+            } else if (sequence < last) {
+                // full: the record still holds a message from the previous lap
+                if (!block || !running) {
+                    return -1;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+            }
+            // otherwise another producer claimed it first; retry with the new tail
+        }
+    }
+
+    private void drain() {
+        byte[] batch = new byte[BATCH_SIZE];
+        int batched = 0;
+        long head = 0;
+        int idle = 0;
+        while (true) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) == head + 1) {
+                int n = lengths[slot];
+                if (batched + n > batch.length) {
+                    batched = writeOut(batch, batched, false);
+                }
+                System.arraycopy(data, slot * RECORD_SIZE, batch, batched, n);
+                batched += n;
+                sequences.lazySet(slot, head + capacity);
+                head++;
+                idle = 0;
+                continue;
+            }
+            if (batched > 0 || written.get() < head) {
+                batched = writeOut(batch, batched, true);
+                written.set(head);
+            }
+            if (!running && tail.get() == head) {
+                break;
+            }
+            if (++idle < IDLE_SPINS) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        try {
+            if (closeOut) {
+                out.close();
+            } else {
+                out.flush();
+            }
+        } catch (IOException e) {
+            failure = failure == null ? e : failure;
+        }
+    }
+
+    private int writeOut(byte[] batch, int length, boolean flush) {
+        try {
+            out.write(batch, 0, length);
+            if (flush) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            // keep draining so producers never block on a dead output
+            failure = failure == null ? e : failure;
+        }
+        return 0;
+    }
+
+    /**
+     * Encodes text as UTF-8 into this thread's buffer, growing it as needed.
+     * @return the number of bytes
+     */
+    private int encode(CharSequence text) {
+        byte[] buf = encoded.get();
+        int max = text.length() * 3;
+        if (buf.length < max) {
+            buf = new byte[Math.max(max, buf.length * 2)];
+            encoded.set(buf);
+        }
+        int pos = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                buf[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                buf[pos++] = (byte) (0xC0 | c >> 6);
+                buf[pos++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, text.charAt(++i));
+                buf[pos++] = (byte) (0xF0 | cp >> 18);
+                buf[pos++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                buf[pos++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                buf[pos++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                buf[pos++] = '?';
+            } else {
+                buf[pos++] = (byte) (0xE0 | c >> 12);
+                buf[pos++] = (byte) (0x80 | c >> 6 & 0x3F);
+                buf[pos++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return pos;
+    }
+}
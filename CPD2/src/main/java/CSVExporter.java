@@ -1,6 +1,5 @@
-import java.io.BufferedWriter;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 
 public class CSVExporter {
     /**
@@ -8,36 +7,38 @@ public class CSVExporter {
      * @param tableData  A table as a 2D array
      * @param fileName   Path and name of the CSV file
      * @param delimiter  A string or character delimiting the column values
-     * @param header     An 1D array of the column names
+     * @param header     An 1D array of the column names, or null for none
      */
     public static void writeFile(
             double[][] tableData, String fileName,
             String delimiter, String[] header) throws IOException {
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(fileName))) {
-
+        try (CSVWriter writer = new CSVWriter(Paths.get(fileName), delimiter)) {
+            if (header != null) {
+                writer.writeHeader(header);
+            }
 
             // Write the table data
             for (double[] row : tableData) {
-                writer.write(composeLine(row, delimiter));
-                writer.newLine();
+                writer.writeRow(row);
             }
         }
     }
 
     /**
-     * Creates a string containing the elements of a 1D array separated by a delimite
-     * @param array     1D array
-     * @param delimiter Delimiting string
-     * @return A string of elements
+     * Writes columns of equal length into a CSV file, one row per index, optionally including a header
+     * @param fileName   Path and name of the CSV file
+     * @param delimiter  A string or character delimiting the column values
+     * @param header     An 1D array of the column names, or null for none
+     * @param columns    The columns, e.g. the x and y coordinates of a PointSet
      */
-    private static String composeLine(double[] array, String delimiter) {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < array.length; i++) {
-            sb.append(array[i]);
-            if (i < array.length - 1) {
-                sb.append(delimiter);
+    public static void writeColumns(
+            String fileName, String delimiter,
+            String[] header, double[]... columns) throws IOException {
+        try (CSVWriter writer = new CSVWriter(Paths.get(fileName), delimiter)) {
+            if (header != null) {
+                writer.writeHeader(header);
             }
+            writer.writeColumns(columns);
         }
-        return sb.toString();
     }
 }
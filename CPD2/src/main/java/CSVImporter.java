@@ -0,0 +1,527 @@
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Reads numeric CSV files such as the ones written by CSVExporter and CSVWriter.
+ * <p>
+ * The file is memory-mapped in chunks that end at line breaks, and the chunks are
+ * processed in parallel in two passes: the first counts the rows of every chunk,
+ * which gives each chunk its first row index, and the second parses the values
+ * (see DoubleParser) straight into the column arrays. Each chunk is read in blocks
+ * of whole lines copied out of the mapping. Empty lines are skipped, and
+ * both \n and \r\n line endings are accepted. Every row must have the same number
+ * of values.
+ */
+public class CSVImporter {
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final long MAX_CHUNK_SIZE = 1 << 28;
+    private static final int BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Reads a CSV file into a 2D array, one array per row
+     * @param fileName  Path and name of the CSV file
+     * @param delimiter A string or character delimiting the column values
+     * @param hasHeader Whether the first row holds column names, which are skipped
+     * @return The rows of the table
+     */
+    public static double[][] readFile(String fileName, String delimiter, boolean hasHeader) throws IOException {
+        double[][] columns = readColumns(fileName, delimiter, hasHeader);
+        int rows = columns.length == 0 ? 0 : columns[0].length;
+        double[][] table = new double[rows][columns.length];
+        IntStream.range(0, rows).parallel().forEach(row -> {
+            for (int c = 0; c < columns.length; c++) {
+                table[row][c] = columns[c][row];
+            }
+        });
+        return table;
+    }
+
+    /**
+     * Reads a CSV file into one array per column
+     * @param fileName  Path and name of the CSV file
+     * @param delimiter A string or character delimiting the column values
+     * @param hasHeader Whether the first row holds column names, which are skipped
+     * @return The columns of the table
+     */
+    public static double[][] readColumns(String fileName, String delimiter, boolean hasHeader) throws IOException {
+        return read(Paths.get(fileName), delimiter, hasHeader, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Reads the first two columns of a CSV file as x and y coordinates; further columns are ignored
+     * @param fileName  Path and name of the CSV file
+     * @param delimiter A string or character delimiting the column values
+     * @param hasHeader Whether the first row holds column names, which are skipped
+     * @return The points
+     */
+    public static PointSet readPoints(String fileName, String delimiter, boolean hasHeader) throws IOException {
+        double[][] columns = read(Paths.get(fileName), delimiter, hasHeader, 2);
+        if (columns.length == 0) {
+            return new PointSet(new double[0], new double[0]);
+        }
+        if (columns.length < 2) {
+            throw new IllegalArgumentException("Points need two columns, found " + columns.length);
+        }
+        return new PointSet(columns[0], columns[1]);
+    }
+
+    /**
+     * Reads the first two columns of a CSV file as points
+     * @see #readPoints(String, String, boolean)
+     */
+    public static Vec2[] readVec2(String fileName, String delimiter, boolean hasHeader) throws IOException {
+        PointSet points = readPoints(fileName, delimiter, hasHeader);
+        Vec2[] result = new Vec2[points.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = points.toVec2(i);
+        }
+        return result;
+    }
+
+    /**
+     * Reads the column names from the first row of a CSV file. Quoted names may
+     * contain the delimiter, doubled quotes and line breaks, as written by
+     * CSVWriter.writeHeader.
+     * @return The names, or an empty array for an empty file
+     */
+    public static String[] readHeader(String fileName, String delimiter) throws IOException {
+        List<String> names = new ArrayList<>();
+        StringBuilder name = new StringBuilder();
+        boolean quoted = false;
+        int plain = 0;  // characters at the end of name that were outside quotes
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileName), StandardCharsets.UTF_8)) {
+            int ch = reader.read();
+            if (ch < 0) {
+                return new String[0];
+            }
+            for (; ch >= 0; ch = reader.read()) {
+                if (quoted) {
+                    if (ch == '"') {
+                        reader.mark(1);
+                        if (reader.read() == '"') {
+                            name.append('"');
+                        } else {
+                            reader.reset();
+                            quoted = false;
+                        }
+                    } else {
+                        name.append((char) ch);
+                    }
+                } else if (ch == '"') {
+                    quoted = true;
+                    plain = 0;
+                } else if (ch == '\n') {
+                    break;
+                } else {
+                    name.append((char) ch);
+                    plain++;
+                    int end = name.length() - delimiter.length();
+                    if (plain >= delimiter.length() && name.indexOf(delimiter, end) == end) {
+                        name.setLength(end);
+                        names.add(name.toString());
+                        name.setLength(0);
+                        plain = 0;
+                    }
+                }
+            }
+        }
+        // a CRLF row ends with a carriage return outside the quotes
+        if (plain > 0 && name.charAt(name.length() - 1) == '\r') {
+            name.setLength(name.length() - 1);
+        }
+        names.add(name.toString());
+        return names.toArray(new String[0]);
+    }
+
+    /**
+     * Reads up to maxColumns columns of the file.
+     */
+    private static double[][] read(Path path, String delimiter, boolean hasHeader, int maxColumns)
+            throws IOException {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Delimiter must not be empty");
+        }
+        byte[] delim = delimiter.getBytes(StandardCharsets.UTF_8);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long start = hasHeader ? headerEnd(channel, size) : 0;
+            long[] bounds = chunkBounds(channel, start, size);
+            int chunks = bounds.length - 1;
+            MappedByteBuffer[] maps = new MappedByteBuffer[chunks];
+            for (int c = 0; c < chunks; c++) {
+                maps[c] = channel.map(FileChannel.MapMode.READ_ONLY, bounds[c], bounds[c + 1] - bounds[c]);
+            }
+
+            int[] rowCounts = new int[chunks];
+            IntStream.range(0, chunks).parallel().forEach(c -> rowCounts[c] = countRows(maps[c]));
+            long totalRows = 0;
+            int[] firstRow = new int[chunks];
+            for (int c = 0; c < chunks; c++) {
+                firstRow[c] = (int) totalRows;
+                totalRows += rowCounts[c];
+            }
+            if (totalRows > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many rows for arrays: " + totalRows);
+            }
+            if (totalRows == 0) {
+                return new double[0][];
+            }
+
+            int columnCount = columnCount(maps, delim);
+            double[][] columns = new double[Math.min(columnCount, maxColumns)][(int) totalRows];
+            IntStream.range(0, chunks).parallel().forEach(c ->
+                    parseChunk(maps[c], delim, columnCount, columns, firstRow[c], bounds[c]));
+            return columns;
+        }
+    }
+
+    /**
+     * Splits [start, size) into chunks of similar length that end right after a line break.
+     */
+    private static long[] chunkBounds(FileChannel channel, long start, long size) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        long target = Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, (size - start) / (4L * parallelism)));
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(start);
+        long position = start;
+        while (position < size) {
+            position = position + target >= size ? size : lineEnd(channel, position + target, size);
+            bounds.add(position);
+        }
+        long[] result = new long[bounds.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = bounds.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position after the first line break at or after from, or the file size.
+     */
+    private static long lineEnd(FileChannel channel, long from, long size) throws IOException {
+        return rowEnd(channel, from, size, false);
+    }
+
+    /**
+     * Returns the position just past the header row, whose quoted names may contain line breaks.
+     */
+    private static long headerEnd(FileChannel channel, long size) throws IOException {
+        return rowEnd(channel, 0, size, true);
+    }
+
+    private static long rowEnd(FileChannel channel, long from, long size, boolean quotes) throws IOException {
+        ByteBuffer window = ByteBuffer.allocate(1 << 12);
+        long position = from;
+        boolean quoted = false;
+        while (position < size) {
+            window.clear();
+            int read = channel.read(window, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = window.get(i);
+                // a doubled quote inside a quoted name toggles twice and changes nothing
+                if (quotes && b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Counts the lines of a chunk that hold anything besides line break characters.
+     */
+    private static int countRows(ByteBuffer chunk) {
+        int rows = 0;
+        Lines lines = new Lines(chunk);
+        while (lines.next()) {
+            byte[] buf = lines.bytes;
+            boolean content = false;
+            for (int i = 0; i < lines.length; i++) {
+                byte b = buf[i];
+                if (b == '\n') {
+                    if (content) {
+                        rows++;
+                    }
+                    content = false;
+                } else if (b != '\r') {
+                    content = true;
+                }
+            }
+            if (content) {
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Counts the values of the first non-empty line.
+     */
+    private static int columnCount(ByteBuffer[] maps, byte[] delim) {
+        for (ByteBuffer chunk : maps) {
+            Lines lines = new Lines(chunk);
+            while (lines.next()) {
+                int pos = skipEmptyLines(lines.bytes, 0, lines.length);
+                if (pos < lines.length) {
+                    return lineColumns(lines.bytes, pos, lines.length, delim);
+                }
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Counts the values of the line starting at pos.
+     */
+    private static int lineColumns(byte[] buf, int pos, int end, byte[] delim) {
+        int columns = 1;
+        for (; pos < end; pos++) {
+            byte b = buf[pos];
+            if (b == '\n' || b == '\r') {
+                break;
+            }
+            if (isDelimiter(buf, pos, end, delim)) {
+                columns++;
+                pos += delim.length - 1;
+            }
+        }
+        return columns;
+    }
+
+    private static void parseChunk(ByteBuffer chunk, byte[] delim, int columnCount, double[][] columns, int row,
+                                   long offset) {
+        double[] values = new double[columns.length];
+        Lines lines = new Lines(chunk);
+        while (lines.next()) {
+            byte[] buf = lines.bytes;
+            int end = lines.length;
+            int pos = skipEmptyLines(buf, 0, end);
+            while (pos < end) {
+                pos = parseRow(buf, pos, end, delim, columnCount, values, offset + lines.start);
+                for (int c = 0; c < values.length; c++) {
+                    columns[c][row] = values[c];
+                }
+                row++;
+                pos = skipEmptyLines(buf, pos, end);
+            }
+        }
+    }
+
+    /**
+     * Parses the row starting at pos and keeps its first values.length values.
+     * @param offset the file position of buf[0], for error messages
+     * @return the position of the line break that ends the row, or end
+     */
+    private static int parseRow(byte[] buf, int pos, int end, byte[] delim, int columnCount, double[] values,
+                                long offset) {
+        for (int c = 0; c < columnCount; c++) {
+            int from = pos;
+            pos = valueEnd(buf, pos, end, delim);
+            if (c < values.length) {
+                values[c] = DoubleParser.parse(buf, from, pos);
+            }
+            if (c < columnCount - 1) {
+                if (pos == end || !isDelimiter(buf, pos, end, delim)) {
+                    throw raggedRow(offset + from, columnCount);
+                }
+                pos += delim.length;
+            }
+        }
+        if (pos < end && buf[pos] != '\n' && buf[pos] != '\r') {
+            throw raggedRow(offset + pos, columnCount);
+        }
+        return pos;
+    }
+
+    /**
+     * Returns the position of the delimiter or line break that ends the value starting at pos.
+     */
+    private static int valueEnd(byte[] buf, int pos, int end, byte[] delim) {
+        byte first = delim[0];
+        if (delim.length == 1) {
+            while (pos < end) {
+                byte b = buf[pos];
+                if (b == first || b == '\n' || b == '\r') {
+                    break;
+                }
+                pos++;
+            }
+            return pos;
+        }
+        while (pos < end && !isDelimiter(buf, pos, end, delim) && buf[pos] != '\n' && buf[pos] != '\r') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Skips line break characters, which also skips empty lines.
+     */
+    private static int skipEmptyLines(byte[] buf, int pos, int end) {
+        while (pos < end && (buf[pos] == '\n' || buf[pos] == '\r')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isDelimiter(byte[] buf, int pos, int end, byte[] delim) {
+        if (buf[pos] != delim[0] || pos + delim.length > end) {
+            return false;
+        }
+        for (int i = 1; i < delim.length; i++) {
+            if (buf[pos + i] != delim[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IllegalArgumentException raggedRow(long position, int columnCount) {
+        return new IllegalArgumentException("Row near byte " + position + " does not have "
+                + columnCount + " values");
+    }
+
+    /**
+     * Reads the first two columns of a CSV file as points, a batch at a time and in
+     * file order, for files whose points do not fit in arrays. Only one chunk of the
+     * file is mapped at a time, and the rows are parsed as by readPoints.
+     */
+    static final class PointReader implements Closeable {
+        private final FileChannel channel;
+        private final byte[] delim;
+        private final long[] bounds;
+        private final double[] values = new double[2];
+        private int chunk = -1;
+        private Lines lines;   // of the current chunk, null before the first one
+        private int pos;       // in lines.bytes
+        private int columnCount;  // 0 until the first row has been seen
+
+        PointReader(Path path, String delimiter, boolean hasHeader) throws IOException {
+            if (delimiter.isEmpty()) {
+                throw new IllegalArgumentException("Delimiter must not be empty");
+            }
+            this.delim = delimiter.getBytes(StandardCharsets.UTF_8);
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                long start = hasHeader ? headerEnd(channel, size) : 0;
+                this.bounds = chunkBounds(channel, start, size);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads up to length points into xs and ys from position from.
+         * @return the number of points read, which is less than length only at the end of the file
+         * @throws IllegalArgumentException if a row has fewer than two values or not as many as the first
+         */
+        int read(double[] xs, double[] ys, int from, int length) throws IOException {
+            int count = 0;
+            while (count < length) {
+                if (lines == null || pos == lines.length) {
+                    if (!nextBlock()) {
+                        break;
+                    }
+                    continue;
+                }
+                byte[] buf = lines.bytes;
+                pos = skipEmptyLines(buf, pos, lines.length);
+                if (pos == lines.length) {
+                    continue;
+                }
+                if (columnCount == 0) {
+                    columnCount = lineColumns(buf, pos, lines.length, delim);
+                    if (columnCount < 2) {
+                        throw new IllegalArgumentException("Points need two columns, found " + columnCount);
+                    }
+                }
+                pos = parseRow(buf, pos, lines.length, delim, columnCount, values, bounds[chunk] + lines.start);
+                xs[from + count] = values[0];
+                ys[from + count] = values[1];
+                count++;
+            }
+            return count;
+        }
+
+        private boolean nextBlock() throws IOException {
+            pos = 0;
+            while (lines == null || !lines.next()) {
+                if (chunk + 2 >= bounds.length) {
+                    lines = null;
+                    return false;
+                }
+                chunk++;
+                lines = new Lines(channel.map(FileChannel.MapMode.READ_ONLY, bounds[chunk],
+                        bounds[chunk + 1] - bounds[chunk]));
+            }
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Copies a mapped chunk into a reusable array block by block, each block ending
+     * after a line break (or at the end of the chunk). Reading the array is much
+     * cheaper than reading the mapping byte by byte.
+     */
+    private static final class Lines {
+        private final ByteBuffer chunk;
+        byte[] bytes;
+        int start;    // chunk position of bytes[0]
+        int length;   // number of valid bytes
+
+        Lines(ByteBuffer chunk) {
+            this.chunk = chunk.duplicate();
+            this.bytes = new byte[Math.min(BLOCK_SIZE, Math.max(chunk.limit(), 1))];
+        }
+
+        boolean next() {
+            start += length;
+            int remaining = chunk.limit() - start;
+            if (remaining <= 0) {
+                return false;
+            }
+            while (true) {
+                int n = Math.min(bytes.length, remaining);
+                chunk.position(start);
+                chunk.get(bytes, 0, n);
+                if (n == remaining) {
+                    length = n;
+                    return true;
+                }
+                for (int i = n - 1; i >= 0; i--) {
+                    if (bytes[i] == '\n') {
+                        length = i + 1;
+                        return true;
+                    }
+                }
+                // a line longer than the block
+                bytes = new byte[bytes.length * 2];
+            }
+        }
+    }
+}
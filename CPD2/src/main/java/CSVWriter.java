@@ -0,0 +1,245 @@
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.PrimitiveIterator;
+import java.util.stream.DoubleStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams rows of doubles into a CSV file without holding the table in memory.
+ * Values are formatted straight into a reusable byte buffer (see DoubleFormat),
+ * which is handed to a FileChannel, or to a gzip stream on top of it, whenever
+ * it fills up. Nothing is allocated per value or per row.
+ * <p>
+ * Values are written in the shortest form that parses back to the same double,
+ * or with a fixed number of digits after the decimal point. Rows end with the
+ * platform line separator, and text is encoded as UTF-8.
+ */
+public class CSVWriter implements Closeable, Flushable {
+    /** Precision that selects the shortest round-trip format. */
+    public static final int SHORTEST = -1;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final OutputStream gzip;   // null for plain output
+    private final byte[] delimiter;
+    private final byte[] lineSeparator = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private final String delimiterText;
+    private final int precision;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final ByteBuffer view = ByteBuffer.wrap(buffer);
+    private int position;
+    private boolean rowStarted;
+
+    /**
+     * Creates or truncates a plain CSV file whose values use the shortest format.
+     * @param path      the file to write
+     * @param delimiter the string separating the values of a row
+     */
+    public CSVWriter(Path path, String delimiter) throws IOException {
+        this(path, delimiter, SHORTEST, false);
+    }
+
+    /**
+     * Creates or truncates a CSV file.
+     * @param path      the file to write
+     * @param delimiter the string separating the values of a row
+     * @param precision the number of digits after the decimal point, or SHORTEST
+     * @param gzip      whether to compress the file with gzip, at the fastest level
+     */
+    public CSVWriter(Path path, String delimiter, int precision, boolean gzip) throws IOException {
+        if (delimiter.isEmpty()) {
+            throw new IllegalArgumentException("Delimiter must not be empty");
+        }
+        if (precision != SHORTEST && (precision < 0 || precision > DoubleFormat.MAX_PRECISION)) {
+            throw new IllegalArgumentException("Precision must be SHORTEST or between 0 and "
+                    + DoubleFormat.MAX_PRECISION);
+        }
+        this.delimiter = delimiter.getBytes(StandardCharsets.UTF_8);
+        this.delimiterText = delimiter;
+        this.precision = precision;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream compressed = null;
+        if (gzip) {
+            try {
+                // favour throughput: the fastest level still shrinks number columns severalfold
+                compressed = new GZIPOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE) {
+                    {
+                        def.setLevel(Deflater.BEST_SPEED);
+                    }
+                };
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+        this.gzip = compressed;
+    }
+
+    /**
+     * Writes a row of column names. Names containing the delimiter, quotes or line
+     * breaks are quoted.
+     */
+    public void writeHeader(String... names) throws IOException {
+        for (String name : names) {
+            startValue();
+            boolean quote = name.contains(delimiterText) || name.indexOf('"') >= 0
+                    || name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0;
+            String text = quote ? '"' + name.replace("\"", "\"\"") + '"' : name;
+            write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        endRow();
+    }
+
+    /**
+     * Appends a value to the current row.
+     */
+    public void writeValue(double value) throws IOException {
+        startValue();
+        int reserve = DoubleFormat.MAX_SHORTEST_LENGTH + Math.max(precision, 0);
+        if (position + reserve > buffer.length) {
+            drain();
+        }
+        if (precision == SHORTEST) {
+            position = DoubleFormat.shortest(value, buffer, position);
+            return;
+        }
+        int end = DoubleFormat.fixed(value, precision, buffer, position);
+        if (end >= 0) {
+            position = end;
+        } else {
+            write(DoubleFormat.fixedString(value, precision).getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+
+    /**
+     * Ends the current row.
+     */
+    public void endRow() throws IOException {
+        write(lineSeparator);
+        rowStarted = false;
+    }
+
+    /**
+     * Writes a complete row.
+     */
+    public void writeRow(double... values) throws IOException {
+        for (double value : values) {
+            writeValue(value);
+        }
+        endRow();
+    }
+
+    /**
+     * Writes one row per index of the given columns, e.g. the coordinate arrays of a PointSet.
+     * @throws IllegalArgumentException if the columns have different lengths
+     */
+    public void writeColumns(double[]... columns) throws IOException {
+        int rows = columns.length == 0 ? 0 : columns[0].length;
+        for (double[] column : columns) {
+            if (column.length != rows) {
+                throw new IllegalArgumentException("Columns must have the same length");
+            }
+        }
+        for (int row = 0; row < rows; row++) {
+            for (double[] column : columns) {
+                writeValue(column[row]);
+            }
+            endRow();
+        }
+    }
+
+    /**
+     * Writes the values of a stream row by row, in encounter order.
+     * A final incomplete row is ended as it is.
+     * @param values  the values, row after row
+     * @param columns the number of values per row
+     */
+    public void writeRows(DoubleStream values, int columns) throws IOException {
+        if (columns < 1) {
+            throw new IllegalArgumentException("A row needs at least one column");
+        }
+        PrimitiveIterator.OfDouble it = values.iterator();
+        int column = 0;
+        while (it.hasNext()) {
+            writeValue(it.nextDouble());
+            if (++column == columns) {
+                endRow();
+                column = 0;
+            }
+        }
+        if (column > 0) {
+            endRow();
+        }
+    }
+
+    /**
+     * Passes the buffered bytes on to the file (or the gzip stream).
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        if (gzip != null) {
+            gzip.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+            if (gzip != null) {
+                gzip.close();
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void startValue() throws IOException {
+        if (rowStarted) {
+            write(delimiter);
+        }
+        rowStarted = true;
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        if (position + bytes.length > buffer.length) {
+            drain();
+            if (bytes.length > buffer.length) {
+                writeOut(ByteBuffer.wrap(bytes));
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    private void drain() throws IOException {
+        if (position == 0) {
+            return;
+        }
+        view.clear().limit(position);
+        writeOut(view);
+        position = 0;
+    }
+
+    private void writeOut(ByteBuffer bytes) throws IOException {
+        if (gzip != null) {
+            gzip.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+            return;
+        }
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
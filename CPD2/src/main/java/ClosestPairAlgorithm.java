@@ -0,0 +1,12 @@
+/**
+ * A strategy for finding the closest pair of points in a PointSet.
+ */
+public interface ClosestPairAlgorithm {
+    /**
+     * Finds the closest pair of points in the given set.
+     * @param points the points to search
+     * @return the closest pair as indices into points
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    ClosestPairResult findClosestPair(PointSet points);
+}
@@ -0,0 +1,407 @@
+import java.nio.DoubleBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Divide and conquer closest pair search over a PointSet.
+ * The points are sorted by x once; every recursion step merges its halves by y
+ * instead of re-sorting the strip, so a run takes O(n log n) time.
+ * Distances are compared squared and all scratch buffers are kept between calls,
+ * so repeated runs on inputs of similar size do not allocate beyond the result.
+ * An engine instance is not thread-safe; use one engine per thread.
+ * The parallel mode splits the same recursion into fork/join tasks that work on
+ * disjoint buffer ranges and return their own best pair, so it finds exactly the
+ * same pair as the sequential mode.
+ * With setCollectStats(true) every result carries the ClosestPairStats of its run,
+ * and every run is reported to JFR as a ClosestPairEvent.
+ */
+public class ClosestPairEngine implements ClosestPairAlgorithm {
+    private static final int BRUTE_FORCE_SIZE = 3;
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 13;
+
+    private final int sequentialCutoff;
+    private boolean collectStats;
+    private ClosestPairStats stats;  // of the current run, null unless collecting
+
+    private int[] order = new int[0];  // original index of each position in x order
+    private int[] aux = new int[0];
+    private double[] sx = new double[0];  // x coordinates in x order
+    private double[] sy = new double[0];  // y coordinates in x order
+    private int[] byY = new int[0];       // positions, sorted by y within each solved range
+    private int[] strip = new int[0];
+
+    public ClosestPairEngine() {
+        this(DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * @param sequentialCutoff ranges of at most this many points are solved
+     *                         sequentially by the parallel mode
+     */
+    public ClosestPairEngine(int sequentialCutoff) {
+        if (sequentialCutoff <= BRUTE_FORCE_SIZE) {
+            throw new IllegalArgumentException("Sequential cutoff must be greater than " + BRUTE_FORCE_SIZE);
+        }
+        this.sequentialCutoff = sequentialCutoff;
+    }
+
+    /**
+     * Turns the collection of ClosestPairStats on or off for the following runs.
+     */
+    public void setCollectStats(boolean collectStats) {
+        this.collectStats = collectStats;
+    }
+
+    /**
+     * Finds the closest pair of points in the given set.
+     * @param points the points to search
+     * @return the closest pair as indices into points
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    @Override
+    public ClosestPairResult findClosestPair(PointSet points) {
+        int n = points.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        ClosestPairEvent event = start(n);
+        long sortStart = stats == null ? 0 : System.nanoTime();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        IndexSort.sort(order, 0, n, xs, null, aux);
+        gather(xs, ys, 0, n);
+        if (stats != null) {
+            stats.addSortNanos(System.nanoTime() - sortStart);
+        }
+        long pair = solve(0, n, 0);
+        return finish(event, n, toResult(points, pair));
+    }
+
+    /**
+     * Finds the closest pair of points in the given set using fork/join tasks.
+     * The result is identical to findClosestPair(points).
+     * @param points the points to search
+     * @param pool   the pool to run the tasks in
+     * @return the closest pair as indices into points
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    public ClosestPairResult findClosestPair(PointSet points, ForkJoinPool pool) {
+        int n = points.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        ClosestPairEvent event = start(n);
+        long sortStart = stats == null ? 0 : System.nanoTime();
+        pool.invoke(new SortTask(points.xs(), 0, n));
+        if (stats != null) {
+            stats.addSortNanos(System.nanoTime() - sortStart);
+        }
+        long pair = pool.invoke(new SolveTask(points.xs(), points.ys(), 0, n, 0));
+        return finish(event, n, toResult(points, pair));
+    }
+
+    /**
+     * Finds the closest pair of points given as coordinate buffers, such as the
+     * memory-mapped columns of a PointFile. The buffers are read in place, from
+     * index 0 up to their limit; the engine only fills its own scratch arrays.
+     * @param xs the x coordinates
+     * @param ys the y coordinates
+     * @return the closest pair as indices into the buffers
+     * @throws IllegalArgumentException if the buffers have different limits or hold
+     *                                  fewer than two points
+     */
+    public ClosestPairResult findClosestPair(DoubleBuffer xs, DoubleBuffer ys) {
+        int n = xs.limit();
+        if (ys.limit() != n) {
+            throw new IllegalArgumentException("Coordinate buffers must have the same length");
+        }
+        if (n < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        ClosestPairEvent event = start(n);
+        long sortStart = stats == null ? 0 : System.nanoTime();
+        // sort by x using sy as the key array, then gather x from it before sy is overwritten
+        xs.duplicate().position(0).get(sy, 0, n);
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        IndexSort.sort(order, 0, n, sy, null, aux);
+        for (int p = 0; p < n; p++) {
+            sx[p] = sy[order[p]];
+        }
+        for (int p = 0; p < n; p++) {
+            sy[p] = ys.get(order[p]);
+        }
+        if (stats != null) {
+            stats.addSortNanos(System.nanoTime() - sortStart);
+        }
+        long pair = solve(0, n, 0);
+        int i = first(pair);
+        int j = second(pair);
+        return finish(event, n,
+                new ClosestPairResult(order[i], order[j], distanceSquared(i, j), sx[i], sy[i], sx[j], sy[j]));
+    }
+
+    /**
+     * Prepares a run over n points.
+     */
+    private ClosestPairEvent start(int n) {
+        ClosestPairEvent event = new ClosestPairEvent();
+        event.begin();
+        stats = collectStats ? new ClosestPairStats(n) : null;
+        ensureCapacity(n);
+        return event;
+    }
+
+    private ClosestPairResult finish(ClosestPairEvent event, int n, ClosestPairResult result) {
+        ClosestPairStats runStats = stats;
+        stats = null;
+        if (runStats != null) {
+            runStats.finish();
+            result = result.withStats(runStats);
+        }
+        event.commit("divide and conquer", n, runStats);
+        return result;
+    }
+
+    private void ensureCapacity(int n) {
+        if (order.length < n) {
+            order = new int[n];
+            aux = new int[n];
+            sx = new double[n];
+            sy = new double[n];
+            byY = new int[n];
+            strip = new int[n];
+        }
+    }
+
+    /**
+     * Copies the coordinates of positions [lo, hi) into x order.
+     */
+    private void gather(double[] xs, double[] ys, int lo, int hi) {
+        for (int p = lo; p < hi; p++) {
+            sx[p] = xs[order[p]];
+            sy[p] = ys[order[p]];
+        }
+    }
+
+    private ClosestPairResult toResult(PointSet points, long pair) {
+        int i = first(pair);
+        int j = second(pair);
+        return new ClosestPairResult(points, order[i], order[j], distanceSquared(i, j));
+    }
+
+    /**
+     * Solves positions [lo, hi) and leaves byY[lo..hi) sorted by y.
+     * @return the closest pair of the range, packed by pack()
+     */
+    private long solve(int lo, int hi, int depth) {
+        if (hi - lo <= BRUTE_FORCE_SIZE) {
+            return bruteForce(lo, hi, depth);
+        }
+        int mid = (lo + hi) >>> 1;
+        long left = solve(lo, mid, depth + 1);
+        long right = solve(mid, hi, depth + 1);
+        return combine(lo, mid, hi, left, right, depth);
+    }
+
+    /**
+     * Merges two solved halves: picks the better pair, merges the halves by y
+     * and checks the pairs crossing the dividing line.
+     */
+    private long combine(int lo, int mid, int hi, long left, long right, int depth) {
+        long best = distanceSquared(right) < distanceSquared(left) ? right : left;
+        if (stats == null) {
+            IndexSort.merge(byY, lo, mid, hi, sy, null, aux);
+            return scanStrip(lo, hi, sx[mid], best);
+        }
+        long mergeStart = System.nanoTime();
+        IndexSort.merge(byY, lo, mid, hi, sy, null, aux);
+        stats.addMergeNanos(System.nanoTime() - mergeStart);
+        return scanStripCounted(lo, hi, sx[mid], best, depth);
+    }
+
+    private long bruteForce(int lo, int hi, int depth) {
+        long best = pack(lo, lo + 1);
+        double minDist = distanceSquared(lo, lo + 1);
+        for (int i = lo; i < hi; i++) {
+            byY[i] = i;
+            for (int j = i + 1; j < hi; j++) {
+                double dist = distanceSquared(i, j);
+                if (dist < minDist) {
+                    minDist = dist;
+                    best = pack(i, j);
+                }
+            }
+        }
+        IndexSort.insertionSort(byY, lo, hi, sy, null);
+        if (stats != null) {
+            stats.addDistanceEvaluations((long) (hi - lo) * (hi - lo - 1) / 2 + 1);
+            stats.reachedDepth(depth);
+        }
+        return best;
+    }
+
+    /**
+     * Checks the points closer to the dividing line than the best distance so far.
+     * Uses strip[lo..hi) as scratch, so disjoint ranges never share buffer space.
+     */
+    private long scanStrip(int lo, int hi, double midX, long best) {
+        double minDist = distanceSquared(best);
+        int end = collectStrip(lo, hi, midX, minDist);
+        for (int i = lo; i < end; i++) {
+            int a = strip[i];
+            for (int k = i + 1; k < end; k++) {
+                int b = strip[k];
+                double dy = sy[b] - sy[a];
+                if (dy * dy >= minDist) {
+                    break;
+                }
+                double dist = distanceSquared(a, b);
+                if (dist < minDist) {
+                    minDist = dist;
+                    best = pack(a, b);
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Does the same as scanStrip and records the work in the stats; kept apart so
+     * the counting stays out of the uninstrumented loop.
+     */
+    private long scanStripCounted(int lo, int hi, double midX, long best, int depth) {
+        long scanStart = System.nanoTime();
+        long evaluations = 0;
+        double minDist = distanceSquared(best);
+        int end = collectStrip(lo, hi, midX, minDist);
+        for (int i = lo; i < end; i++) {
+            int a = strip[i];
+            for (int k = i + 1; k < end; k++) {
+                int b = strip[k];
+                double dy = sy[b] - sy[a];
+                if (dy * dy >= minDist) {
+                    break;
+                }
+                double dist = distanceSquared(a, b);
+                evaluations++;
+                if (dist < minDist) {
+                    minDist = dist;
+                    best = pack(a, b);
+                }
+            }
+        }
+        stats.addDistanceEvaluations(evaluations);
+        stats.addStrip(depth, end - lo, System.nanoTime() - scanStart);
+        return best;
+    }
+
+    /**
+     * Copies the positions closer to the dividing line than minDist into strip, in y order.
+     * @return the end of the strip
+     */
+    private int collectStrip(int lo, int hi, double midX, double minDist) {
+        int end = lo;
+        for (int k = lo; k < hi; k++) {
+            int p = byY[k];
+            double dx = sx[p] - midX;
+            if (dx * dx < minDist) {
+                strip[end++] = p;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Sorts order[lo..hi) by x, splitting the same way as IndexSort.sort.
+     */
+    private class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] xs;
+        private final int lo;
+        private final int hi;
+
+        SortTask(double[] xs, int lo, int hi) {
+            this.xs = xs;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= sequentialCutoff) {
+                for (int i = lo; i < hi; i++) {
+                    order[i] = i;
+                }
+                IndexSort.sort(order, lo, hi, xs, null, aux);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SortTask(xs, lo, mid), new SortTask(xs, mid, hi));
+            IndexSort.merge(order, lo, mid, hi, xs, null, aux);
+        }
+    }
+
+    /**
+     * Solves positions [lo, hi) and returns the packed best pair of the range.
+     */
+    private class SolveTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] xs;
+        private final double[] ys;
+        private final int lo;
+        private final int hi;
+        private final int depth;
+
+        SolveTask(double[] xs, double[] ys, int lo, int hi, int depth) {
+            this.xs = xs;
+            this.ys = ys;
+            this.lo = lo;
+            this.hi = hi;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            if (hi - lo <= sequentialCutoff) {
+                gather(xs, ys, lo, hi);
+                return solve(lo, hi, depth);
+            }
+            int mid = (lo + hi) >>> 1;
+            SolveTask leftTask = new SolveTask(xs, ys, lo, mid, depth + 1);
+            leftTask.fork();
+            long right = new SolveTask(xs, ys, mid, hi, depth + 1).compute();
+            long left = leftTask.join();
+            return combine(lo, mid, hi, left, right, depth);
+        }
+    }
+
+    private double distanceSquared(int i, int j) {
+        double dx = sx[i] - sx[j];
+        double dy = sy[i] - sy[j];
+        return dx * dx + dy * dy;
+    }
+
+    private double distanceSquared(long pair) {
+        return distanceSquared(first(pair), second(pair));
+    }
+
+    private static long pack(int i, int j) {
+        return ((long) i << 32) | (j & 0xFFFFFFFFL);
+    }
+
+    private static int first(long pair) {
+        return (int) (pair >>> 32);
+    }
+
+    private static int second(long pair) {
+        return (int) pair;
+    }
+}
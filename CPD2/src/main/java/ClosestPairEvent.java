@@ -0,0 +1,71 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A JFR event for every closest pair run, recorded while a flight recording with
+ * the event enabled is running (e.g. -XX:StartFlightRecording). The counters are
+ * only filled in when the run collects ClosestPairStats; otherwise they are -1.
+ * When no recording is running the event costs next to nothing.
+ */
+@Name("cpd2.ClosestPair")
+@Label("Closest Pair")
+@Category("CPD2")
+@Description("A closest pair search")
+@StackTrace(false)
+final class ClosestPairEvent extends Event {
+    @Label("Algorithm")
+    String algorithm;
+
+    @Label("Points")
+    int points;
+
+    @Label("Distance Evaluations")
+    long distanceEvaluations = -1;
+
+    @Label("Max Depth")
+    int maxDepth = -1;
+
+    @Label("Sort Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long sortTime = -1;
+
+    @Label("Merge Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long mergeTime = -1;
+
+    @Label("Strip Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long stripTime = -1;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated = -1;
+
+    /**
+     * Commits the event if the recording wants it.
+     * @param stats the stats of the run, or null if none were collected
+     */
+    void commit(String algorithm, int points, ClosestPairStats stats) {
+        end();
+        if (!shouldCommit()) {
+            return;
+        }
+        this.algorithm = algorithm;
+        this.points = points;
+        if (stats != null) {
+            distanceEvaluations = stats.getDistanceEvaluations();
+            maxDepth = stats.getMaxDepth();
+            sortTime = stats.getSortNanos();
+            mergeTime = stats.getMergeNanos();
+            stripTime = stats.getStripNanos();
+            allocated = stats.getAllocatedBytes();
+        }
+        commit();
+    }
+}
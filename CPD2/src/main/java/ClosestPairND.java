@@ -0,0 +1,371 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closest pair search for points of any dimension, stored in a VecSet.
+ * <p>
+ * The strategy depends on the dimension. Plane points go to ClosestPairEngine.
+ * From GRID_MIN_DIMENSION to GRID_MAX_DIMENSION coordinates the search is the
+ * randomized incremental grid of GridClosestPair, lifted to d dimensions: every
+ * new point is compared with the points of the 3^d cells around it. Cell
+ * coordinates are hashed into one long, so two cells may share a key; that only
+ * adds candidates, it never loses one.
+ * <p>
+ * Otherwise the search is a pruned brute force: the points are sorted along the
+ * axis of largest spread and copied in that order, so every point is compared with
+ * a contiguous run of the rows after it. The run ends once the gap along the axis
+ * alone reaches the best distance, and each distance evaluation stops as soon as
+ * its partial sum does. Ranges of points are scanned in parallel and share the
+ * best distance found so far. In one and three dimensions the runs stay short
+ * and this beats the grid; beyond GRID_MAX_DIMENSION the 3^d cells cost more than
+ * comparing against the rows directly.
+ * <p>
+ * The sweep degenerates when most points share a narrow band along the widest
+ * axis, such as a flat sheet with a few far outliers: the runs then span almost
+ * all points. The sweep therefore counts its distance evaluations and hands the
+ * search to the grid once they exceed SWEEP_COMPARISONS_PER_CELL times 3^d per
+ * point, about what the grid would have spent.
+ * <p>
+ * When several pairs are equally close, any of them may be returned.
+ */
+public final class ClosestPairND {
+    /** The lowest dimension searched with the grid. */
+    public static final int GRID_MIN_DIMENSION = 4;
+    /** The highest dimension searched with the grid. */
+    public static final int GRID_MAX_DIMENSION = 5;
+    /** Distance evaluations per point and grid cell the sweep may spend before switching to the grid. */
+    static final int SWEEP_COMPARISONS_PER_CELL = 8;
+
+    // see GridClosestPair
+    private static final double CELL_MARGIN = 1e-5;
+    private static final double MAX_CELL_INDEX = 1 << 30;
+    private static final long SEED = GridClosestPair.DEFAULT_SEED;
+
+    private ClosestPairND() {
+    }
+
+    /**
+     * Two points of a VecSet and their squared distance.
+     */
+    public static final class Result {
+        private final int first;
+        private final int second;
+        private final double distanceSquared;
+
+        Result(int first, int second, double distanceSquared) {
+            this.first = first;
+            this.second = second;
+            this.distanceSquared = distanceSquared;
+        }
+
+        public int getFirst() {
+            return first;
+        }
+
+        public int getSecond() {
+            return second;
+        }
+
+        public double getDistanceSquared() {
+            return distanceSquared;
+        }
+
+        public double getDistance() {
+            return Math.sqrt(distanceSquared);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + first + ", " + second + ") at distance " + getDistance();
+        }
+    }
+
+    /**
+     * Finds the closest pair, scanning in parallel for large high-dimensional inputs.
+     * @param points at least two points
+     * @return the closest pair
+     */
+    public static Result find(VecSet points) {
+        return find(points, ExecutionPolicy.ADAPTIVE);
+    }
+
+    /**
+     * Finds the closest pair.
+     * @param points at least two points
+     * @param policy decides whether the pruned brute force runs in parallel; the other strategies ignore it
+     * @return the closest pair
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    public static Result find(VecSet points, ExecutionPolicy policy) {
+        if (points.size() < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        int d = points.dimension();
+        if (d == 2) {
+            return plane(points);
+        }
+        if (d >= GRID_MIN_DIMENSION && d <= GRID_MAX_DIMENSION) {
+            return grid(points, SEED, policy);
+        }
+        return sweep(points, policy);
+    }
+
+    private static Result plane(VecSet points) {
+        int n = points.size();
+        double[] coords = points.coords();
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = coords[2 * i];
+            ys[i] = coords[2 * i + 1];
+        }
+        ClosestPairResult result = new ClosestPairEngine().findClosestPair(new PointSet(xs, ys));
+        return new Result(result.getFirst(), result.getSecond(), result.getDistanceSquared());
+    }
+
+    /**
+     * The randomized incremental grid search; falls back to the sweep if the grid degenerates.
+     */
+    static Result grid(VecSet points, long seed, ExecutionPolicy policy) {
+        int n = points.size();
+        int d = points.dimension();
+        double[] coords = points.coords();
+        SquaredDistance kernel = SquaredDistance.forDimension(d);
+        double maxAbs = 0;
+        for (double c : coords) {
+            maxAbs = Math.max(maxAbs, Math.abs(c));
+        }
+
+        int[] perm = shuffledIndices(n, seed);
+        int bestA = perm[0];
+        int bestB = perm[1];
+        double best = kernel.between(coords, bestA * d, coords, bestB * d);
+
+        int[] next = new int[n];  // next point with the same cell key, by insertion position
+        long[] cell = new long[d];
+        long[] neighbour = new long[d];
+        LongIntHashMap cells = null;
+        double cellSize = 0;
+        for (int i = 1; i < n; i++) {
+            if (best == 0) {
+                break;
+            }
+            if (cells == null) {
+                cellSize = Math.sqrt(best) * (1 + CELL_MARGIN);
+                if (maxAbs / cellSize >= MAX_CELL_INDEX) {
+                    return sweep(points, policy, Long.MAX_VALUE);
+                }
+                cells = new LongIntHashMap(i);
+                for (int k = 0; k < i; k++) {
+                    cellOf(coords, perm[k] * d, d, cellSize, cell);
+                    insert(cells, next, k, key(cell));
+                }
+            }
+
+            int p = perm[i];
+            cellOf(coords, p * d, d, cellSize, cell);
+            boolean improved = false;
+            // visit the 3^d cells around the point like an odometer over offsets -1, 0, 1
+            for (int k = 0; k < d; k++) {
+                neighbour[k] = cell[k] - 1;
+            }
+            while (true) {
+                for (int k = cells.get(key(neighbour), -1); k >= 0; k = next[k]) {
+                    int q = perm[k];
+                    double dist = kernel.between(coords, p * d, coords, q * d);
+                    if (dist < best) {
+                        best = dist;
+                        bestA = q;
+                        bestB = p;
+                        improved = true;
+                    }
+                }
+                int k = 0;
+                while (k < d && neighbour[k] == cell[k] + 1) {
+                    neighbour[k] = cell[k] - 1;
+                    k++;
+                }
+                if (k == d) {
+                    break;
+                }
+                neighbour[k]++;
+            }
+            if (improved) {
+                cells = null; // rebuilt with the smaller cell size before the next point
+            } else {
+                insert(cells, next, i, key(cell));
+            }
+        }
+        return new Result(bestA, bestB, best);
+    }
+
+    /**
+     * The pruned brute force along the axis of largest spread; switches to the grid if it degenerates.
+     */
+    static Result sweep(VecSet points, ExecutionPolicy policy) {
+        int n = points.size();
+        int d = points.dimension();
+        // the cast saturates at Long.MAX_VALUE in high dimensions, where the grid never pays off
+        long budget = (long) (SWEEP_COMPARISONS_PER_CELL * Math.pow(3, d) * n);
+        return sweep(points, policy, budget);
+    }
+
+    /**
+     * The pruned brute force, returning the grid's result instead once more than
+     * budget distances have been evaluated.
+     */
+    private static Result sweep(VecSet points, ExecutionPolicy policy, long budget) {
+        int n = points.size();
+        int d = points.dimension();
+        double[] coords = points.coords();
+        SquaredDistance kernel = SquaredDistance.forDimension(d);
+
+        int axis = widestAxis(coords, n, d);
+        double[] key = new double[n];
+        for (int i = 0; i < n; i++) {
+            key[i] = coords[i * d + axis];
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        IndexSort.sort(order, 0, n, key, null, new int[n]);
+        double[] rows = new double[coords.length];
+        double[] sortedKey = new double[n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(coords, order[i] * d, rows, i * d, d);
+            sortedKey[i] = key[order[i]];
+        }
+
+        // neighbours along the axis give a first bound that already prunes well
+        int bestI = 0;
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < n; i++) {
+            double dist = kernel.bounded(rows, i * d, rows, (i + 1) * d, best);
+            if (dist < best) {
+                best = dist;
+                bestI = i;
+            }
+        }
+        Result initial = new Result(order[bestI], order[bestI + 1], best);
+        if (best == 0) {
+            return initial;
+        }
+        AtomicLong shared = new AtomicLong(Double.doubleToLongBits(best));
+        AtomicLong comparisons = new AtomicLong();
+        Result[] results = new Result[policy.rangeCount(n)];
+        policy.forEachChunk(n, (from, to) -> results[from / policy.getChunkSize()] =
+                sweep(rows, sortedKey, order, d, kernel, from, to, shared, comparisons, budget));
+        if (comparisons.get() > budget) {
+            return grid(points, SEED, policy);
+        }
+        Result result = initial;
+        for (Result r : results) {
+            if (r != null && r.distanceSquared < result.distanceSquared) {
+                result = r;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Compares each sorted point in [from, to) with the points after it that are
+     * closer along the axis than the best distance, which is shared with other ranges.
+     * Gives up once the comparisons of all ranges together exceed the budget.
+     * @return the closest pair found below the shared bound, or null if there is none
+     */
+    private static Result sweep(double[] rows, double[] key, int[] order, int d, SquaredDistance kernel,
+                                int from, int to, AtomicLong shared, AtomicLong comparisons, long budget) {
+        int n = key.length;
+        double best = Double.longBitsToDouble(shared.get());
+        Result result = null;
+        for (int i = from; i < to; i++) {
+            best = Math.min(best, Double.longBitsToDouble(shared.get()));
+            int j = i + 1;
+            for (; j < n; j++) {
+                double gap = key[j] - key[i];
+                if (gap * gap >= best) {
+                    break;
+                }
+                double dist = kernel.bounded(rows, i * d, rows, j * d, best);
+                if (dist < best) {
+                    best = dist;
+                    result = new Result(order[i], order[j], dist);
+                    publish(shared, dist);
+                }
+            }
+            if (comparisons.addAndGet(j - i - 1) > budget) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Lowers the shared bound to dist unless another range found a smaller one.
+     * Non-negative doubles order like their bit patterns, so the bits are compared as longs.
+     */
+    private static void publish(AtomicLong shared, double dist) {
+        shared.accumulateAndGet(Double.doubleToLongBits(dist), Math::min);
+    }
+
+    private static int widestAxis(double[] coords, int n, int d) {
+        double[] min = new double[d];
+        double[] max = new double[d];
+        Arrays.fill(min, Double.POSITIVE_INFINITY);
+        Arrays.fill(max, Double.NEGATIVE_INFINITY);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < d; k++) {
+                double c = coords[i * d + k];
+                min[k] = Math.min(min[k], c);
+                max[k] = Math.max(max[k], c);
+            }
+        }
+        int axis = 0;
+        for (int k = 1; k < d; k++) {
+            if (max[k] - min[k] > max[axis] - min[axis]) {
+                axis = k;
+            }
+        }
+        return axis;
+    }
+
+    private static void cellOf(double[] coords, int offset, int d, double cellSize, long[] cell) {
+        for (int k = 0; k < d; k++) {
+            cell[k] = (long) Math.floor(coords[offset + k] / cellSize);
+        }
+    }
+
+    private static void insert(LongIntHashMap cells, int[] next, int position, long key) {
+        next[position] = cells.get(key, -1);
+        cells.put(key, position);
+    }
+
+    /**
+     * Hashes cell coordinates into a key, avoiding the value the map reserves.
+     */
+    private static long key(long[] cell) {
+        long h = 0;
+        for (long c : cell) {
+            h = (h + c) * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 29;
+        }
+        return h == Long.MIN_VALUE ? 0 : h;
+    }
+
+    private static int[] shuffledIndices(int n, long seed) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+}
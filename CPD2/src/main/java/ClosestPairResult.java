@@ -0,0 +1,82 @@
+/**
+ * The closest pair found in a point set, given as indices into that set.
+ */
+public final class ClosestPairResult {
+    private final int first;
+    private final int second;
+    private final double distanceSquared;
+    private final double x1;
+    private final double y1;
+    private final double x2;
+    private final double y2;
+    private final ClosestPairStats stats;
+
+    public ClosestPairResult(PointSet points, int first, int second, double distanceSquared) {
+        this(first, second, distanceSquared, points.getX(first), points.getY(first),
+                points.getX(second), points.getY(second));
+    }
+
+    /**
+     * Creates a result for points that are not held in a PointSet, e.g. the columns of a PointFile.
+     */
+    public ClosestPairResult(int first, int second, double distanceSquared,
+                             double x1, double y1, double x2, double y2) {
+        this(first, second, distanceSquared, x1, y1, x2, y2, null);
+    }
+
+    private ClosestPairResult(int first, int second, double distanceSquared,
+                              double x1, double y1, double x2, double y2, ClosestPairStats stats) {
+        this.first = first;
+        this.second = second;
+        this.distanceSquared = distanceSquared;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.x2 = x2;
+        this.y2 = y2;
+        this.stats = stats;
+    }
+
+    /**
+     * Returns a copy of this result that carries the stats of the run.
+     */
+    ClosestPairResult withStats(ClosestPairStats stats) {
+        return new ClosestPairResult(first, second, distanceSquared, x1, y1, x2, y2, stats);
+    }
+
+    public int getFirst() {
+        return first;
+    }
+
+    public int getSecond() {
+        return second;
+    }
+
+    public double getDistanceSquared() {
+        return distanceSquared;
+    }
+
+    public double getDistance() {
+        return Math.sqrt(distanceSquared);
+    }
+
+    /**
+     * Returns the counters and timings of the run that found this pair.
+     * @return the stats, or null if the run did not collect any
+     */
+    public ClosestPairStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Returns the pair as two new Vec2 objects, in the same shape as FastNeighbors.findClosestPair().
+     * @return the two points of the pair
+     */
+    public Vec2[] toVec2Pair() {
+        return new Vec2[]{new Vec2(x1, y1), new Vec2(x2, y2)};
+    }
+
+    @Override
+    public String toString() {
+        return "(" + first + ", " + second + ") at distance " + getDistance();
+    }
+}
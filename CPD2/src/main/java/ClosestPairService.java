@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Solves many independent closest pair problems, from any number of threads.
+ * <p>
+ * The service keeps no per-problem state, so one instance can be shared. Problems
+ * of at most BRUTE_FORCE_MAX_POINTS points are solved by comparing all pairs,
+ * which is faster than sorting at that size; larger ones go to a ClosestPairEngine.
+ * Every thread that solves problems, a worker or a caller of findClosestPair,
+ * keeps one engine of its own, so the engine's scratch arrays are reused from
+ * problem to problem and are only as large as the largest problem that thread
+ * has seen.
+ * <p>
+ * A batch is cut into groups of consecutive problems of about GROUP_POINTS points
+ * in total, so that thousands of tiny problems do not become thousands of tasks.
+ * The groups run on a fixed number of worker threads with a bounded queue. When
+ * the queue is full, the thread submitting the batch runs the group itself, which
+ * slows producers down to the speed of the workers instead of queueing without bound.
+ * <p>
+ * The counters of getCounters() cover all problems solved since the service was
+ * created or since resetCounters().
+ */
+public final class ClosestPairService implements ClosestPairAlgorithm, AutoCloseable {
+    /** Problems of at most this many points are solved by brute force. */
+    public static final int BRUTE_FORCE_MAX_POINTS = 256;
+    static final int GROUP_POINTS = 1 << 14;
+    private static final int QUEUE_PER_THREAD = 4;
+    private static final AtomicInteger SERVICES = new AtomicInteger();
+
+    private final ThreadPoolExecutor executor;
+    private final ThreadLocal<ClosestPairEngine> engines = ThreadLocal.withInitial(ClosestPairEngine::new);
+    private final LongAdder problems = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder bruteForce = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder solveNanos = new LongAdder();
+    private volatile long countersStart = System.nanoTime();
+
+    /**
+     * Creates a service with one worker per available processor.
+     */
+    public ClosestPairService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param threads the number of worker threads
+     * @throws IllegalArgumentException if threads is less than one
+     */
+    public ClosestPairService(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one thread is required");
+        }
+        int service = SERVICES.incrementAndGet();
+        AtomicInteger workers = new AtomicInteger();
+        ThreadFactory factory = task -> {
+            Thread thread = new Thread(task, "ClosestPairService-" + service + "-" + workers.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD), factory, ClosestPairService::runInCaller);
+    }
+
+    /**
+     * Finds the closest pair of one point set in the calling thread.
+     * @param points the points to search
+     * @return the closest pair as indices into points
+     * @throws IllegalArgumentException if there are fewer than two points
+     */
+    @Override
+    public ClosestPairResult findClosestPair(PointSet points) {
+        requireSolvable(points, 0);
+        return solve(points);
+    }
+
+    /**
+     * Finds the closest pair of every point set and waits for all of them.
+     * @param batch the point sets
+     * @return the results, in the order of batch
+     * @throws IllegalArgumentException if a point set has fewer than two points
+     * @throws IllegalStateException    if the service is closed
+     */
+    public List<ClosestPairResult> findAll(List<PointSet> batch) {
+        try {
+            return findAllAsync(batch).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Starts finding the closest pair of every point set. The point sets must not
+     * change until the future completes.
+     * @param batch the point sets
+     * @return a future of the results, in the order of batch
+     * @throws IllegalArgumentException if a point set has fewer than two points
+     * @throws IllegalStateException    if the service is closed
+     */
+    public CompletableFuture<List<ClosestPairResult>> findAllAsync(List<PointSet> batch) {
+        PointSet[] sets = batch.toArray(new PointSet[0]);
+        for (int i = 0; i < sets.length; i++) {
+            requireSolvable(sets[i], i);
+        }
+        ClosestPairResult[] results = new ClosestPairResult[sets.length];
+        List<CompletableFuture<Void>> groups = new ArrayList<>();
+        int from = 0;
+        while (from < sets.length) {
+            int to = from;
+            long groupPoints = 0;
+            while (to < sets.length && (to == from || groupPoints + sets[to].size() <= GROUP_POINTS)) {
+                groupPoints += sets[to++].size();
+            }
+            int lo = from;
+            int hi = to;
+            groups.add(submit(() -> {
+                for (int i = lo; i < hi; i++) {
+                    results[i] = solve(sets[i]);
+                }
+            }));
+            from = to;
+        }
+        return CompletableFuture.allOf(groups.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> Arrays.asList(results));
+    }
+
+    /**
+     * Starts finding the closest pair of one point set on a worker thread.
+     * @param points the points to search; must not change until the future completes
+     * @return a future of the closest pair
+     * @throws IllegalArgumentException if there are fewer than two points
+     * @throws IllegalStateException    if the service is closed
+     */
+    public CompletableFuture<ClosestPairResult> findClosestPairAsync(PointSet points) {
+        requireSolvable(points, 0);
+        try {
+            return CompletableFuture.supplyAsync(() -> solve(points), executor);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("The service is closed", e);
+        }
+    }
+
+    /**
+     * Returns a snapshot of the counters.
+     */
+    public Counters getCounters() {
+        return new Counters(problems.sum(), points.sum(), bruteForce.sum(), failures.sum(),
+                solveNanos.sum(), System.nanoTime() - countersStart);
+    }
+
+    /**
+     * Sets all counters back to zero. Problems being solved meanwhile may be counted on either side.
+     */
+    public void resetCounters() {
+        problems.reset();
+        points.reset();
+        bruteForce.reset();
+        failures.reset();
+        solveNanos.reset();
+        countersStart = System.nanoTime();
+    }
+
+    /**
+     * Stops accepting problems; the ones already submitted are still solved.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits for the problems submitted before close() to be solved.
+     * @return true if they were, false if the timeout elapsed first
+     */
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+    }
+
+    private CompletableFuture<Void> submit(Runnable group) {
+        try {
+            return CompletableFuture.runAsync(group, executor);
+        } catch (RejectedExecutionException e) {
+            throw new IllegalStateException("The service is closed", e);
+        }
+    }
+
+    /**
+     * Runs a task that did not fit in the queue in the submitting thread. Unlike
+     * CallerRunsPolicy, it rejects tasks after shutdown instead of dropping them,
+     * which would leave their futures incomplete.
+     */
+    private static void runInCaller(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown()) {
+            throw new RejectedExecutionException("The service is closed");
+        }
+        task.run();
+    }
+
+    private ClosestPairResult solve(PointSet set) {
+        int n = set.size();
+        long start = System.nanoTime();
+        try {
+            ClosestPairResult result;
+            if (n <= BRUTE_FORCE_MAX_POINTS) {
+                result = bruteForce(set);
+                bruteForce.increment();
+            } else {
+                result = engines.get().findClosestPair(set);
+            }
+            problems.increment();
+            points.add(n);
+            return result;
+        } catch (RuntimeException e) {
+            failures.increment();
+            throw e;
+        } finally {
+            solveNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    static ClosestPairResult bruteForce(PointSet set) {
+        double[] xs = set.xs();
+        double[] ys = set.ys();
+        int n = set.size();
+        double best = Double.POSITIVE_INFINITY;
+        int first = 0;
+        int second = 1;
+        for (int i = 0; i < n - 1; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            for (int j = i + 1; j < n; j++) {
+                double dx = xs[j] - x;
+                double dy = ys[j] - y;
+                double d = dx * dx + dy * dy;
+                if (d < best) {
+                    best = d;
+                    first = i;
+                    second = j;
+                }
+            }
+        }
+        return new ClosestPairResult(first, second, best, xs[first], ys[first], xs[second], ys[second]);
+    }
+
+    private static void requireSolvable(PointSet set, int index) {
+        if (set.size() < 2) {
+            throw new IllegalArgumentException("Point set " + index + " has fewer than two points");
+        }
+    }
+
+    /**
+     * A snapshot of the service's counters.
+     */
+    public static final class Counters {
+        private final long problems;
+        private final long points;
+        private final long bruteForce;
+        private final long failures;
+        private final long solveNanos;
+        private final long elapsedNanos;
+
+        Counters(long problems, long points, long bruteForce, long failures, long solveNanos, long elapsedNanos) {
+            this.problems = problems;
+            this.points = points;
+            this.bruteForce = bruteForce;
+            this.failures = failures;
+            this.solveNanos = solveNanos;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * Returns the number of problems solved.
+         */
+        public long getProblems() {
+            return problems;
+        }
+
+        /**
+         * Returns the total number of points in the problems solved.
+         */
+        public long getPoints() {
+            return points;
+        }
+
+        /**
+         * Returns the number of problems solved by brute force; the others used divide and conquer.
+         */
+        public long getBruteForce() {
+            return bruteForce;
+        }
+
+        /**
+         * Returns the number of problems whose search threw an exception.
+         */
+        public long getFailures() {
+            return failures;
+        }
+
+        /**
+         * Returns the time spent solving, summed over all threads.
+         */
+        public long getSolveNanos() {
+            return solveNanos;
+        }
+
+        /**
+         * Returns the wall-clock time the counters cover.
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        public double getProblemsPerSecond() {
+            return elapsedNanos == 0 ? 0 : problems * 1e9 / elapsedNanos;
+        }
+
+        public double getPointsPerSecond() {
+            return elapsedNanos == 0 ? 0 : points * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return problems + " problems (" + bruteForce + " by brute force, " + failures + " failed), "
+                    + points + " points in " + Math.round(elapsedNanos / 1e4) / 100.0 + " ms: "
+                    + Math.round(getProblemsPerSecond()) + " problems/s, "
+                    + Math.round(getPointsPerSecond()) + " points/s";
+        }
+    }
+}
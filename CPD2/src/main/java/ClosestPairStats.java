@@ -0,0 +1,164 @@
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of one closest pair run, for finding out why a run is slow.
+ * <p>
+ * Collecting them is opt-in (ClosestPairEngine.setCollectStats,
+ * FastNeighbors.setCollectStats): without it the search keeps no stats object
+ * and only skips a null check per recursion step. With it, every merge and strip
+ * scan is timed and counted, which makes a run about a fifth slower. The counters
+ * may be updated from several fork/join workers at once.
+ * <p>
+ * The phases are: sorting (the initial sort by x, and in the FastNeighbors
+ * recursion the sorting of every strip by y), merging (merging solved halves by
+ * y in ClosestPairEngine) and strip scanning (comparing the points near a
+ * dividing line). The allocated bytes are those of the calling thread, so work
+ * done by pool threads is not included.
+ */
+public final class ClosestPairStats {
+    /** Recursion levels beyond this share the last slot of the per-level counters. */
+    public static final int MAX_DEPTH = 63;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final int points;
+    private final LongAdder distanceEvaluations = new LongAdder();
+    private final LongAdder sortNanos = new LongAdder();
+    private final LongAdder mergeNanos = new LongAdder();
+    private final LongAdder stripNanos = new LongAdder();
+    private final AtomicLongArray stripPoints = new AtomicLongArray(MAX_DEPTH + 1);
+    private final AtomicLongArray strips = new AtomicLongArray(MAX_DEPTH + 1);
+    private final AtomicInteger maxDepth = new AtomicInteger();
+    private final long startNanos;
+    private final long startAllocated;
+    private long totalNanos;
+    private long allocatedBytes = -1;
+
+    ClosestPairStats(int points) {
+        this.points = points;
+        this.startAllocated = allocatedByThisThread();
+        this.startNanos = System.nanoTime();
+    }
+
+    void addDistanceEvaluations(long count) {
+        distanceEvaluations.add(count);
+    }
+
+    void addSortNanos(long nanos) {
+        sortNanos.add(nanos);
+    }
+
+    void addMergeNanos(long nanos) {
+        mergeNanos.add(nanos);
+    }
+
+    void addStrip(int depth, int size, long nanos) {
+        int level = Math.min(depth, MAX_DEPTH);
+        stripPoints.addAndGet(level, size);
+        strips.incrementAndGet(level);
+        stripNanos.add(nanos);
+    }
+
+    void reachedDepth(int depth) {
+        maxDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * Ends the run; called by the thread that started it.
+     */
+    void finish() {
+        totalNanos = System.nanoTime() - startNanos;
+        long allocated = allocatedByThisThread();
+        allocatedBytes = allocated < 0 || startAllocated < 0 ? -1 : allocated - startAllocated;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    /**
+     * Returns the number of point pairs whose distance was computed.
+     */
+    public long getDistanceEvaluations() {
+        return distanceEvaluations.sum();
+    }
+
+    /**
+     * Returns the deepest recursion level reached; the whole input is level 0.
+     */
+    public int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    /**
+     * Returns the number of strips scanned at a recursion level.
+     */
+    public long getStrips(int depth) {
+        return strips.get(Math.min(depth, MAX_DEPTH));
+    }
+
+    /**
+     * Returns the total number of points in the strips scanned at a recursion level.
+     */
+    public long getStripPoints(int depth) {
+        return stripPoints.get(Math.min(depth, MAX_DEPTH));
+    }
+
+    public long getSortNanos() {
+        return sortNanos.sum();
+    }
+
+    public long getMergeNanos() {
+        return mergeNanos.sum();
+    }
+
+    public long getStripNanos() {
+        return stripNanos.sum();
+    }
+
+    /**
+     * Returns the wall-clock time of the whole run.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns the bytes the calling thread allocated during the run, or -1 if the JVM cannot tell.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+                .append(points).append(" points in ").append(millis(totalNanos)).append(" ms: ")
+                .append(getDistanceEvaluations()).append(" distance evaluations, depth ").append(getMaxDepth())
+                .append(", sort ").append(millis(getSortNanos())).append(" ms, merge ")
+                .append(millis(getMergeNanos())).append(" ms, strips ").append(millis(getStripNanos()))
+                .append(" ms, ").append(allocatedBytes).append(" bytes allocated; strip points by depth [");
+        for (int depth = 0; depth <= Math.min(getMaxDepth(), MAX_DEPTH); depth++) {
+            text.append(depth == 0 ? "" : ", ").append(getStripPoints(depth));
+        }
+        return text.append(']').toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.valueOf(Math.round(nanos / 1e4) / 100.0);
+    }
+
+    private static long allocatedByThisThread() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+            if (threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+                return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
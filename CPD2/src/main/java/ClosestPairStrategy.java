@@ -0,0 +1,75 @@
+/**
+ * The closest pair algorithms that can be selected at call time.
+ */
+public enum ClosestPairStrategy {
+    /** Sort-based divide and conquer, O(n log n) worst case (ClosestPairEngine). */
+    DIVIDE_AND_CONQUER,
+    /** Randomized incremental grid hashing, expected O(n) (GridClosestPair). */
+    GRID,
+    /** Picks one of the others from the size and spread of the input, see choose(). */
+    AUTO;
+
+    // Below this size sorting is cheap and the grid's hashing overhead does not pay off.
+    static final int GRID_MIN_SIZE = 1 << 14;
+    private static final int HISTOGRAM_SIZE = 64;
+    // Largest ratio of extent to expected closest distance the grid handles comfortably.
+    private static final double MAX_GRID_SPREAD = 1 << 24;
+
+    /**
+     * Returns an algorithm for this strategy, resolving AUTO for the given points.
+     * @param points the points that will be searched
+     * @return the algorithm to use
+     */
+    public ClosestPairAlgorithm algorithmFor(PointSet points) {
+        ClosestPairStrategy strategy = this == AUTO ? choose(points) : this;
+        return strategy == GRID ? new GridClosestPair() : new ClosestPairEngine();
+    }
+
+    /**
+     * Chooses between divide and conquer and the grid.
+     * Small inputs and inputs that are degenerate in one axis go to divide and conquer.
+     * Otherwise a coarse occupancy histogram estimates the closest distance; when the
+     * points are packed into a tiny part of their bounding box (heavy clustering) the
+     * grid would need very fine cells over a huge extent, so divide and conquer is used.
+     * @param points the points that will be searched
+     * @return DIVIDE_AND_CONQUER or GRID
+     */
+    public static ClosestPairStrategy choose(PointSet points) {
+        int n = points.size();
+        if (n < GRID_MIN_SIZE) {
+            return DIVIDE_AND_CONQUER;
+        }
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, xs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        double width = maxX - minX;
+        double height = maxY - minY;
+        if (!(width > 0 && height > 0) || Double.isInfinite(width) || Double.isInfinite(height)) {
+            return DIVIDE_AND_CONQUER;
+        }
+
+        boolean[] occupied = new boolean[HISTOGRAM_SIZE * HISTOGRAM_SIZE];
+        int occupiedCells = 0;
+        for (int i = 0; i < n; i++) {
+            int cx = Math.min((int) ((xs[i] - minX) / width * HISTOGRAM_SIZE), HISTOGRAM_SIZE - 1);
+            int cy = Math.min((int) ((ys[i] - minY) / height * HISTOGRAM_SIZE), HISTOGRAM_SIZE - 1);
+            int cell = cy * HISTOGRAM_SIZE + cx;
+            if (!occupied[cell]) {
+                occupied[cell] = true;
+                occupiedCells++;
+            }
+        }
+        double occupiedArea = width * height * occupiedCells / occupied.length;
+        double expectedDistance = 0.5 * Math.sqrt(occupiedArea / n);
+        return Math.max(width, height) / expectedDistance > MAX_GRID_SPREAD ? DIVIDE_AND_CONQUER : GRID;
+    }
+}
@@ -0,0 +1,492 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.IntStream;
+
+/**
+ * Convex hull algorithms.
+ * Every hull is returned in counterclockwise order, starting with the lowest point
+ * (smallest y, then smallest x, as in Vec2.compareTo). Duplicate points are reported
+ * once and points in the interior of hull edges are left out, so the hull of
+ * collinear points consists of their two end points.
+ * <p>
+ * The primitive variants first discard every point inside the octagon spanned by the
+ * extreme points in eight directions (the Akl-Toussaint heuristic). For typical
+ * inputs this leaves a small fraction of the points to be sorted.
+ */
+public final class ConvexHull {
+    public static final int DEFAULT_SEQUENTIAL_CUTOFF = 1 << 16;
+
+    // the eight filter directions in counterclockwise order, starting downwards
+    private static final int[] DIR_X = {0, 1, 1, 1, 0, -1, -1, -1};
+    private static final int[] DIR_Y = {-1, -1, 0, 1, 1, 1, 0, -1};
+
+    private ConvexHull() {
+    }
+
+    /**
+     * Computes the hull with Graham's scan, ordering the points by polar angle around the lowest point.
+     * @param points the points, not modified
+     * @return the hull vertices, counterclockwise
+     */
+    public static Vec2[] grahamScan(Vec2[] points) {
+        if (points.length == 0) {
+            return new Vec2[0];
+        }
+        Vec2 pivot = points[0];
+        for (Vec2 p : points) {
+            if (p.compareTo(pivot) < 0) {
+                pivot = p;
+            }
+        }
+        List<Vec2> others = new ArrayList<>(points.length);
+        for (Vec2 p : points) {
+            if (p.compareTo(pivot) != 0) {
+                others.add(p);
+            }
+        }
+        // byPolarAngle() puts larger angles first, so the scan runs clockwise
+        Vec2 origin = pivot;
+        others.sort(pivot.byPolarAngle().thenComparingDouble(p -> distanceSquared(origin, p)));
+
+        Vec2[] stack = new Vec2[others.size() + 1];
+        int size = 0;
+        stack[size++] = pivot;
+        for (int i = 0; i < others.size(); i++) {
+            Vec2 p = others.get(i);
+            // of the points at the same angle only the farthest can be a vertex
+            if (i + 1 < others.size() && Vec2.isTurnedCW(pivot, p, others.get(i + 1)) == 0) {
+                continue;
+            }
+            while (size >= 2 && Vec2.isTurnedCW(stack[size - 2], stack[size - 1], p) != 1) {
+                size--;
+            }
+            stack[size++] = p;
+        }
+        // reverse everything after the pivot to get counterclockwise order
+        for (int i = 1, j = size - 1; i < j; i++, j--) {
+            Vec2 tmp = stack[i];
+            stack[i] = stack[j];
+            stack[j] = tmp;
+        }
+        return Arrays.copyOf(stack, size);
+    }
+
+    /**
+     * Computes the hull with Andrew's monotone chain on the current thread.
+     * @param points the points, not modified
+     * @return the indices of the hull vertices, counterclockwise
+     */
+    public static int[] monotoneChain(PointSet points) {
+        int n = points.size();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        Octagon octagon = Octagon.of(xs, ys, extremes(xs, ys, 0, n));
+        int[] candidates = new int[n];
+        int m = octagon.filter(xs, ys, 0, n, candidates);
+        IndexSort.sort(candidates, 0, m, ys, xs, new int[m]);
+        return chain(xs, ys, candidates, m);
+    }
+
+    /**
+     * Computes the hull on the common fork/join pool.
+     * @param points the points, not modified
+     * @return the indices of the hull vertices, counterclockwise
+     */
+    public static int[] parallel(PointSet points) {
+        return parallel(points, ForkJoinPool.commonPool(), DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * Computes the hull by divide and conquer: the tasks compute the hulls of slices of
+     * the input, and the sub-hulls are merged in linear time on the way back up.
+     * @param points           the points, not modified
+     * @param pool             the pool running the tasks
+     * @param sequentialCutoff slices of at most this many points are solved directly
+     * @return the indices of the hull vertices, counterclockwise
+     */
+    public static int[] parallel(PointSet points, ForkJoinPool pool, int sequentialCutoff) {
+        if (sequentialCutoff < 1) {
+            throw new IllegalArgumentException("Sequential cutoff must be positive");
+        }
+        int n = points.size();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        int chunks = Math.max(1, (n + sequentialCutoff - 1) / sequentialCutoff);
+        int[][] partial = new int[chunks][];
+        pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c ->
+                partial[c] = extremes(xs, ys, (int) ((long) n * c / chunks), (int) ((long) n * (c + 1) / chunks))))
+                .join();
+        int[] extremes = partial[0];
+        for (int c = 1; c < chunks; c++) {
+            extremes = combineExtremes(xs, ys, extremes, partial[c]);
+        }
+        Octagon octagon = Octagon.of(xs, ys, extremes);
+        int[] sorted = pool.invoke(new HullTask(xs, ys, octagon, 0, n, sequentialCutoff));
+        return chain(xs, ys, sorted, sorted.length);
+    }
+
+    /**
+     * Finds the extreme points of a range in the eight filter directions.
+     * @return the index of the extreme point per direction, or null for an empty range
+     */
+    private static int[] extremes(double[] xs, double[] ys, int lo, int hi) {
+        if (lo >= hi) {
+            return null;
+        }
+        int[] best = new int[8];
+        double[] bestKey = new double[8];
+        Arrays.fill(best, lo);
+        for (int d = 0; d < 8; d++) {
+            bestKey[d] = DIR_X[d] * xs[lo] + DIR_Y[d] * ys[lo];
+        }
+        for (int i = lo + 1; i < hi; i++) {
+            double x = xs[i];
+            double y = ys[i];
+            double sum = x + y;
+            double diff = x - y;
+            if (-y > bestKey[0]) {
+                bestKey[0] = -y;
+                best[0] = i;
+            }
+            if (diff > bestKey[1]) {
+                bestKey[1] = diff;
+                best[1] = i;
+            }
+            if (x > bestKey[2]) {
+                bestKey[2] = x;
+                best[2] = i;
+            }
+            if (sum > bestKey[3]) {
+                bestKey[3] = sum;
+                best[3] = i;
+            }
+            if (y > bestKey[4]) {
+                bestKey[4] = y;
+                best[4] = i;
+            }
+            if (-diff > bestKey[5]) {
+                bestKey[5] = -diff;
+                best[5] = i;
+            }
+            if (-x > bestKey[6]) {
+                bestKey[6] = -x;
+                best[6] = i;
+            }
+            if (-sum > bestKey[7]) {
+                bestKey[7] = -sum;
+                best[7] = i;
+            }
+        }
+        return best;
+    }
+
+    private static int[] combineExtremes(double[] xs, double[] ys, int[] a, int[] b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        int[] result = new int[8];
+        for (int d = 0; d < 8; d++) {
+            double keyA = DIR_X[d] * xs[a[d]] + DIR_Y[d] * ys[a[d]];
+            double keyB = DIR_X[d] * xs[b[d]] + DIR_Y[d] * ys[b[d]];
+            result[d] = keyB > keyA ? b[d] : a[d];
+        }
+        return result;
+    }
+
+    /**
+     * Runs the monotone chain over indices sorted by y, then x.
+     * The index array is compacted in place to drop duplicate points.
+     */
+    private static int[] chain(double[] xs, double[] ys, int[] sorted, int m) {
+        int distinct = 0;
+        for (int i = 0; i < m; i++) {
+            int p = sorted[i];
+            if (distinct == 0 || xs[p] != xs[sorted[distinct - 1]] || ys[p] != ys[sorted[distinct - 1]]) {
+                sorted[distinct++] = p;
+            }
+        }
+        if (distinct <= 2) {
+            return Arrays.copyOf(sorted, distinct);
+        }
+        int[] hull = new int[2 * distinct];
+        int k = 0;
+        // right chain from the lowest to the highest point, then the left chain back down
+        for (int i = 0; i < distinct; i++) {
+            k = push(xs, ys, hull, k, 2, sorted[i]);
+        }
+        for (int i = distinct - 2, lower = k + 1; i >= 0; i--) {
+            k = push(xs, ys, hull, k, lower, sorted[i]);
+        }
+        return Arrays.copyOf(hull, k - 1);
+    }
+
+    /**
+     * Pushes p onto the chain after popping the vertices that do not make a strict left turn.
+     */
+    private static int push(double[] xs, double[] ys, int[] hull, int k, int minSize, int p) {
+        while (k >= minSize && Predicates.orientation(xs[hull[k - 2]], ys[hull[k - 2]],
+                xs[hull[k - 1]], ys[hull[k - 1]], xs[p], ys[p]) <= 0) {
+            k--;
+        }
+        hull[k++] = p;
+        return k;
+    }
+
+    /**
+     * Lists the vertices of a hull sorted by y, then x, by merging its two monotone chains.
+     */
+    private static int[] sortedVertices(double[] xs, double[] ys, int[] hull) {
+        if (hull.length == 0) {
+            return hull;
+        }
+        int top = 0;
+        for (int i = 1; i < hull.length; i++) {
+            if (compare(xs, ys, hull[i], hull[top]) > 0) {
+                top = i;
+            }
+        }
+        int[] result = new int[hull.length];
+        int i = 0;
+        int j = hull.length - 1;
+        int k = 0;
+        // hull[0..top] ascends, hull[top+1..] descends back towards hull[0]
+        while (i <= top && j > top) {
+            result[k++] = compare(xs, ys, hull[i], hull[j]) <= 0 ? hull[i++] : hull[j--];
+        }
+        while (i <= top) {
+            result[k++] = hull[i++];
+        }
+        while (j > top) {
+            result[k++] = hull[j--];
+        }
+        return result;
+    }
+
+    private static int[] merge(double[] xs, double[] ys, int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            result[k++] = compare(xs, ys, a[i], b[j]) <= 0 ? a[i++] : b[j++];
+        }
+        System.arraycopy(a, i, result, k, a.length - i);
+        System.arraycopy(b, j, result, k + a.length - i, b.length - j);
+        return result;
+    }
+
+    private static int compare(double[] xs, double[] ys, int a, int b) {
+        int c = Double.compare(ys[a], ys[b]);
+        return c != 0 ? c : Double.compare(xs[a], xs[b]);
+    }
+
+    private static double distanceSquared(Vec2 a, Vec2 b) {
+        double dx = a.getX() - b.getX();
+        double dy = a.getY() - b.getY();
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * The convex polygon through the eight extreme points. Points strictly inside it
+     * cannot be hull vertices.
+     */
+    private static final class Octagon {
+        private final double[] vx;
+        private final double[] vy;
+        private final int edges;
+        // an axis-aligned box inside the octagon, for a quick first test
+        private final double left;
+        private final double right;
+        private final double bottom;
+        private final double top;
+
+        private Octagon(double[] vx, double[] vy, int edges, double[] box) {
+            this.vx = vx;
+            this.vy = vy;
+            this.edges = edges;
+            this.left = box[0];
+            this.right = box[1];
+            this.bottom = box[2];
+            this.top = box[3];
+        }
+
+        /**
+         * @param extremes the extreme point indices in the filter directions, or null if there are no points
+         */
+        static Octagon of(double[] xs, double[] ys, int[] extremes) {
+            if (extremes == null) {
+                return new Octagon(new double[0], new double[0], 0, new double[]{0, 0, 0, 0});
+            }
+            double[] box = {
+                    max(xs, extremes[5], extremes[6], extremes[7]),
+                    min(xs, extremes[1], extremes[2], extremes[3]),
+                    max(ys, extremes[7], extremes[0], extremes[1]),
+                    min(ys, extremes[3], extremes[4], extremes[5])
+            };
+            // drop repeated vertices so that every edge has a direction
+            double[] vx = new double[8];
+            double[] vy = new double[8];
+            int edges = 0;
+            for (int d = 0; d < 8; d++) {
+                double x = xs[extremes[d]];
+                double y = ys[extremes[d]];
+                if (edges == 0 || x != vx[edges - 1] || y != vy[edges - 1]) {
+                    vx[edges] = x;
+                    vy[edges] = y;
+                    edges++;
+                }
+            }
+            while (edges > 1 && vx[edges - 1] == vx[0] && vy[edges - 1] == vy[0]) {
+                edges--;
+            }
+            Octagon octagon = new Octagon(vx, vy, edges < 3 ? 0 : edges, box);
+            // the box lies inside the octagon unless rounding in the diagonal keys picked
+            // slightly different extremes; if so, fall back to the edge tests alone
+            if (!octagon.insideEdges(box[0], box[2]) || !octagon.insideEdges(box[1], box[2])
+                    || !octagon.insideEdges(box[1], box[3]) || !octagon.insideEdges(box[0], box[3])) {
+                return new Octagon(vx, vy, octagon.edges, new double[]{0, 0, 0, 0});
+            }
+            return octagon;
+        }
+
+        private static double max(double[] keys, int a, int b, int c) {
+            return Math.max(keys[a], Math.max(keys[b], keys[c]));
+        }
+
+        private static double min(double[] keys, int a, int b, int c) {
+            return Math.min(keys[a], Math.min(keys[b], keys[c]));
+        }
+
+        /**
+         * Finds the edge that a point lies outside of.
+         * @return -1 if the point is strictly inside, otherwise the index of the first
+         * edge that does not have the point strictly on its left
+         */
+        int pocket(double x, double y) {
+            if (edges == 0) {
+                return 0;
+            }
+            if (x > left && x < right && y > bottom && y < top) {
+                return -1;
+            }
+            for (int e = 0; e < edges; e++) {
+                if (orient(e, x, y) <= 0) {
+                    return e;
+                }
+            }
+            return -1;
+        }
+
+        private boolean insideEdges(double x, double y) {
+            if (edges == 0) {
+                return false;
+            }
+            for (int e = 0; e < edges; e++) {
+                if (orient(e, x, y) <= 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private double orient(int e, double x, double y) {
+            int next = e + 1 == edges ? 0 : e + 1;
+            return Predicates.orient2d(vx[e], vy[e], vx[next], vy[next], x, y);
+        }
+
+        /**
+         * Copies the indices in [lo, hi) of the points that may be hull vertices into out.
+         * Besides the points inside the octagon, this drops the points of every pocket
+         * beyond an edge that lie inside the triangle spanned by the edge and the
+         * pocket's farthest point.
+         * @return the number of indices copied
+         */
+        int filter(double[] xs, double[] ys, int lo, int hi, int[] out) {
+            if (edges == 0) {
+                for (int i = lo; i < hi; i++) {
+                    out[i - lo] = i;
+                }
+                return hi - lo;
+            }
+            byte[] pockets = new byte[hi - lo];
+            int[] apex = new int[edges];
+            double[] apexDepth = new double[edges];
+            Arrays.fill(apex, -1);
+            int count = 0;
+            for (int i = lo; i < hi; i++) {
+                int e = pocket(xs[i], ys[i]);
+                if (e >= 0) {
+                    out[count] = i;
+                    pockets[count++] = (byte) e;
+                    double depth = -orient(e, xs[i], ys[i]);
+                    if (depth > apexDepth[e]) {
+                        apexDepth[e] = depth;
+                        apex[e] = i;
+                    }
+                }
+            }
+            int kept = 0;
+            for (int k = 0; k < count; k++) {
+                int i = out[k];
+                int e = pockets[k];
+                if (apex[e] < 0 || !insideTriangle(e, xs[apex[e]], ys[apex[e]], xs[i], ys[i])) {
+                    out[kept++] = i;
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Tells whether (x, y) lies strictly inside the triangle of edge e and the apex beyond it.
+         */
+        private boolean insideTriangle(int e, double ax, double ay, double x, double y) {
+            int next = e + 1 == edges ? 0 : e + 1;
+            return orient(e, x, y) < 0
+                    && Predicates.orient2d(vx[e], vy[e], ax, ay, x, y) > 0
+                    && Predicates.orient2d(ax, ay, vx[next], vy[next], x, y) > 0;
+        }
+    }
+
+    /**
+     * Computes the hull of a slice and returns its vertices sorted by y, then x,
+     * ready to be merged with the vertices of the neighbouring slice.
+     */
+    private static final class HullTask extends RecursiveTask<int[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] xs;
+        private final double[] ys;
+        private final Octagon octagon;
+        private final int lo;
+        private final int hi;
+        private final int cutoff;
+
+        HullTask(double[] xs, double[] ys, Octagon octagon, int lo, int hi, int cutoff) {
+            this.xs = xs;
+            this.ys = ys;
+            this.octagon = octagon;
+            this.lo = lo;
+            this.hi = hi;
+            this.cutoff = cutoff;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (hi - lo <= cutoff) {
+                int[] candidates = new int[hi - lo];
+                int m = octagon.filter(xs, ys, lo, hi, candidates);
+                IndexSort.sort(candidates, 0, m, ys, xs, new int[m]);
+                return sortedVertices(xs, ys, chain(xs, ys, candidates, m));
+            }
+            int mid = (lo + hi) >>> 1;
+            HullTask left = new HullTask(xs, ys, octagon, lo, mid, cutoff);
+            left.fork();
+            int[] right = new HullTask(xs, ys, octagon, mid, hi, cutoff).compute();
+            int[] merged = merge(xs, ys, left.join(), right);
+            return sortedVertices(xs, ys, chain(xs, ys, merged, merged.length));
+        }
+    }
+}
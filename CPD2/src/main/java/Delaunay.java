@@ -0,0 +1,582 @@
+import java.util.Arrays;
+
+/**
+ * The Delaunay triangulation of a set of 2D points, and the proximity structures
+ * that follow from it: every point's nearest neighbour and the Euclidean minimum
+ * spanning tree are subgraphs of its edges.
+ * <p>
+ * The triangulation is stored as half-edges in two int arrays. Triangle t owns the
+ * half-edges 3t, 3t + 1 and 3t + 2; half-edge e starts at point triangles[e] and
+ * ends at the start of the next half-edge of its triangle, and the vertices of
+ * every triangle run counterclockwise. halfedges[e] is the opposite half-edge in
+ * the neighbouring triangle, or -1 on the convex hull.
+ * <p>
+ * The points are inserted one at a time in the order of a Hilbert curve over
+ * their bounding box (Bowyer-Watson). Each point is located by walking from the
+ * triangle created last, which the curve keeps close by, then the triangles whose
+ * circumcircle contains it are replaced by a fan around it. The outside of the hull
+ * is covered by ghost triangles that share a vertex at infinity, so points beyond
+ * the hull need no special case. Orientation comes from Vec2.isTurnedCW and the
+ * circle test from Predicates.inCircle, both exact, so the result is a proper
+ * Delaunay triangulation for any input; for cocircular points one of the valid
+ * triangulations is chosen.
+ * <p>
+ * Repeated points are inserted once; the others are recorded as duplicates of it.
+ * If all points are collinear there are no triangles, and the edges join every
+ * distinct point to the next one along the line.
+ * <p>
+ * A triangulation never changes after construction and can be read from any number
+ * of threads at once.
+ */
+public final class Delaunay {
+    private static final int HILBERT_SIZE = 1 << 16;
+
+    private final PointSet points;
+    private final int[] triangles;
+    private final int[] halfedges;
+    private final int[] edges;           // every edge once, as pairs of point indices
+    private final int[] representative;  // the inserted point equal to each point
+
+    /**
+     * Triangulates a copy of the given points.
+     * @param points the points, indexed as in the array
+     */
+    public Delaunay(Vec2[] points) {
+        this(PointSet.of(points));
+    }
+
+    /**
+     * Triangulates the given points. The set is kept, not copied, and must not be changed afterwards.
+     * @param points the points
+     */
+    public Delaunay(PointSet points) {
+        this.points = points;
+        Builder builder = new Builder(points);
+        if (builder.build()) {
+            int[][] compact = builder.compact();
+            this.triangles = compact[0];
+            this.halfedges = compact[1];
+            this.edges = triangleEdges(triangles, halfedges);
+        } else {
+            this.triangles = new int[0];
+            this.halfedges = new int[0];
+            this.edges = builder.collinearEdges();
+        }
+        this.representative = builder.representative;
+    }
+
+    /**
+     * Returns the triangulated points.
+     */
+    public PointSet points() {
+        return points;
+    }
+
+    /**
+     * Returns the vertices of the triangles, three per triangle in counterclockwise order.
+     * The array is not copied and must not be changed.
+     */
+    public int[] triangles() {
+        return triangles;
+    }
+
+    /**
+     * Returns the opposite of every half-edge, or -1 for half-edges on the convex hull.
+     * The array is not copied and must not be changed.
+     */
+    public int[] halfedges() {
+        return halfedges;
+    }
+
+    /**
+     * Returns the number of triangles.
+     */
+    public int triangleCount() {
+        return triangles.length / 3;
+    }
+
+    /**
+     * Returns the edges of the triangulation, each once, as consecutive pairs of point
+     * indices. Duplicate points are not included; they sit on the point they repeat.
+     * @return a new array of 2 * (number of edges) indices
+     */
+    public int[] edges() {
+        return edges.clone();
+    }
+
+    /**
+     * Finds the nearest other point of every point. A repeated point's nearest
+     * neighbour is one of its copies.
+     * @return the index of the nearest neighbour of each point, or -1 if there is no other point
+     */
+    public int[] nearestNeighbours() {
+        int n = points.size();
+        int[] nearest = new int[n];
+        double[] best = new double[n];
+        Arrays.fill(nearest, -1);
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        for (int k = 0; k < edges.length; k += 2) {
+            int a = edges[k];
+            int b = edges[k + 1];
+            double dist = points.distanceSquared(a, b);
+            if (dist < best[a]) {
+                best[a] = dist;
+                nearest[a] = b;
+            }
+            if (dist < best[b]) {
+                best[b] = dist;
+                nearest[b] = a;
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int r = representative[i];
+            if (r != i) {
+                nearest[i] = r;
+                nearest[r] = i;
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Computes the Euclidean minimum spanning tree with Kruskal's algorithm over the
+     * edges of the triangulation, plus zero-length edges joining repeated points.
+     * @return the n - 1 tree edges as consecutive pairs of point indices, shortest first,
+     * or an empty array for fewer than two points
+     */
+    public int[] minimumSpanningTree() {
+        int n = points.size();
+        int duplicates = 0;
+        for (int i = 0; i < n; i++) {
+            if (representative[i] != i) {
+                duplicates++;
+            }
+        }
+        int m = edges.length / 2 + duplicates;
+        int[] from = new int[m];
+        int[] to = new int[m];
+        double[] length = new double[m];
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (representative[i] != i) {
+                from[count] = i;
+                to[count++] = representative[i];
+            }
+        }
+        for (int k = 0; k < edges.length; k += 2) {
+            from[count] = edges[k];
+            to[count] = edges[k + 1];
+            length[count++] = points.distanceSquared(edges[k], edges[k + 1]);
+        }
+        int[] order = new int[m];
+        for (int i = 0; i < m; i++) {
+            order[i] = i;
+        }
+        IndexSort.sort(order, 0, m, length, null, new int[m]);
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) {
+            parent[i] = i;
+        }
+        int[] tree = new int[2 * Math.max(0, n - 1)];
+        int size = 0;
+        for (int k = 0; k < m && size < tree.length; k++) {
+            int a = find(parent, from[order[k]]);
+            int b = find(parent, to[order[k]]);
+            if (a != b) {
+                parent[a] = b;
+                tree[size++] = from[order[k]];
+                tree[size++] = to[order[k]];
+            }
+        }
+        return tree;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static int[] triangleEdges(int[] triangles, int[] halfedges) {
+        int count = 0;
+        for (int e = 0; e < halfedges.length; e++) {
+            if (halfedges[e] < e) {
+                count++;
+            }
+        }
+        int[] edges = new int[2 * count];
+        int k = 0;
+        for (int e = 0; e < halfedges.length; e++) {
+            if (halfedges[e] < e) {
+                edges[k++] = triangles[e];
+                edges[k++] = triangles[next(e)];
+            }
+        }
+        return edges;
+    }
+
+    private static int next(int e) {
+        return e % 3 == 2 ? e - 2 : e + 1;
+    }
+
+    /**
+     * The incremental construction, with ghost triangles. A ghost triangle has the
+     * vertex at infinity, numbered n, in its last position; its first half-edge is
+     * the outer side of a hull edge.
+     */
+    private static final class Builder {
+        private final double[] xs;
+        private final double[] ys;
+        private final int n;
+        private final int ghost;
+        final int[] representative;
+
+        private int[] triangles;
+        private int[] halfedges;
+        private int[] visited;   // +stamp: in the current cavity, -stamp: tested and kept
+        private int count;       // triangles in use, ghosts included
+        private int last;        // a real triangle to start the next walk from
+        private int stamp;
+        private int seed = 1;    // for the walk's starting edge
+
+        // per insertion scratch
+        private int[] stack = new int[16];
+        private int[] cavity = new int[16];
+        private int[] boundary = new int[48];  // u, v, outer half-edge per boundary edge
+        private final int[] spokeIn;           // half-edge from the new point to each boundary vertex
+
+        Builder(PointSet points) {
+            this.xs = points.xs();
+            this.ys = points.ys();
+            this.n = points.size();
+            this.ghost = n;
+            this.representative = new int[n];
+            for (int i = 0; i < n; i++) {
+                representative[i] = i;
+            }
+            this.spokeIn = new int[n + 1];
+        }
+
+        /**
+         * Triangulates the points.
+         * @return false if they are all collinear, in which case nothing was built
+         */
+        boolean build() {
+            int[] order = hilbertOrder();
+            int first = -1;
+            int second = -1;
+            int third = -1;
+            for (int k = 0; k < n && third < 0; k++) {
+                int p = order[k];
+                if (first < 0) {
+                    first = p;
+                } else if (second < 0) {
+                    if (xs[p] != xs[first] || ys[p] != ys[first]) {
+                        second = p;
+                    }
+                } else if (turn(first, second, p) != 0) {
+                    third = p;
+                }
+            }
+            if (third < 0) {
+                return false;
+            }
+
+            int capacity = 2 * n;
+            triangles = new int[3 * capacity];
+            halfedges = new int[3 * capacity];
+            visited = new int[capacity];
+            if (turn(first, second, third) > 0) {
+                int tmp = second;
+                second = third;
+                third = tmp;
+            }
+            start(first, second, third);
+            for (int k = 0; k < n; k++) {
+                int p = order[k];
+                if (p != first && p != second && p != third) {
+                    insert(p);
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Sorts the point indices by their position along a Hilbert curve over the bounding box.
+         */
+        private int[] hilbertOrder() {
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, xs[i]);
+                maxX = Math.max(maxX, xs[i]);
+                minY = Math.min(minY, ys[i]);
+                maxY = Math.max(maxY, ys[i]);
+            }
+            double scaleX = maxX > minX ? (HILBERT_SIZE - 1) / (maxX - minX) : 0;
+            double scaleY = maxY > minY ? (HILBERT_SIZE - 1) / (maxY - minY) : 0;
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                int x = (int) ((xs[i] - minX) * scaleX);
+                int y = (int) ((ys[i] - minY) * scaleY);
+                keys[i] = hilbert(x, y) << 31 | i;  // 32 + 31 bits, so the keys stay positive
+            }
+            Arrays.parallelSort(keys);
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = (int) (keys[i] & Integer.MAX_VALUE);
+            }
+            return order;
+        }
+
+        /**
+         * Returns the distance along the Hilbert curve of the cell (x, y) of a HILBERT_SIZE grid.
+         */
+        private static long hilbert(int x, int y) {
+            long d = 0;
+            for (int s = HILBERT_SIZE / 2; s > 0; s /= 2) {
+                int rx = (x & s) > 0 ? 1 : 0;
+                int ry = (y & s) > 0 ? 1 : 0;
+                d += (long) s * s * ((3 * rx) ^ ry);
+                if (ry == 0) {
+                    if (rx == 1) {
+                        x = HILBERT_SIZE - 1 - x;
+                        y = HILBERT_SIZE - 1 - y;
+                    }
+                    int tmp = x;
+                    x = y;
+                    y = tmp;
+                }
+            }
+            return d;
+        }
+
+        /**
+         * Creates the counterclockwise triangle a, b, c and a ghost triangle outside each of its edges.
+         */
+        private void start(int a, int b, int c) {
+            int[] v = {a, b, c};
+            set(0, a, b, c);
+            for (int k = 0; k < 3; k++) {
+                int g = k + 1;
+                set(g, v[(k + 1) % 3], v[k], ghost);
+                link(k, 3 * g);
+            }
+            for (int k = 0; k < 3; k++) {
+                // the ghost edge from v[k] to infinity meets the one from infinity to v[k]
+                link(3 * (k + 1) + 1, 3 * ((k + 2) % 3 + 1) + 2);
+            }
+            count = 4;
+            last = 0;
+        }
+
+        private void insert(int p) {
+            int t = locate(p);
+            if (triangles[3 * t + 2] != ghost) {
+                for (int k = 0; k < 3; k++) {
+                    int v = triangles[3 * t + k];
+                    if (xs[v] == xs[p] && ys[v] == ys[p]) {
+                        representative[p] = v;
+                        return;
+                    }
+                }
+            }
+
+            // collect the triangles whose circumcircle contains p; they form a star around p
+            stamp++;
+            int cavitySize = 0;
+            int top = 0;
+            visited[t] = stamp;
+            stack[top++] = t;
+            while (top > 0) {
+                int c = stack[--top];
+                cavity = push(cavity, cavitySize++, c);
+                for (int k = 0; k < 3; k++) {
+                    int o = halfedges[3 * c + k] / 3;
+                    if (visited[o] == stamp || visited[o] == -stamp) {
+                        continue;
+                    }
+                    if (inConflict(o, p)) {
+                        visited[o] = stamp;
+                        stack = push(stack, top++, o);
+                    } else {
+                        visited[o] = -stamp;
+                    }
+                }
+            }
+
+            int boundarySize = 0;
+            for (int i = 0; i < cavitySize; i++) {
+                for (int k = 0; k < 3; k++) {
+                    int e = 3 * cavity[i] + k;
+                    int o = halfedges[e];
+                    if (visited[o / 3] != stamp) {
+                        boundary = push(boundary, boundarySize++, triangles[e]);
+                        boundary = push(boundary, boundarySize++, triangles[next(e)]);
+                        boundary = push(boundary, boundarySize++, o);
+                    }
+                }
+            }
+
+            // one new triangle per boundary edge u -> v, reusing the cavity's slots first
+            int edges = boundarySize / 3;
+            for (int b = 0; b < edges; b++) {
+                int s = b < cavitySize ? cavity[b] : count++;
+                int u = boundary[3 * b];
+                int v = boundary[3 * b + 1];
+                int outer = boundary[3 * b + 2];
+                int uv;
+                if (u == ghost) {
+                    set(s, v, p, ghost);
+                    uv = 3 * s + 2;
+                } else if (v == ghost) {
+                    set(s, p, u, ghost);
+                    uv = 3 * s + 1;
+                } else {
+                    set(s, u, v, p);
+                    uv = 3 * s;
+                    last = s;
+                }
+                link(uv, outer);
+                spokeIn[u] = 3 * s + (uv - 3 * s + 2) % 3;  // p -> u
+                boundary[3 * b + 2] = 3 * s + (uv - 3 * s + 1) % 3;  // v -> p, replacing the outer edge
+            }
+            for (int b = 0; b < edges; b++) {
+                link(boundary[3 * b + 2], spokeIn[boundary[3 * b + 1]]);
+            }
+        }
+
+        /**
+         * Walks from the last created triangle towards p, crossing any edge that has p
+         * strictly on its outer side, and returns the real triangle that contains p or
+         * the ghost triangle beyond the hull edge that p sees.
+         */
+        private int locate(int p) {
+            int t = last;
+            while (true) {
+                if (triangles[3 * t + 2] == ghost) {
+                    return t;
+                }
+                seed ^= seed << 13;
+                seed ^= seed >>> 17;
+                seed ^= seed << 5;
+                int k0 = (seed >>> 1) % 3;
+                int crossed = -1;
+                for (int i = 0; i < 3; i++) {
+                    int e = 3 * t + (k0 + i) % 3;
+                    if (turn(triangles[e], triangles[next(e)], p) > 0) {
+                        crossed = halfedges[e] / 3;
+                        break;
+                    }
+                }
+                if (crossed < 0) {
+                    return t;
+                }
+                t = crossed;
+            }
+        }
+
+        /**
+         * Returns whether p lies strictly inside the circumcircle of triangle t. The
+         * circumcircle of a ghost triangle is the open half-plane beyond its hull edge,
+         * together with the inside of the edge itself.
+         */
+        private boolean inConflict(int t, int p) {
+            int a = triangles[3 * t];
+            int b = triangles[3 * t + 1];
+            int c = triangles[3 * t + 2];
+            if (c == ghost) {
+                int turn = turn(a, b, p);
+                if (turn != 0) {
+                    return turn < 0;
+                }
+                return xs[a] != xs[b]
+                        ? (xs[p] > xs[a]) != (xs[p] > xs[b]) && xs[p] != xs[a] && xs[p] != xs[b]
+                        : (ys[p] > ys[a]) != (ys[p] > ys[b]) && ys[p] != ys[a] && ys[p] != ys[b];
+            }
+            return Predicates.inCircle(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c], xs[p], ys[p]) > 0;
+        }
+
+        /**
+         * Returns 1 if a, b, c turn clockwise, -1 if counterclockwise and 0 if they are collinear.
+         */
+        private int turn(int a, int b, int c) {
+            return Vec2.isTurnedCW(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]);
+        }
+
+        private void set(int t, int a, int b, int c) {
+            triangles[3 * t] = a;
+            triangles[3 * t + 1] = b;
+            triangles[3 * t + 2] = c;
+        }
+
+        private void link(int e, int o) {
+            halfedges[e] = o;
+            halfedges[o] = e;
+        }
+
+        private static int[] push(int[] array, int size, int value) {
+            if (size == array.length) {
+                array = Arrays.copyOf(array, 2 * size);
+            }
+            array[size] = value;
+            return array;
+        }
+
+        /**
+         * Drops the ghost triangles.
+         * @return the triangles and the half-edges of the real triangles, renumbered
+         */
+        int[][] compact() {
+            int[] index = new int[count];
+            int real = 0;
+            for (int t = 0; t < count; t++) {
+                index[t] = triangles[3 * t + 2] == ghost ? -1 : real++;
+            }
+            int[] outTriangles = new int[3 * real];
+            int[] outHalfedges = new int[3 * real];
+            for (int t = 0; t < count; t++) {
+                if (index[t] < 0) {
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    int e = 3 * index[t] + k;
+                    int o = halfedges[3 * t + k];
+                    outTriangles[e] = triangles[3 * t + k];
+                    outHalfedges[e] = index[o / 3] < 0 ? -1 : 3 * index[o / 3] + o % 3;
+                }
+            }
+            return new int[][]{outTriangles, outHalfedges};
+        }
+
+        /**
+         * Joins consecutive distinct points along the line, for collinear input.
+         * Repeated points are recorded as duplicates of their first copy.
+         */
+        int[] collinearEdges() {
+            int[] order = new int[n];
+            for (int i = 0; i < n; i++) {
+                order[i] = i;
+            }
+            IndexSort.sort(order, 0, n, xs, ys, new int[n]);
+            int[] edges = new int[2 * Math.max(0, n - 1)];
+            int size = 0;
+            for (int k = 1; k < n; k++) {
+                int previous = representative[order[k - 1]];
+                int p = order[k];
+                if (xs[p] == xs[previous] && ys[p] == ys[previous]) {
+                    representative[p] = previous;
+                } else {
+                    edges[size++] = previous;
+                    edges[size++] = p;
+                }
+            }
+            return Arrays.copyOf(edges, size);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Formats doubles as ASCII straight into byte arrays, without creating strings.
+ * <p>
+ * The shortest format produces the shortest decimal that parses back to the same
+ * double, laid out like Double.toString ("1.0E10", "0.001", "-12.5"). The digits are
+ * found with Giulietti's Schubfach algorithm: the value is multiplied by a 126-bit
+ * approximation of a power of ten and the candidates inside the rounding interval
+ * are checked with integer arithmetic only. The powers of ten are computed once
+ * with BigInteger when the class is loaded.
+ * <p>
+ * The fixed format prints a given number of digits after the decimal point, rounding
+ * the shortest representation half-up, so 2.675 prints as "2.68" with two digits.
+ */
+final class DoubleFormat {
+    /** The longest output of the shortest format, e.g. "-2.2250738585072014E-308". */
+    static final int MAX_SHORTEST_LENGTH = 24;
+    /** The largest number of digits after the decimal point in the fixed format. */
+    static final int MAX_PRECISION = 17;
+
+    private static final int P = 53;
+    private static final int Q_MIN = -1074;
+    private static final long C_MIN = 1L << (P - 1);
+    private static final long T_MASK = C_MIN - 1;
+    private static final int BQ_MASK = 0x7FF;
+    private static final int C_TINY = 3;
+    private static final int K_MIN = -324;
+    private static final int K_MAX = 292;
+    private static final long MASK_63 = (1L << 63) - 1;
+
+    // g = floor(10^-k * 2^-r) + 1 with 2^125 <= 10^-k * 2^-r < 2^126, split into 63-bit halves
+    private static final long[] G1 = new long[K_MAX - K_MIN + 1];
+    private static final long[] G0 = new long[K_MAX - K_MIN + 1];
+
+    private static final long[] POW10 = new long[19];
+
+    static {
+        for (int k = K_MIN; k <= K_MAX; k++) {
+            BigInteger beta;
+            if (k <= 0) {
+                BigInteger p = BigInteger.TEN.pow(-k);
+                int r = p.bitLength() - 126;
+                beta = r >= 0 ? p.shiftRight(r) : p.shiftLeft(-r);
+            } else {
+                BigInteger p = BigInteger.TEN.pow(k);
+                beta = BigInteger.ONE.shiftLeft(125 + p.bitLength()).divide(p);
+            }
+            BigInteger g = beta.add(BigInteger.ONE);
+            G1[k - K_MIN] = g.shiftRight(63).longValue();
+            G0[k - K_MIN] = g.longValue() & MASK_63;
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private DoubleFormat() {
+    }
+
+    /**
+     * Writes the shortest representation of v that parses back to v.
+     * @param buf a buffer with at least MAX_SHORTEST_LENGTH bytes free from pos on
+     * @return the position after the last byte written
+     */
+    static int shortest(double v, byte[] buf, int pos) {
+        long bits = Double.doubleToRawLongBits(v);
+        long t = bits & T_MASK;
+        int bq = (int) (bits >>> (P - 1)) & BQ_MASK;
+        if (bq == BQ_MASK) {
+            return writeAscii(t != 0 ? "NaN" : (bits > 0 ? "Infinity" : "-Infinity"), buf, pos);
+        }
+        if (bits < 0) {
+            buf[pos++] = '-';
+        }
+        if (bq != 0) {
+            int mq = -Q_MIN + 1 - bq;
+            long c = C_MIN | t;
+            // integers below 2^53 are their own shortest decimal
+            if (0 < mq && mq < P) {
+                long f = c >> mq;
+                if (f << mq == c) {
+                    return layout(f, 0, buf, pos);
+                }
+            }
+            return schubfach(-mq, c, 0, buf, pos);
+        }
+        if (t != 0) {
+            return t < C_TINY ? schubfach(Q_MIN, 10 * t, -1, buf, pos) : schubfach(Q_MIN, t, 0, buf, pos);
+        }
+        return writeAscii("0.0", buf, pos);
+    }
+
+    /**
+     * Writes v with exactly precision digits after the decimal point.
+     * @param buf a buffer with at least MAX_SHORTEST_LENGTH + precision bytes free from pos on
+     * @return the position after the last byte written, or -1 if the value has too many
+     * integer digits for the buffer guarantee; nothing useful is written then
+     */
+    static int fixed(double v, int precision, byte[] buf, int pos) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            return shortest(v, buf, pos);
+        }
+        // decompose the shortest representation into digits * 10^exp
+        int end = shortest(Math.abs(v), buf, pos);
+        long digits = 0;
+        int exp = 0;
+        boolean fraction = false;
+        for (int i = pos; i < end; i++) {
+            byte b = buf[i];
+            if (b == '.') {
+                fraction = true;
+            } else if (b == 'E') {
+                exp += parseExponent(buf, i + 1, end);
+                break;
+            } else {
+                digits = digits * 10 + (b - '0');
+                if (fraction) {
+                    exp--;
+                }
+            }
+        }
+        int shift = exp + precision;
+        long scaled;
+        if (shift >= 0) {
+            if (digits != 0 && (shift >= POW10.length || digits > Long.MAX_VALUE / POW10[shift])) {
+                return -1;
+            }
+            scaled = digits == 0 ? 0 : digits * POW10[shift];
+        } else if (-shift >= POW10.length) {
+            scaled = 0;
+        } else {
+            long divisor = POW10[-shift];
+            scaled = digits / divisor;
+            if ((digits % divisor) * 2 >= divisor) {
+                scaled++;
+            }
+        }
+        if (scaled >= POW10[18]) {
+            return -1;
+        }
+        if (v < 0 || (v == 0 && 1 / v < 0)) {
+            buf[pos++] = '-';
+        }
+        int length = Math.max(digitCount(scaled), precision + 1);
+        int out = pos + length + (precision > 0 ? 1 : 0);
+        int i = out;
+        for (int d = 0; d < length; d++) {
+            if (precision > 0 && d == precision) {
+                buf[--i] = '.';
+            }
+            buf[--i] = (byte) ('0' + scaled % 10);
+            scaled /= 10;
+        }
+        return out;
+    }
+
+    /**
+     * Formats v with exactly precision digits after the decimal point, for the values
+     * that fixed() cannot write into a bounded buffer.
+     */
+    static String fixedString(double v, int precision) {
+        if (Double.isNaN(v) || Double.isInfinite(v)) {
+            return Double.toString(v);
+        }
+        byte[] buf = new byte[MAX_SHORTEST_LENGTH];
+        String shortest = new String(buf, 0, shortest(v, buf, 0), StandardCharsets.US_ASCII);
+        return new BigDecimal(shortest).setScale(precision, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static int schubfach(int q, long c, int dk, byte[] buf, int pos) {
+        int out = (int) c & 0x1;
+        long cb = c << 2;
+        long cbr = cb + 2;
+        long cbl;
+        int k;
+        if (c != C_MIN || q == Q_MIN) {
+            cbl = cb - 2;
+            k = flog10pow2(q);
+        } else {
+            cbl = cb - 1;
+            k = flog10threeQuartersPow2(q);
+        }
+        int h = q + flog2pow10(-k) + 2;
+        long g1 = G1[k - K_MIN];
+        long g0 = G0[k - K_MIN];
+
+        long vb = rop(g1, g0, cb << h);
+        long vbl = rop(g1, g0, cbl << h);
+        long vbr = rop(g1, g0, cbr << h);
+
+        long s = vb >> 2;
+        if (s >= 100) {
+            // try one digit less first: the multiple of ten below and above s
+            long sp10 = 10 * Math.multiplyHigh(s, 115_292_150_460_684_698L << 4);
+            long tp10 = sp10 + 10;
+            boolean upin = vbl + out <= sp10 << 2;
+            boolean wpin = (tp10 << 2) + out <= vbr;
+            if (upin != wpin) {
+                return layout(upin ? sp10 : tp10, k, buf, pos);
+            }
+        }
+        long t = s + 1;
+        boolean uin = vbl + out <= s << 2;
+        boolean win = (t << 2) + out <= vbr;
+        if (uin != win) {
+            return layout(uin ? s : t, k + dk, buf, pos);
+        }
+        // both candidates are inside the interval: take the closer one, ties to even
+        long cmp = vb - ((s + t) << 1);
+        return layout(cmp < 0 || cmp == 0 && (s & 0x1) == 0 ? s : t, k + dk, buf, pos);
+    }
+
+    /**
+     * Rounds the 190-bit product of g and cp to odd and returns its upper 64 bits.
+     */
+    private static long rop(long g1, long g0, long cp) {
+        long x1 = Math.multiplyHigh(g0, cp);
+        long y0 = g1 * cp;
+        long y1 = Math.multiplyHigh(g1, cp);
+        long z = (y0 >>> 1) + x1;
+        long vbp = y1 + (z >>> 63);
+        return vbp | ((z & MASK_63) + MASK_63) >>> 63;
+    }
+
+    private static int flog10pow2(int e) {
+        return (int) (e * 661_971_961_083L >> 41);
+    }
+
+    private static int flog10threeQuartersPow2(int e) {
+        return (int) (e * 661_971_961_083L - 274_743_187_321L >> 41);
+    }
+
+    private static int flog2pow10(int e) {
+        return (int) (e * 913_124_641_741L >> 38);
+    }
+
+    /**
+     * Lays out f * 10^e the way Double.toString does: plain notation from 10^-3 up to
+     * 10^7, computerized scientific notation outside, and always a digit after the point.
+     */
+    private static int layout(long f, int e, byte[] buf, int pos) {
+        while (f % 10 == 0) {
+            f /= 10;
+            e++;
+        }
+        int n = digitCount(f);
+        int sciExp = e + n - 1;
+        if (sciExp >= 0 && sciExp < 7) {
+            if (n <= sciExp + 1) {
+                pos = writeDigits(f, n, n, buf, pos);
+                for (int i = n; i <= sciExp; i++) {
+                    buf[pos++] = '0';
+                }
+                buf[pos++] = '.';
+                buf[pos++] = '0';
+                return pos;
+            }
+            return writeDigits(f, n, sciExp + 1, buf, pos);
+        }
+        if (sciExp < 0 && sciExp >= -3) {
+            buf[pos++] = '0';
+            buf[pos++] = '.';
+            for (int i = -1; i > sciExp; i--) {
+                buf[pos++] = '0';
+            }
+            return writeDigits(f, n, n, buf, pos);
+        }
+        if (n == 1) {
+            buf[pos++] = (byte) ('0' + f);
+            buf[pos++] = '.';
+            buf[pos++] = '0';
+        } else {
+            pos = writeDigits(f, n, 1, buf, pos);
+        }
+        buf[pos++] = 'E';
+        if (sciExp < 0) {
+            buf[pos++] = '-';
+            sciExp = -sciExp;
+        }
+        if (sciExp >= 100) {
+            buf[pos++] = (byte) ('0' + sciExp / 100);
+        }
+        if (sciExp >= 10) {
+            buf[pos++] = (byte) ('0' + sciExp / 10 % 10);
+        }
+        buf[pos++] = (byte) ('0' + sciExp % 10);
+        return pos;
+    }
+
+    /**
+     * Writes the n digits of f, with a decimal point after the first pointAfter digits
+     * unless pointAfter is n.
+     */
+    private static int writeDigits(long f, int n, int pointAfter, byte[] buf, int pos) {
+        int end = pos + n + (pointAfter < n ? 1 : 0);
+        int i = end;
+        for (int d = n - 1; d >= 0; d--) {
+            buf[--i] = (byte) ('0' + f % 10);
+            f /= 10;
+            if (d == pointAfter) {
+                buf[--i] = '.';
+            }
+        }
+        return end;
+    }
+
+    private static int digitCount(long f) {
+        int n = 1;
+        while (n < POW10.length && f >= POW10[n]) {
+            n++;
+        }
+        return n;
+    }
+
+    private static int parseExponent(byte[] buf, int from, int to) {
+        boolean negative = buf[from] == '-';
+        int value = 0;
+        for (int i = negative ? from + 1 : from; i < to; i++) {
+            value = value * 10 + (buf[i] - '0');
+        }
+        return negative ? -value : value;
+    }
+
+    private static int writeAscii(String s, byte[] buf, int pos) {
+        for (int i = 0; i < s.length(); i++) {
+            buf[pos++] = (byte) s.charAt(i);
+        }
+        return pos;
+    }
+}
@@ -0,0 +1,243 @@
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses ASCII decimal numbers straight from a byte array, without creating strings.
+ * Accepts what DoubleFormat and Double.toString produce: an optional sign, digits
+ * with an optional decimal point, an optional exponent, and NaN and Infinity.
+ * <p>
+ * Up to 18 significant digits are collected into a long. Small mantissas with small
+ * exponents are converted exactly with one floating-point multiplication or division
+ * (Clinger's fast path); the rest go through the Eisel-Lemire algorithm, which
+ * multiplies by a 128-bit approximation of the power of ten and only gives up on
+ * the rare inputs too close to a rounding boundary. Those, and numbers with more
+ * digits, fall back to Double.parseDouble. Every path rounds correctly.
+ */
+final class DoubleParser {
+    private static final int MIN_EXP10 = -348;
+    private static final int MAX_EXP10 = 347;
+    private static final int MAX_DIGITS = 18;   // 10^18 still fits a signed long
+
+    // 10^e truncated to its 128 most significant bits, as high and low halves
+    private static final long[] POW10_HI = new long[MAX_EXP10 - MIN_EXP10 + 1];
+    private static final long[] POW10_LO = new long[MAX_EXP10 - MIN_EXP10 + 1];
+    private static final double[] EXACT_POW10 = new double[23];
+
+    static {
+        BigInteger mask64 = BigInteger.ONE.shiftLeft(64).subtract(BigInteger.ONE);
+        for (int e = MIN_EXP10; e <= MAX_EXP10; e++) {
+            BigInteger m;
+            if (e >= 0) {
+                BigInteger p = BigInteger.TEN.pow(e);
+                int shift = p.bitLength() - 128;
+                m = shift >= 0 ? p.shiftRight(shift) : p.shiftLeft(-shift);
+            } else {
+                BigInteger p = BigInteger.TEN.pow(-e);
+                m = BigInteger.ONE.shiftLeft(127 + p.bitLength()).divide(p);
+            }
+            POW10_HI[e - MIN_EXP10] = m.shiftRight(64).longValue();
+            POW10_LO[e - MIN_EXP10] = m.and(mask64).longValue();
+        }
+        EXACT_POW10[0] = 1;
+        for (int i = 1; i < EXACT_POW10.length; i++) {
+            EXACT_POW10[i] = EXACT_POW10[i - 1] * 10;
+        }
+    }
+
+    private DoubleParser() {
+    }
+
+    /**
+     * Parses the number in buf[from..to), ignoring surrounding spaces.
+     * @throws NumberFormatException if the bytes are not a number
+     */
+    static double parse(byte[] buf, int from, int to) {
+        int start = from;
+        while (from < to && buf[from] == ' ') {
+            from++;
+        }
+        while (to > from && buf[to - 1] == ' ') {
+            to--;
+        }
+        if (from == to) {
+            throw malformed(buf, start, to);
+        }
+        int pos = from;
+        boolean negative = false;
+        byte b = buf[pos];
+        if (b == '-' || b == '+') {
+            negative = b == '-';
+            pos++;
+        }
+        if (pos < to && (buf[pos] == 'N' || buf[pos] == 'I')) {
+            return special(buf, from, pos, to, negative);
+        }
+
+        long mantissa = 0;
+        int digits = 0;        // significant digits collected
+        int dropped = 0;       // integer digits beyond MAX_DIGITS
+        int fractionDigits = 0;
+        boolean anyDigit = false;
+        boolean truncated = false;
+        for (; pos < to; pos++) {
+            int d = buf[pos] - '0';
+            if (d < 0 || d > 9) {
+                break;
+            }
+            anyDigit = true;
+            if (digits < MAX_DIGITS) {
+                mantissa = mantissa * 10 + d;
+                if (mantissa != 0) {
+                    digits++;
+                }
+            } else {
+                dropped++;
+                truncated |= d != 0;
+            }
+        }
+        if (pos < to && buf[pos] == '.') {
+            pos++;
+            for (; pos < to; pos++) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                anyDigit = true;
+                if (digits < MAX_DIGITS) {
+                    mantissa = mantissa * 10 + d;
+                    fractionDigits++;
+                    if (mantissa != 0) {
+                        digits++;
+                    }
+                } else {
+                    truncated |= d != 0;
+                }
+            }
+        }
+        if (!anyDigit) {
+            throw malformed(buf, from, to);
+        }
+        long exponent = 0;
+        if (pos < to && (buf[pos] == 'e' || buf[pos] == 'E')) {
+            pos++;
+            boolean negativeExponent = false;
+            if (pos < to && (buf[pos] == '-' || buf[pos] == '+')) {
+                negativeExponent = buf[pos] == '-';
+                pos++;
+            }
+            if (pos == to) {
+                throw malformed(buf, from, to);
+            }
+            for (; pos < to; pos++) {
+                int d = buf[pos] - '0';
+                if (d < 0 || d > 9) {
+                    break;
+                }
+                if (exponent < 100_000) {
+                    exponent = exponent * 10 + d;
+                }
+            }
+            if (negativeExponent) {
+                exponent = -exponent;
+            }
+        }
+        if (pos != to) {
+            throw malformed(buf, from, to);
+        }
+        if (truncated) {
+            return Double.parseDouble(text(buf, from, to));
+        }
+        long exp10 = exponent + dropped - fractionDigits;
+        double value = toDouble(mantissa, exp10);
+        if (Double.isNaN(value)) {
+            value = Double.parseDouble(text(buf, from, to));
+            return value;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Converts mantissa * 10^exp10 to the nearest double.
+     * @return the value, or NaN when the fast algorithms cannot decide the rounding
+     */
+    private static double toDouble(long mantissa, long exp10) {
+        if (mantissa == 0) {
+            return 0;
+        }
+        if (mantissa < (1L << 53) && exp10 >= -22 && exp10 <= 22) {
+            return exp10 < 0 ? mantissa / EXACT_POW10[(int) -exp10] : mantissa * EXACT_POW10[(int) exp10];
+        }
+        if (exp10 < MIN_EXP10) {
+            return 0;
+        }
+        if (exp10 > MAX_EXP10) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return eiselLemire(mantissa, (int) exp10);
+    }
+
+    private static double eiselLemire(long mantissa, int exp10) {
+        int clz = Long.numberOfLeadingZeros(mantissa);
+        long man = mantissa << clz;
+        long exp2 = (217706L * exp10 >> 16) + 64 + 1023 - clz;
+
+        long pHi = POW10_HI[exp10 - MIN_EXP10];
+        long xHi = unsignedMultiplyHigh(man, pHi);
+        long xLo = man * pHi;
+        if ((xHi & 0x1FF) == 0x1FF && Long.compareUnsigned(xLo + man, man) < 0) {
+            // the truncated table entry leaves the result undecided; use all 128 bits
+            long pLo = POW10_LO[exp10 - MIN_EXP10];
+            long yHi = unsignedMultiplyHigh(man, pLo);
+            long yLo = man * pLo;
+            long mergedHi = xHi;
+            long mergedLo = xLo + yHi;
+            if (Long.compareUnsigned(mergedLo, xLo) < 0) {
+                mergedHi++;
+            }
+            if ((mergedHi & 0x1FF) == 0x1FF && mergedLo + 1 == 0 && Long.compareUnsigned(yLo + man, man) < 0) {
+                return Double.NaN;
+            }
+            xHi = mergedHi;
+            xLo = mergedLo;
+        }
+        long msb = xHi >>> 63;
+        long bits = xHi >>> (msb + 9);
+        exp2 -= 1 ^ msb;
+        if (xLo == 0 && (xHi & 0x1FF) == 0 && (bits & 3) == 1) {
+            return Double.NaN; // exactly half-way between two doubles
+        }
+        bits += bits & 1;
+        bits >>>= 1;
+        if (bits >>> 53 > 0) {
+            bits >>>= 1;
+            exp2++;
+        }
+        if (exp2 <= 0 || exp2 >= 0x7FF) {
+            return Double.NaN; // subnormal or overflow: leave it to the slow path
+        }
+        return Double.longBitsToDouble(exp2 << 52 | bits & ((1L << 52) - 1));
+    }
+
+    private static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    private static double special(byte[] buf, int from, int pos, int to, boolean negative) {
+        String word = text(buf, pos, to);
+        if (word.equals("Infinity")) {
+            return negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+        }
+        if (word.equals("NaN")) {
+            return Double.NaN;
+        }
+        throw malformed(buf, from, to);
+    }
+
+    private static String text(byte[] buf, int from, int to) {
+        return new String(buf, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    private static NumberFormatException malformed(byte[] buf, int from, int to) {
+        return new NumberFormatException("Not a number: \"" + text(buf, from, to) + "\"");
+    }
+}
@@ -0,0 +1,539 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Maintains the closest pair of a set of points under insertions and deletions.
+ * <p>
+ * Points at the same location share one site, which counts how many handles it
+ * stands for. Only sites take part in the search below; the closest pair has
+ * distance zero while some site stands for two or more handles.
+ * <p>
+ * Every site keeps a candidate neighbour: its nearest neighbour at the time it
+ * was inserted, recomputed whenever that neighbour is removed. An indexed min-heap
+ * orders the sites by candidate distance. For the true closest pair (a, b), with b
+ * inserted after a, b's candidate was chosen while a was present, so its distance is
+ * at most |ab|; the heap minimum therefore always is the closest pair.
+ * <p>
+ * Nearest neighbour queries go through a logarithmic set of KDTrees over a small
+ * insertion buffer: the trees hold BUFFER_SIZE * 2^i sites each and are merged
+ * like a binary counter. Removed sites stay in their tree as tombstones until
+ * the tree is rebuilt.
+ * <p>
+ * Costs, with Q the cost of one nearest neighbour query over all trees
+ * (O(log^2 n) expected for well-spread data, since each tree answers in about
+ * O(log n)):
+ * <ul>
+ * <li>insert: one query plus O(log n) heap work, and O(log^2 n) amortized for
+ * merging the trees; inserting at the location of a site costs the query only;</li>
+ * <li>remove: O(1) while the site keeps other handles. Otherwise O(log n) heap
+ * work plus one query for every site whose candidate was the removed site, so
+ * O(1 + d) queries for a site of in-degree d. Every site has at most one
+ * candidate, so the average in-degree is below one and removing a random point
+ * costs O(Q) expected. The in-degree is not bounded, though: candidates are fixed
+ * at insertion time, so sites inserted along a spiral toward a centre can all
+ * point to the centre. Removing it then costs O(n) queries, and a sequence that
+ * keeps removing such hubs costs O(n Q) per removal, not polylog;</li>
+ * <li>rebuilding the trees once the tombstones outnumber the live points:
+ * O(n log n), amortized O(log n) over the removals that caused it.</li>
+ * </ul>
+ * <p>
+ * Points are identified by the int handles returned from insert(). The first
+ * handle at a location doubles as its site, the later ones are copies of it.
+ * Handles of removed points are reused once no tree refers to them any more.
+ */
+public class DynamicClosestPair {
+    private static final int BUFFER_SIZE = 32;
+    private static final int INITIAL_CAPACITY = 16;
+
+    // per handle
+    private Vec2[] points = new Vec2[INITIAL_CAPACITY];
+    private double[] xs = new double[INITIAL_CAPACITY];
+    private double[] ys = new double[INITIAL_CAPACITY];
+    private boolean[] alive = new boolean[INITIAL_CAPACITY];
+    private int[] site = new int[INITIAL_CAPACITY];           // the site this handle belongs to
+
+    // per site: the number of live handles at its location, and the handles after the first
+    private int[] multiplicity = new int[INITIAL_CAPACITY];
+    private int[] copyHead = new int[INITIAL_CAPACITY];
+    private int[] copyNext = new int[INITIAL_CAPACITY];  // per copy
+    private int[] copyPrev = new int[INITIAL_CAPACITY];
+    // list of the sites with a multiplicity of two or more
+    private int[] duplicateNext = new int[INITIAL_CAPACITY];
+    private int[] duplicatePrev = new int[INITIAL_CAPACITY];
+    private int duplicateHead = -1;
+
+    // per site
+    private int[] target = new int[INITIAL_CAPACITY];          // candidate neighbour, or -1
+    private double[] targetDist = new double[INITIAL_CAPACITY]; // squared distance to it
+    private int[] revHead = new int[INITIAL_CAPACITY];   // first point whose candidate is this one
+    private int[] revNext = new int[INITIAL_CAPACITY];
+    private int[] revPrev = new int[INITIAL_CAPACITY];
+    private int[] heapPos = new int[INITIAL_CAPACITY];   // position in heap, or -1
+
+    private int[] heap = new int[INITIAL_CAPACITY];
+    private int heapSize;
+
+    private int handleCount;
+    private int[] freeHandles = new int[INITIAL_CAPACITY];
+    private int freeCount;
+    private int size;
+    private int sites;
+
+    private final int[] buffer = new int[BUFFER_SIZE];
+    private int bufferSize;
+    private final List<Level> levels = new ArrayList<>();
+    private int deadInLevels;
+
+    /**
+     * A static KDTree over a fixed group of handles.
+     */
+    private static final class Level {
+        final KDTree tree;
+        final int[] handles;
+
+        Level(KDTree tree, int[] handles) {
+            this.tree = tree;
+            this.handles = handles;
+        }
+    }
+
+    /**
+     * Adds a point.
+     * @param point the point to add
+     * @return the handle identifying the point
+     */
+    public int insert(Vec2 point) {
+        int h = allocateHandle();
+        points[h] = point;
+        xs[h] = point.getX();
+        ys[h] = point.getY();
+        alive[h] = true;
+        size++;
+
+        int nearest = nearestAlive(xs[h], ys[h], h);
+        if (nearest >= 0 && distanceSquared(nearest, xs[h], ys[h]) == 0) {
+            addCopy(nearest, h);
+            return h;
+        }
+        sites++;
+        site[h] = h;
+        multiplicity[h] = 1;
+        copyHead[h] = -1;
+        target[h] = -1;
+        revHead[h] = -1;
+        heapPos[h] = -1;
+        if (nearest >= 0) {
+            link(h, nearest);
+            heapPush(h);
+        }
+        if (bufferSize == BUFFER_SIZE) {
+            flushBuffer();
+        }
+        buffer[bufferSize++] = h;
+        return h;
+    }
+
+    /**
+     * Removes the point with the given handle.
+     * @param handle a handle returned by insert()
+     * @return true if the point was present
+     */
+    public boolean remove(int handle) {
+        if (handle < 0 || handle >= handleCount || !alive[handle]) {
+            return false;
+        }
+        alive[handle] = false;
+        size--;
+        int s = site[handle];
+        if (handle != s) {
+            removeCopy(s, handle);
+            freeHandle(handle);
+        }
+        if (--multiplicity[s] == 1) {
+            unlinkDuplicate(s);
+        }
+        if (multiplicity[s] > 0) {
+            // the site stays for its other handles, even if its own handle was the one removed
+            return true;
+        }
+
+        sites--;
+        if (heapPos[s] >= 0) {
+            heapRemove(s);
+        }
+        if (target[s] >= 0) {
+            unlink(s);
+        }
+
+        int r = revHead[s];
+        revHead[s] = -1;
+        if (!removeFromBuffer(s)) {
+            deadInLevels++;
+        }
+
+        // the sites that used the removed one as candidate need a new candidate
+        while (r >= 0) {
+            int next = revNext[r];
+            int nearest = nearestAlive(xs[r], ys[r], r);
+            if (nearest >= 0) {
+                link(r, nearest);
+                heapUpdate(r);
+            } else {
+                target[r] = -1;
+                heapRemove(r);
+            }
+            r = next;
+        }
+
+        if (deadInLevels > sites) {
+            rebuildLevels();
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the point with the given handle.
+     * @throws IllegalArgumentException if there is no such point
+     */
+    public Vec2 get(int handle) {
+        if (handle < 0 || handle >= handleCount || !alive[handle]) {
+            throw new IllegalArgumentException("Unknown handle " + handle);
+        }
+        return points[handle];
+    }
+
+    /**
+     * Returns the two closest points.
+     * @return the pair, or null if there are fewer than two points
+     */
+    public Vec2[] getClosestPair() {
+        int[] pair = getClosestHandles();
+        return pair == null ? null : new Vec2[]{points[pair[0]], points[pair[1]]};
+    }
+
+    /**
+     * Returns the handles of the two closest points.
+     * @return the pair of handles, or null if there are fewer than two points
+     */
+    public int[] getClosestHandles() {
+        if (duplicateHead >= 0) {
+            int first = firstHandle(duplicateHead);
+            return new int[]{first, first == duplicateHead ? copyHead[first] : copyNext[first]};
+        }
+        if (heapSize == 0) {
+            return null;
+        }
+        int h = heap[0];
+        return new int[]{firstHandle(target[h]), firstHandle(h)};
+    }
+
+    /**
+     * Returns the distance between the two closest points.
+     * @return the distance, or positive infinity if there are fewer than two points
+     */
+    public double getDistance() {
+        if (duplicateHead >= 0) {
+            return 0;
+        }
+        return heapSize == 0 ? Double.POSITIVE_INFINITY : Math.sqrt(targetDist[heap[0]]);
+    }
+
+    /**
+     * Returns a live handle of a site: its own handle unless that was removed, otherwise its first copy.
+     */
+    private int firstHandle(int s) {
+        return alive[s] ? s : copyHead[s];
+    }
+
+    // copies: the handles at the location of a site after the first one
+
+    private void addCopy(int s, int h) {
+        site[h] = s;
+        copyPrev[h] = -1;
+        copyNext[h] = copyHead[s];
+        if (copyHead[s] >= 0) {
+            copyPrev[copyHead[s]] = h;
+        }
+        copyHead[s] = h;
+        if (++multiplicity[s] == 2) {
+            duplicatePrev[s] = -1;
+            duplicateNext[s] = duplicateHead;
+            if (duplicateHead >= 0) {
+                duplicatePrev[duplicateHead] = s;
+            }
+            duplicateHead = s;
+        }
+    }
+
+    private void removeCopy(int s, int h) {
+        if (copyPrev[h] >= 0) {
+            copyNext[copyPrev[h]] = copyNext[h];
+        } else {
+            copyHead[s] = copyNext[h];
+        }
+        if (copyNext[h] >= 0) {
+            copyPrev[copyNext[h]] = copyPrev[h];
+        }
+    }
+
+    private void unlinkDuplicate(int s) {
+        if (duplicatePrev[s] >= 0) {
+            duplicateNext[duplicatePrev[s]] = duplicateNext[s];
+        } else {
+            duplicateHead = duplicateNext[s];
+        }
+        if (duplicateNext[s] >= 0) {
+            duplicatePrev[duplicateNext[s]] = duplicatePrev[s];
+        }
+    }
+
+    private int nearestAlive(double x, double y, int exclude) {
+        int best = -1;
+        double bestDist = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < bufferSize; i++) {
+            int h = buffer[i];
+            double dist = distanceSquared(h, x, y);
+            if (h != exclude && dist < bestDist) {
+                bestDist = dist;
+                best = h;
+            }
+        }
+        // largest level first: it most likely holds the answer and bounds the other searches
+        for (int i = levels.size() - 1; i >= 0; i--) {
+            Level level = levels.get(i);
+            if (level == null) {
+                continue;
+            }
+            int[] handles = level.handles;
+            int local = level.tree.nearest(x, y, k -> multiplicity[handles[k]] > 0 && handles[k] != exclude,
+                    Math.sqrt(bestDist));
+            if (local >= 0) {
+                int h = handles[local];
+                double dist = distanceSquared(h, x, y);
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    best = h;
+                }
+            }
+        }
+        return best;
+    }
+
+    private double distanceSquared(int h, double x, double y) {
+        double dx = xs[h] - x;
+        double dy = ys[h] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Moves the buffered handles into the levels, merging full levels on the way.
+     */
+    private void flushBuffer() {
+        int[] carry = Arrays.copyOf(buffer, bufferSize);
+        bufferSize = 0;
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                levels.add(null);
+            }
+            Level level = levels.get(i);
+            if (level == null) {
+                levels.set(i, buildLevel(carry));
+                return;
+            }
+            carry = concatAlive(carry, level.handles);
+            levels.set(i, null);
+        }
+    }
+
+    /**
+     * Drops all tombstones by rebuilding every level into one.
+     */
+    private void rebuildLevels() {
+        int[] carry = new int[0];
+        for (Level level : levels) {
+            if (level != null) {
+                carry = concatAlive(carry, level.handles);
+            }
+        }
+        levels.clear();
+        int capacity = BUFFER_SIZE;
+        while (capacity < carry.length) {
+            levels.add(null);
+            capacity *= 2;
+        }
+        levels.add(carry.length == 0 ? null : buildLevel(carry));
+    }
+
+    /**
+     * Appends the live sites of a level to carry and frees the handles of its dead ones.
+     */
+    private int[] concatAlive(int[] carry, int[] handles) {
+        int[] result = Arrays.copyOf(carry, carry.length + handles.length);
+        int count = carry.length;
+        for (int h : handles) {
+            if (multiplicity[h] > 0) {
+                result[count++] = h;
+            } else {
+                deadInLevels--;
+                freeHandle(h);
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private Level buildLevel(int[] handles) {
+        double[] levelXs = new double[handles.length];
+        double[] levelYs = new double[handles.length];
+        for (int i = 0; i < handles.length; i++) {
+            levelXs[i] = xs[handles[i]];
+            levelYs[i] = ys[handles[i]];
+        }
+        return new Level(new KDTree(new PointSet(levelXs, levelYs)), handles);
+    }
+
+    private boolean removeFromBuffer(int handle) {
+        for (int i = 0; i < bufferSize; i++) {
+            if (buffer[i] == handle) {
+                buffer[i] = buffer[--bufferSize];
+                freeHandle(handle);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int allocateHandle() {
+        if (freeCount > 0) {
+            return freeHandles[--freeCount];
+        }
+        if (handleCount == points.length) {
+            int capacity = handleCount * 2;
+            points = Arrays.copyOf(points, capacity);
+            xs = Arrays.copyOf(xs, capacity);
+            ys = Arrays.copyOf(ys, capacity);
+            alive = Arrays.copyOf(alive, capacity);
+            site = Arrays.copyOf(site, capacity);
+            multiplicity = Arrays.copyOf(multiplicity, capacity);
+            copyHead = Arrays.copyOf(copyHead, capacity);
+            copyNext = Arrays.copyOf(copyNext, capacity);
+            copyPrev = Arrays.copyOf(copyPrev, capacity);
+            duplicateNext = Arrays.copyOf(duplicateNext, capacity);
+            duplicatePrev = Arrays.copyOf(duplicatePrev, capacity);
+            target = Arrays.copyOf(target, capacity);
+            targetDist = Arrays.copyOf(targetDist, capacity);
+            revHead = Arrays.copyOf(revHead, capacity);
+            revNext = Arrays.copyOf(revNext, capacity);
+            revPrev = Arrays.copyOf(revPrev, capacity);
+            heapPos = Arrays.copyOf(heapPos, capacity);
+            heap = Arrays.copyOf(heap, capacity);
+        }
+        return handleCount++;
+    }
+
+    private void freeHandle(int handle) {
+        points[handle] = null;
+        if (freeCount == freeHandles.length) {
+            freeHandles = Arrays.copyOf(freeHandles, freeCount * 2);
+        }
+        freeHandles[freeCount++] = handle;
+    }
+
+    // candidate links: each point is in the reverse list of its candidate
+
+    private void link(int h, int t) {
+        target[h] = t;
+        targetDist[h] = distanceSquared(t, xs[h], ys[h]);
+        revPrev[h] = -1;
+        revNext[h] = revHead[t];
+        if (revHead[t] >= 0) {
+            revPrev[revHead[t]] = h;
+        }
+        revHead[t] = h;
+    }
+
+    private void unlink(int h) {
+        int t = target[h];
+        if (revPrev[h] >= 0) {
+            revNext[revPrev[h]] = revNext[h];
+        } else {
+            revHead[t] = revNext[h];
+        }
+        if (revNext[h] >= 0) {
+            revPrev[revNext[h]] = revPrev[h];
+        }
+        target[h] = -1;
+    }
+
+    // indexed binary min-heap on targetDist
+
+    private void heapPush(int h) {
+        heap[heapSize] = h;
+        heapPos[h] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private void heapUpdate(int h) {
+        if (heapPos[h] < 0) {
+            heapPush(h);
+            return;
+        }
+        siftUp(heapPos[h]);
+        siftDown(heapPos[h]);
+    }
+
+    private void heapRemove(int h) {
+        int pos = heapPos[h];
+        if (pos < 0) {
+            return;
+        }
+        heapPos[h] = -1;
+        int last = heap[--heapSize];
+        if (pos < heapSize) {
+            heap[pos] = last;
+            heapPos[last] = pos;
+            siftUp(pos);
+            siftDown(heapPos[last]);
+        }
+    }
+
+    private void siftUp(int pos) {
+        int h = heap[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (targetDist[heap[parent]] <= targetDist[h]) {
+                break;
+            }
+            heap[pos] = heap[parent];
+            heapPos[heap[pos]] = pos;
+            pos = parent;
+        }
+        heap[pos] = h;
+        heapPos[h] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int h = heap[pos];
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && targetDist[heap[child + 1]] < targetDist[heap[child]]) {
+                child++;
+            }
+            if (targetDist[heap[child]] >= targetDist[h]) {
+                break;
+            }
+            heap[pos] = heap[child];
+            heapPos[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = h;
+        heapPos[h] = pos;
+    }
+}
@@ -0,0 +1,123 @@
+import java.util.stream.IntStream;
+
+/**
+ * Decides how element-wise Vec operations are executed: as a plain sequential
+ * loop, or split into chunks that run in parallel on the common fork/join pool.
+ * Vectors shorter than the parallel threshold always take the sequential loop,
+ * where the fork/join overhead would dwarf the work.
+ */
+public final class ExecutionPolicy {
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+    public static final int DEFAULT_CHUNK_SIZE = 1 << 14;
+
+    /** Always runs sequentially. */
+    public static final ExecutionPolicy SEQUENTIAL = new ExecutionPolicy(Integer.MAX_VALUE, DEFAULT_CHUNK_SIZE);
+    /** Runs in parallel whenever the vector spans more than one chunk. */
+    public static final ExecutionPolicy PARALLEL = new ExecutionPolicy(0, DEFAULT_CHUNK_SIZE);
+    /** Runs in parallel from DEFAULT_PARALLEL_THRESHOLD elements on. */
+    public static final ExecutionPolicy ADAPTIVE = new ExecutionPolicy(DEFAULT_PARALLEL_THRESHOLD, DEFAULT_CHUNK_SIZE);
+
+    private final int parallelThreshold;
+    private final int chunkSize;
+
+    private ExecutionPolicy(int parallelThreshold, int chunkSize) {
+        this.parallelThreshold = parallelThreshold;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Creates a policy that runs in parallel from the given length on.
+     * @param parallelThreshold the smallest length processed in parallel
+     * @param chunkSize         the number of elements processed by one parallel task
+     * @return the policy
+     */
+    public static ExecutionPolicy adaptive(int parallelThreshold, int chunkSize) {
+        if (parallelThreshold < 0 || chunkSize < 1) {
+            throw new IllegalArgumentException("Threshold must not be negative and chunk size must be positive");
+        }
+        return new ExecutionPolicy(parallelThreshold, chunkSize);
+    }
+
+    /**
+     * Tells whether an operation over the given number of elements runs in parallel.
+     * @param length the number of elements
+     * @return true for the chunked parallel path
+     */
+    public boolean isParallel(int length) {
+        return length >= parallelThreshold && length > chunkSize;
+    }
+
+    public int getParallelThreshold() {
+        return parallelThreshold;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Returns the number of chunks an operation over the given number of elements is split into.
+     */
+    int chunkCount(int length) {
+        // in long, since length + chunkSize may pass Integer.MAX_VALUE
+        return (int) (((long) length + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Returns the number of ranges forEachChunk and sumChunks pass to their action:
+     * one for a sequential operation, chunkCount otherwise. The range starting at
+     * from is number from / getChunkSize().
+     */
+    int rangeCount(int length) {
+        return isParallel(length) ? chunkCount(length) : 1;
+    }
+
+    /**
+     * Runs an action over [0, length): once over the whole range if the operation
+     * runs sequentially, otherwise once per chunk, in parallel on the common pool.
+     */
+    void forEachChunk(int length, RangeAction action) {
+        if (!isParallel(length)) {
+            action.run(0, length);
+            return;
+        }
+        IntStream.range(0, chunkCount(length))
+                .parallel()
+                .forEach(c -> {
+                    int from = c * chunkSize;
+                    action.run(from, from + Math.min(chunkSize, length - from));
+                });
+    }
+
+    /**
+     * Sums a reduction over [0, length), split into ranges like forEachChunk.
+     */
+    double sumChunks(int length, RangeReduction reduction) {
+        if (!isParallel(length)) {
+            return reduction.apply(0, length);
+        }
+        return IntStream.range(0, chunkCount(length))
+                .parallel()
+                .mapToDouble(c -> {
+                    int from = c * chunkSize;
+                    return reduction.apply(from, from + Math.min(chunkSize, length - from));
+                })
+                .sum();
+    }
+
+    /**
+     * Work on the index range [from, to).
+     */
+    @FunctionalInterface
+    interface RangeAction {
+        void run(int from, int to);
+    }
+
+    /**
+     * A partial result over the index range [from, to).
+     */
+    @FunctionalInterface
+    interface RangeReduction {
+        double apply(int from, int to);
+    }
+}
@@ -0,0 +1,714 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Closest pair search for point sets that do not fit in memory, read from a CSV
+ * file or from binary point files.
+ * <p>
+ * The search runs in three steps. First the input is read in runs of as many
+ * points as the memory budget allows; each run is sorted by x and written to a
+ * temporary file together with the input index of every point. Then the runs are
+ * merged, several levels deep if there are more runs than merge buffers fit in
+ * the budget. The final merge is not written out: its points fill slabs of
+ * consecutive x, and every slab is solved in memory with ClosestPairEngine. The
+ * points of a slab that are closer in x to its last point than the best distance
+ * so far are carried into the next slab, so pairs across a slab boundary are
+ * found without looking at any other point twice.
+ * <p>
+ * All temporary files are read and written sequentially through FileChannels and
+ * direct buffers, and deleted before the search returns. An input that fits in
+ * one run is solved without temporary files.
+ * <p>
+ * A carried strip that does not fit in half a slab takes a great many points
+ * with nearly the same x, e.g. a vertical line of points. Such a strip and all
+ * following points closer in x to the slab's last point than the best distance
+ * form a band, which is written to runs sorted by y and solved by the same slab
+ * search with x and y swapped. The band points near the next point are carried
+ * on as before. Three eighths of the budget go to the final merge buffers and
+ * one eighth to the buffers of a band.
+ * <p>
+ * An instance holds only its settings and may be shared between threads.
+ */
+public final class ExternalClosestPair {
+    /** The memory budget used by the default constructor. */
+    public static final long DEFAULT_MEMORY = 256L << 20;
+    /** The smallest memory budget accepted. */
+    public static final long MIN_MEMORY = 1L << 20;
+
+    // heap bytes per point while a slab is solved: coordinates, index and the engine's scratch arrays
+    private static final int BYTES_PER_POINT = 64;
+    private static final int RECORD_SIZE = 2 * Double.BYTES + Long.BYTES;
+    private static final int MIN_BUFFER_SIZE = 1 << 16;
+    private static final int MAX_BUFFER_SIZE = 1 << 22;
+
+    private final long memory;
+    private final Path tempDirectory;
+
+    /**
+     * Creates a search with the default memory budget that writes its temporary
+     * files to the directory named by java.io.tmpdir.
+     */
+    public ExternalClosestPair() {
+        this(DEFAULT_MEMORY, Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * @param memory        the number of bytes the search may use for points and I/O buffers
+     * @param tempDirectory the directory for the sorted runs
+     * @throws IllegalArgumentException if memory is less than MIN_MEMORY
+     */
+    public ExternalClosestPair(long memory, Path tempDirectory) {
+        if (memory < MIN_MEMORY) {
+            throw new IllegalArgumentException("The memory budget must be at least " + MIN_MEMORY + " bytes");
+        }
+        this.memory = memory;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Two points of the input, given by their position in it, and their squared distance.
+     */
+    public static final class Result {
+        private final long first;
+        private final long second;
+        private final double distanceSquared;
+        private final double x1;
+        private final double y1;
+        private final double x2;
+        private final double y2;
+
+        Result(long first, long second, double distanceSquared, double x1, double y1, double x2, double y2) {
+            this.first = first;
+            this.second = second;
+            this.distanceSquared = distanceSquared;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.x2 = x2;
+            this.y2 = y2;
+        }
+
+        public long getFirst() {
+            return first;
+        }
+
+        public long getSecond() {
+            return second;
+        }
+
+        public double getDistanceSquared() {
+            return distanceSquared;
+        }
+
+        public double getDistance() {
+            return Math.sqrt(distanceSquared);
+        }
+
+        /**
+         * Returns the pair as two new Vec2 objects, like ClosestPairResult.toVec2Pair().
+         */
+        public Vec2[] toVec2Pair() {
+            return new Vec2[]{new Vec2(x1, y1), new Vec2(x2, y2)};
+        }
+
+        @Override
+        public String toString() {
+            return "(" + first + ", " + second + ") at distance " + getDistance();
+        }
+
+        /**
+         * Returns the pair with x and y swapped, undoing the swap of a band search.
+         */
+        private Result transpose() {
+            return new Result(first, second, distanceSquared, y1, x1, y2, x2);
+        }
+    }
+
+    /**
+     * Finds the closest pair among the first two columns of a CSV file.
+     * @param csv       the file to read
+     * @param delimiter a string or character delimiting the column values
+     * @param hasHeader whether the first line holds column names, which are skipped
+     * @return the closest pair, as row numbers counted from 0 without the header and empty lines
+     * @throws IllegalArgumentException if the file has fewer than two points or rows of different lengths
+     */
+    public Result findClosestPair(Path csv, String delimiter, boolean hasHeader) throws IOException {
+        try (CSVImporter.PointReader reader = new CSVImporter.PointReader(csv, delimiter, hasHeader)) {
+            return findClosestPair(reader::read);
+        }
+    }
+
+    /**
+     * Finds the closest pair among the first two columns of one or more point files,
+     * taken as one input in the given order. Several files lift the PointFile.MAX_POINTS
+     * limit of a single file.
+     * @param parts the files, each with at least two dimensions
+     * @return the closest pair, as positions in the concatenated files
+     * @throws IllegalArgumentException if the files hold fewer than two points or a file has one dimension
+     */
+    public Result findClosestPair(PointFile... parts) throws IOException {
+        DoubleBuffer[] xs = new DoubleBuffer[parts.length];
+        DoubleBuffer[] ys = new DoubleBuffer[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            if (parts[i].dimension() < 2) {
+                throw new IllegalArgumentException("Points need two dimensions, part " + i + " has 1");
+            }
+            xs[i] = parts[i].xs();
+            ys[i] = parts[i].ys();
+        }
+        int[] part = {0};
+        return findClosestPair((x, y, from, length) -> {
+            int count = 0;
+            while (count < length && part[0] < parts.length) {
+                int n = Math.min(length - count, xs[part[0]].remaining());
+                xs[part[0]].get(x, from + count, n);
+                ys[part[0]].get(y, from + count, n);
+                count += n;
+                if (!xs[part[0]].hasRemaining()) {
+                    part[0]++;
+                }
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Fills arrays with the next points of an input.
+     */
+    @FunctionalInterface
+    interface Source {
+        /**
+         * Reads up to length points into xs and ys from position from.
+         * @return the number of points read, which is less than length only at the end of the input
+         */
+        int read(double[] xs, double[] ys, int from, int length) throws IOException;
+    }
+
+    Result findClosestPair(Source source) throws IOException {
+        int runSize = (int) Math.min(Integer.MAX_VALUE - 8, memory / BYTES_PER_POINT);
+        double[] xs = new double[runSize];
+        double[] ys = new double[runSize];
+        int n = fill(source, xs, ys, runSize);
+        if (n < runSize) {
+            return solveInMemory(xs, ys, n);
+        }
+
+        List<Path> runs = new ArrayList<>();
+        try {
+            int[] order = new int[runSize];
+            int[] aux = new int[runSize];
+            long firstIndex = 0;
+            while (n > 0) {
+                for (int i = 0; i < n; i++) {
+                    order[i] = i;
+                }
+                IndexSort.sort(order, 0, n, xs, null, aux);
+                Path run = createRun(runs);
+                try (RunWriter writer = new RunWriter(run, MAX_BUFFER_SIZE)) {
+                    for (int i = 0; i < n; i++) {
+                        int p = order[i];
+                        writer.write(xs[p], ys[p], firstIndex + p);
+                    }
+                }
+                firstIndex += n;
+                n = fill(source, xs, ys, runSize);
+            }
+            // let the run arrays go before the merge buffers and slabs are allocated
+            xs = null;
+            ys = null;
+            order = null;
+            aux = null;
+
+            // half of the budget goes to merge buffers, the other half to the slabs
+            int fanIn = (int) Math.min(Integer.MAX_VALUE, Math.max(2, memory / 2 / MIN_BUFFER_SIZE));
+            while (runs.size() > fanIn) {
+                runs = mergeLevel(runs, fanIn, memory / 2);
+            }
+            int slabSize = (int) Math.min(Integer.MAX_VALUE - 8, memory / 2 / BYTES_PER_POINT);
+            try (Merger merger = new Merger(runs, bufferSize(memory / 8 * 3, runs.size()))) {
+                return solveSlabs(merger, new Slab(slabSize), Double.POSITIVE_INFINITY);
+            }
+        } finally {
+            for (Path run : runs) {
+                Files.deleteIfExists(run);
+            }
+        }
+    }
+
+    private static int fill(Source source, double[] xs, double[] ys, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            int read = source.read(xs, ys, count, length - count);
+            if (read == 0) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private static Result solveInMemory(double[] xs, double[] ys, int n) {
+        if (n < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        ClosestPairResult result = new ClosestPairEngine().findClosestPair(
+                DoubleBuffer.wrap(xs, 0, n), DoubleBuffer.wrap(ys, 0, n));
+        int i = result.getFirst();
+        int j = result.getSecond();
+        return new Result(i, j, result.getDistanceSquared(), xs[i], ys[i], xs[j], ys[j]);
+    }
+
+    /**
+     * Merges groups of fanIn runs into single runs, deleting the merged ones.
+     * @param bytes the memory for the buffers of one group and its output
+     * @return the new runs
+     */
+    private List<Path> mergeLevel(List<Path> runs, int fanIn, long bytes) throws IOException {
+        List<Path> merged = new ArrayList<>();
+        try {
+            for (int from = 0; from < runs.size(); from += fanIn) {
+                List<Path> group = runs.subList(from, Math.min(runs.size(), from + fanIn));
+                Path run = createRun(merged);
+                try (Merger merger = new Merger(group, bufferSize(bytes, group.size() + 1));
+                     RunWriter writer = new RunWriter(run, bufferSize(bytes, group.size() + 1))) {
+                    while (merger.hasNext()) {
+                        RunReader top = merger.top();
+                        writer.write(top.x, top.y, top.index);
+                        merger.advance();
+                    }
+                }
+                for (Path done : group) {
+                    Files.delete(done);
+                }
+            }
+            return merged;
+        } catch (IOException | RuntimeException e) {
+            for (Path run : merged) {
+                Files.deleteIfExists(run);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Solves consecutive slabs of the merged points, carrying the points near each
+     * slab's end into the next. A carry of more than half a slab goes into a band
+     * instead, see solveBand.
+     * @param bound the squared distance to beat
+     * @return the closest pair below bound, or null if there is none
+     */
+    private Result solveSlabs(Merger merger, Slab slab, double bound) throws IOException {
+        double[] xs = slab.xs;
+        double[] ys = slab.ys;
+        long[] indices = slab.indices;
+        int slabSize = xs.length;
+        Result best = null;
+        double bestDistance = bound;
+        int count = 0;
+        double last = Double.NEGATIVE_INFINITY; // the largest x taken from the merger
+        List<Path> band = new ArrayList<>();
+        try {
+            while (merger.hasNext() && bestDistance > 0) {
+                if (band.isEmpty()) {
+                    while (count < slabSize && merger.hasNext()) {
+                        RunReader top = merger.top();
+                        xs[count] = top.x;
+                        ys[count] = top.y;
+                        indices[count] = top.index;
+                        last = top.x;
+                        count++;
+                        merger.advance();
+                    }
+                    if (count >= 2) {
+                        ClosestPairResult result = slab.engine.findClosestPair(
+                                DoubleBuffer.wrap(xs, 0, count), DoubleBuffer.wrap(ys, 0, count));
+                        if (result.getDistanceSquared() < bestDistance) {
+                            int i = result.getFirst();
+                            int j = result.getSecond();
+                            bestDistance = result.getDistanceSquared();
+                            best = new Result(indices[i], indices[j], bestDistance, xs[i], ys[i], xs[j], ys[j]);
+                        }
+                    }
+
+                    // the following points are at least at the last x, so only the strip before it can pair with them
+                    int start = count - 1;
+                    while (start > 0 && (last - xs[start - 1]) * (last - xs[start - 1]) < bestDistance) {
+                        start--;
+                    }
+                    int carried = count - start;
+                    if (carried <= slabSize / 2) {
+                        System.arraycopy(xs, start, xs, 0, carried);
+                        System.arraycopy(ys, start, ys, 0, carried);
+                        System.arraycopy(indices, start, indices, 0, carried);
+                        count = carried;
+                        continue;
+                    }
+                    writeByY(slab, start, count, band);
+                    count = 0;
+                }
+
+                // only the following points closer in x to the carry's last point than the best distance can pair with it
+                double reach = last;
+                boolean followed = false;
+                while (merger.hasNext() && (merger.top().x - reach) * (merger.top().x - reach) < bestDistance) {
+                    while (count < slabSize && merger.hasNext()
+                            && (merger.top().x - reach) * (merger.top().x - reach) < bestDistance) {
+                        RunReader top = merger.top();
+                        xs[count] = top.x;
+                        ys[count] = top.y;
+                        indices[count] = top.index;
+                        last = top.x;
+                        count++;
+                        merger.advance();
+                    }
+                    followed = true;
+                    writeByY(slab, 0, count, band);
+                    count = 0;
+                }
+                if (!followed) {
+                    // no point followed within reach, so the carry is done with
+                    deleteAll(band);
+                    continue;
+                }
+                Result result = solveBand(band, slab, bestDistance);
+                if (result != null) {
+                    best = result;
+                    bestDistance = result.getDistanceSquared();
+                }
+                if (merger.hasNext() && bestDistance > 0) {
+                    count = carryFromBand(band, slab, merger.top().x, bestDistance);
+                }
+            }
+            return best;
+        } finally {
+            deleteAll(band);
+        }
+    }
+
+    /**
+     * Solves a band of points, given as runs sorted by y that hold each point with
+     * x and y swapped, by merging the runs and searching them in slabs along y.
+     * @param band  the runs, replaced by fewer ones if they are too many to merge at once
+     * @param bound the squared distance to beat
+     * @return the closest pair below bound, or null if there is none
+     */
+    private Result solveBand(List<Path> band, Slab slab, double bound) throws IOException {
+        long bytes = memory / 8;
+        int fanIn = (int) Math.min(Integer.MAX_VALUE, Math.max(2, bytes / MIN_BUFFER_SIZE));
+        while (band.size() > fanIn) {
+            List<Path> merged = mergeLevel(band, fanIn, bytes);
+            band.clear();
+            band.addAll(merged);
+        }
+        try (Merger merger = new Merger(band, bufferSize(bytes, band.size()))) {
+            Result result = solveSlabs(merger, slab, bound);
+            return result == null ? null : result.transpose();
+        }
+    }
+
+    /**
+     * Finds the band points closer in x to the next point than the best distance.
+     * If they fit in half a slab, they are put at the start of the slab in order
+     * of x and the band is emptied; otherwise the band becomes one run of them.
+     * @return the number of points put in the slab
+     */
+    private int carryFromBand(List<Path> band, Slab slab, double next, double bestDistance) throws IOException {
+        List<Path> solved = new ArrayList<>(band);
+        Path carry = createRun(band);
+        int carried = 0;
+        try (Merger merger = new Merger(solved, bufferSize(memory / 8, solved.size() + 1));
+             RunWriter writer = new RunWriter(carry, bufferSize(memory / 8, solved.size() + 1))) {
+            for (; merger.hasNext(); merger.advance()) {
+                RunReader top = merger.top();
+                // the records hold y before x
+                if ((next - top.y) * (next - top.y) < bestDistance) {
+                    writer.write(top.x, top.y, top.index);
+                    carried++;
+                }
+            }
+        }
+        band.removeAll(solved);
+        deleteAll(solved);
+        if (carried > slab.xs.length / 2) {
+            return 0;
+        }
+
+        // read the carry into the second half of the slab, then sort it into the first
+        int offset = slab.xs.length - carried;
+        try (RunReader reader = new RunReader(carry, bufferSize(memory / 8, 1))) {
+            for (int i = offset; reader.next(); i++) {
+                slab.xs[i] = reader.y;
+                slab.ys[i] = reader.x;
+                slab.indices[i] = reader.index;
+            }
+        }
+        deleteAll(band);
+        int[] order = slab.order();
+        for (int i = 0; i < carried; i++) {
+            order[i] = offset + i;
+        }
+        IndexSort.sort(order, 0, carried, slab.xs, null, slab.aux());
+        for (int i = 0; i < carried; i++) {
+            int p = order[i];
+            slab.xs[i] = slab.xs[p];
+            slab.ys[i] = slab.ys[p];
+            slab.indices[i] = slab.indices[p];
+        }
+        return carried;
+    }
+
+    /**
+     * Writes the slab points [from, to) to a new band run, sorted by y and with x and y swapped.
+     */
+    private void writeByY(Slab slab, int from, int to, List<Path> band) throws IOException {
+        int n = to - from;
+        int[] order = slab.order();
+        for (int i = 0; i < n; i++) {
+            order[i] = from + i;
+        }
+        IndexSort.sort(order, 0, n, slab.ys, null, slab.aux());
+        try (RunWriter writer = new RunWriter(createRun(band), bufferSize(memory / 8, 1))) {
+            for (int i = 0; i < n; i++) {
+                int p = order[i];
+                writer.write(slab.ys[p], slab.xs[p], slab.indices[p]);
+            }
+        }
+    }
+
+    private static void deleteAll(List<Path> runs) throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+        runs.clear();
+    }
+
+    private Path createRun(List<Path> runs) throws IOException {
+        Path run = Files.createTempFile(tempDirectory, "closest-pair-run", ".bin");
+        runs.add(run);
+        return run;
+    }
+
+    /**
+     * Splits the given number of bytes between the given number of buffers.
+     */
+    private static int bufferSize(long bytes, int buffers) {
+        long size = bytes / buffers / RECORD_SIZE * RECORD_SIZE;
+        return (int) Math.max(MIN_BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE,
+                Math.min(MAX_BUFFER_SIZE / RECORD_SIZE * RECORD_SIZE, size));
+    }
+
+    /**
+     * The arrays slabs are solved in, shared by the slab searches of all bands.
+     */
+    private static final class Slab {
+        final double[] xs;
+        final double[] ys;
+        final long[] indices;
+        final ClosestPairEngine engine = new ClosestPairEngine();
+        // only needed for bands, so allocated on first use
+        private int[] order;
+        private int[] aux;
+
+        Slab(int size) {
+            this.xs = new double[size];
+            this.ys = new double[size];
+            this.indices = new long[size];
+        }
+
+        int[] order() {
+            if (order == null) {
+                order = new int[xs.length];
+            }
+            return order;
+        }
+
+        int[] aux() {
+            if (aux == null) {
+                aux = new int[xs.length];
+            }
+            return aux;
+        }
+    }
+
+    /**
+     * Appends point records to a run file.
+     */
+    private static final class RunWriter implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        RunWriter(Path path, int bufferSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+        }
+
+        void write(double x, double y, long index) throws IOException {
+            if (buffer.remaining() < RECORD_SIZE) {
+                drain();
+            }
+            buffer.putDouble(x).putDouble(y).putLong(index);
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                drain();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the point records of a run file one at a time.
+     */
+    private static final class RunReader implements Closeable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+        double x;
+        double y;
+        long index;
+
+        RunReader(Path path, int bufferSize) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.READ);
+            this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.nativeOrder());
+            buffer.flip();
+        }
+
+        /**
+         * Moves to the next record.
+         * @return false at the end of the run
+         */
+        boolean next() throws IOException {
+            if (buffer.remaining() < RECORD_SIZE) {
+                buffer.compact();
+                while (buffer.hasRemaining() && channel.read(buffer) > 0) {
+                    // fill the buffer
+                }
+                buffer.flip();
+                if (buffer.remaining() < RECORD_SIZE) {
+                    if (buffer.hasRemaining()) {
+                        throw new IOException("Truncated run file");
+                    }
+                    return false;
+                }
+            }
+            x = buffer.getDouble();
+            y = buffer.getDouble();
+            index = buffer.getLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Merges runs by x with a binary heap of their readers, breaking ties by input index.
+     */
+    private static final class Merger implements Closeable {
+        private final List<RunReader> readers = new ArrayList<>();
+        private final RunReader[] heap;
+        private int size;
+
+        Merger(List<Path> runs, int bufferSize) throws IOException {
+            heap = new RunReader[runs.size()];
+            try {
+                for (Path run : runs) {
+                    RunReader reader = new RunReader(run, bufferSize);
+                    readers.add(reader);
+                    if (reader.next()) {
+                        heap[size++] = reader;
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                close();
+                throw e;
+            }
+            for (int i = size / 2 - 1; i >= 0; i--) {
+                siftDown(i);
+            }
+        }
+
+        boolean hasNext() {
+            return size > 0;
+        }
+
+        /**
+         * Returns the reader whose current record comes next.
+         */
+        RunReader top() {
+            return heap[0];
+        }
+
+        /**
+         * Moves past the current record of top().
+         */
+        void advance() throws IOException {
+            if (!heap[0].next()) {
+                heap[0] = heap[--size];
+                heap[size] = null;
+            }
+            if (size > 0) {
+                siftDown(0);
+            }
+        }
+
+        private void siftDown(int i) {
+            RunReader reader = heap[i];
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!less(heap[child], reader)) {
+                    break;
+                }
+                heap[i] = heap[child];
+                i = child;
+            }
+            heap[i] = reader;
+        }
+
+        private static boolean less(RunReader a, RunReader b) {
+            return a.x < b.x || (a.x == b.x && a.index < b.index);
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException failure = null;
+            for (RunReader reader : readers) {
+                try {
+                    reader.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
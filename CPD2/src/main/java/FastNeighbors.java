@@ -2,10 +2,15 @@ import java.awt.geom.Arc2D;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
 
 public class FastNeighbors {
     private Vec2[] points;
     private Vec2[] closestPair;
+    private double closestDistance;
+    private boolean collectStats;
+    private ClosestPairStats stats;      // of the running search, null unless collecting
+    private ClosestPairStats lastStats;
 
     public FastNeighbors(Vec2[] points) {
         this.points = points;
@@ -16,25 +21,55 @@ public class FastNeighbors {
         return Math.sqrt((p1.getX() - p2.getX()) * (p1.getX() - p2.getX()) + (p1.getY() - p2.getY()) * (p1.getY() - p2.getY()));
     }
 
-    private double bruteForce(Vec2[] points) {
+    /**
+     * Turns the collection of ClosestPairStats on or off for the following searches.
+     */
+    public void setCollectStats(boolean collectStats) {
+        this.collectStats = collectStats;
+    }
+
+    /**
+     * Returns the counters and timings of the last search.
+     * @return the stats, or null if the last search did not collect any
+     */
+    public ClosestPairStats getLastStats() {
+        return lastStats;
+    }
+
+    private double bruteForce(Vec2[] points, int depth) {
+        if (stats != null) {
+            stats.addDistanceEvaluations((long) points.length * (points.length - 1) / 2);
+            stats.reachedDepth(depth);
+        }
         double minDist = Double.MAX_VALUE;
         for (int i = 0; i < points.length; i++) {
             for (int j = i + 1; j < points.length; j++) {
                 double dist = distance(points[i], points[j]);
                 if (dist < minDist) {
                     minDist = dist;
-                    closestPair[0] = points[i];
-                    closestPair[1] = points[j];
+                    recordPair(points[i], points[j], dist);
                 }
             }
         }
         return minDist;
     }
 
-    private double closestPairRecursive(Vec2[] points) {
+    /**
+     * Remembers a candidate pair unless a closer one was already found in another half.
+     * Among equally close pairs the one found last is kept.
+     */
+    private void recordPair(Vec2 p1, Vec2 p2, double dist) {
+        if (dist <= closestDistance) {
+            closestDistance = dist;
+            closestPair[0] = p1;
+            closestPair[1] = p2;
+        }
+    }
+
+    private double closestPairRecursive(Vec2[] points, int depth) {
         int n = points.length;
         if (n <= 3) {
-            return bruteForce(points);
+            return bruteForce(points, depth);
         }
 
         int mid = n / 2;
@@ -43,8 +78,8 @@ public class FastNeighbors {
         Vec2[] leftHalf = Arrays.copyOfRange(points, 0, mid);
         Vec2[] rightHalf = Arrays.copyOfRange(points, mid, n);
 
-        double minDistLeft = closestPairRecursive(leftHalf);
-        double minDistRight = closestPairRecursive(rightHalf);
+        double minDistLeft = closestPairRecursive(leftHalf, depth + 1);
+        double minDistRight = closestPairRecursive(rightHalf, depth + 1);
 
         double minDist = Math.min(minDistLeft, minDistRight);
 
@@ -57,29 +92,92 @@ public class FastNeighbors {
             }
         }
 
+        long sortStart = stats == null ? 0 : System.nanoTime();
         Arrays.sort(strip, 0, j, Comparator.comparingDouble(p -> p.getY()));
+        long scanStart = stats == null ? 0 : System.nanoTime();
 
+        long evaluations = 0;
         for (int i = 0; i < j; ++i) {
             for (int k = i + 1; k < j && (strip[k].getY() - strip[i].getY()) < minDist; ++k) {
                 double dist = distance(strip[i], strip[k]);
+                evaluations++;
                 if (dist < minDist) {
                     minDist = dist;
-                    closestPair[0] = strip[i];
-                    closestPair[1] = strip[k];
+                    recordPair(strip[i], strip[k], dist);
                 }
             }
         }
+        if (stats != null) {
+            stats.addSortNanos(scanStart - sortStart);
+            stats.addDistanceEvaluations(evaluations);
+            stats.addStrip(depth, j, System.nanoTime() - scanStart);
+        }
 
         return minDist;
     }
 
     public Vec2[] findClosestPair() {
+        ClosestPairEvent event = new ClosestPairEvent();
+        event.begin();
+        stats = collectStats ? new ClosestPairStats(points.length) : null;
+        long sortStart = stats == null ? 0 : System.nanoTime();
         Vec2[] pointsSortedByX = Arrays.copyOf(points, points.length);
         Arrays.sort(pointsSortedByX, Comparator.comparingDouble(p -> p.getX()));
-        closestPairRecursive(pointsSortedByX);
+        if (stats != null) {
+            stats.addSortNanos(System.nanoTime() - sortStart);
+        }
+        closestDistance = Double.MAX_VALUE;
+        closestPairRecursive(pointsSortedByX, 0);
+        if (stats != null) {
+            stats.finish();
+        }
+        lastStats = stats;
+        stats = null;
+        event.commit("FastNeighbors recursion", points.length, lastStats);
         return closestPair;
     }
 
+    /**
+     * Finds the closest pair with fork/join tasks running in the given pool.
+     * The tasks keep their own best pairs and never touch the closestPair field,
+     * so the result does not depend on scheduling.
+     * @param pool the pool to run the tasks in
+     * @return the two closest points
+     */
+    public Vec2[] findClosestPair(ForkJoinPool pool) {
+        return findClosestPair(pool, ClosestPairEngine.DEFAULT_SEQUENTIAL_CUTOFF);
+    }
+
+    /**
+     * Finds the closest pair with fork/join tasks running in the given pool.
+     * @param pool             the pool to run the tasks in
+     * @param sequentialCutoff ranges of at most this many points are solved on a single thread
+     * @return the two closest points
+     */
+    public Vec2[] findClosestPair(ForkJoinPool pool, int sequentialCutoff) {
+        ClosestPairEngine engine = new ClosestPairEngine(sequentialCutoff);
+        engine.setCollectStats(collectStats);
+        ClosestPairResult result = engine.findClosestPair(PointSet.of(points), pool);
+        lastStats = result.getStats();
+        return new Vec2[]{points[result.getFirst()], points[result.getSecond()]};
+    }
+
+    /**
+     * Finds the closest pair with the algorithm selected by the given strategy.
+     * @param strategy the algorithm to use, or AUTO to choose one from the input
+     * @return the two closest points
+     */
+    public Vec2[] findClosestPair(ClosestPairStrategy strategy) {
+        PointSet pointSet = PointSet.of(points);
+        ClosestPairAlgorithm algorithm = strategy.algorithmFor(pointSet);
+        if (algorithm instanceof ClosestPairEngine) {
+            ((ClosestPairEngine) algorithm).setCollectStats(collectStats);
+        }
+        ClosestPairResult result = algorithm.findClosestPair(pointSet);
+        lastStats = result.getStats();
+        return new Vec2[]{points[result.getFirst()], points[result.getSecond()]};
+    }
+
     public static void main(String[] args) throws IOException {
         Vec2[] points = {
                 new Vec2(10, 2),
@@ -0,0 +1,135 @@
+import java.util.SplittableRandom;
+
+/**
+ * Randomized incremental closest pair search on a hashed grid (Rabin, Khuller-Matias).
+ * Points are inserted in random order into a grid whose cell size is the best
+ * distance found so far; a new point only has to be compared with the points of
+ * the 3x3 cells around it. Whenever the best distance shrinks the grid is rebuilt,
+ * which happens with probability O(1/i) at the i-th insertion, so a run takes
+ * expected O(n) time for any input.
+ * Cells are kept in a primitive long-keyed hash map, each holding a linked list
+ * of its points. Runs are reported to JFR as a ClosestPairEvent, without stats.
+ */
+public class GridClosestPair implements ClosestPairAlgorithm {
+    public static final long DEFAULT_SEED = 0x5DEECE66DL;
+
+    // Slightly enlarged cells keep points closer than the best distance in adjacent
+    // cells despite rounding in the cell computation.
+    private static final double CELL_MARGIN = 1e-5;
+    // Beyond this many cells per axis the grid is degenerate and the cell
+    // coordinates would lose precision, so the search falls back to divide and conquer.
+    private static final double MAX_CELL_INDEX = 1 << 30;
+
+    private final long seed;
+
+    public GridClosestPair() {
+        this(DEFAULT_SEED);
+    }
+
+    /**
+     * @param seed the seed of the random insertion order; equal seeds give equal results
+     */
+    public GridClosestPair(long seed) {
+        this.seed = seed;
+    }
+
+    @Override
+    public ClosestPairResult findClosestPair(PointSet points) {
+        int n = points.size();
+        if (n < 2) {
+            throw new IllegalArgumentException("At least two points are required");
+        }
+        ClosestPairEvent event = new ClosestPairEvent();
+        event.begin();
+        ClosestPairResult result = search(points);
+        event.commit("grid", n, null);
+        return result;
+    }
+
+    private ClosestPairResult search(PointSet points) {
+        int n = points.size();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        double maxAbs = 0;
+        for (int i = 0; i < n; i++) {
+            maxAbs = Math.max(maxAbs, Math.max(Math.abs(xs[i]), Math.abs(ys[i])));
+        }
+
+        int[] perm = shuffledIndices(n);
+        int bestA = perm[0];
+        int bestB = perm[1];
+        double best = points.distanceSquared(bestA, bestB);
+
+        int[] next = new int[n];  // next point of the same cell, by insertion position
+        LongIntHashMap cells = null;
+        double cellSize = 0;
+        for (int i = 1; i < n; i++) {
+            if (best == 0) {
+                break;
+            }
+            if (cells == null) {
+                cellSize = Math.sqrt(best) * (1 + CELL_MARGIN);
+                if (maxAbs / cellSize >= MAX_CELL_INDEX) {
+                    return new ClosestPairEngine().findClosestPair(points);
+                }
+                cells = new LongIntHashMap(i);
+                for (int k = 0; k < i; k++) {
+                    insert(cells, next, k, xs[perm[k]], ys[perm[k]], cellSize);
+                }
+            }
+
+            int p = perm[i];
+            double x = xs[p];
+            double y = ys[p];
+            long cx = (long) Math.floor(x / cellSize);
+            long cy = (long) Math.floor(y / cellSize);
+            boolean improved = false;
+            for (long gx = cx - 1; gx <= cx + 1; gx++) {
+                for (long gy = cy - 1; gy <= cy + 1; gy++) {
+                    for (int k = cells.get(key(gx, gy), -1); k >= 0; k = next[k]) {
+                        int q = perm[k];
+                        double dist = points.distanceSquared(p, q);
+                        if (dist < best) {
+                            best = dist;
+                            bestA = q;
+                            bestB = p;
+                            improved = true;
+                        }
+                    }
+                }
+            }
+            if (improved) {
+                cells = null; // rebuilt with the smaller cell size before the next point
+            } else {
+                insert(cells, next, i, x, y, cellSize);
+            }
+        }
+        return new ClosestPairResult(points, bestA, bestB, best);
+    }
+
+    private static void insert(LongIntHashMap cells, int[] next, int position,
+                               double x, double y, double cellSize) {
+        long key = key((long) Math.floor(x / cellSize), (long) Math.floor(y / cellSize));
+        next[position] = cells.get(key, -1);
+        cells.put(key, position);
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private int[] shuffledIndices(int n) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = perm[i];
+            perm[i] = perm[j];
+            perm[j] = tmp;
+        }
+        return perm;
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * Stable merge sort of point indices by primitive coordinate keys, without boxing.
+ */
+final class IndexSort {
+    private static final int INSERTION_SORT_SIZE = 16;
+
+    private IndexSort() {
+    }
+
+    /**
+     * Sorts idx[lo..hi) by primary key, breaking ties by the secondary key.
+     * @param idx       indices into the key arrays
+     * @param lo        first position to sort (inclusive)
+     * @param hi        last position to sort (exclusive)
+     * @param primary   the primary sort key
+     * @param secondary the tie-breaking key, or null for none
+     * @param aux       scratch buffer at least as long as hi
+     */
+    static void sort(int[] idx, int lo, int hi, double[] primary, double[] secondary, int[] aux) {
+        if (hi - lo <= INSERTION_SORT_SIZE) {
+            insertionSort(idx, lo, hi, primary, secondary);
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sort(idx, lo, mid, primary, secondary, aux);
+        sort(idx, mid, hi, primary, secondary, aux);
+        merge(idx, lo, mid, hi, primary, secondary, aux);
+    }
+
+    /**
+     * Merges the sorted runs idx[lo..mid) and idx[mid..hi) in place.
+     */
+    static void merge(int[] idx, int lo, int mid, int hi, double[] primary, double[] secondary, int[] aux) {
+        if (compare(idx[mid - 1], idx[mid], primary, secondary) <= 0) {
+            return; // already in order
+        }
+        System.arraycopy(idx, lo, aux, lo, mid - lo);
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            if (compare(idx[j], aux[i], primary, secondary) < 0) {
+                idx[k++] = idx[j++];
+            } else {
+                idx[k++] = aux[i++];
+            }
+        }
+        System.arraycopy(aux, i, idx, k, mid - i);
+    }
+
+    static void insertionSort(int[] idx, int lo, int hi, double[] primary, double[] secondary) {
+        for (int i = lo + 1; i < hi; i++) {
+            int current = idx[i];
+            int j = i - 1;
+            while (j >= lo && compare(current, idx[j], primary, secondary) < 0) {
+                idx[j + 1] = idx[j];
+                j--;
+            }
+            idx[j + 1] = current;
+        }
+    }
+
+    static int compare(int a, int b, double[] primary, double[] secondary) {
+        int c = Double.compare(primary[a], primary[b]);
+        if (c != 0 || secondary == null) {
+            return c;
+        }
+        return Double.compare(secondary[a], secondary[b]);
+    }
+}
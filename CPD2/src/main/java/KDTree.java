@@ -0,0 +1,394 @@
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable 2D k-d tree for nearest neighbour and radius queries.
+ * The tree is implicit: the points are permuted so that every range [lo, hi)
+ * holds a subtree whose splitting point sits at the middle position, and small
+ * ranges are scanned as leaf buckets. Coordinates are stored in tree order in
+ * primitive arrays, so no node objects are created.
+ * The tree never changes after construction and can be queried from any number
+ * of threads at once.
+ */
+public class KDTree {
+    private static final int LEAF_SIZE = 8;
+
+    private final double[] tx;   // x coordinates in tree order
+    private final double[] ty;   // y coordinates in tree order
+    private final int[] index;   // original index of each tree position
+
+    /**
+     * Builds a tree over the given points.
+     * @param points the points to index
+     */
+    public KDTree(Vec2[] points) {
+        this(PointSet.of(points));
+    }
+
+    /**
+     * Builds a tree over the given points; the point set itself is not modified.
+     * @param points the points to index
+     */
+    public KDTree(PointSet points) {
+        int n = points.size();
+        double[] xs = points.xs();
+        double[] ys = points.ys();
+        index = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[i] = i;
+        }
+        build(xs, ys, 0, n, 0);
+        tx = new double[n];
+        ty = new double[n];
+        for (int p = 0; p < n; p++) {
+            tx[p] = xs[index[p]];
+            ty[p] = ys[index[p]];
+        }
+    }
+
+    public int size() {
+        return index.length;
+    }
+
+    /**
+     * Finds the point closest to (x, y).
+     * @return the index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(double x, double y) {
+        return nearest(x, y, null);
+    }
+
+    /**
+     * Finds the point closest to (x, y) among the points accepted by the filter.
+     * @param accept tests the index of a candidate point, or null to accept all points
+     * @return the index of the nearest accepted point, or -1 if there is none
+     */
+    public int nearest(double x, double y, IntPredicate accept) {
+        return nearest(x, y, accept, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Finds the point closest to (x, y) among the accepted points strictly closer than maxDistance.
+     * A finite bound prunes the search, e.g. when combining the answers of several trees.
+     * @param accept      tests the index of a candidate point, or null to accept all points
+     * @param maxDistance only points closer than this are considered
+     * @return the index of the nearest such point, or -1 if there is none
+     */
+    public int nearest(double x, double y, IntPredicate accept, double maxDistance) {
+        Nearest query = new Nearest(x, y, accept, maxDistance * maxDistance);
+        nearest(query, 0, index.length, 0);
+        return query.position < 0 ? -1 : index[query.position];
+    }
+
+    /**
+     * Finds the k points closest to (x, y).
+     * @param k the number of neighbours to find
+     * @return the indices of the nearest points, closest first; fewer than k if the tree is smaller
+     */
+    public int[] kNearest(double x, double y, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        KNearest query = new KNearest(x, y, Math.min(k, index.length));
+        if (query.capacity > 0) {
+            kNearest(query, 0, index.length, 0);
+        }
+        return query.sortedIndices();
+    }
+
+    /**
+     * Finds all points within distance r of (x, y), boundary included.
+     * @return the indices of the points, in no particular order
+     */
+    public int[] withinRadius(double x, double y, double r) {
+        IntBuffer found = new IntBuffer();
+        withinRadius(x, y, r, found);
+        return found.toArray();
+    }
+
+    /**
+     * Passes the index of every point within distance r of (x, y) to the consumer.
+     */
+    public void withinRadius(double x, double y, double r, IntConsumer consumer) {
+        withinRadius(x, y, r * r, consumer, 0, index.length, 0);
+    }
+
+    /**
+     * Answers a batch of nearest neighbour queries in parallel.
+     * @param qx the x coordinates of the queries
+     * @param qy the y coordinates of the queries
+     * @return the index of the nearest point for each query
+     */
+    public int[] nearest(double[] qx, double[] qy) {
+        if (qx.length != qy.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        int[] result = new int[qx.length];
+        IntStream.range(0, qx.length)
+                .parallel()
+                .forEach(i -> result[i] = nearest(qx[i], qy[i]));
+        return result;
+    }
+
+    /**
+     * Answers a batch of k nearest neighbour queries in parallel.
+     * @return the indices of the nearest points for each query, closest first
+     */
+    public int[][] kNearest(double[] qx, double[] qy, int k) {
+        if (qx.length != qy.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        int[][] result = new int[qx.length][];
+        IntStream.range(0, qx.length)
+                .parallel()
+                .forEach(i -> result[i] = kNearest(qx[i], qy[i], k));
+        return result;
+    }
+
+    private void build(double[] xs, double[] ys, int lo, int hi, int depth) {
+        if (hi - lo <= LEAF_SIZE) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        select(index, lo, hi - 1, mid, depth % 2 == 0 ? xs : ys);
+        build(xs, ys, lo, mid, depth + 1);
+        build(xs, ys, mid + 1, hi, depth + 1);
+    }
+
+    /**
+     * Rearranges a[lo..hi] so that a[k] holds the element of rank k by key,
+     * with no larger keys before it and no smaller keys after it.
+     */
+    private static void select(int[] a, int lo, int hi, int k, double[] key) {
+        while (hi > lo) {
+            double pivot = median(key[a[lo]], key[a[(lo + hi) >>> 1]], key[a[hi]]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (key[a[i]] < pivot) {
+                    i++;
+                }
+                while (key[a[j]] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int tmp = a[i];
+                    a[i++] = a[j];
+                    a[j--] = tmp;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private double distanceSquared(int position, double x, double y) {
+        double dx = tx[position] - x;
+        double dy = ty[position] - y;
+        return dx * dx + dy * dy;
+    }
+
+    private double splitOffset(int position, int depth, double x, double y) {
+        return depth % 2 == 0 ? x - tx[position] : y - ty[position];
+    }
+
+    private void nearest(Nearest q, int lo, int hi, int depth) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int p = lo; p < hi; p++) {
+                q.offer(p, distanceSquared(p, q.x, q.y));
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        q.offer(mid, distanceSquared(mid, q.x, q.y));
+        double offset = splitOffset(mid, depth, q.x, q.y);
+        if (offset < 0) {
+            nearest(q, lo, mid, depth + 1);
+            if (offset * offset < q.best) {
+                nearest(q, mid + 1, hi, depth + 1);
+            }
+        } else {
+            nearest(q, mid + 1, hi, depth + 1);
+            if (offset * offset < q.best) {
+                nearest(q, lo, mid, depth + 1);
+            }
+        }
+    }
+
+    private void kNearest(KNearest q, int lo, int hi, int depth) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int p = lo; p < hi; p++) {
+                q.offer(p, distanceSquared(p, q.x, q.y));
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        q.offer(mid, distanceSquared(mid, q.x, q.y));
+        double offset = splitOffset(mid, depth, q.x, q.y);
+        if (offset < 0) {
+            kNearest(q, lo, mid, depth + 1);
+            if (offset * offset < q.bound()) {
+                kNearest(q, mid + 1, hi, depth + 1);
+            }
+        } else {
+            kNearest(q, mid + 1, hi, depth + 1);
+            if (offset * offset < q.bound()) {
+                kNearest(q, lo, mid, depth + 1);
+            }
+        }
+    }
+
+    private void withinRadius(double x, double y, double r2, IntConsumer consumer, int lo, int hi, int depth) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int p = lo; p < hi; p++) {
+                if (distanceSquared(p, x, y) <= r2) {
+                    consumer.accept(index[p]);
+                }
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (distanceSquared(mid, x, y) <= r2) {
+            consumer.accept(index[mid]);
+        }
+        double offset = splitOffset(mid, depth, x, y);
+        if (offset <= 0 || offset * offset <= r2) {
+            withinRadius(x, y, r2, consumer, lo, mid, depth + 1);
+        }
+        if (offset >= 0 || offset * offset <= r2) {
+            withinRadius(x, y, r2, consumer, mid + 1, hi, depth + 1);
+        }
+    }
+
+    /**
+     * The state of a single nearest neighbour query.
+     */
+    private final class Nearest {
+        final double x;
+        final double y;
+        final IntPredicate accept;
+        double best;
+        int position = -1;
+
+        Nearest(double x, double y, IntPredicate accept, double bound) {
+            this.x = x;
+            this.y = y;
+            this.accept = accept;
+            this.best = bound;
+        }
+
+        void offer(int p, double dist) {
+            if (dist < best && (accept == null || accept.test(index[p]))) {
+                best = dist;
+                position = p;
+            }
+        }
+    }
+
+    /**
+     * The state of a k nearest neighbours query: a bounded max-heap on distance.
+     */
+    private final class KNearest {
+        final double x;
+        final double y;
+        final int capacity;
+        final double[] dist;
+        final int[] pos;
+        int size;
+
+        KNearest(double x, double y, int capacity) {
+            this.x = x;
+            this.y = y;
+            this.capacity = capacity;
+            this.dist = new double[capacity];
+            this.pos = new int[capacity];
+        }
+
+        /**
+         * The distance a candidate must beat to enter the heap.
+         */
+        double bound() {
+            return size < capacity ? Double.POSITIVE_INFINITY : dist[0];
+        }
+
+        void offer(int p, double d) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (dist[parent] >= d) {
+                        break;
+                    }
+                    dist[i] = dist[parent];
+                    pos[i] = pos[parent];
+                    i = parent;
+                }
+                dist[i] = d;
+                pos[i] = p;
+            } else if (d < dist[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && dist[child + 1] > dist[child]) {
+                        child++;
+                    }
+                    if (dist[child] <= d) {
+                        break;
+                    }
+                    dist[i] = dist[child];
+                    pos[i] = pos[child];
+                    i = child;
+                }
+                dist[i] = d;
+                pos[i] = p;
+            }
+        }
+
+        int[] sortedIndices() {
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            IndexSort.sort(slots, 0, size, dist, null, new int[size]);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = index[pos[slots[i]]];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A growable int array used to collect query results.
+     */
+    private static final class IntBuffer implements IntConsumer {
+        private int[] data = new int[16];
+        private int size;
+
+        @Override
+        public void accept(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(data, size);
+        }
+    }
+}
@@ -1,23 +1,79 @@
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 /**
  * A helper class to write information to the system console
+ * <p>
+ * By default every call prints its whole output with a single System.out call.
+ * startAsync() switches to an asynchronous mode for logging from hot loops: the
+ * calling thread only formats the message into a thread-local buffer and hands it
+ * over through a lock-free ring (see AsyncLogSink), and a background thread
+ * writes the messages in batches to the console or a file. Messages below the
+ * current level are skipped before anything is formatted.
  */
 public class Logger {
 
     public static final String DELIMITER = " ";
+    /** The default number of 256 byte records of the asynchronous ring. */
+    public static final int DEFAULT_CAPACITY = 1 << 14;
+
+    /**
+     * Message levels, from the most to the least detailed.
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR, OFF
+    }
+
+    /**
+     * What a logging thread does when the asynchronous ring is full.
+     */
+    public enum Overflow {
+        /** Discard the message and count it, see droppedMessages(). */
+        DROP,
+        /** Wait until the background thread has made room. */
+        BLOCK
+    }
+
+    private static final int MAX_KEPT_BUFFER = 1 << 16;
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(256));
+
+    private static volatile Level level = Level.INFO;
+    private static volatile AsyncLogSink sink;
+    private static Thread shutdownHook;
+
+    /**
+     * Sets the least important level that is still written; write and writeLine log at INFO.
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Tells whether messages of the given level are written. Guard expensive
+     * arguments with it, since the argument array is built before the call.
+     */
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) >= 0;
+    }
 
     /**
      * Write all arguments sequentially in a single line
      * @param args A sequence of arguments
      */
     public static void write(Object... args) {
-        for (int i = 0; i < args.length; i++) {
-            System.out.print(args[i]);
-            if (i < args.length - 1) {
-                System.out.print(DELIMITER);
-            }
+        if (!isEnabled(Level.INFO)) {
+            return;
         }
+        StringBuilder text = buffer();
+        appendAll(text, args);
+        emit(text);
     }
 
     /**
@@ -25,9 +81,127 @@ public class Logger {
      * @param args A sequence of arguments
      */
     public static void writeLine(Object... args) {
+        if (!isEnabled(Level.INFO)) {
+            return;
+        }
+        StringBuilder text = buffer();
         for (Object arg : args) {
-            System.out.println(arg);
+            text.append(arg).append(System.lineSeparator());
+        }
+        emit(text);
+    }
+
+    /**
+     * Writes the arguments in one line prefixed with the level, if the level is enabled
+     * @param messageLevel The level of the message
+     * @param args         A sequence of arguments
+     */
+    public static void log(Level messageLevel, Object... args) {
+        if (!isEnabled(messageLevel)) {
+            return;
         }
+        StringBuilder text = buffer();
+        text.append(messageLevel).append(DELIMITER);
+        appendAll(text, args);
+        text.append(System.lineSeparator());
+        emit(text);
+    }
+
+    public static void debug(Object... args) {
+        log(Level.DEBUG, args);
+    }
+
+    public static void info(Object... args) {
+        log(Level.INFO, args);
+    }
+
+    public static void warn(Object... args) {
+        log(Level.WARN, args);
+    }
+
+    public static void error(Object... args) {
+        log(Level.ERROR, args);
+    }
+
+    /**
+     * Switches to asynchronous logging to the console
+     * @param capacity The number of 256 byte records the ring holds
+     * @param overflow What to do when the ring is full
+     */
+    public static void startAsync(int capacity, Overflow overflow) {
+        startAsync(System.out, false, capacity, overflow);
+    }
+
+    /**
+     * Switches to asynchronous logging, appending to a file
+     * @param file     The log file, created if missing
+     * @param capacity The number of 256 byte records the ring holds
+     * @param overflow What to do when the ring is full
+     */
+    public static void startAsync(Path file, int capacity, Overflow overflow) throws IOException {
+        OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        try {
+            startAsync(out, true, capacity, overflow);
+        } catch (RuntimeException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    private static synchronized void startAsync(OutputStream out, boolean closeOut, int capacity,
+                                                Overflow overflow) {
+        if (sink != null) {
+            throw new IllegalStateException("Asynchronous logging is already running");
+        }
+        sink = new AsyncLogSink(out, closeOut, capacity, overflow == Overflow.BLOCK);
+        shutdownHook = new Thread(() -> {
+            try {
+                stopAsync();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Writes out all pending messages and returns to direct console output.
+     * A file given to startAsync is closed. Does nothing if logging is not asynchronous.
+     */
+    public static void stopAsync() throws IOException {
+        AsyncLogSink stopped;
+        synchronized (Logger.class) {
+            stopped = sink;
+            if (stopped == null) {
+                return;
+            }
+            sink = null;
+            if (Thread.currentThread() != shutdownHook) {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            }
+            shutdownHook = null;
+        }
+        stopped.stop();
+    }
+
+    /**
+     * Waits until the messages logged so far have been written out.
+     */
+    public static void flush() {
+        AsyncLogSink current = sink;
+        if (current != null) {
+            current.flush();
+        } else {
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Returns the number of messages dropped because the asynchronous ring was full.
+     */
+    public static long droppedMessages() {
+        AsyncLogSink current = sink;
+        return current == null ? 0 : current.dropped();
     }
 
     /**
@@ -41,4 +215,32 @@ public class Logger {
             e.printStackTrace();
         }
     }
+
+    private static StringBuilder buffer() {
+        StringBuilder text = BUFFER.get();
+        if (text.capacity() > MAX_KEPT_BUFFER) {
+            text = new StringBuilder(256);
+            BUFFER.set(text);
+        }
+        text.setLength(0);
+        return text;
+    }
+
+    private static void appendAll(StringBuilder text, Object[] args) {
+        for (int i = 0; i < args.length; i++) {
+            text.append(args[i]);
+            if (i < args.length - 1) {
+                text.append(DELIMITER);
+            }
+        }
+    }
+
+    private static void emit(StringBuilder text) {
+        AsyncLogSink current = sink;
+        if (current != null) {
+            current.offer(text);
+        } else {
+            System.out.print(text);
+        }
+    }
 }
\ No newline at end of file
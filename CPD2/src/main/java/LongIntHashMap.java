@@ -0,0 +1,121 @@
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash map from long keys to int values with linear probing.
+ * Keys and values are stored in primitive arrays, so lookups never box.
+ * Long.MIN_VALUE is reserved to mark free slots and cannot be used as a key.
+ */
+final class LongIntHashMap {
+    private static final long FREE = Long.MIN_VALUE;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    /**
+     * @param expectedSize the number of keys the map should hold without growing
+     */
+    LongIntHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the value stored for the key.
+     * @param key          the key to look up
+     * @param defaultValue the value to return if the key is absent
+     * @return the stored value or defaultValue
+     */
+    int get(long key, int defaultValue) {
+        int slot = slot(key);
+        while (true) {
+            long k = keys[slot];
+            if (k == key) {
+                return values[slot];
+            }
+            if (k == FREE) {
+                return defaultValue;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Stores a value for the key, replacing any previous value.
+     * @param key   the key, must not be Long.MIN_VALUE
+     * @param value the value to store
+     */
+    void put(long key, int value) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Key is reserved");
+        }
+        int slot = slot(key);
+        while (true) {
+            long k = keys[slot];
+            if (k == key) {
+                values[slot] = value;
+                return;
+            }
+            if (k == FREE) {
+                keys[slot] = key;
+                values[slot] = value;
+                if (++size > mask * MAX_LOAD) {
+                    grow();
+                }
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Removes all keys, keeping the current capacity.
+     */
+    void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        // murmur3 finalizer, spreads the packed cell coordinates over all bits
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h & mask;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        size = 0;
+        Arrays.fill(keys, FREE);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity * MAX_LOAD < expectedSize + 1) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,558 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A dense matrix of doubles stored row by row in one contiguous array.
+ * <p>
+ * Products are computed on the common fork/join pool, split by blocks of rows of
+ * the result. The matrix product packs blocks of both operands into small
+ * contiguous panels, so that the inner kernel streams through memory it has just
+ * touched, and computes the result in 4x4 tiles whose sixteen sums stay in
+ * registers for a whole block of the shared dimension. The matrix-vector product
+ * reads four rows at a time, so every element of the vector is loaded once per
+ * four rows instead of once per row.
+ * <p>
+ * Vectors passed in and out share their arrays with the Vec objects: a Vec
+ * operand is read in place, and asVec and wrap view the same elements without
+ * copying them.
+ */
+public final class Mat {
+    /** Products with fewer multiply-adds than this run on the calling thread. */
+    public static final long PARALLEL_THRESHOLD = 1 << 18;
+
+    // register tile of the matrix product
+    private static final int TILE = 4;
+    // rows of the left operand packed per task, depth and width of the packed right block
+    private static final int ROW_BLOCK = 64;
+    private static final int DEPTH_BLOCK = 256;
+    private static final int COLUMN_BLOCK = 512;
+    // side of the square tiles moved by the transposes
+    private static final int TRANSPOSE_BLOCK = 32;
+
+    private final int rows;
+    private final int cols;
+    private final double[] data;
+
+    /**
+     * Creates a matrix of zeros.
+     * @param rows the number of rows
+     * @param cols the number of columns
+     */
+    public Mat(int rows, int cols) {
+        this(rows, cols, new double[checkedSize(rows, cols)]);
+    }
+
+    /**
+     * Wraps the given elements without copying them.
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @param data the elements, row by row
+     * @throws IllegalArgumentException if the array does not hold rows * cols elements
+     */
+    public Mat(int rows, int cols, double[] data) {
+        if (data.length != checkedSize(rows, cols)) {
+            throw new IllegalArgumentException("Expected " + (long) rows * cols + " elements, got " + data.length);
+        }
+        this.rows = rows;
+        this.cols = cols;
+        this.data = data;
+    }
+
+    /**
+     * Creates an identity matrix.
+     * @param n the number of rows and columns
+     * @return the identity matrix
+     */
+    public static Mat identity(int n) {
+        Mat m = new Mat(n, n);
+        for (int i = 0; i < n; i++) {
+            m.data[i * n + i] = 1;
+        }
+        return m;
+    }
+
+    /**
+     * Copies the given vectors into the rows of a new matrix.
+     * @param rows the rows, all of the same size
+     * @return the matrix
+     * @throws IllegalArgumentException if the rows differ in size
+     */
+    public static Mat ofRows(Vec... rows) {
+        int cols = rows.length == 0 ? 0 : rows[0].size();
+        Mat m = new Mat(rows.length, cols);
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].size() != cols) {
+                throw new IllegalArgumentException("All rows must have the same size");
+            }
+            System.arraycopy(rows[i].data, rows[i].start, m.data, i * cols, cols);
+        }
+        return m;
+    }
+
+    /**
+     * Views the elements of a vector as a matrix, without copying them. A vector
+     * with spare room is trimmed first, so that the two share exactly the elements.
+     * @param vec  the elements, row by row
+     * @param rows the number of rows
+     * @param cols the number of columns
+     * @return a matrix sharing the vector's elements
+     */
+    public static Mat wrap(Vec vec, int rows, int cols) {
+        vec.trimToSize();
+        return new Mat(rows, cols, vec.data);
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int cols() {
+        return cols;
+    }
+
+    public double get(int row, int col) {
+        checkIndex(row, col);
+        return data[row * cols + col];
+    }
+
+    public void set(int row, int col, double value) {
+        checkIndex(row, col);
+        data[row * cols + col] = value;
+    }
+
+    /**
+     * Returns the backing array; changes are visible to the matrix.
+     * @return the elements, row by row
+     */
+    public double[] data() {
+        return data;
+    }
+
+    /**
+     * Views all elements, row by row, as one vector without copying them.
+     * @return a vector sharing the matrix's elements
+     */
+    public Vec asVec() {
+        return new Vec(data);
+    }
+
+    /**
+     * Copies a row into a new vector.
+     */
+    public Vec row(int row) {
+        checkIndex(row, 0);
+        double[] result = new double[cols];
+        System.arraycopy(data, row * cols, result, 0, cols);
+        return new Vec(result);
+    }
+
+    /**
+     * Copies a column into a new vector.
+     */
+    public Vec column(int col) {
+        checkIndex(0, col);
+        double[] result = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            result[i] = data[i * cols + col];
+        }
+        return new Vec(result);
+    }
+
+    /**
+     * Multiplies this matrix by a column vector.
+     * @param x a vector with cols elements
+     * @return the product, with rows elements
+     */
+    public Vec multiply(Vec x) {
+        return multiply(x, new Vec(new double[rows]));
+    }
+
+    /**
+     * Multiplies this matrix by a column vector into an existing vector.
+     * @param x   a vector with cols elements
+     * @param out receives the product; must have rows elements and must not be x
+     * @return out
+     * @throws IllegalArgumentException if the sizes do not fit or out is x
+     */
+    public Vec multiply(Vec x, Vec out) {
+        if (x.size() != cols || out.size() != rows) {
+            throw new IllegalArgumentException("Cannot multiply a " + rows + "x" + cols + " matrix by a vector of "
+                    + x.size() + " into one of " + out.size());
+        }
+        if (x.data == out.data) {
+            throw new IllegalArgumentException("The result must not overwrite the operand");
+        }
+        double[] xs = x.data;
+        double[] ys = out.data;
+        forRows(rows, cols, (lo, hi) -> multiplyRows(xs, x.start, ys, out.start, lo, hi));
+        return out;
+    }
+
+    /**
+     * Multiplies this matrix by another one.
+     * @param other a matrix with cols rows
+     * @return the product, a new rows x other.cols matrix
+     */
+    public Mat multiply(Mat other) {
+        return multiply(other, new Mat(rows, other.cols));
+    }
+
+    /**
+     * Multiplies this matrix by another one into an existing matrix, overwriting it.
+     * @param other a matrix with cols rows
+     * @param out   receives the product; must be rows x other.cols and must not share elements with the operands
+     * @return out
+     * @throws IllegalArgumentException if the sizes do not fit or out shares elements with an operand
+     */
+    public Mat multiply(Mat other, Mat out) {
+        if (other.rows != cols || out.rows != rows || out.cols != other.cols) {
+            throw new IllegalArgumentException("Cannot multiply a " + rows + "x" + cols + " matrix by a "
+                    + other.rows + "x" + other.cols + " one into a " + out.rows + "x" + out.cols + " one");
+        }
+        if (out.data == data || out.data == other.data) {
+            throw new IllegalArgumentException("The result must not overwrite an operand");
+        }
+        Arrays.fill(out.data, 0);
+        if (rows == 0 || other.cols == 0 || cols == 0) {
+            return out;
+        }
+        forRows(rows, (long) cols * other.cols, (lo, hi) -> multiplyBlocks(other, out, lo, hi));
+        return out;
+    }
+
+    /**
+     * Returns the transpose as a new matrix.
+     */
+    public Mat transpose() {
+        Mat t = new Mat(cols, rows);
+        forRows(rows, cols, (lo, hi) -> {
+            for (int i0 = lo; i0 < hi; i0 += TRANSPOSE_BLOCK) {
+                int i1 = Math.min(hi, i0 + TRANSPOSE_BLOCK);
+                for (int j0 = 0; j0 < cols; j0 += TRANSPOSE_BLOCK) {
+                    int j1 = Math.min(cols, j0 + TRANSPOSE_BLOCK);
+                    for (int i = i0; i < i1; i++) {
+                        for (int j = j0; j < j1; j++) {
+                            t.data[j * rows + i] = data[i * cols + j];
+                        }
+                    }
+                }
+            }
+        });
+        return t;
+    }
+
+    /**
+     * Transposes this square matrix in place.
+     * @return this matrix
+     * @throws IllegalStateException if the matrix is not square
+     */
+    public Mat transposeInPlace() {
+        if (rows != cols) {
+            throw new IllegalStateException("Only a square matrix can be transposed in place");
+        }
+        int n = rows;
+        for (int i0 = 0; i0 < n; i0 += TRANSPOSE_BLOCK) {
+            int i1 = Math.min(n, i0 + TRANSPOSE_BLOCK);
+            // swap the tile (i0, j0) with the tile (j0, i0); tiles on the diagonal swap with themselves
+            for (int j0 = i0; j0 < n; j0 += TRANSPOSE_BLOCK) {
+                int j1 = Math.min(n, j0 + TRANSPOSE_BLOCK);
+                for (int i = i0; i < i1; i++) {
+                    for (int j = Math.max(j0, i + 1); j < j1; j++) {
+                        double tmp = data[i * n + j];
+                        data[i * n + j] = data[j * n + i];
+                        data[j * n + i] = tmp;
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Adds another matrix to this one.
+     * @return this matrix
+     */
+    public Mat addInPlace(Mat other) {
+        requireSameShape(other);
+        VecKernels.add(data, 0, other.data, 0, data, 0, data.length, Vec.getDefaultPolicy());
+        return this;
+    }
+
+    /**
+     * Subtracts another matrix from this one.
+     * @return this matrix
+     */
+    public Mat subInPlace(Mat other) {
+        requireSameShape(other);
+        VecKernels.sub(data, 0, other.data, 0, data, 0, data.length, Vec.getDefaultPolicy());
+        return this;
+    }
+
+    /**
+     * Multiplies every element by a value.
+     * @return this matrix
+     */
+    public Mat scaleInPlace(double value) {
+        VecKernels.mul(data, 0, value, data, 0, data.length, Vec.getDefaultPolicy());
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            text.append(i == 0 ? "[" : " ").append(row(i)).append(i == rows - 1 ? "]" : "\n");
+        }
+        return text.length() == 0 ? "[]" : text.toString();
+    }
+
+    /**
+     * Computes rows [lo, hi) of the matrix-vector product, four rows at a time,
+     * reading x from xs[xOff..] and writing to ys[yOff..].
+     */
+    private void multiplyRows(double[] xs, int xOff, double[] ys, int yOff, int lo, int hi) {
+        int i = lo;
+        for (; i + 3 < hi; i += 4) {
+            int r0 = i * cols;
+            int r1 = r0 + cols;
+            int r2 = r1 + cols;
+            int r3 = r2 + cols;
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            for (int j = 0; j < cols; j++) {
+                double x = xs[xOff + j];
+                s0 += data[r0 + j] * x;
+                s1 += data[r1 + j] * x;
+                s2 += data[r2 + j] * x;
+                s3 += data[r3 + j] * x;
+            }
+            ys[yOff + i] = s0;
+            ys[yOff + i + 1] = s1;
+            ys[yOff + i + 2] = s2;
+            ys[yOff + i + 3] = s3;
+        }
+        for (; i < hi; i++) {
+            ys[yOff + i] = VecKernels.dot(data, i * cols, xs, xOff, cols, ExecutionPolicy.SEQUENTIAL);
+        }
+    }
+
+    /**
+     * Adds rows [lo, hi) of this * other to out, block by block.
+     */
+    private void multiplyBlocks(Mat other, Mat out, int lo, int hi) {
+        int n = other.cols;
+        double[] aPack = new double[roundUp(ROW_BLOCK) * DEPTH_BLOCK];
+        double[] bPack = new double[DEPTH_BLOCK * roundUp(Math.min(n, COLUMN_BLOCK))];
+        for (int j0 = 0; j0 < n; j0 += COLUMN_BLOCK) {
+            int nb = Math.min(COLUMN_BLOCK, n - j0);
+            for (int k0 = 0; k0 < cols; k0 += DEPTH_BLOCK) {
+                int kb = Math.min(DEPTH_BLOCK, cols - k0);
+                other.packColumns(bPack, k0, kb, j0, nb);
+                for (int i0 = lo; i0 < hi; i0 += ROW_BLOCK) {
+                    int mb = Math.min(ROW_BLOCK, hi - i0);
+                    packRows(aPack, i0, mb, k0, kb);
+                    for (int i = 0; i < mb; i += TILE) {
+                        for (int j = 0; j < nb; j += TILE) {
+                            tile(aPack, i * kb, bPack, j * kb, kb, out, i0 + i, Math.min(TILE, mb - i),
+                                    j0 + j, Math.min(TILE, nb - j));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies rows [i0, i0 + mb) and columns [k0, k0 + kb) into panels of four rows,
+     * each stored column by column, padding the last panel with zeros.
+     */
+    private void packRows(double[] pack, int i0, int mb, int k0, int kb) {
+        for (int p = 0; p < mb; p += TILE) {
+            int base = p * kb;
+            for (int r = 0; r < TILE; r++) {
+                if (p + r < mb) {
+                    int src = (i0 + p + r) * cols + k0;
+                    for (int k = 0; k < kb; k++) {
+                        pack[base + k * TILE + r] = data[src + k];
+                    }
+                } else {
+                    for (int k = 0; k < kb; k++) {
+                        pack[base + k * TILE + r] = 0;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies rows [k0, k0 + kb) and columns [j0, j0 + nb) into panels of four columns,
+     * each stored row by row, padding the last panel with zeros.
+     */
+    private void packColumns(double[] pack, int k0, int kb, int j0, int nb) {
+        for (int q = 0; q < nb; q += TILE) {
+            int base = q * kb;
+            int width = Math.min(TILE, nb - q);
+            for (int k = 0; k < kb; k++) {
+                int src = (k0 + k) * cols + j0 + q;
+                int dst = base + k * TILE;
+                for (int c = 0; c < TILE; c++) {
+                    pack[dst + c] = c < width ? data[src + c] : 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the product of a packed 4 x kb panel and a packed kb x 4 panel to the
+     * m x n corner of the tile of out at (row, col).
+     */
+    private static void tile(double[] a, int aOff, double[] b, int bOff, int kb,
+                             Mat out, int row, int m, int col, int n) {
+        double c00 = 0, c01 = 0, c02 = 0, c03 = 0;
+        double c10 = 0, c11 = 0, c12 = 0, c13 = 0;
+        double c20 = 0, c21 = 0, c22 = 0, c23 = 0;
+        double c30 = 0, c31 = 0, c32 = 0, c33 = 0;
+        for (int k = 0; k < kb; k++) {
+            int ak = aOff + k * TILE;
+            int bk = bOff + k * TILE;
+            double a0 = a[ak];
+            double a1 = a[ak + 1];
+            double a2 = a[ak + 2];
+            double a3 = a[ak + 3];
+            double b0 = b[bk];
+            double b1 = b[bk + 1];
+            double b2 = b[bk + 2];
+            double b3 = b[bk + 3];
+            c00 += a0 * b0;
+            c01 += a0 * b1;
+            c02 += a0 * b2;
+            c03 += a0 * b3;
+            c10 += a1 * b0;
+            c11 += a1 * b1;
+            c12 += a1 * b2;
+            c13 += a1 * b3;
+            c20 += a2 * b0;
+            c21 += a2 * b1;
+            c22 += a2 * b2;
+            c23 += a2 * b3;
+            c30 += a3 * b0;
+            c31 += a3 * b1;
+            c32 += a3 * b2;
+            c33 += a3 * b3;
+        }
+        double[] c = out.data;
+        int stride = out.cols;
+        if (m == TILE && n == TILE) {
+            int r = row * stride + col;
+            c[r] += c00;
+            c[r + 1] += c01;
+            c[r + 2] += c02;
+            c[r + 3] += c03;
+            r += stride;
+            c[r] += c10;
+            c[r + 1] += c11;
+            c[r + 2] += c12;
+            c[r + 3] += c13;
+            r += stride;
+            c[r] += c20;
+            c[r + 1] += c21;
+            c[r + 2] += c22;
+            c[r + 3] += c23;
+            r += stride;
+            c[r] += c30;
+            c[r + 1] += c31;
+            c[r + 2] += c32;
+            c[r + 3] += c33;
+            return;
+        }
+        double[][] sums = {
+                {c00, c01, c02, c03},
+                {c10, c11, c12, c13},
+                {c20, c21, c22, c23},
+                {c30, c31, c32, c33}
+        };
+        for (int i = 0; i < m; i++) {
+            for (int j = 0; j < n; j++) {
+                c[(row + i) * stride + col + j] += sums[i][j];
+            }
+        }
+    }
+
+    private static int roundUp(int n) {
+        return (n + TILE - 1) / TILE * TILE;
+    }
+
+    private static int checkedSize(int rows, int cols) {
+        if (rows < 0 || cols < 0 || (long) rows * cols > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Invalid matrix size " + rows + "x" + cols);
+        }
+        return rows * cols;
+    }
+
+    private void checkIndex(int row, int col) {
+        if (row < 0 || row >= rows || col < 0 || col >= cols) {
+            throw new IllegalArgumentException("Index (" + row + ", " + col + ") out of bounds for a "
+                    + rows + "x" + cols + " matrix");
+        }
+    }
+
+    private void requireSameShape(Mat other) {
+        if (other.rows != rows || other.cols != cols) {
+            throw new IllegalArgumentException("Matrices must have the same shape");
+        }
+    }
+
+    /**
+     * Runs body over the rows [0, n), split among the common pool's workers if the work is large.
+     * @param workPerRow the multiply-adds per row, to decide whether splitting pays
+     */
+    private static void forRows(int n, long workPerRow, RowRange body) {
+        if (workPerRow * n < PARALLEL_THRESHOLD) {
+            body.compute(0, n);
+        } else {
+            ForkJoinPool.commonPool().invoke(new RowTask(body, 0, n, workPerRow));
+        }
+    }
+
+    /**
+     * Computes a range of rows of a result.
+     */
+    @FunctionalInterface
+    private interface RowRange {
+        void compute(int lo, int hi);
+    }
+
+    /**
+     * Splits a range of rows in halves until a piece is small enough to compute directly.
+     * Pieces keep at least ROW_BLOCK rows, so the packing of the matrix product pays off.
+     */
+    private static final class RowTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final RowRange body;
+        private final int lo;
+        private final int hi;
+        private final long workPerRow;
+
+        RowTask(RowRange body, int lo, int hi, long workPerRow) {
+            this.body = body;
+            this.lo = lo;
+            this.hi = hi;
+            this.workPerRow = workPerRow;
+        }
+
+        @Override
+        protected void compute() {
+            // only ranges of at least two blocks are split, so both halves keep a whole block
+            if (hi - lo < 2 * ROW_BLOCK || workPerRow * (hi - lo) < PARALLEL_THRESHOLD) {
+                body.compute(lo, hi);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new RowTask(body, lo, mid, workPerRow), new RowTask(body, mid, hi, workPerRow));
+        }
+    }
+}
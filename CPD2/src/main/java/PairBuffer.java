@@ -0,0 +1,104 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of index pairs stored interleaved in one int array, so that
+ * millions of pairs cost 8 bytes each instead of an object per pair.
+ */
+public final class PairBuffer implements RadiusJoin.PairConsumer {
+    // leaves room for the array header, as ArrayList does
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    private int[] pairs;
+    private int size;
+
+    public PairBuffer() {
+        this(16);
+    }
+
+    /**
+     * @param capacity the number of pairs the buffer holds without growing
+     */
+    public PairBuffer(int capacity) {
+        if (capacity < 0 || capacity > MAX_LENGTH / 2) {
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+        pairs = new int[2 * capacity];
+    }
+
+    /**
+     * Appends a pair, ignoring the distance.
+     */
+    @Override
+    public void accept(int first, int second, double distanceSquared) {
+        add(first, second);
+    }
+
+    /**
+     * Appends a pair.
+     * @throws IllegalStateException if the buffer already holds the most pairs an array can
+     */
+    public void add(int first, int second) {
+        if (2 * size == pairs.length) {
+            grow(size + 1);
+        }
+        pairs[2 * size] = first;
+        pairs[2 * size + 1] = second;
+        size++;
+    }
+
+    /**
+     * Appends all pairs of another buffer.
+     */
+    public void addAll(PairBuffer other) {
+        if (pairs.length < 2L * (size + (long) other.size)) {
+            grow((long) size + other.size);
+        }
+        System.arraycopy(other.pairs, 0, pairs, 2 * size, 2 * other.size);
+        size += other.size;
+    }
+
+    /**
+     * Returns the number of pairs.
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getFirst(int index) {
+        checkIndex(index);
+        return pairs[2 * index];
+    }
+
+    public int getSecond(int index) {
+        checkIndex(index);
+        return pairs[2 * index + 1];
+    }
+
+    /**
+     * Removes all pairs, keeping the capacity.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Copies the pairs into a new array holding first, second, first, second, ...
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(pairs, 2 * size);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for " + size + " pairs");
+        }
+    }
+
+    private void grow(long minPairs) {
+        if (2 * minPairs > MAX_LENGTH) {
+            throw new IllegalStateException("Too many pairs for one buffer; stream them through a PairConsumer instead");
+        }
+        long length = Math.max(2 * minPairs, Math.min(MAX_LENGTH, Math.max(32L, 2L * pairs.length)));
+        pairs = Arrays.copyOf(pairs, (int) length);
+    }
+}
@@ -0,0 +1,284 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A binary file of points stored column by column, and a read-only view of such a file.
+ * <p>
+ * The file starts with a 32 byte header: the magic bytes "PNTS", the format version,
+ * the value type, the dimension, the number of points and a flags word. If the
+ * bounds flag is set, the minimum and then the maximum of every coordinate follow.
+ * After that come the coordinate columns, one after another, each holding the
+ * values of one dimension for all points. Everything is little-endian and every
+ * column starts at a multiple of 8 bytes.
+ * <p>
+ * Opening a file maps each column into memory and wraps it in a DoubleBuffer, so
+ * nothing is read or copied up front; the operating system pages the data in as
+ * it is touched. The views can be passed to ClosestPairEngine directly, or copied
+ * into a PointSet for the algorithms that work on arrays.
+ */
+public final class PointFile {
+    /** Value type code of 64-bit IEEE 754 coordinates, the only type so far. */
+    public static final int TYPE_FLOAT64 = 1;
+    /** The largest number of points, so that a column fits one DoubleBuffer. */
+    public static final int MAX_POINTS = Integer.MAX_VALUE / Double.BYTES;
+
+    private static final int MAGIC = 0x53544E50;   // "PNTS" read little-endian
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int FLAG_BOUNDS = 1;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_DIMENSION = 1 << 16;
+
+    private final int size;
+    private final DoubleBuffer[] columns;
+    private final double[] min;   // null if the file has no bounds
+    private final double[] max;
+
+    private PointFile(int size, DoubleBuffer[] columns, double[] min, double[] max) {
+        this.size = size;
+        this.columns = columns;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Writes the points of a set as a two-dimensional file with bounds.
+     * @param path   the file to create or truncate
+     * @param points the points to write
+     */
+    public static void write(Path path, PointSet points) throws IOException {
+        write(path, true, points.xs(), points.ys());
+    }
+
+    /**
+     * Writes a file with one column per array.
+     * @param path       the file to create or truncate
+     * @param withBounds whether to store the bounding box in the header
+     * @param columns    the coordinates, one array per dimension
+     * @throws IllegalArgumentException if there are no columns or they have different lengths
+     */
+    public static void write(Path path, boolean withBounds, double[]... columns) throws IOException {
+        if (columns.length == 0 || columns.length > MAX_DIMENSION) {
+            throw new IllegalArgumentException("The number of columns must be between 1 and " + MAX_DIMENSION);
+        }
+        int n = columns[0].length;
+        for (double[] column : columns) {
+            if (column.length != n) {
+                throw new IllegalArgumentException("Columns must have the same length");
+            }
+        }
+        if (n > MAX_POINTS) {
+            throw new IllegalArgumentException("At most " + MAX_POINTS + " points can be stored");
+        }
+        boolean bounds = withBounds && n > 0;
+        // the header and bounds go out in one piece, so the buffer must hold them at the largest dimension
+        int dataStart = HEADER_SIZE + (bounds ? 2 * columns.length * Double.BYTES : 0);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(WRITE_BUFFER_SIZE, dataStart))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(TYPE_FLOAT64).putInt(columns.length)
+                .putLong(n).putInt(bounds ? FLAG_BOUNDS : 0).putInt(0);
+        if (bounds) {
+            for (double[] column : columns) {
+                buffer.putDouble(min(column));
+            }
+            for (double[] column : columns) {
+                buffer.putDouble(max(column));
+            }
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (double[] column : columns) {
+                int written = 0;
+                while (written < n) {
+                    if (!buffer.hasRemaining()) {
+                        drain(channel, buffer);
+                    }
+                    DoubleBuffer values = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                    int count = Math.min(n - written, values.remaining());
+                    values.put(column, written, count);
+                    buffer.position(buffer.position() + count * Double.BYTES);
+                    written += count;
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    /**
+     * Maps a point file for reading. The file must not be changed while it is in use.
+     * @param path the file to open
+     * @throws IOException if the file cannot be read or is not a valid point file
+     */
+    public static PointFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0, path);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a point file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported point file version " + header.getInt(4) + " in " + path);
+            }
+            if (header.getInt(8) != TYPE_FLOAT64) {
+                throw new IOException("Unsupported value type " + header.getInt(8) + " in " + path);
+            }
+            int dimension = header.getInt(12);
+            long count = header.getLong(16);
+            boolean bounds = (header.getInt(24) & FLAG_BOUNDS) != 0;
+            if (dimension < 1 || dimension > MAX_DIMENSION || count < 0 || count > MAX_POINTS) {
+                throw new IOException("Corrupt header in " + path);
+            }
+            long columnBytes = count * Double.BYTES;
+            long dataStart = HEADER_SIZE + (bounds ? 2L * dimension * Double.BYTES : 0);
+            if (dataStart + dimension * columnBytes > fileSize) {
+                throw new IOException(path + " is shorter than its header says");
+            }
+
+            double[] min = null;
+            double[] max = null;
+            if (bounds) {
+                ByteBuffer box = ByteBuffer.allocate((int) (dataStart - HEADER_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, box, HEADER_SIZE, path);
+                min = new double[dimension];
+                max = new double[dimension];
+                box.asDoubleBuffer().get(min).get(max);
+            }
+
+            DoubleBuffer[] columns = new DoubleBuffer[dimension];
+            for (int d = 0; d < dimension; d++) {
+                columns[d] = channel.map(FileChannel.MapMode.READ_ONLY, dataStart + d * columnBytes, columnBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN)
+                        .asDoubleBuffer();
+            }
+            return new PointFile((int) count, columns, min, max);
+        }
+    }
+
+    /**
+     * Returns the number of points.
+     * @return the number of points
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of coordinates per point.
+     * @return the dimension
+     */
+    public int dimension() {
+        return columns.length;
+    }
+
+    /**
+     * Returns a read-only view of the coordinates of one dimension, backed by the
+     * mapped file. Each call returns an independent view with its own position.
+     * @param d the dimension, from 0
+     * @return the coordinates, indexed by point
+     */
+    public DoubleBuffer column(int d) {
+        return columns[d].duplicate();
+    }
+
+    /**
+     * Returns a view of the x coordinates, i.e. column(0).
+     */
+    public DoubleBuffer xs() {
+        return column(0);
+    }
+
+    /**
+     * Returns a view of the y coordinates, i.e. column(1).
+     */
+    public DoubleBuffer ys() {
+        return column(1);
+    }
+
+    /**
+     * Returns whether the file stores the bounding box of its points.
+     */
+    public boolean hasBounds() {
+        return min != null;
+    }
+
+    /**
+     * Returns the smallest coordinate of a dimension as stored in the header.
+     * @throws IllegalStateException if the file has no bounds
+     */
+    public double min(int d) {
+        requireBounds();
+        return min[d];
+    }
+
+    /**
+     * Returns the largest coordinate of a dimension as stored in the header.
+     * @throws IllegalStateException if the file has no bounds
+     */
+    public double max(int d) {
+        requireBounds();
+        return max[d];
+    }
+
+    /**
+     * Copies the first two columns into a new PointSet.
+     * @return the points as arrays
+     * @throws IllegalStateException if the file has fewer than two dimensions
+     */
+    public PointSet toPointSet() {
+        if (columns.length < 2) {
+            throw new IllegalStateException("A point set needs two dimensions, the file has " + columns.length);
+        }
+        double[] xs = new double[size];
+        double[] ys = new double[size];
+        xs().get(xs);
+        ys().get(ys);
+        return new PointSet(xs, ys);
+    }
+
+    private void requireBounds() {
+        if (min == null) {
+            throw new IllegalStateException("The file has no bounds");
+        }
+    }
+
+    private static double min(double[] column) {
+        double result = Double.POSITIVE_INFINITY;
+        for (double value : column) {
+            result = Math.min(result, value);
+        }
+        return result;
+    }
+
+    private static double max(double[] column) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (double value : column) {
+            result = Math.max(result, value);
+        }
+        return result;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position, Path path)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException(path + " is truncated");
+            }
+        }
+        buffer.flip();
+    }
+}
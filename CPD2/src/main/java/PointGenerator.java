@@ -0,0 +1,237 @@
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Generates synthetic point clouds in the unit square for tests and benchmarks.
+ * <p>
+ * The points are split into fixed blocks, and every block draws from its own
+ * SplittableRandom whose seed is taken in order from one generator seeded by the
+ * caller. The blocks are filled in parallel, so the output depends only on the
+ * seed and the number of points, never on the number of threads. Values go
+ * straight into primitive arrays; nothing is boxed.
+ * <p>
+ * Create a generator with one of the factory methods, one per distribution:
+ * <pre>
+ *     PointSet points = PointGenerator.clustered(16, 1e-3).generate(100_000_000, 42);
+ * </pre>
+ */
+public final class PointGenerator {
+    private static final int BLOCK_SIZE = 1 << 16;
+    private static final double DOUBLE_UNIT = 0x1.0p-53;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private enum Kind {
+        UNIFORM, CLUSTERED, GRID_JITTER, COLLINEAR, DUPLICATES
+    }
+
+    private final Kind kind;
+    private final int clusters;
+    private final double parameter;  // cluster sigma, grid jitter or distinct fraction
+
+    private PointGenerator(Kind kind, int clusters, double parameter) {
+        this.kind = kind;
+        this.clusters = clusters;
+        this.parameter = parameter;
+    }
+
+    /**
+     * Points spread uniformly over the unit square.
+     */
+    public static PointGenerator uniform() {
+        return new PointGenerator(Kind.UNIFORM, 0, 0);
+    }
+
+    /**
+     * Points drawn from Gaussian blobs around uniformly placed centers.
+     * @param clusters the number of blobs, each point picks one at random
+     * @param sigma    the standard deviation of a blob in each axis
+     */
+    public static PointGenerator clustered(int clusters, double sigma) {
+        if (clusters < 1 || !(sigma >= 0)) {
+            throw new IllegalArgumentException("Need at least one cluster and a non-negative sigma");
+        }
+        return new PointGenerator(Kind.CLUSTERED, clusters, sigma);
+    }
+
+    /**
+     * Points on a square grid of about n cells, each moved randomly within its cell.
+     * @param jitter the largest offset as a fraction of the cell size, from 0 (exact
+     *               grid, every neighbour at the same distance) to 1
+     */
+    public static PointGenerator gridWithJitter(double jitter) {
+        if (!(jitter >= 0 && jitter <= 1)) {
+            throw new IllegalArgumentException("Jitter must be between 0 and 1");
+        }
+        return new PointGenerator(Kind.GRID_JITTER, 0, jitter);
+    }
+
+    /**
+     * Points on the line y = x / 2, which is exactly collinear in floating point.
+     */
+    public static PointGenerator collinear() {
+        return new PointGenerator(Kind.COLLINEAR, 0, 0);
+    }
+
+    /**
+     * Points drawn at random from a smaller set of uniform points, so most of them
+     * have exact duplicates and the closest distance is 0.
+     * @param distinctFraction the size of the smaller set relative to n, in (0, 1]
+     */
+    public static PointGenerator duplicates(double distinctFraction) {
+        if (!(distinctFraction > 0 && distinctFraction <= 1)) {
+            throw new IllegalArgumentException("The distinct fraction must be in (0, 1]");
+        }
+        return new PointGenerator(Kind.DUPLICATES, 0, distinctFraction);
+    }
+
+    /**
+     * Generates n points.
+     * @param n    the number of points
+     * @param seed the seed; equal seeds give equal points
+     * @return the points
+     */
+    public PointSet generate(int n, long seed) {
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        fill(xs, ys, seed);
+        return new PointSet(xs, ys);
+    }
+
+    /**
+     * Generates n points as Vec2 objects.
+     * @param n    the number of points
+     * @param seed the seed; equal seeds give the same points as generate(n, seed)
+     * @return the points
+     */
+    public Vec2[] generateVec2(int n, long seed) {
+        Vec2[] points = new Vec2[n];
+        long[] seeds = blockSeeds(n, seed);
+        double[][] centers = centers(seed);
+        IntStream.range(0, seeds.length).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            double[] xs = new double[to - from];
+            double[] ys = new double[to - from];
+            fillBlock(xs, ys, 0, from, to, n, new SplittableRandom(seeds[block]), centers, seed);
+            for (int i = from; i < to; i++) {
+                points[i] = new Vec2(xs[i - from], ys[i - from]);
+            }
+        });
+        return points;
+    }
+
+    /**
+     * Overwrites the arrays with xs.length points.
+     * @param xs   receives the x coordinates
+     * @param ys   receives the y coordinates
+     * @param seed the seed; equal seeds give equal points
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public void fill(double[] xs, double[] ys, long seed) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        int n = xs.length;
+        long[] seeds = blockSeeds(n, seed);
+        double[][] centers = centers(seed);
+        IntStream.range(0, seeds.length).parallel().forEach(block -> {
+            int from = block * BLOCK_SIZE;
+            int to = Math.min(n, from + BLOCK_SIZE);
+            fillBlock(xs, ys, from, from, to, n, new SplittableRandom(seeds[block]), centers, seed);
+        });
+    }
+
+    private static long[] blockSeeds(int n, long seed) {
+        SplittableRandom root = new SplittableRandom(seed);
+        long[] seeds = new long[(n + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int b = 0; b < seeds.length; b++) {
+            seeds[b] = root.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Places the cluster centers, from a stream separate from the block seeds.
+     */
+    private double[][] centers(long seed) {
+        if (kind != Kind.CLUSTERED) {
+            return null;
+        }
+        SplittableRandom random = new SplittableRandom(seed).split();
+        double[][] centers = new double[2][clusters];
+        for (int c = 0; c < clusters; c++) {
+            centers[0][c] = random.nextDouble();
+            centers[1][c] = random.nextDouble();
+        }
+        return centers;
+    }
+
+    /**
+     * Writes the points with indices [from, to) of n to xs and ys, starting at offset.
+     */
+    private void fillBlock(double[] xs, double[] ys, int offset, int from, int to, int n,
+                           SplittableRandom random, double[][] centers, long seed) {
+        switch (kind) {
+            case UNIFORM:
+                for (int i = offset; i < offset + to - from; i++) {
+                    xs[i] = random.nextDouble();
+                    ys[i] = random.nextDouble();
+                }
+                break;
+            case CLUSTERED:
+                for (int i = offset; i < offset + to - from; i++) {
+                    int c = random.nextInt(clusters);
+                    // Marsaglia's polar method gives two independent Gaussians at once
+                    double u;
+                    double v;
+                    double s;
+                    do {
+                        u = 2 * random.nextDouble() - 1;
+                        v = 2 * random.nextDouble() - 1;
+                        s = u * u + v * v;
+                    } while (s >= 1 || s == 0);
+                    double scale = parameter * Math.sqrt(-2 * Math.log(s) / s);
+                    xs[i] = centers[0][c] + u * scale;
+                    ys[i] = centers[1][c] + v * scale;
+                }
+                break;
+            case GRID_JITTER:
+                int side = (int) Math.ceil(Math.sqrt(n));
+                for (int i = from; i < to; i++) {
+                    double dx = parameter * (random.nextDouble() - 0.5);
+                    double dy = parameter * (random.nextDouble() - 0.5);
+                    xs[offset + i - from] = (i % side + 0.5 + dx) / side;
+                    ys[offset + i - from] = (i / side + 0.5 + dy) / side;
+                }
+                break;
+            case COLLINEAR:
+                for (int i = offset; i < offset + to - from; i++) {
+                    double t = random.nextDouble();
+                    xs[i] = t;
+                    ys[i] = t / 2;
+                }
+                break;
+            case DUPLICATES:
+                int distinct = (int) Math.max(1, Math.min(n, Math.round(n * parameter)));
+                for (int i = offset; i < offset + to - from; i++) {
+                    // the k-th distinct point is a pure function of the seed and k
+                    long k = random.nextInt(distinct);
+                    long state = seed + 2 * k * GOLDEN_GAMMA;
+                    xs[i] = (mix64(state) >>> 11) * DOUBLE_UNIT;
+                    ys[i] = (mix64(state + GOLDEN_GAMMA) >>> 11) * DOUBLE_UNIT;
+                }
+                break;
+            default:
+                throw new AssertionError(kind);
+        }
+    }
+
+    /**
+     * The output function of SplittableRandom (Stafford's variant 13).
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
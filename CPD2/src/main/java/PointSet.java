@@ -0,0 +1,89 @@
+/**
+ * A set of 2D points stored as two primitive coordinate arrays (structure of arrays).
+ */
+public final class PointSet {
+    private final double[] xs;
+    private final double[] ys;
+
+    /**
+     * Wraps the given coordinate arrays without copying them.
+     * @param xs the x coordinates
+     * @param ys the y coordinates
+     * @throws IllegalArgumentException if the arrays have different lengths
+     */
+    public PointSet(double[] xs, double[] ys) {
+        if (xs.length != ys.length) {
+            throw new IllegalArgumentException("Coordinate arrays must have the same length");
+        }
+        this.xs = xs;
+        this.ys = ys;
+    }
+
+    /**
+     * Copies the coordinates of the given points into a new point set.
+     * @param points the points to copy
+     * @return a point set holding the same coordinates in the same order
+     */
+    public static PointSet of(Vec2[] points) {
+        double[] xs = new double[points.length];
+        double[] ys = new double[points.length];
+        for (int i = 0; i < points.length; i++) {
+            xs[i] = points[i].getX();
+            ys[i] = points[i].getY();
+        }
+        return new PointSet(xs, ys);
+    }
+
+    /**
+     * Returns the number of points in the set.
+     * @return the number of points
+     */
+    public int size() {
+        return xs.length;
+    }
+
+    public double getX(int index) {
+        return xs[index];
+    }
+
+    public double getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * Returns the backing array of x coordinates; changes are visible to the set.
+     * @return the x coordinates
+     */
+    public double[] xs() {
+        return xs;
+    }
+
+    /**
+     * Returns the backing array of y coordinates; changes are visible to the set.
+     * @return the y coordinates
+     */
+    public double[] ys() {
+        return ys;
+    }
+
+    /**
+     * Creates a new Vec2 holding the coordinates of the point at the given index.
+     * @param index the index of the point
+     * @return the point as a Vec2
+     */
+    public Vec2 toVec2(int index) {
+        return new Vec2(xs[index], ys[index]);
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two points of the set.
+     * @param i index of the first point
+     * @param j index of the second point
+     * @return the squared distance
+     */
+    public double distanceSquared(int i, int j) {
+        double dx = xs[i] - xs[j];
+        double dy = ys[i] - ys[j];
+        return dx * dx + dy * dy;
+    }
+}
@@ -0,0 +1,216 @@
+import java.math.BigInteger;
+
+/**
+ * Robust geometric predicates on raw double coordinates.
+ * Each predicate first evaluates its determinant in plain floating point and
+ * checks the result against a forward error bound (Shewchuk's filter); only when
+ * the sign is not certain does it fall back to exact arithmetic. The signs are
+ * always exact. orient2d allocates nothing, even on its exact path, which sums
+ * into a per-thread buffer; only the exact path of inCircle allocates.
+ */
+public final class Predicates {
+    private static final double EPSILON = Math.ulp(1.0) / 2;  // 2^-53, the unit roundoff
+    private static final double CCW_ERRBOUND_A = (3.0 + 16.0 * EPSILON) * EPSILON;
+    private static final double ICC_ERRBOUND_A = (10.0 + 96.0 * EPSILON) * EPSILON;
+    private static final int ORIENT_EXPANSION_SIZE = 12;
+    private static final ThreadLocal<double[]> ORIENT_EXPANSION =
+            ThreadLocal.withInitial(() -> new double[ORIENT_EXPANSION_SIZE]);
+
+    private Predicates() {
+    }
+
+    /**
+     * Computes the orientation determinant of the points a, b, c.
+     * @return a positive value if a, b, c turn counterclockwise, a negative value if
+     * they turn clockwise and zero if they are collinear; the sign is exact
+     */
+    public static double orient2d(double ax, double ay, double bx, double by, double cx, double cy) {
+        double detLeft = (ax - cx) * (by - cy);
+        double detRight = (ay - cy) * (bx - cx);
+        double det = detLeft - detRight;
+        double detSum;
+        if (detLeft > 0) {
+            if (detRight <= 0) {
+                return det;
+            }
+            detSum = detLeft + detRight;
+        } else if (detLeft < 0) {
+            if (detRight >= 0) {
+                return det;
+            }
+            detSum = -detLeft - detRight;
+        } else {
+            return det;
+        }
+        double errBound = CCW_ERRBOUND_A * detSum;
+        if (det >= errBound || -det >= errBound) {
+            return det;
+        }
+        return orient2dExact(ax, ay, bx, by, cx, cy);
+    }
+
+    /**
+     * Returns the orientation of the points a, b, c as a sign.
+     * @return (1): CCW, (-1): CW, (0): collinear
+     */
+    public static int orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        double det = orient2d(ax, ay, bx, by, cx, cy);
+        return det > 0 ? 1 : (det < 0 ? -1 : 0);
+    }
+
+    /**
+     * Computes the in-circle determinant of the points a, b, c, d.
+     * @return a positive value if d lies inside the circle through a, b, c, which
+     * must turn counterclockwise, a negative value if it lies outside and zero if
+     * the four points are cocircular; the sign is exact
+     */
+    public static double inCircle(double ax, double ay, double bx, double by, double cx, double cy,
+                                  double dx, double dy) {
+        double adx = ax - dx;
+        double bdx = bx - dx;
+        double cdx = cx - dx;
+        double ady = ay - dy;
+        double bdy = by - dy;
+        double cdy = cy - dy;
+
+        double bdxcdy = bdx * cdy;
+        double cdxbdy = cdx * bdy;
+        double alift = adx * adx + ady * ady;
+        double cdxady = cdx * ady;
+        double adxcdy = adx * cdy;
+        double blift = bdx * bdx + bdy * bdy;
+        double adxbdy = adx * bdy;
+        double bdxady = bdx * ady;
+        double clift = cdx * cdx + cdy * cdy;
+
+        double det = alift * (bdxcdy - cdxbdy) + blift * (cdxady - adxcdy) + clift * (adxbdy - bdxady);
+        double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * alift
+                + (Math.abs(cdxady) + Math.abs(adxcdy)) * blift
+                + (Math.abs(adxbdy) + Math.abs(bdxady)) * clift;
+        double errBound = ICC_ERRBOUND_A * permanent;
+        if (det > errBound || -det > errBound) {
+            return det;
+        }
+        return inCircleExact(ax, ay, bx, by, cx, cy, dx, dy);
+    }
+
+    /**
+     * Evaluates the sign of the in-circle determinant exactly. Its terms have degree
+     * four, so this rare path scales all coordinates to integers by the smallest power
+     * of two among them and works in BigInteger, where nothing is rounded.
+     * @return 1, -1 or 0
+     */
+    static double inCircleExact(double ax, double ay, double bx, double by, double cx, double cy,
+                                double dx, double dy) {
+        int exponent = Math.min(Math.min(Math.min(lowestExponent(ax), lowestExponent(ay)),
+                        Math.min(lowestExponent(bx), lowestExponent(by))),
+                Math.min(Math.min(lowestExponent(cx), lowestExponent(cy)),
+                        Math.min(lowestExponent(dx), lowestExponent(dy))));
+        BigInteger x = scaled(dx, exponent);
+        BigInteger y = scaled(dy, exponent);
+        BigInteger adx = scaled(ax, exponent).subtract(x);
+        BigInteger ady = scaled(ay, exponent).subtract(y);
+        BigInteger bdx = scaled(bx, exponent).subtract(x);
+        BigInteger bdy = scaled(by, exponent).subtract(y);
+        BigInteger cdx = scaled(cx, exponent).subtract(x);
+        BigInteger cdy = scaled(cy, exponent).subtract(y);
+        BigInteger alift = adx.multiply(adx).add(ady.multiply(ady));
+        BigInteger blift = bdx.multiply(bdx).add(bdy.multiply(bdy));
+        BigInteger clift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+        BigInteger det = alift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)))
+                .add(blift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))))
+                .add(clift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady))));
+        return det.signum();
+    }
+
+    /**
+     * Returns the exponent of the lowest bit of a finite value's significand, so that
+     * the value is an integer multiple of two to that power.
+     */
+    private static int lowestExponent(double value) {
+        if (value == 0) {
+            return Integer.MAX_VALUE;
+        }
+        long bits = Double.doubleToRawLongBits(value);
+        int biased = (int) (bits >>> 52) & 0x7FF;
+        long significand = bits & 0xFFFFFFFFFFFFFL;
+        if (biased == 0) {
+            biased = 1;  // subnormal
+        } else {
+            significand |= 1L << 52;
+        }
+        return biased - 1075 + Long.numberOfTrailingZeros(significand);
+    }
+
+    /**
+     * Returns value / 2^exponent, which must be an integer.
+     */
+    private static BigInteger scaled(double value, int exponent) {
+        if (value == 0) {
+            return BigInteger.ZERO;
+        }
+        int own = lowestExponent(value);
+        long bits = Double.doubleToRawLongBits(value);
+        long significand = bits & 0xFFFFFFFFFFFFFL;
+        if ((bits >>> 52 & 0x7FF) != 0) {
+            significand |= 1L << 52;
+        }
+        BigInteger magnitude = BigInteger.valueOf(significand >>> Long.numberOfTrailingZeros(significand))
+                .shiftLeft(own - exponent);
+        return value < 0 ? magnitude.negate() : magnitude;
+    }
+
+    /**
+     * Evaluates the orientation determinant exactly. Expanding it gives six products;
+     * each is split into its rounded value and its exact error with Math.fma, and the
+     * twelve terms are summed into a nonoverlapping expansion whose largest
+     * component carries the sign of the determinant. The expansion never has more
+     * than twelve components, so the calling thread's buffer always holds it.
+     */
+    static double orient2dExact(double ax, double ay, double bx, double by, double cx, double cy) {
+        double[] expansion = ORIENT_EXPANSION.get();
+        int length = 0;
+        length = addProduct(expansion, length, ax, by);
+        length = addProduct(expansion, length, -ax, cy);
+        length = addProduct(expansion, length, -cx, by);
+        length = addProduct(expansion, length, -ay, bx);
+        length = addProduct(expansion, length, ay, cx);
+        length = addProduct(expansion, length, bx, cy);
+        return expansion[length - 1];
+    }
+
+    /**
+     * Adds the exact product a * b to the expansion.
+     */
+    static int addProduct(double[] expansion, int length, double a, double b) {
+        double product = a * b;
+        double error = Math.fma(a, b, -product);
+        length = growExpansion(expansion, length, error);
+        return growExpansion(expansion, length, product);
+    }
+
+    /**
+     * Adds a value to a nonoverlapping expansion of increasing magnitude, in place,
+     * dropping zero components (Shewchuk's Grow-Expansion-Zeroelim).
+     * @return the new length of the expansion, at least one
+     */
+    static int growExpansion(double[] expansion, int length, double value) {
+        double q = value;
+        int newLength = 0;
+        for (int i = 0; i < length; i++) {
+            double component = expansion[i];
+            double sum = q + component;
+            double bVirtual = sum - q;
+            double aVirtual = sum - bVirtual;
+            double tail = (q - aVirtual) + (component - bVirtual);
+            q = sum;
+            if (tail != 0) {
+                expansion[newLength++] = tail;
+            }
+        }
+        if (q != 0 || newLength == 0) {
+            expansion[newLength++] = q;
+        }
+        return newLength;
+    }
+}
@@ -0,0 +1,387 @@
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Fixed-radius near neighbour joins: every pair of points at most a given distance apart.
+ * <p>
+ * The points are bucketed into a uniform grid whose cells are as wide as the radius,
+ * then copied in cell order (column by column, bottom to top) so each cell is a
+ * contiguous run. A pair within the radius then lies in the same or in adjacent
+ * cells. The monochromatic join scans each cell against itself and four of its
+ * eight neighbours (the one above and the three in the next column), so every pair
+ * is found once; it finds the neighbours by sweeping along the sorted cells rather
+ * than by hashing. The bichromatic join probes the 3x3 cells around each point of
+ * the first set in a grid over the second. With the default policy the
+ * scans run in parallel on the common fork/join pool. Building the grid is a single
+ * sequential pass.
+ * <p>
+ * Pairs are delivered to a PairConsumer as they are found, or collected into a
+ * PairBuffer. The running time is O(n + k) for k reported pairs when the points are
+ * spread evenly; many points in one cell make that cell quadratic.
+ */
+public final class RadiusJoin {
+    /**
+     * Receives the pairs of a join. The consumer of a parallel join is called from
+     * several threads at once and has to be thread-safe.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        /**
+         * @param first           the index of the first point
+         * @param second          the index of the second point
+         * @param distanceSquared their squared distance
+         */
+        void accept(int first, int second, double distanceSquared);
+    }
+
+    // Slightly enlarged cells keep points within the radius in adjacent cells
+    // despite rounding in the cell computation, as in GridClosestPair.
+    private static final double CELL_MARGIN = 1e-5;
+    private static final long MAX_CELL_INDEX = 1 << 30;
+
+    private RadiusJoin() {
+    }
+
+    /**
+     * Reports every pair of points at most radius apart, on the calling thread.
+     * Each pair is reported once, with first < second.
+     * @param points   the points
+     * @param radius   the largest distance of a reported pair, positive
+     * @param consumer receives the pairs
+     */
+    public static void forEachPair(PointSet points, double radius, PairConsumer consumer) {
+        forEachPair(points, radius, ExecutionPolicy.SEQUENTIAL, consumer);
+    }
+
+    /**
+     * Reports every pair of points at most radius apart, with first < second.
+     * @param points   the points
+     * @param radius   the largest distance of a reported pair, positive
+     * @param policy   decides whether the cells are scanned in parallel
+     * @param consumer receives the pairs; must be thread-safe if the scan runs in parallel
+     * @throws IllegalArgumentException if the radius is not positive and finite, or so
+     *                                  small that the grid would need more than 2^30 cells per axis
+     */
+    public static void forEachPair(PointSet points, double radius, ExecutionPolicy policy, PairConsumer consumer) {
+        if (points.size() < 2) {
+            checkRadius(radius);
+            return;
+        }
+        Grid grid = new Grid(points, radius);
+        int chunks = grid.chunkCount(policy);
+        if (chunks == 1) {
+            grid.scan(0, grid.cellCount(), consumer);
+        } else {
+            IntStream.range(0, chunks).parallel()
+                    .forEach(chunk -> grid.scan(grid.chunkStart(chunk, chunks), grid.chunkStart(chunk + 1, chunks), consumer));
+        }
+    }
+
+    /**
+     * Collects every pair of points at most radius apart, scanning in parallel for large inputs.
+     * The pairs come in the same order whether or not the scan runs in parallel.
+     * @param points the points
+     * @param radius the largest distance of a reported pair, positive
+     * @return the pairs, with first < second
+     */
+    public static PairBuffer pairs(PointSet points, double radius) {
+        if (points.size() < 2) {
+            checkRadius(radius);
+            return new PairBuffer();
+        }
+        Grid grid = new Grid(points, radius);
+        int chunks = grid.chunkCount(ExecutionPolicy.ADAPTIVE);
+        PairBuffer[] buffers = new PairBuffer[chunks];
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            buffers[chunk] = new PairBuffer();
+            grid.scan(grid.chunkStart(chunk, chunks), grid.chunkStart(chunk + 1, chunks), buffers[chunk]);
+        });
+        return concat(buffers);
+    }
+
+    /**
+     * Collects every pair of points at most radius apart.
+     * @param points the points; the pairs hold indices into this array
+     * @param radius the largest distance of a reported pair, positive
+     * @return the pairs, with first < second
+     */
+    public static PairBuffer pairs(Vec2[] points, double radius) {
+        return pairs(PointSet.of(points), radius);
+    }
+
+    /**
+     * Reports every pair of a point of a and a point of b at most radius apart.
+     * The grid is built over b, and the points of a are probed against it.
+     * @param a        the first set; first is an index into it
+     * @param b        the second set; second is an index into it
+     * @param radius   the largest distance of a reported pair, positive
+     * @param policy   decides whether the points of a are probed in parallel
+     * @param consumer receives the pairs; must be thread-safe if the probes run in parallel
+     */
+    public static void forEachPair(PointSet a, PointSet b, double radius, ExecutionPolicy policy,
+                                   PairConsumer consumer) {
+        if (a.size() == 0 || b.size() == 0) {
+            checkRadius(radius);
+            return;
+        }
+        Grid grid = new Grid(b, radius);
+        policy.forEachChunk(a.size(), (from, to) -> grid.probe(a, from, to, consumer));
+    }
+
+    /**
+     * Collects every pair of a point of a and a point of b at most radius apart,
+     * probing in parallel for large inputs. The pairs are ordered by first.
+     * @param a      the first set; first is an index into it
+     * @param b      the second set; second is an index into it
+     * @param radius the largest distance of a reported pair, positive
+     * @return the pairs
+     */
+    public static PairBuffer pairs(PointSet a, PointSet b, double radius) {
+        if (a.size() == 0 || b.size() == 0) {
+            checkRadius(radius);
+            return new PairBuffer();
+        }
+        Grid grid = new Grid(b, radius);
+        int n = a.size();
+        ExecutionPolicy policy = ExecutionPolicy.ADAPTIVE;
+        PairBuffer[] buffers = new PairBuffer[policy.rangeCount(n)];
+        policy.forEachChunk(n, (from, to) -> {
+            PairBuffer buffer = new PairBuffer();
+            grid.probe(a, from, to, buffer);
+            buffers[from / policy.getChunkSize()] = buffer;
+        });
+        return concat(buffers);
+    }
+
+    /**
+     * Collects every pair of a point of a and a point of b at most radius apart.
+     * @param a      the first set; first is an index into it
+     * @param b      the second set; second is an index into it
+     * @param radius the largest distance of a reported pair, positive
+     * @return the pairs, ordered by first
+     */
+    public static PairBuffer pairs(Vec2[] a, Vec2[] b, double radius) {
+        return pairs(PointSet.of(a), PointSet.of(b), radius);
+    }
+
+    private static PairBuffer concat(PairBuffer[] buffers) {
+        if (buffers.length == 1) {
+            return buffers[0];
+        }
+        long total = 0;
+        for (PairBuffer buffer : buffers) {
+            total += buffer.size();
+        }
+        PairBuffer result = new PairBuffer((int) Math.min(total, Integer.MAX_VALUE / 2));
+        for (PairBuffer buffer : buffers) {
+            result.addAll(buffer);
+        }
+        return result;
+    }
+
+    private static void checkRadius(double radius) {
+        if (!(radius > 0) || radius == Double.POSITIVE_INFINITY) {
+            throw new IllegalArgumentException("The radius must be positive and finite");
+        }
+    }
+
+    private static long key(long cx, long cy) {
+        return (cx << 32) | cy;
+    }
+
+    /**
+     * The points of a set copied in cell order, with a map from cell coordinates to cell numbers.
+     * Cell coordinates start at 1, so the cells around every cell have non-negative
+     * coordinates and the keys of the cells sort by column, then row.
+     */
+    private static final class Grid {
+        private final double radiusSquared;
+        private final double cellSize;
+        private final double minX;
+        private final double minY;
+        private final long maxCellX;
+        private final long maxCellY;
+        private final LongIntHashMap cells = new LongIntHashMap(16);
+        private final long[] cellKeys;  // by cell number, ascending
+        private final int[] start;      // first position of each cell, and the number of points at the end
+        private final int[] order;      // the point index at each position
+        private final double[] xs;      // the coordinates at each position
+        private final double[] ys;
+
+        Grid(PointSet points, double radius) {
+            checkRadius(radius);
+            int n = points.size();
+            double[] px = points.xs();
+            double[] py = points.ys();
+            double minX = Double.POSITIVE_INFINITY;
+            double minY = Double.POSITIVE_INFINITY;
+            double maxX = Double.NEGATIVE_INFINITY;
+            double maxY = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                minX = Math.min(minX, px[i]);
+                minY = Math.min(minY, py[i]);
+                maxX = Math.max(maxX, px[i]);
+                maxY = Math.max(maxY, py[i]);
+            }
+            this.radiusSquared = radius * radius;
+            this.cellSize = radius * (1 + CELL_MARGIN);
+            this.minX = minX;
+            this.minY = minY;
+            if ((maxX - minX) / cellSize >= MAX_CELL_INDEX || (maxY - minY) / cellSize >= MAX_CELL_INDEX) {
+                throw new IllegalArgumentException("The radius is too small for the extent of the points");
+            }
+            this.maxCellX = (long) ((maxX - minX) / cellSize) + 1;
+            this.maxCellY = (long) ((maxY - minY) / cellSize) + 1;
+
+            // number the cells in order of first appearance and count their points
+            int[] cellOf = new int[n];
+            int[] firstCounts = new int[n];
+            long[] keys = new long[n];
+            for (int i = 0; i < n; i++) {
+                long key = key((long) ((px[i] - minX) / cellSize) + 1, (long) ((py[i] - minY) / cellSize) + 1);
+                int cell = cells.get(key, -1);
+                if (cell < 0) {
+                    cell = cells.size();
+                    cells.put(key, cell);
+                    keys[cell] = key;
+                }
+                cellOf[i] = cell;
+                firstCounts[cell]++;
+            }
+            // then renumber them in key order, which puts neighbouring cells close together
+            int m = cells.size();
+            this.cellKeys = Arrays.copyOf(keys, m);
+            Arrays.parallelSort(cellKeys);
+            int[] rank = new int[m];
+            int[] counts = new int[m + 1];
+            for (int c = 0; c < m; c++) {
+                int first = cells.get(cellKeys[c], -1);
+                rank[first] = c;
+                cells.put(cellKeys[c], c);
+                counts[c + 1] = counts[c] + firstCounts[first];
+            }
+            this.start = Arrays.copyOf(counts, m + 1);
+            this.order = new int[n];
+            this.xs = new double[n];
+            this.ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                int position = counts[rank[cellOf[i]]]++;
+                order[position] = i;
+                xs[position] = px[i];
+                ys[position] = py[i];
+            }
+        }
+
+        int cellCount() {
+            return cellKeys.length;
+        }
+
+        /**
+         * Splits the cells into chunks of about the policy's chunk size in points.
+         */
+        int chunkCount(ExecutionPolicy policy) {
+            int n = order.length;
+            if (!policy.isParallel(n)) {
+                return 1;
+            }
+            return Math.min(cellCount(), policy.chunkCount(n));
+        }
+
+        int chunkStart(int chunk, int chunks) {
+            return (int) ((long) cellCount() * chunk / chunks);
+        }
+
+        /**
+         * Reports the pairs with a point in the cells [from, to) and the other in the
+         * same cell or in one of the scanned neighbours.
+         */
+        void scan(int from, int to, PairConsumer consumer) {
+            int m = cellKeys.length;
+            // the first cell of the next column that may neighbour the current cell
+            int next = from == to ? m : lowerBound(cellKeys[from] + (1L << 32) - 1);
+            for (int c = from; c < to; c++) {
+                int lo = start[c];
+                int hi = start[c + 1];
+                for (int i = lo; i < hi; i++) {
+                    for (int j = i + 1; j < hi; j++) {
+                        report(i, j, consumer);
+                    }
+                }
+                long key = cellKeys[c];
+                if (c + 1 < m && cellKeys[c + 1] == key + 1) {
+                    scanCells(lo, hi, c + 1, consumer);
+                }
+                // the cells right of this one, one row down to one row up
+                long below = key + (1L << 32) - 1;
+                while (next < m && cellKeys[next] < below) {
+                    next++;
+                }
+                for (int d = next; d < m && cellKeys[d] <= below + 2; d++) {
+                    scanCells(lo, hi, d, consumer);
+                }
+            }
+        }
+
+        private void scanCells(int lo, int hi, int d, PairConsumer consumer) {
+            int dlo = start[d];
+            int dhi = start[d + 1];
+            for (int i = lo; i < hi; i++) {
+                for (int j = dlo; j < dhi; j++) {
+                    report(i, j, consumer);
+                }
+            }
+        }
+
+        private int lowerBound(long key) {
+            int index = Arrays.binarySearch(cellKeys, key);
+            return index >= 0 ? index : -index - 1;
+        }
+
+        private void report(int i, int j, PairConsumer consumer) {
+            double dx = xs[i] - xs[j];
+            double dy = ys[i] - ys[j];
+            double dist = dx * dx + dy * dy;
+            if (dist <= radiusSquared) {
+                int p = order[i];
+                int q = order[j];
+                consumer.accept(Math.min(p, q), Math.max(p, q), dist);
+            }
+        }
+
+        /**
+         * Reports the pairs of the points [from, to) of another set with the points of this grid.
+         */
+        void probe(PointSet points, int from, int to, PairConsumer consumer) {
+            double[] px = points.xs();
+            double[] py = points.ys();
+            for (int p = from; p < to; p++) {
+                double x = px[p];
+                double y = py[p];
+                double fx = Math.floor((x - minX) / cellSize) + 1;
+                double fy = Math.floor((y - minY) / cellSize) + 1;
+                // also skips NaN coordinates
+                if (!(fx >= 0 && fx <= maxCellX + 1 && fy >= 0 && fy <= maxCellY + 1)) {
+                    continue;
+                }
+                long cx = (long) fx;
+                long cy = (long) fy;
+                for (long gx = Math.max(1, cx - 1); gx <= Math.min(maxCellX, cx + 1); gx++) {
+                    for (long gy = Math.max(1, cy - 1); gy <= Math.min(maxCellY, cy + 1); gy++) {
+                        int d = cells.get(key(gx, gy), -1);
+                        if (d < 0) {
+                            continue;
+                        }
+                        for (int j = start[d]; j < start[d + 1]; j++) {
+                            double dx = x - xs[j];
+                            double dy = y - ys[j];
+                            double dist = dx * dx + dy * dy;
+                            if (dist <= radiusSquared) {
+                                consumer.accept(p, order[j], dist);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Maintains the closest pair of the most recent points of a stream.
+ * Points expire once the window holds more than a maximum number of points, or
+ * once they are older than a maximum age. Ages are measured in the caller's time
+ * units, or in updates when points are inserted without a timestamp.
+ * <p>
+ * Every expiry is a removal from a DynamicClosestPair and costs what that class
+ * documents. Repeated locations are cheap. The worst case is a stream that keeps
+ * approaching one point, e.g. along a spiral: all later points take it as their
+ * nearest neighbour, and its expiry then costs one nearest neighbour query per
+ * point in the window.
+ */
+public class SlidingWindowClosestPair {
+    private final DynamicClosestPair pairs = new DynamicClosestPair();
+    private final int maxPoints;
+    private final long maxAge;
+
+    // ring buffer of the live points, oldest first
+    private int[] handles = new int[16];
+    private long[] times = new long[16];
+    private int head;
+    private int count;
+    private long updates;
+
+    /**
+     * @param maxPoints the largest number of points kept in the window
+     * @param maxAge    points whose age reaches this value are expired
+     */
+    public SlidingWindowClosestPair(int maxPoints, long maxAge) {
+        if (maxPoints < 1 || maxAge < 1) {
+            throw new IllegalArgumentException("Window limits must be positive");
+        }
+        this.maxPoints = maxPoints;
+        this.maxAge = maxAge;
+    }
+
+    /**
+     * Creates a window over the last n inserted points.
+     */
+    public static SlidingWindowClosestPair lastPoints(int n) {
+        return new SlidingWindowClosestPair(n, Long.MAX_VALUE);
+    }
+
+    /**
+     * Creates a window over the points younger than maxAge.
+     */
+    public static SlidingWindowClosestPair maxAge(long maxAge) {
+        return new SlidingWindowClosestPair(Integer.MAX_VALUE, maxAge);
+    }
+
+    /**
+     * Adds a point stamped with the number of updates so far.
+     * @param point the point to add
+     */
+    public void insert(Vec2 point) {
+        insert(point, updates);
+    }
+
+    /**
+     * Adds a point with an explicit timestamp and expires the points that fell out of the window.
+     * @param point the point to add
+     * @param time  the timestamp of the point, not smaller than earlier timestamps
+     */
+    public void insert(Vec2 point, long time) {
+        if (count > 0 && time < times[(head + count - 1) % times.length]) {
+            throw new IllegalArgumentException("Timestamps must not decrease");
+        }
+        updates++;
+        if (count == handles.length) {
+            grow();
+        }
+        int slot = (head + count) % handles.length;
+        handles[slot] = pairs.insert(point);
+        times[slot] = time;
+        count++;
+        expire(time);
+    }
+
+    /**
+     * Expires the points that are too old at the given time.
+     * @param now the current time
+     */
+    public void expire(long now) {
+        while (count > 0 && (count > maxPoints || now - times[head] >= maxAge)) {
+            pairs.remove(handles[head]);
+            head = (head + 1) % handles.length;
+            count--;
+        }
+    }
+
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the two closest points in the window.
+     * @return the pair, or null if the window holds fewer than two points
+     */
+    public Vec2[] getClosestPair() {
+        return pairs.getClosestPair();
+    }
+
+    /**
+     * Returns the distance between the two closest points in the window.
+     * @return the distance, or positive infinity if the window holds fewer than two points
+     */
+    public double getDistance() {
+        return pairs.getDistance();
+    }
+
+    private void grow() {
+        int[] newHandles = new int[handles.length * 2];
+        long[] newTimes = new long[times.length * 2];
+        for (int i = 0; i < count; i++) {
+            newHandles[i] = handles[(head + i) % handles.length];
+            newTimes[i] = times[(head + i) % times.length];
+        }
+        handles = newHandles;
+        times = newTimes;
+        head = 0;
+    }
+}
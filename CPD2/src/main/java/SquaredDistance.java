@@ -0,0 +1,124 @@
+/**
+ * Squared Euclidean distance between two rows of flat coordinate arrays, with a
+ * separate implementation for each small dimension so the JIT sees straight-line
+ * code without a loop. Higher dimensions share an unrolled loop that can stop
+ * early once the sum exceeds a bound, which is what the pruning searches need.
+ */
+abstract class SquaredDistance {
+    private static final SquaredDistance[] SMALL = {
+            null, new D1(), new D2(), new D3(), new D4()
+    };
+
+    /**
+     * Returns the kernel for points with the given number of coordinates.
+     */
+    static SquaredDistance forDimension(int dimension) {
+        return dimension < SMALL.length ? SMALL[dimension] : new General(dimension);
+    }
+
+    /**
+     * Returns the squared distance between a[aOff..] and b[bOff..].
+     */
+    abstract double between(double[] a, int aOff, double[] b, int bOff);
+
+    /**
+     * Returns the squared distance, or any value of at least bound if the distance is not below it.
+     */
+    double bounded(double[] a, int aOff, double[] b, int bOff, double bound) {
+        return between(a, aOff, b, bOff);
+    }
+
+    private static final class D1 extends SquaredDistance {
+        @Override
+        double between(double[] a, int aOff, double[] b, int bOff) {
+            double d0 = a[aOff] - b[bOff];
+            return d0 * d0;
+        }
+    }
+
+    private static final class D2 extends SquaredDistance {
+        @Override
+        double between(double[] a, int aOff, double[] b, int bOff) {
+            double d0 = a[aOff] - b[bOff];
+            double d1 = a[aOff + 1] - b[bOff + 1];
+            return d0 * d0 + d1 * d1;
+        }
+    }
+
+    private static final class D3 extends SquaredDistance {
+        @Override
+        double between(double[] a, int aOff, double[] b, int bOff) {
+            double d0 = a[aOff] - b[bOff];
+            double d1 = a[aOff + 1] - b[bOff + 1];
+            double d2 = a[aOff + 2] - b[bOff + 2];
+            return d0 * d0 + d1 * d1 + d2 * d2;
+        }
+    }
+
+    private static final class D4 extends SquaredDistance {
+        @Override
+        double between(double[] a, int aOff, double[] b, int bOff) {
+            double d0 = a[aOff] - b[bOff];
+            double d1 = a[aOff + 1] - b[bOff + 1];
+            double d2 = a[aOff + 2] - b[bOff + 2];
+            double d3 = a[aOff + 3] - b[bOff + 3];
+            return (d0 * d0 + d1 * d1) + (d2 * d2 + d3 * d3);
+        }
+    }
+
+    private static final class General extends SquaredDistance {
+        // coordinates summed between two checks against the bound
+        private static final int BLOCK = 16;
+
+        private final int dimension;
+
+        General(int dimension) {
+            this.dimension = dimension;
+        }
+
+        @Override
+        double between(double[] a, int aOff, double[] b, int bOff) {
+            // the same order of additions as bounded, so both give the same value
+            return bounded(a, aOff, b, bOff, Double.POSITIVE_INFINITY);
+        }
+
+        @Override
+        double bounded(double[] a, int aOff, double[] b, int bOff, double bound) {
+            double sum = 0;
+            for (int k = 0; k < dimension; k += BLOCK) {
+                sum = sum(a, aOff, b, bOff, k, Math.min(dimension, k + BLOCK), sum);
+                if (sum >= bound) {
+                    return sum;
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Adds the squared differences of coordinates [from, to) to sum.
+         */
+        private static double sum(double[] a, int aOff, double[] b, int bOff, int from, int to, double sum) {
+            // four independent sums let the CPU overlap the additions
+            double s0 = 0;
+            double s1 = 0;
+            double s2 = 0;
+            double s3 = 0;
+            int k = from;
+            for (; k + 3 < to; k += 4) {
+                double d0 = a[aOff + k] - b[bOff + k];
+                double d1 = a[aOff + k + 1] - b[bOff + k + 1];
+                double d2 = a[aOff + k + 2] - b[bOff + k + 2];
+                double d3 = a[aOff + k + 3] - b[bOff + k + 3];
+                s0 += d0 * d0;
+                s1 += d1 * d1;
+                s2 += d2 * d2;
+                s3 += d3 * d3;
+            }
+            for (; k < to; k++) {
+                double d0 = a[aOff + k] - b[bOff + k];
+                s0 += d0 * d0;
+            }
+            return sum + ((s0 + s1) + (s2 + s3));
+        }
+    }
+}
@@ -0,0 +1,354 @@
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * An immutable vantage-point tree for nearest neighbour queries in any dimension.
+ * Each node picks a vantage point and splits the other points of its range at their
+ * median distance from it: the closer half forms the inside subtree, the rest the
+ * outside one. A query descends into the side its own distance falls on first and
+ * visits the other side only if the ball around the query with the best distance
+ * so far crosses the median sphere. Unlike a k-d tree, which cuts one coordinate at
+ * a time, the pruning works on whole distances, so it stays useful at dimensions
+ * of a few dozen as long as the data itself has low intrinsic dimension.
+ * <p>
+ * Like KDTree the tree is implicit: the range [lo, hi) of a node holds its vantage
+ * point at lo, the inside points before the split position and the outside points
+ * from it on. Coordinates are copied in tree order into one flat array. The tree
+ * can be queried from any number of threads at once.
+ */
+public class VPTree {
+    private static final int LEAF_SIZE = 8;
+    // widens the pruning radius so that rounding in the square roots never prunes a closer point
+    private static final double SLACK = 1 + 1e-12;
+
+    private final int dimension;
+    private final double[] rows;     // coordinates in tree order, row by row
+    private final int[] index;       // original index of each tree position
+    private final double[] radius;   // the median distance of the node whose vantage point is at a position
+    private final SquaredDistance kernel;
+
+    /**
+     * Builds a tree over the given points; the set itself is not modified.
+     * @param points the points to index
+     */
+    public VPTree(VecSet points) {
+        int n = points.size();
+        dimension = points.dimension();
+        kernel = SquaredDistance.forDimension(dimension);
+        index = new int[n];
+        for (int i = 0; i < n; i++) {
+            index[i] = i;
+        }
+        radius = new double[n];
+        build(points.coords(), new double[n], 0, n);
+        rows = new double[n * dimension];
+        for (int p = 0; p < n; p++) {
+            System.arraycopy(points.coords(), index[p] * dimension, rows, p * dimension, dimension);
+        }
+    }
+
+    public int size() {
+        return index.length;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Finds the point closest to the query.
+     * @param query the coordinates of the query point
+     * @return the index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(double[] query) {
+        return nearest(query, null);
+    }
+
+    /**
+     * Finds the point closest to the query.
+     * @return the index of the nearest point, or -1 if the tree is empty
+     */
+    public int nearest(Vec query) {
+        return nearest(components(query), null);
+    }
+
+    /**
+     * Finds the point closest to the query among the points accepted by the filter.
+     * @param query  the coordinates of the query point
+     * @param accept tests the index of a candidate point, or null to accept all points
+     * @return the index of the nearest accepted point, or -1 if there is none
+     */
+    public int nearest(double[] query, IntPredicate accept) {
+        checkDimension(query);
+        Nearest q = new Nearest(query, accept);
+        nearest(q, 0, index.length);
+        return q.position < 0 ? -1 : index[q.position];
+    }
+
+    /**
+     * Finds the k points closest to the query.
+     * @param query the coordinates of the query point
+     * @param k     the number of neighbours to find
+     * @return the indices of the nearest points, closest first; fewer than k if the tree is smaller
+     */
+    public int[] kNearest(double[] query, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative");
+        }
+        checkDimension(query);
+        KNearest q = new KNearest(query, Math.min(k, index.length));
+        if (q.capacity > 0) {
+            kNearest(q, 0, index.length);
+        }
+        return q.sortedIndices();
+    }
+
+    /**
+     * Answers a batch of nearest neighbour queries in parallel.
+     * @param queries the query points
+     * @return the index of the nearest point for each query
+     */
+    public int[] nearest(VecSet queries) {
+        if (queries.dimension() != dimension) {
+            throw new IllegalArgumentException("Queries must have the dimension of the tree");
+        }
+        int[] result = new int[queries.size()];
+        double[] coords = queries.coords();
+        IntStream.range(0, result.length)
+                .parallel()
+                .forEach(i -> {
+                    Nearest q = new Nearest(coords, i * dimension, null);
+                    nearest(q, 0, index.length);
+                    result[i] = q.position < 0 ? -1 : index[q.position];
+                });
+        return result;
+    }
+
+    private void checkDimension(double[] query) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("The query must have the dimension of the tree");
+        }
+    }
+
+    private static double[] components(Vec query) {
+        double[] components = new double[query.size()];
+        for (int k = 0; k < components.length; k++) {
+            components[k] = query.get(k);
+        }
+        return components;
+    }
+
+    private void build(double[] coords, double[] dist, int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) {
+            return;
+        }
+        // the middle point is as good as a random one and keeps the tree reproducible
+        swap(index, lo, (lo + hi) >>> 1);
+        int vantage = index[lo] * dimension;
+        for (int p = lo + 1; p < hi; p++) {
+            dist[p] = kernel.between(coords, vantage, coords, index[p] * dimension);
+        }
+        int split = (lo + 1 + hi) >>> 1;
+        select(dist, lo + 1, hi - 1, split);
+        radius[lo] = Math.sqrt(dist[split]);
+        build(coords, dist, lo + 1, split);
+        build(coords, dist, split, hi);
+    }
+
+    /**
+     * Rearranges dist[lo..hi] and the index entries with it so that dist[k] holds the
+     * value of rank k, with no larger values before it and no smaller values after it.
+     */
+    private void select(double[] dist, int lo, int hi, int k) {
+        while (hi > lo) {
+            double pivot = median(dist[lo], dist[(lo + hi) >>> 1], dist[hi]);
+            int i = lo;
+            int j = hi;
+            while (i <= j) {
+                while (dist[i] < pivot) {
+                    i++;
+                }
+                while (dist[j] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    double tmp = dist[i];
+                    dist[i] = dist[j];
+                    dist[j] = tmp;
+                    swap(index, i++, j--);
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static double median(double a, double b, double c) {
+        return Math.max(Math.min(a, b), Math.min(Math.max(a, b), c));
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int tmp = a[i];
+        a[i] = a[j];
+        a[j] = tmp;
+    }
+
+    private void nearest(Nearest q, int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int p = lo; p < hi; p++) {
+                q.offer(p, kernel.bounded(q.coords, q.offset, rows, p * dimension, q.bestSquared));
+            }
+            return;
+        }
+        double dv = Math.sqrt(kernel.between(q.coords, q.offset, rows, lo * dimension));
+        q.offer(lo, dv * dv);
+        int split = (lo + 1 + hi) >>> 1;
+        double mu = radius[lo];
+        if (dv < mu) {
+            nearest(q, lo + 1, split);
+            if (dv + q.best() >= mu) {
+                nearest(q, split, hi);
+            }
+        } else {
+            nearest(q, split, hi);
+            if (dv - q.best() <= mu) {
+                nearest(q, lo + 1, split);
+            }
+        }
+    }
+
+    private void kNearest(KNearest q, int lo, int hi) {
+        if (hi - lo <= LEAF_SIZE) {
+            for (int p = lo; p < hi; p++) {
+                q.offer(p, kernel.bounded(q.coords, 0, rows, p * dimension, q.bound()));
+            }
+            return;
+        }
+        double dv = Math.sqrt(kernel.between(q.coords, 0, rows, lo * dimension));
+        q.offer(lo, dv * dv);
+        int split = (lo + 1 + hi) >>> 1;
+        double mu = radius[lo];
+        if (dv < mu) {
+            kNearest(q, lo + 1, split);
+            if (dv + Math.sqrt(q.bound()) * SLACK >= mu) {
+                kNearest(q, split, hi);
+            }
+        } else {
+            kNearest(q, split, hi);
+            if (dv - Math.sqrt(q.bound()) * SLACK <= mu) {
+                kNearest(q, lo + 1, split);
+            }
+        }
+    }
+
+    /**
+     * The state of a single nearest neighbour query.
+     */
+    private final class Nearest {
+        final double[] coords;
+        final int offset;
+        final IntPredicate accept;
+        double bestSquared = Double.POSITIVE_INFINITY;
+        int position = -1;
+
+        Nearest(double[] query, IntPredicate accept) {
+            this(query, 0, accept);
+        }
+
+        Nearest(double[] coords, int offset, IntPredicate accept) {
+            this.coords = coords;
+            this.offset = offset;
+            this.accept = accept;
+        }
+
+        double best() {
+            return Math.sqrt(bestSquared) * SLACK;
+        }
+
+        void offer(int p, double dist) {
+            if (dist < bestSquared && (accept == null || accept.test(index[p]))) {
+                bestSquared = dist;
+                position = p;
+            }
+        }
+    }
+
+    /**
+     * The state of a k nearest neighbours query: a bounded max-heap on squared distance.
+     */
+    private final class KNearest {
+        final double[] coords;
+        final int capacity;
+        final double[] dist;
+        final int[] pos;
+        int size;
+
+        KNearest(double[] coords, int capacity) {
+            this.coords = coords;
+            this.capacity = capacity;
+            this.dist = new double[capacity];
+            this.pos = new int[capacity];
+        }
+
+        /**
+         * The squared distance a candidate must beat to enter the heap.
+         */
+        double bound() {
+            return size < capacity ? Double.POSITIVE_INFINITY : dist[0];
+        }
+
+        void offer(int p, double d) {
+            if (size < capacity) {
+                int i = size++;
+                while (i > 0) {
+                    int parent = (i - 1) >>> 1;
+                    if (dist[parent] >= d) {
+                        break;
+                    }
+                    dist[i] = dist[parent];
+                    pos[i] = pos[parent];
+                    i = parent;
+                }
+                dist[i] = d;
+                pos[i] = p;
+            } else if (d < dist[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && dist[child + 1] > dist[child]) {
+                        child++;
+                    }
+                    if (dist[child] <= d) {
+                        break;
+                    }
+                    dist[i] = dist[child];
+                    pos[i] = pos[child];
+                    i = child;
+                }
+                dist[i] = d;
+                pos[i] = p;
+            }
+        }
+
+        int[] sortedIndices() {
+            int[] slots = new int[size];
+            for (int i = 0; i < size; i++) {
+                slots[i] = i;
+            }
+            IndexSort.sort(slots, 0, size, dist, null, new int[size]);
+            int[] result = new int[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = index[pos[slots[i]]];
+            }
+            return result;
+        }
+    }
+}
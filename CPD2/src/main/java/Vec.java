@@ -1,12 +1,44 @@
 import java.util.Arrays;
-import java.util.stream.IntStream;
 
 /**
  * A class representing a geometric vector with double precision components.
+ * <p>
+ * The components are the range data[start..start+size) of a backing array that
+ * may have spare room before and after it, like a gap buffer with the gap split
+ * over both ends. expandStart and expandEnd use that room and only reallocate
+ * when it runs out, growing the array geometrically, and shrinkStart and shrinkEnd
+ * just narrow the range, so building or consuming a vector one element at a time
+ * takes amortized constant time per element. The range always stays contiguous,
+ * so every operation runs over it as one array slice. trimToSize gives the spare
+ * room back.
  */
 public class Vec {
+    /** The backing array; the components are data[start..start+size). */
     protected double[] data;
+    protected int start;
+    protected int size;
     private static final String SAME_LEN_MESSAGE = "Vectors must have the same length";
+    private static final int MIN_GROWTH = 8;
+    private static volatile ExecutionPolicy defaultPolicy = ExecutionPolicy.ADAPTIVE;
+
+    /**
+     * Returns the execution policy used by operations called without an explicit policy.
+     * @return the default policy
+     */
+    public static ExecutionPolicy getDefaultPolicy() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Sets the execution policy used by operations called without an explicit policy.
+     * @param policy the new default policy
+     */
+    public static void setDefaultPolicy(ExecutionPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Policy must not be null");
+        }
+        defaultPolicy = policy;
+    }
 
     /**
      * Constructs a vector with the given components.
@@ -14,6 +46,7 @@ public class Vec {
      */
     public Vec(double... components) {
         this.data = components;
+        this.size = components.length;
     }
 
     /**
@@ -22,7 +55,22 @@ public class Vec {
      */
     public Vec(int size) {
         this.data = new double[size];
-        this.uniform(0.0);
+        this.size = size;
+    }
+
+    /**
+     * Creates an empty vector with room for the given number of elements, to be
+     * filled with expandEnd (or expandStart) without reallocating.
+     * @param capacity the number of elements that fit before the array grows
+     * @return a vector of size zero
+     */
+    public static Vec withCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        Vec vec = new Vec(new double[capacity]);
+        vec.size = 0;
+        return vec;
     }
 
     /**
@@ -30,7 +78,7 @@ public class Vec {
      * @param uniformValue  the value to fill the vector with
      */
     public void uniform(double uniformValue) {
-        Arrays.fill(data, uniformValue);
+        Arrays.fill(data, start, start + size, uniformValue);
         /*IntStream.range(0, size())
                 .parallel()
                 .forEach(i -> this.data[i] = uniformValue);*/
@@ -42,10 +90,10 @@ public class Vec {
      * @return the component value
      */
     public double get(int index) {
-        if (index < 0 || index >= data.length) {
+        if (index < 0 || index >= size) {
             throw new IllegalArgumentException("Index out of bounds");
         }
-        return data[index];
+        return data[start + index];
     }
 
     /**
@@ -54,10 +102,10 @@ public class Vec {
      * @param value the new value of the component
      */
     public void set(int index, double value) {
-        if (index < 0 || index >= data.length) {
+        if (index < 0 || index >= size) {
             throw new IllegalArgumentException("Index out of bounds");
         }
-        data[index] = value;
+        data[start + index] = value;
     }
 
     /**
@@ -65,9 +113,28 @@ public class Vec {
      * @return the number of components
      */
     public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of elements the backing array can hold, including the
+     * spare room before and after the components.
+     * @return the capacity, at least size()
+     */
+    public int capacity() {
         return data.length;
     }
 
+    /**
+     * Drops the spare room, so that the backing array holds exactly the components.
+     */
+    public void trimToSize() {
+        if (start != 0 || size != data.length) {
+            data = Arrays.copyOfRange(data, start, start + size);
+            start = 0;
+        }
+    }
+
     /**
      * Calculates the dot product of this vector and another vector.
      * @param other the other vector
@@ -75,13 +142,19 @@ public class Vec {
      * @throws IllegalArgumentException if the vectors have different lengths
      */
     public double dot(Vec other) {
-        if (this.size() != other.size()) {
-            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
-        }
-        return IntStream.range(0, this.size())
-                .parallel()
-                .mapToDouble(i -> this.get(i) * other.get(i))
-                .sum();
+        return dot(other, defaultPolicy);
+    }
+
+    /**
+     * Calculates the dot product of this vector and another vector.
+     * @param other  the other vector
+     * @param policy how to execute the operation
+     * @return the dot product of the two vectors
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public double dot(Vec other, ExecutionPolicy policy) {
+        requireSameSize(other);
+        return VecKernels.dot(this.data, start, other.data, other.start, size(), policy);
     }
 
     /**
@@ -107,131 +180,433 @@ public class Vec {
      * @return the length of the vector
      */
     public double length() {
-        return Math.sqrt(Arrays.stream(this.data)
-                .parallel()
-                .map(d -> d * d)
-                .sum());
+        return length(defaultPolicy);
+    }
+
+    /**
+     * Calculates the Euclidean length (magnitude) of this vector.
+     * @param policy how to execute the operation
+     * @return the length of the vector
+     */
+    public double length(ExecutionPolicy policy) {
+        return Math.sqrt(VecKernels.sumOfSquares(this.data, start, size(), policy));
     }
 
     public Vec add(Vec other) {
-        if (this.size() != other.size()) {
-            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
-        }
+        return add(other, defaultPolicy);
+    }
+
+    public Vec add(Vec other, ExecutionPolicy policy) {
+        requireSameSize(other);
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) + other.get(i));
+        VecKernels.add(this.data, start, other.data, other.start, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec sub(Vec other) {
-        if (this.size() != other.size()) {
-            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
-        }
+        return sub(other, defaultPolicy);
+    }
+
+    public Vec sub(Vec other, ExecutionPolicy policy) {
+        requireSameSize(other);
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) - other.get(i));
+        VecKernels.sub(this.data, start, other.data, other.start, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec mul(Vec other) {
-        if (this.size() != other.size()) {
-            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
-        }
+        return mul(other, defaultPolicy);
+    }
+
+    public Vec mul(Vec other, ExecutionPolicy policy) {
+        requireSameSize(other);
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) * other.get(i));
+        VecKernels.mul(this.data, start, other.data, other.start, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec div(Vec other) {
-        if (this.size() != other.size()) {
-            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
-        }
+        return div(other, defaultPolicy);
+    }
+
+    public Vec div(Vec other, ExecutionPolicy policy) {
+        requireSameSize(other);
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) / other.get(i));
+        VecKernels.div(this.data, start, other.data, other.start, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec add(double value) {
+        return add(value, defaultPolicy);
+    }
+
+    public Vec add(double value, ExecutionPolicy policy) {
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) + value);
+        VecKernels.add(this.data, start, value, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec sub(double value) {
+        return sub(value, defaultPolicy);
+    }
+
+    public Vec sub(double value, ExecutionPolicy policy) {
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) - value);
+        VecKernels.sub(this.data, start, value, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec mul(double value) {
+        return mul(value, defaultPolicy);
+    }
+
+    public Vec mul(double value, ExecutionPolicy policy) {
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) * value);
+        VecKernels.mul(this.data, start, value, result, 0, size, policy);
         return new Vec(result);
     }
 
     public Vec div(double value) {
+        return div(value, defaultPolicy);
+    }
+
+    public Vec div(double value, ExecutionPolicy policy) {
         double[] result = new double[this.size()];
-        IntStream.range(0, this.size())
-                .parallel()
-                .forEach(i -> result[i] = this.get(i) / value);
+        VecKernels.div(this.data, start, value, result, 0, size, policy);
         return new Vec(result);
     }
 
     /**
-     * Expands the vector by adding a value at the beginning.
+     * Adds the other vector to this vector in place.
+     * @param other the other vector
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec addInPlace(Vec other) {
+        requireSameSize(other);
+        VecKernels.add(this.data, start, other.data, other.start, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Subtracts the other vector from this vector in place.
+     * @param other the other vector
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec subInPlace(Vec other) {
+        requireSameSize(other);
+        VecKernels.sub(this.data, start, other.data, other.start, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Multiplies element-wise by the other vector, in place.
+     * @param other the other vector
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec mulInPlace(Vec other) {
+        requireSameSize(other);
+        VecKernels.mul(this.data, start, other.data, other.start, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Divides element-wise by the other vector, in place.
+     * @param other the other vector
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec divInPlace(Vec other) {
+        requireSameSize(other);
+        VecKernels.div(this.data, start, other.data, other.start, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Adds a value to every component, in place.
+     * @param value the scalar operand
+     * @return this vector
+     */
+    public Vec addInPlace(double value) {
+        VecKernels.add(this.data, start, value, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Subtracts a value from every component, in place.
+     * @param value the scalar operand
+     * @return this vector
+     */
+    public Vec subInPlace(double value) {
+        VecKernels.sub(this.data, start, value, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Multiplies every component by a value, in place.
+     * @param value the scalar operand
+     * @return this vector
+     */
+    public Vec scaleInPlace(double value) {
+        VecKernels.mul(this.data, start, value, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Divides every component by a value, in place.
+     * @param value the scalar operand
+     * @return this vector
+     */
+    public Vec divInPlace(double value) {
+        VecKernels.div(this.data, start, value, this.data, start, size(), defaultPolicy);
+        return this;
+    }
+
+    /**
+     * Writes this + other into out without allocating; out may be this or other.
+     * @param other the other vector
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec add(Vec other, Vec out) {
+        requireSameSize(other);
+        requireSameSize(out);
+        VecKernels.add(this.data, start, other.data, other.start, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this - other into out without allocating; out may be this or other.
+     * @param other the other vector
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec sub(Vec other, Vec out) {
+        requireSameSize(other);
+        requireSameSize(out);
+        VecKernels.sub(this.data, start, other.data, other.start, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this * other into out without allocating; out may be this or other.
+     * @param other the other vector
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec mul(Vec other, Vec out) {
+        requireSameSize(other);
+        requireSameSize(out);
+        VecKernels.mul(this.data, start, other.data, other.start, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this / other into out without allocating; out may be this or other.
+     * @param other the other vector
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec div(Vec other, Vec out) {
+        requireSameSize(other);
+        requireSameSize(out);
+        VecKernels.div(this.data, start, other.data, other.start, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this + value into out without allocating; out may be this.
+     * @param value the scalar operand
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec add(double value, Vec out) {
+        requireSameSize(out);
+        VecKernels.add(this.data, start, value, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this - value into out without allocating; out may be this.
+     * @param value the scalar operand
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec sub(double value, Vec out) {
+        requireSameSize(out);
+        VecKernels.sub(this.data, start, value, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this * value into out without allocating; out may be this.
+     * @param value the scalar operand
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec mul(double value, Vec out) {
+        requireSameSize(out);
+        VecKernels.mul(this.data, start, value, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Writes this / value into out without allocating; out may be this.
+     * @param value the scalar operand
+     * @param out   the vector receiving the result
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec div(double value, Vec out) {
+        requireSameSize(out);
+        VecKernels.div(this.data, start, value, out.data, out.start, size(), defaultPolicy);
+        return out;
+    }
+
+    /**
+     * Adds alpha * x to this vector in place (BLAS axpy) in a single fused pass.
+     * @param alpha the scale of x
+     * @param x     the vector to add
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec axpy(double alpha, Vec x) {
+        return axpy(alpha, x, defaultPolicy);
+    }
+
+    public Vec axpy(double alpha, Vec x, ExecutionPolicy policy) {
+        requireSameSize(x);
+        VecKernels.axpy(alpha, x.data, x.start, this.data, start, size(), policy);
+        return this;
+    }
+
+    /**
+     * Replaces this vector with alpha * x + beta * this in a single fused pass.
+     * @param alpha the scale of x
+     * @param x     the vector to add
+     * @param beta  the scale of this vector
+     * @return this vector
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec axpby(double alpha, Vec x, double beta) {
+        return axpby(alpha, x, beta, defaultPolicy);
+    }
+
+    public Vec axpby(double alpha, Vec x, double beta, ExecutionPolicy policy) {
+        requireSameSize(x);
+        VecKernels.axpby(alpha, x.data, x.start, beta, this.data, start, size(), policy);
+        return this;
+    }
+
+    /**
+     * Linear interpolation between this vector (t = 0) and other (t = 1).
+     * @param other the vector to interpolate towards
+     * @param t     the interpolation parameter
+     * @return a new vector holding this + t * (other - this)
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec lerp(Vec other, double t) {
+        return lerp(other, t, new Vec(size()));
+    }
+
+    /**
+     * Writes the linear interpolation between this vector and other into out; out may be this or other.
+     * @return out
+     * @throws IllegalArgumentException if the vectors have different lengths
+     */
+    public Vec lerp(Vec other, double t, Vec out) {
+        return lerp(other, t, out, defaultPolicy);
+    }
+
+    public Vec lerp(Vec other, double t, Vec out, ExecutionPolicy policy) {
+        requireSameSize(other);
+        requireSameSize(out);
+        VecKernels.lerp(this.data, start, other.data, other.start, t, out.data, out.start, size(), policy);
+        return out;
+    }
+
+    /**
+     * Starts a lazy expression with this vector as its operand. Operations on the
+     * expression are only recorded, and its terminal operations evaluate all of
+     * them in a single pass without intermediate vectors.
+     * @return the expression
+     * @see VecExpr
+     */
+    public VecExpr lazy() {
+        return VecExpr.of(this);
+    }
+
+    private void requireSameSize(Vec other) {
+        if (this.size() != other.size()) {
+            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
+        }
+    }
+
+    /**
+     * Expands the vector by adding a value at the beginning. Runs in amortized
+     * constant time: the spare room before the components is used first, and when
+     * it runs out the array is reallocated with room proportional to the size.
      * @param value the value to be added at the beginning of the vector
      */
     public void expandStart(double value) {
-        double[] newData = new double[data.length + 1];
-        newData[0] = value;
-        System.arraycopy(data, 0, newData, 1, data.length);
-        data = newData;
+        if (start == 0) {
+            grow(Math.max(size, MIN_GROWTH), data.length - size);
+        }
+        data[--start] = value;
+        size++;
     }
 
     /**
-     * Expands the vector by adding a value at the end.
+     * Expands the vector by adding a value at the end. Runs in amortized constant
+     * time, like expandStart.
      * @param value the value to be added at the end of the vector
      */
     public void expandEnd(double value) {
-        double[] newData = Arrays.copyOf(data, data.length + 1);
-        newData[data.length] = value;
-        data = newData;
+        if (start + size == data.length) {
+            grow(start, Math.max(size, MIN_GROWTH));
+        }
+        data[start + size++] = value;
     }
 
     /**
-     * Shrinks the vector by removing the first value.
+     * Shrinks the vector by removing the first value. The freed slot stays as spare
+     * room for a later expandStart.
      * @throws IllegalStateException if the vector has only one element
      */
     public void shrinkStart() {
-        if (data.length <= 1) {
+        if (size <= 1) {
             throw new IllegalStateException("Vector cannot be further shrunk");
         }
-        double[] newData = new double[data.length - 1];
-        System.arraycopy(data, 1, newData, 0, data.length - 1);
-        data = newData;
+        start++;
+        size--;
     }
 
     /**
-     * Shrinks the vector by removing the last value.
+     * Shrinks the vector by removing the last value. The freed slot stays as spare
+     * room for a later expandEnd.
      * @throws IllegalStateException if the vector has only one element
      */
     public void shrinkEnd() {
-        if (data.length <= 1) {
+        if (size <= 1) {
             throw new IllegalStateException("Vector cannot be further shrunk");
         }
-        data = Arrays.copyOf(data, data.length - 1);
+        size--;
+    }
+
+    private void grow(int headRoom, int tailRoom) {
+        double[] newData = new double[headRoom + size + tailRoom];
+        System.arraycopy(data, start, newData, headRoom, size);
+        data = newData;
+        start = headRoom;
     }
 
     /**
@@ -241,9 +616,9 @@ public class Vec {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder("(");
-        for (int i = 0; i < data.length; i++) {
-            sb.append(data[i]);
-            if (i < data.length - 1) {
+        for (int i = 0; i < size; i++) {
+            sb.append(data[start + i]);
+            if (i < size - 1) {
                 sb.append(", ");
             }
         }
@@ -10,7 +10,7 @@ public class Vec2 extends Vec implements Comparable<Vec2> {
      */
     private class Vec2PolarAngleComparator implements Comparator<Vec2> {
         public int compare(Vec2 v1, Vec2 v2) {
-            return -Vec2.isTurnedCW(Vec2.this, v1, v2);
+            return Predicates.orientation(getX(), getY(), v1.getX(), v1.getY(), v2.getX(), v2.getY());
         }
     }
 
@@ -23,19 +23,19 @@ public class Vec2 extends Vec implements Comparable<Vec2> {
     }
 
     public double getX() {
-        return data[0];
+        return data[start];
     }
 
     public double getY() {
-        return data[1];
+        return data[start + 1];
     }
 
     public void setX(double value) {
-        data[0] = value;
+        data[start] = value;
     }
 
     public void setY(double value) {
-        data[1] = value;
+        data[start + 1] = value;
     }
 
     public int compareTo(Vec2 other) {
@@ -56,19 +56,16 @@ public class Vec2 extends Vec implements Comparable<Vec2> {
      * @return (1): CW, (-1): CCW, (0): collinear
      */
     public static int isTurnedCW(Vec2 a, Vec2 b, Vec2 c) {
-        // convert 2D to 3D
-        Vec va = new Vec(a.getX(), a.getY(), 0.0);
-        Vec vb = new Vec(b.getX(), b.getY(), 0.0);
-        Vec vc = new Vec(c.getX(), c.getY(), 0.0);
-
-        // compute the cross product and analyze its z-component
-        Vec ba = va.sub(vb);
-        Vec bc = vc.sub(vb);
-        double cross = ba.cross(bc).get(2); // z-component f the cross product
+        return isTurnedCW(a.getX(), a.getY(), b.getX(), b.getY(), c.getX(), c.getY());
+    }
 
-        return (Math.abs(cross) < Utils.EPS)
-                ? 0 // collinear
-                : ((cross > 0) ? 1 : -1); // CW > 0, CCW < 0
+    /**
+     * Checks what kind of turn the sequence of points a-b-c makes, without creating objects.
+     * The sign is exact, so nearly collinear points are classified correctly at any magnitude.
+     * @return (1): CW, (-1): CCW, (0): collinear
+     */
+    public static int isTurnedCW(double ax, double ay, double bx, double by, double cx, double cy) {
+        return -Predicates.orientation(ax, ay, bx, by, cx, cy);
     }
 
     /**
@@ -0,0 +1,432 @@
+/**
+ * A lazily evaluated element-wise expression over Vec operands, such as
+ * a.lazy().add(b).mul(c.lazy().sub(d)).div(s).
+ * <p>
+ * Building an expression only records the operations. A terminal operation,
+ * eval(), into(Vec) or one of the reductions dot(), length() and sum(), then runs
+ * the whole tree in one pass over the operands: the range is cut into blocks that
+ * fit the L1 cache, every node computes its block into a small scratch buffer,
+ * and only the result is written to memory. Operands are read once and no
+ * intermediate vector is allocated. The blocks are grouped into the chunks of the
+ * ExecutionPolicy, which run in parallel for long vectors.
+ * <p>
+ * The operands are read when the expression is evaluated, not when it is built,
+ * so an expression can be evaluated again after the values of its operands
+ * change; their sizes must stay the same. Expressions are immutable and can be
+ * shared between threads.
+ */
+public abstract class VecExpr {
+    /** The number of elements computed by one node at a time. */
+    static final int BLOCK_SIZE = 1 << 10;
+    private static final String SAME_LEN_MESSAGE = "Vectors must have the same length";
+
+    private static final int ADD = 0;
+    private static final int SUB = 1;
+    private static final int MUL = 2;
+    private static final int DIV = 3;
+
+    final int size;
+    final int depth;  // the number of scratch blocks the node needs below its output
+
+    VecExpr(int size, int depth) {
+        this.size = size;
+        this.depth = depth;
+    }
+
+    /**
+     * Starts an expression with the given vector as its operand.
+     * @param vec the operand, read when the expression is evaluated
+     * @return the expression
+     */
+    public static VecExpr of(Vec vec) {
+        return new Leaf(vec);
+    }
+
+    /**
+     * Returns the number of elements of the result.
+     */
+    public int size() {
+        return size;
+    }
+
+    public VecExpr add(VecExpr other) {
+        return new Binary(ADD, this, other);
+    }
+
+    public VecExpr add(Vec other) {
+        return add(of(other));
+    }
+
+    public VecExpr add(double value) {
+        return new Scalar(ADD, this, value);
+    }
+
+    public VecExpr sub(VecExpr other) {
+        return new Binary(SUB, this, other);
+    }
+
+    public VecExpr sub(Vec other) {
+        return sub(of(other));
+    }
+
+    public VecExpr sub(double value) {
+        return new Scalar(SUB, this, value);
+    }
+
+    public VecExpr mul(VecExpr other) {
+        return new Binary(MUL, this, other);
+    }
+
+    public VecExpr mul(Vec other) {
+        return mul(of(other));
+    }
+
+    public VecExpr mul(double value) {
+        return new Scalar(MUL, this, value);
+    }
+
+    public VecExpr div(VecExpr other) {
+        return new Binary(DIV, this, other);
+    }
+
+    public VecExpr div(Vec other) {
+        return div(of(other));
+    }
+
+    public VecExpr div(double value) {
+        return new Scalar(DIV, this, value);
+    }
+
+    /**
+     * Negates every element.
+     */
+    public VecExpr negate() {
+        return new Scalar(MUL, this, -1);
+    }
+
+    /**
+     * Evaluates the expression into a new vector with the default policy of Vec.
+     * @return the result
+     */
+    public Vec eval() {
+        return eval(Vec.getDefaultPolicy());
+    }
+
+    /**
+     * Evaluates the expression into a new vector.
+     * @param policy how to execute the pass
+     * @return the result
+     */
+    public Vec eval(ExecutionPolicy policy) {
+        double[] result = new double[size];
+        policy.forEachChunk(size, (from, to) -> {
+            double[][] scratch = new double[depth][BLOCK_SIZE];
+            for (int i = from; i < to; i += BLOCK_SIZE) {
+                evalInto(i, Math.min(BLOCK_SIZE, to - i), result, i, scratch, 0);
+            }
+        });
+        return new Vec(result);
+    }
+
+    /**
+     * Evaluates the expression into out with the default policy of Vec.
+     * @see #into(Vec, ExecutionPolicy)
+     */
+    public Vec into(Vec out) {
+        return into(out, Vec.getDefaultPolicy());
+    }
+
+    /**
+     * Evaluates the expression into an existing vector, which may also be one of its operands.
+     * @param out    the vector receiving the result
+     * @param policy how to execute the pass
+     * @return out
+     * @throws IllegalArgumentException if out has a different length
+     */
+    public Vec into(Vec out, ExecutionPolicy policy) {
+        if (out.size() != size) {
+            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
+        }
+        double[] target = out.data;
+        // an operand that is also the target must be read before its block is overwritten
+        boolean aliased = reads(target);
+        policy.forEachChunk(size, (from, to) -> {
+            double[][] scratch = new double[depth + (aliased ? 1 : 0)][BLOCK_SIZE];
+            for (int i = from; i < to; i += BLOCK_SIZE) {
+                int n = Math.min(BLOCK_SIZE, to - i);
+                if (aliased) {
+                    double[] block = scratch[depth];
+                    evalInto(i, n, block, 0, scratch, 0);
+                    System.arraycopy(block, 0, target, out.start + i, n);
+                } else {
+                    evalInto(i, n, target, out.start + i, scratch, 0);
+                }
+            }
+        });
+        return out;
+    }
+
+    /**
+     * Computes the dot product of this expression and another one in the same pass.
+     * @throws IllegalArgumentException if the expressions have different lengths
+     */
+    public double dot(VecExpr other) {
+        return dot(other, Vec.getDefaultPolicy());
+    }
+
+    public double dot(Vec other) {
+        return dot(of(other));
+    }
+
+    public double dot(VecExpr other, ExecutionPolicy policy) {
+        requireSameSize(this, other);
+        return reduce(other, policy);
+    }
+
+    /**
+     * Computes the Euclidean length of the result without storing it.
+     */
+    public double length() {
+        return length(Vec.getDefaultPolicy());
+    }
+
+    public double length(ExecutionPolicy policy) {
+        return Math.sqrt(reduce(this, policy));
+    }
+
+    /**
+     * Computes the sum of the elements of the result without storing it.
+     */
+    public double sum() {
+        return sum(Vec.getDefaultPolicy());
+    }
+
+    public double sum(ExecutionPolicy policy) {
+        return reduce(null, policy);
+    }
+
+    /**
+     * Sums this[i] * other[i], this[i] * this[i] if other is this, or this[i] if other is null.
+     */
+    private double reduce(VecExpr other, ExecutionPolicy policy) {
+        int otherDepth = other == null ? 0 : other.depth;
+        ExecutionPolicy.RangeReduction range = (from, to) -> {
+            double[][] scratch = new double[2 + Math.max(depth, otherDepth)][BLOCK_SIZE];
+            double s0 = 0;
+            double s1 = 0;
+            for (int i = from; i < to; i += BLOCK_SIZE) {
+                int n = Math.min(BLOCK_SIZE, to - i);
+                double[] a = block(this, i, n, scratch, 0);
+                int aOff = blockOffset(this, i);
+                if (other == null) {
+                    for (int k = 0; k < n; k++) {
+                        s0 += a[aOff + k];
+                    }
+                } else if (other == this) {
+                    int k = 0;
+                    for (; k + 1 < n; k += 2) {
+                        s0 += a[aOff + k] * a[aOff + k];
+                        s1 += a[aOff + k + 1] * a[aOff + k + 1];
+                    }
+                    for (; k < n; k++) {
+                        s0 += a[aOff + k] * a[aOff + k];
+                    }
+                } else {
+                    double[] b = block(other, i, n, scratch, 1);
+                    int bOff = blockOffset(other, i);
+                    int k = 0;
+                    for (; k + 1 < n; k += 2) {
+                        s0 += a[aOff + k] * b[bOff + k];
+                        s1 += a[aOff + k + 1] * b[bOff + k + 1];
+                    }
+                    for (; k < n; k++) {
+                        s0 += a[aOff + k] * b[bOff + k];
+                    }
+                }
+            }
+            return s0 + s1;
+        };
+        return policy.sumChunks(size, range);
+    }
+
+    /**
+     * Returns the array holding the block [from, from + n) of an expression: the
+     * operand's backing array for a leaf or scratch[slot]; blockOffset tells where
+     * the block starts in it.
+     */
+    private static double[] block(VecExpr expr, int from, int n, double[][] scratch, int slot) {
+        if (expr instanceof Leaf) {
+            return ((Leaf) expr).vec.data;
+        }
+        expr.evalInto(from, n, scratch[slot], 0, scratch, 2);
+        return scratch[slot];
+    }
+
+    private static int blockOffset(VecExpr expr, int from) {
+        return expr instanceof Leaf ? ((Leaf) expr).vec.start + from : 0;
+    }
+
+    private static void requireSameSize(VecExpr a, VecExpr b) {
+        if (a.size != b.size) {
+            throw new IllegalArgumentException(SAME_LEN_MESSAGE);
+        }
+    }
+
+    /**
+     * Writes the elements [from, from + n) of the expression to out[outOff..outOff+n).
+     * Nested operands use scratch[level] and above; n is at most BLOCK_SIZE.
+     */
+    abstract void evalInto(int from, int n, double[] out, int outOff, double[][] scratch, int level);
+
+    /**
+     * Tells whether the expression reads the given array.
+     */
+    abstract boolean reads(double[] array);
+
+    private static final class Leaf extends VecExpr {
+        final Vec vec;
+
+        Leaf(Vec vec) {
+            super(vec.size(), 0);
+            this.vec = vec;
+        }
+
+        @Override
+        void evalInto(int from, int n, double[] out, int outOff, double[][] scratch, int level) {
+            System.arraycopy(vec.data, vec.start + from, out, outOff, n);
+        }
+
+        @Override
+        boolean reads(double[] array) {
+            return vec.data == array;
+        }
+    }
+
+    /**
+     * An element-wise operation of two expressions. The left operand is computed
+     * into the output, the right one into a scratch block unless it is a leaf,
+     * which is read in place.
+     */
+    private static final class Binary extends VecExpr {
+        private final int op;
+        private final VecExpr left;
+        private final VecExpr right;
+
+        Binary(int op, VecExpr left, VecExpr right) {
+            super(left.size, Math.max(left.depth, right instanceof Leaf ? 0 : right.depth + 1));
+            requireSameSize(left, right);
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void evalInto(int from, int n, double[] out, int outOff, double[][] scratch, int level) {
+            double[] a;
+            int aOff;
+            if (left instanceof Leaf) {
+                a = ((Leaf) left).vec.data;
+                aOff = ((Leaf) left).vec.start + from;
+            } else {
+                left.evalInto(from, n, out, outOff, scratch, level);
+                a = out;
+                aOff = outOff;
+            }
+            double[] b;
+            int bOff;
+            if (right instanceof Leaf) {
+                b = ((Leaf) right).vec.data;
+                bOff = ((Leaf) right).vec.start + from;
+            } else {
+                b = scratch[level];
+                bOff = 0;
+                right.evalInto(from, n, b, 0, scratch, level + 1);
+            }
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] + b[bOff + i];
+                    }
+                    break;
+                case SUB:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] - b[bOff + i];
+                    }
+                    break;
+                case MUL:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] * b[bOff + i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] / b[bOff + i];
+                    }
+                    break;
+            }
+        }
+
+        @Override
+        boolean reads(double[] array) {
+            return left.reads(array) || right.reads(array);
+        }
+    }
+
+    /**
+     * An operation of an expression and a constant.
+     */
+    private static final class Scalar extends VecExpr {
+        private final int op;
+        private final VecExpr operand;
+        private final double value;
+
+        Scalar(int op, VecExpr operand, double value) {
+            super(operand.size, operand.depth);
+            this.op = op;
+            this.operand = operand;
+            this.value = value;
+        }
+
+        @Override
+        void evalInto(int from, int n, double[] out, int outOff, double[][] scratch, int level) {
+            double[] a;
+            int aOff;
+            if (operand instanceof Leaf) {
+                a = ((Leaf) operand).vec.data;
+                aOff = ((Leaf) operand).vec.start + from;
+            } else {
+                operand.evalInto(from, n, out, outOff, scratch, level);
+                a = out;
+                aOff = outOff;
+            }
+            double v = value;
+            switch (op) {
+                case ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] + v;
+                    }
+                    break;
+                case SUB:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] - v;
+                    }
+                    break;
+                case MUL:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] * v;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[outOff + i] = a[aOff + i] / v;
+                    }
+                    break;
+            }
+        }
+
+        @Override
+        boolean reads(double[] array) {
+            return operand.reads(array);
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Loops behind the Vec arithmetic, working on array ranges (array, offset, length).
+ * Every kernel hands its range to ExecutionPolicy.forEachChunk (or sumChunks),
+ * which runs the loop once over the whole range when the policy says it is small
+ * and otherwise once per chunk in parallel.
+ * The loops of the basic kernels hand long ranges to VectorizedKernels when the
+ * running JDK supports the Vector API.
+ */
+final class VecKernels {
+
+    private VecKernels() {
+    }
+
+    /**
+     * Dot product of a[aOff..aOff+n) and b[bOff..bOff+n).
+     */
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n, ExecutionPolicy policy) {
+        return policy.sumChunks(n, (from, to) -> dot(a, aOff + from, b, bOff + from, to - from));
+    }
+
+    private static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        if (VectorizedKernels.ENABLED && n >= VectorizedKernels.MIN_LENGTH) {
+            return VectorizedKernels.dot(a, aOff, b, bOff, n);
+        }
+        // four independent sums let the CPU overlap the additions
+        double s0 = 0;
+        double s1 = 0;
+        double s2 = 0;
+        double s3 = 0;
+        int i = 0;
+        for (; i + 3 < n; i += 4) {
+            s0 += a[aOff + i] * b[bOff + i];
+            s1 += a[aOff + i + 1] * b[bOff + i + 1];
+            s2 += a[aOff + i + 2] * b[bOff + i + 2];
+            s3 += a[aOff + i + 3] * b[bOff + i + 3];
+        }
+        for (; i < n; i++) {
+            s0 += a[aOff + i] * b[bOff + i];
+        }
+        return (s0 + s1) + (s2 + s3);
+    }
+
+    /**
+     * Sum of the squares of a[off..off+n).
+     */
+    static double sumOfSquares(double[] a, int off, int n, ExecutionPolicy policy) {
+        return dot(a, off, a, off, n, policy);
+    }
+
+    /**
+     * Element-wise sum: out[outOff + i] = a[aOff + i] + b[bOff + i] for i in [0, n).
+     */
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n,
+                    ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.add(a, aOff + from, b, bOff + from, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] + b[bOff + i];
+            }
+        });
+    }
+
+    /**
+     * Element-wise difference: out[outOff + i] = a[aOff + i] - b[bOff + i] for i in [0, n).
+     */
+    static void sub(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n,
+                    ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.sub(a, aOff + from, b, bOff + from, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] - b[bOff + i];
+            }
+        });
+    }
+
+    /**
+     * Element-wise product: out[outOff + i] = a[aOff + i] * b[bOff + i] for i in [0, n).
+     */
+    static void mul(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n,
+                    ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.mul(a, aOff + from, b, bOff + from, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] * b[bOff + i];
+            }
+        });
+    }
+
+    /**
+     * Element-wise quotient: out[outOff + i] = a[aOff + i] / b[bOff + i] for i in [0, n).
+     */
+    static void div(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n,
+                    ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.div(a, aOff + from, b, bOff + from, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] / b[bOff + i];
+            }
+        });
+    }
+
+    /**
+     * Element-wise sum with a scalar: out[outOff + i] = a[aOff + i] + value for i in [0, n).
+     */
+    static void add(double[] a, int aOff, double value, double[] out, int outOff, int n, ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.add(a, aOff + from, value, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] + value;
+            }
+        });
+    }
+
+    /**
+     * Element-wise difference with a scalar: out[outOff + i] = a[aOff + i] - value for i in [0, n).
+     */
+    static void sub(double[] a, int aOff, double value, double[] out, int outOff, int n, ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.sub(a, aOff + from, value, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] - value;
+            }
+        });
+    }
+
+    /**
+     * Element-wise product with a scalar: out[outOff + i] = a[aOff + i] * value for i in [0, n).
+     */
+    static void mul(double[] a, int aOff, double value, double[] out, int outOff, int n, ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.mul(a, aOff + from, value, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] * value;
+            }
+        });
+    }
+
+    /**
+     * Element-wise quotient with a scalar: out[outOff + i] = a[aOff + i] / value for i in [0, n).
+     */
+    static void div(double[] a, int aOff, double value, double[] out, int outOff, int n, ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            if (VectorizedKernels.ENABLED && to - from >= VectorizedKernels.MIN_LENGTH) {
+                VectorizedKernels.div(a, aOff + from, value, out, outOff + from, to - from);
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                out[outOff + i] = a[aOff + i] / value;
+            }
+        });
+    }
+
+    /**
+     * Fused y = alpha * x + y over n elements, one pass with Math.fma.
+     */
+    static void axpy(double alpha, double[] x, int xOff, double[] y, int yOff, int n, ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                y[yOff + i] = Math.fma(alpha, x[xOff + i], y[yOff + i]);
+            }
+        });
+    }
+
+    /**
+     * Fused y = alpha * x + beta * y over n elements, one pass with Math.fma.
+     */
+    static void axpby(double alpha, double[] x, int xOff, double beta, double[] y, int yOff, int n,
+                      ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                y[yOff + i] = Math.fma(alpha, x[xOff + i], beta * y[yOff + i]);
+            }
+        });
+    }
+
+    /**
+     * Fused linear interpolation out = a + t * (b - a) over n elements, one pass with Math.fma.
+     */
+    static void lerp(double[] a, int aOff, double[] b, int bOff, double t, double[] out, int outOff, int n,
+                     ExecutionPolicy policy) {
+        policy.forEachChunk(n, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                double start = a[aOff + i];
+                out[outOff + i] = Math.fma(t, b[bOff + i] - start, start);
+            }
+        });
+    }
+}
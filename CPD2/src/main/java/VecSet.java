@@ -0,0 +1,93 @@
+/**
+ * A set of points of any dimension stored row by row in one primitive array:
+ * coordinate k of point i sits at i * dimension + k.
+ */
+public final class VecSet {
+    private final double[] coords;
+    private final int dimension;
+
+    /**
+     * Wraps the given coordinates without copying them.
+     * @param coords    the coordinates, row by row
+     * @param dimension the number of coordinates of each point
+     * @throws IllegalArgumentException if the dimension is not positive or does not divide the array length
+     */
+    public VecSet(double[] coords, int dimension) {
+        if (dimension < 1 || coords.length % dimension != 0) {
+            throw new IllegalArgumentException("The array length must be a multiple of a positive dimension");
+        }
+        this.coords = coords;
+        this.dimension = dimension;
+    }
+
+    /**
+     * Copies the components of the given vectors into a new set.
+     * @param points the points, all of the same size
+     * @return a set holding the same coordinates in the same order
+     * @throws IllegalArgumentException if there are no points or their sizes differ
+     */
+    public static VecSet of(Vec[] points) {
+        if (points.length == 0) {
+            throw new IllegalArgumentException("At least one point is required to know the dimension");
+        }
+        int dimension = points[0].size();
+        double[] coords = new double[Math.multiplyExact(points.length, dimension)];
+        for (int i = 0; i < points.length; i++) {
+            if (points[i].size() != dimension) {
+                throw new IllegalArgumentException("All points must have the same dimension");
+            }
+            for (int k = 0; k < dimension; k++) {
+                coords[i * dimension + k] = points[i].get(k);
+            }
+        }
+        return new VecSet(coords, dimension);
+    }
+
+    /**
+     * Returns the number of points in the set.
+     * @return the number of points
+     */
+    public int size() {
+        return coords.length / dimension;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * Returns coordinate k of point i.
+     */
+    public double get(int i, int k) {
+        return coords[i * dimension + k];
+    }
+
+    /**
+     * Returns the backing array; changes are visible to the set.
+     * @return the coordinates, row by row
+     */
+    public double[] coords() {
+        return coords;
+    }
+
+    /**
+     * Creates a new Vec holding the coordinates of the point at the given index.
+     * @param index the index of the point
+     * @return the point as a Vec
+     */
+    public Vec toVec(int index) {
+        double[] components = new double[dimension];
+        System.arraycopy(coords, index * dimension, components, 0, dimension);
+        return new Vec(components);
+    }
+
+    /**
+     * Returns the squared Euclidean distance between two points of the set.
+     * @param i index of the first point
+     * @param j index of the second point
+     * @return the squared distance
+     */
+    public double distanceSquared(int i, int j) {
+        return SquaredDistance.forDimension(dimension).between(coords, i * dimension, coords, j * dimension);
+    }
+}
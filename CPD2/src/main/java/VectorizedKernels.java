@@ -0,0 +1,70 @@
+/**
+ * Hook for SIMD versions of the sequential Vec kernels.
+ * The Vector API does not exist on Java 11, so this baseline version is never
+ * enabled and VecKernels runs its scalar loops. Its methods run those same loops,
+ * so a caller that skips the ENABLED check still gets correct results. The
+ * multi-release JAR carries a Java 17 version of this class (src/main/java17)
+ * that enables itself when the jdk.incubator.vector module is present at run time.
+ */
+final class VectorizedKernels {
+    /** Whether the methods below are faster than the scalar loops. */
+    static final boolean ENABLED = enabled();
+    /** Ranges shorter than this stay on the scalar loops. */
+    static final int MIN_LENGTH = minLength();
+
+    private VectorizedKernels() {
+    }
+
+    // Both fields are set through methods so that they are not compile-time constants:
+    // javac would copy constants into VecKernels, which then never reads the Java 17 values.
+    private static boolean enabled() {
+        return false;
+    }
+
+    private static int minLength() {
+        return 32;
+    }
+
+    /**
+     * Tells whether a kernel has run on the Vector API, which this version never does.
+     */
+    static boolean vectorApiUsed() {
+        return false;
+    }
+
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        return VecKernels.dot(a, aOff, b, bOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        VecKernels.add(a, aOff, b, bOff, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void sub(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        VecKernels.sub(a, aOff, b, bOff, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void mul(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        VecKernels.mul(a, aOff, b, bOff, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void div(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        VecKernels.div(a, aOff, b, bOff, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void add(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        VecKernels.add(a, aOff, value, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void sub(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        VecKernels.sub(a, aOff, value, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void mul(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        VecKernels.mul(a, aOff, value, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+
+    static void div(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        VecKernels.div(a, aOff, value, out, outOff, n, ExecutionPolicy.SEQUENTIAL);
+    }
+}
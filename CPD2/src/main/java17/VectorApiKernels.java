@@ -0,0 +1,137 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vec kernels written against the Vector API. Every loop processes whole
+ * vectors of the preferred species and finishes the remaining elements with
+ * scalar code. Only called through VectorizedKernels once it has checked that
+ * the jdk.incubator.vector module is present.
+ */
+final class VectorApiKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorApiKernels() {
+    }
+
+    static int laneCount() {
+        return SPECIES.length();
+    }
+
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        int step = SPECIES.length();
+        // two accumulators hide the latency of the vector additions
+        DoubleVector s0 = DoubleVector.zero(SPECIES);
+        DoubleVector s1 = DoubleVector.zero(SPECIES);
+        int i = 0;
+        for (; i + 2 * step <= n; i += 2 * step) {
+            DoubleVector a0 = DoubleVector.fromArray(SPECIES, a, aOff + i);
+            DoubleVector b0 = DoubleVector.fromArray(SPECIES, b, bOff + i);
+            DoubleVector a1 = DoubleVector.fromArray(SPECIES, a, aOff + i + step);
+            DoubleVector b1 = DoubleVector.fromArray(SPECIES, b, bOff + i + step);
+            s0 = a0.mul(b0).add(s0);
+            s1 = a1.mul(b1).add(s1);
+        }
+        double sum = s0.add(s1).reduceLanes(VectorOperators.ADD);
+        for (; i < n; i++) {
+            sum += a[aOff + i] * b[bOff + i];
+        }
+        return sum;
+    }
+
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i)
+                    .add(DoubleVector.fromArray(SPECIES, b, bOff + i))
+                    .intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] + b[bOff + i];
+        }
+    }
+
+    static void sub(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i)
+                    .sub(DoubleVector.fromArray(SPECIES, b, bOff + i))
+                    .intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] - b[bOff + i];
+        }
+    }
+
+    static void mul(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i)
+                    .mul(DoubleVector.fromArray(SPECIES, b, bOff + i))
+                    .intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] * b[bOff + i];
+        }
+    }
+
+    static void div(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i)
+                    .div(DoubleVector.fromArray(SPECIES, b, bOff + i))
+                    .intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] / b[bOff + i];
+        }
+    }
+
+    static void add(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).add(value).intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] + value;
+        }
+    }
+
+    static void sub(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).sub(value).intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] - value;
+        }
+    }
+
+    static void mul(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).mul(value).intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] * value;
+        }
+    }
+
+    static void div(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        int bound = SPECIES.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOff + i).div(value).intoArray(out, outOff + i);
+        }
+        for (; i < n; i++) {
+            out[outOff + i] = a[aOff + i] / value;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/**
+ * SIMD versions of the sequential Vec kernels, selected from the multi-release JAR
+ * on Java 17 and later. The kernels themselves live in VectorApiKernels; this class
+ * only checks whether they can run, so that the JVM never links the Vector API
+ * classes when the jdk.incubator.vector module was not added at start-up
+ * (--add-modules jdk.incubator.vector). Without it, or with
+ * -Dcpd2.vectorApi=false, VecKernels keeps running its scalar loops.
+ */
+final class VectorizedKernels {
+    /** Whether the methods below may be called. */
+    static final boolean ENABLED = probe();
+    /** Ranges shorter than this stay on the scalar loops. */
+    static final int MIN_LENGTH = 32;
+
+    // set by every kernel, so a test can tell that VecKernels reached this class
+    private static boolean used;
+
+    private VectorizedKernels() {
+    }
+
+    /**
+     * Tells whether a kernel has run on the Vector API since the class was loaded.
+     */
+    static boolean vectorApiUsed() {
+        return used;
+    }
+
+    private static boolean probe() {
+        if (!Boolean.parseBoolean(System.getProperty("cpd2.vectorApi", "true"))) {
+            return false;
+        }
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        // a single lane means the platform has no usable vector registers
+        return VectorApiKernels.laneCount() > 1;
+    }
+
+    static double dot(double[] a, int aOff, double[] b, int bOff, int n) {
+        used = true;
+        return VectorApiKernels.dot(a, aOff, b, bOff, n);
+    }
+
+    static void add(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.add(a, aOff, b, bOff, out, outOff, n);
+    }
+
+    static void sub(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.sub(a, aOff, b, bOff, out, outOff, n);
+    }
+
+    static void mul(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.mul(a, aOff, b, bOff, out, outOff, n);
+    }
+
+    static void div(double[] a, int aOff, double[] b, int bOff, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.div(a, aOff, b, bOff, out, outOff, n);
+    }
+
+    static void add(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.add(a, aOff, value, out, outOff, n);
+    }
+
+    static void sub(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.sub(a, aOff, value, out, outOff, n);
+    }
+
+    static void mul(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.mul(a, aOff, value, out, outOff, n);
+    }
+
+    static void div(double[] a, int aOff, double value, double[] out, int outOff, int n) {
+        used = true;
+        VectorApiKernels.div(a, aOff, value, out, outOff, n);
+    }
+}
@@ -0,0 +1,146 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class CSVImporterTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String name, String content) throws IOException {
+        Path path = folder.newFile(name).toPath();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void testRoundTripWithWriter() throws IOException {
+        Random random = new Random(3);
+        double[] xs = new double[50000];
+        double[] ys = new double[50000];
+        double[] zs = new double[50000];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = random.nextDouble() * 1000;
+            ys[i] = Double.longBitsToDouble(random.nextLong() >>> 1);
+            zs[i] = -random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20);
+        }
+        Path path = folder.newFile("points.csv").toPath();
+        CSVExporter.writeColumns(path.toString(), ";", new String[]{"x", "y", "z"}, xs, ys, zs);
+
+        double[][] columns = CSVImporter.readColumns(path.toString(), ";", true);
+        assertEquals(3, columns.length);
+        assertArrayEquals(xs, columns[0], 0);
+        assertArrayEquals(ys, columns[1], 0);
+        assertArrayEquals(zs, columns[2], 0);
+
+        PointSet points = CSVImporter.readPoints(path.toString(), ";", true);
+        assertEquals(xs.length, points.size());
+        assertEquals(xs[123], points.getX(123), 0);
+        assertEquals(ys[123], points.getY(123), 0);
+        assertArrayEquals(new String[]{"x", "y", "z"}, CSVImporter.readHeader(path.toString(), ";"));
+    }
+
+    @Test
+    public void testLineEndingsAndEmptyLines() throws IOException {
+        Path path = write("crlf.csv", "\r\n1,2\r\n\r\n-3.5 , 4e2\r\n5,-0.0");
+        double[][] rows = CSVImporter.readFile(path.toString(), ",", false);
+        assertEquals(3, rows.length);
+        assertArrayEquals(new double[]{1, 2}, rows[0], 0);
+        assertArrayEquals(new double[]{-3.5, 400}, rows[1], 0);
+        assertArrayEquals(new double[]{5, -0.0}, rows[2], 0);
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(rows[2][1]));
+    }
+
+    @Test
+    public void testMultiCharacterDelimiterAndVec2() throws IOException {
+        Path path = write("tabs.csv", "a::b::c\n1::2::3\n4::5::6\n");
+        Vec2[] points = CSVImporter.readVec2(path.toString(), "::", true);
+        assertEquals(2, points.length);
+        assertEquals(4, points[1].getX(), 0);
+        assertEquals(5, points[1].getY(), 0);
+    }
+
+    @Test
+    public void testQuotedHeader() throws IOException {
+        Path path = folder.newFile("quoted.csv").toPath();
+        try (CSVWriter writer = new CSVWriter(path, ",")) {
+            writer.writeHeader("x", "a,b", "say \"hi\"");
+            writer.writeRow(1, 2, 3);
+        }
+        assertArrayEquals(new String[]{"x", "a,b", "say \"hi\""}, CSVImporter.readHeader(path.toString(), ","));
+        assertEquals(3, CSVImporter.readColumns(path.toString(), ",", true).length);
+    }
+
+    @Test
+    public void testHeaderWithLineBreaks() throws IOException {
+        Path path = folder.newFile("multiline.csv").toPath();
+        String[] names = {"first\nline", "x", "crlf\r\nname", "quote \"\n\" end"};
+        try (CSVWriter writer = new CSVWriter(path, "::")) {
+            writer.writeHeader(names);
+            writer.writeRow(1, 2, 3, 4);
+            writer.writeRow(5, 6, 7, 8);
+        }
+        assertArrayEquals(names, CSVImporter.readHeader(path.toString(), "::"));
+        double[][] columns = CSVImporter.readColumns(path.toString(), "::", true);
+        assertEquals(4, columns.length);
+        assertArrayEquals(new double[]{1, 5}, columns[0], 0);
+        assertArrayEquals(new double[]{4, 8}, columns[3], 0);
+        assertEquals(2, CSVImporter.readPoints(path.toString(), "::", true).size());
+
+        // a delimiter may end a quoted name without splitting it
+        Path colons = write("colons.csv", "\"a:\"::b\r\n1::2\r\n");
+        assertArrayEquals(new String[]{"a:", "b"}, CSVImporter.readHeader(colons.toString(), "::"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRaggedRowIsRejected() throws IOException {
+        Path path = write("ragged.csv", "1,2\n3\n");
+        CSVImporter.readColumns(path.toString(), ",", false);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testMalformedValueIsRejected() throws IOException {
+        Path path = write("text.csv", "1,2\n3,abc\n");
+        CSVImporter.readColumns(path.toString(), ",", false);
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        Path path = write("empty.csv", "");
+        assertEquals(0, CSVImporter.readColumns(path.toString(), ",", false).length);
+        assertEquals(0, CSVImporter.readPoints(path.toString(), ",", true).size());
+        assertEquals(0, CSVImporter.readHeader(path.toString(), ",").length);
+    }
+
+    @Test
+    public void testParserMatchesParseDouble() {
+        String[] inputs = {"0", "-0", "1", "0.1", "3.141592653589793", "1e23", "8.41e21", "9007199254740993",
+                "4.9E-324", "2.4703282292062327E-324", "2.2250738585072011E-308", "1.7976931348623157E308",
+                "1.8e308", "1e-400", "123456789012345678901234567890", "0.000000000000000000000123456789",
+                "1.00000000000000011102230246251565404236316680908203125", "+12.5E+3", "  7.25 ",
+                "NaN", "Infinity", "-Infinity", "5.", ".5"};
+        for (String input : inputs) {
+            byte[] bytes = input.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(input, Double.doubleToLongBits(Double.parseDouble(input)),
+                    Double.doubleToLongBits(DoubleParser.parse(bytes, 0, bytes.length)));
+        }
+        Random random = new Random(7);
+        for (int i = 0; i < 200000; i++) {
+            double value = Double.longBitsToDouble(random.nextLong());
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            String text = i % 2 == 0 ? Double.toString(value) : String.valueOf(random.nextInt()) + "." + random.nextInt(1000000) + "e" + (random.nextInt(80) - 40);
+            byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+            assertEquals(text, Double.doubleToLongBits(Double.parseDouble(text)),
+                    Double.doubleToLongBits(DoubleParser.parse(bytes, 0, bytes.length)));
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.DoubleStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class CSVWriterTest {
+    private static final String NL = System.lineSeparator();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String read(Path path) throws IOException {
+        return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteFileIncludesHeader() throws IOException {
+        Path path = folder.newFile("table.csv").toPath();
+        CSVExporter.writeFile(new double[][]{{1, 2.5}, {-0.1, 1e10}}, path.toString(), ";", new String[]{"x", "y"});
+        assertEquals("x;y" + NL + "1.0;2.5" + NL + "-0.1;1.0E10" + NL, read(path));
+
+        CSVExporter.writeFile(new double[][]{{3}}, path.toString(), ",", null);
+        assertEquals("3.0" + NL, read(path));
+    }
+
+    @Test
+    public void testShortestValuesRoundTrip() throws IOException {
+        Random random = new Random(1);
+        double[] values = new double[100000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i % 2 == 0
+                    ? Double.longBitsToDouble(random.nextLong())
+                    : random.nextDouble() * Math.pow(10, random.nextInt(30) - 15);
+        }
+        values[0] = Double.MIN_VALUE;
+        values[1] = -0.0;
+        values[2] = Double.MAX_VALUE;
+        values[3] = 0.1 + 0.2;
+        Path path = folder.newFile("values.csv").toPath();
+        try (CSVWriter writer = new CSVWriter(path, ",")) {
+            writer.writeRows(DoubleStream.of(values), 4);
+        }
+
+        String[] lines = read(path).split(NL);
+        assertEquals(values.length / 4, lines.length);
+        for (int i = 0; i < values.length; i++) {
+            String text = lines[i / 4].split(",")[i % 4];
+            assertEquals(Double.doubleToLongBits(values[i]), Double.doubleToLongBits(Double.parseDouble(text)));
+            assertTrue(text.length() <= Double.toString(values[i]).length());
+        }
+    }
+
+    @Test
+    public void testFixedPrecision() throws IOException {
+        Path path = folder.newFile("fixed.csv").toPath();
+        double[] values = {2.675, -0.001, 0, 1234.5678, 9.995, 1e20, -7, Double.NaN};
+        try (CSVWriter writer = new CSVWriter(path, ";", 2, false)) {
+            writer.writeRow(values);
+        }
+        StringBuilder expected = new StringBuilder();
+        for (double value : values) {
+            expected.append(expected.length() == 0 ? "" : ";")
+                    .append(Double.isNaN(value) ? "NaN" : String.format(Locale.ROOT, "%.2f", value));
+        }
+        assertEquals(expected + NL, read(path));
+    }
+
+    @Test
+    public void testGzipColumns() throws IOException {
+        Path path = folder.newFile("points.csv.gz").toPath();
+        double[] xs = new double[20000];
+        double[] ys = new double[20000];
+        StringBuilder expected = new StringBuilder("x,\"a,b\"" + NL);
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = i * 0.25;
+            ys[i] = -i;
+            expected.append(xs[i]).append(',').append(ys[i]).append(NL);
+        }
+        try (CSVWriter writer = new CSVWriter(path, ",", CSVWriter.SHORTEST, true)) {
+            writer.writeHeader("x", "a,b");
+            writer.writeColumns(xs, ys);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(path))) {
+            in.transferTo(out);
+        }
+        assertEquals(expected.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+}
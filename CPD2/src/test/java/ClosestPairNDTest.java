@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class ClosestPairNDTest {
+    private static VecSet randomPoints(int n, int d, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] coords = new double[n * d];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = random.nextDouble() * 10 - 5;
+        }
+        return new VecSet(coords, d);
+    }
+
+    private static double bruteForce(VecSet points) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = i + 1; j < points.size(); j++) {
+                double dist = 0;
+                for (int k = 0; k < points.dimension(); k++) {
+                    double diff = points.get(i, k) - points.get(j, k);
+                    dist += diff * diff;
+                }
+                best = Math.min(best, dist);
+            }
+        }
+        return best;
+    }
+
+    private static void check(VecSet points, ClosestPairND.Result result) {
+        assertEquals(bruteForce(points), result.getDistanceSquared(), 1e-12);
+        assertNotEquals(result.getFirst(), result.getSecond());
+        assertEquals(points.distanceSquared(result.getFirst(), result.getSecond()), result.getDistanceSquared(), 1e-12);
+    }
+
+    @Test
+    public void testGridAndSweepMatchBruteForce() {
+        for (int d : new int[]{1, 2, 3, 4, 5, 8, 17, 64}) {
+            VecSet points = randomPoints(1500, d, d);
+            check(points, ClosestPairND.find(points));
+            if (d <= ClosestPairND.GRID_MAX_DIMENSION) {
+                check(points, ClosestPairND.grid(points, 1, ExecutionPolicy.SEQUENTIAL));
+            }
+            check(points, ClosestPairND.sweep(points, ExecutionPolicy.SEQUENTIAL));
+            check(points, ClosestPairND.sweep(points, ExecutionPolicy.adaptive(0, 64)));
+        }
+    }
+
+    @Test
+    public void testSheetWithOutliers() {
+        // every point but two lies at x = 0, so the sweep along x compares all pairs until it switches to the grid
+        int n = 40000;
+        SplittableRandom random = new SplittableRandom(19);
+        double[] coords = new double[n * 3];
+        for (int i = 2; i < n; i++) {
+            coords[3 * i + 1] = random.nextDouble() * 1000;
+            coords[3 * i + 2] = random.nextDouble() * 1000;
+        }
+        coords[0] = -1e6;
+        coords[3] = 1e6;
+        VecSet points = new VecSet(coords, 3);
+        double expected = ClosestPairND.grid(points, 1, ExecutionPolicy.SEQUENTIAL).getDistanceSquared();
+        long start = System.nanoTime();
+        ClosestPairND.Result result = ClosestPairND.find(points);
+        long elapsed = System.nanoTime() - start;
+        assertEquals(expected, result.getDistanceSquared(), 0);
+        assertEquals(result.getDistanceSquared(), points.distanceSquared(result.getFirst(), result.getSecond()), 0);
+        assertEquals(expected, ClosestPairND.sweep(points, ExecutionPolicy.adaptive(0, 1024)).getDistanceSquared(), 0);
+        // comparing all pairs takes seconds
+        assertTrue(elapsed / 1e6 + " ms", elapsed < 2_000_000_000L);
+
+        VecSet small = new VecSet(Arrays.copyOf(coords, 1500 * 3), 3);
+        check(small, ClosestPairND.find(small));
+    }
+
+    @Test
+    public void testDuplicatePoints() {
+        VecSet points = randomPoints(1000, 6, 9);
+        double[] coords = points.coords();
+        System.arraycopy(coords, 700 * 6, coords, 300 * 6, 6);
+        ClosestPairND.Result result = ClosestPairND.find(points);
+        assertEquals(0, result.getDistanceSquared(), 0);
+        assertEquals(300 + 700, result.getFirst() + result.getSecond());
+    }
+
+    @Test
+    public void testFromVecs() {
+        Vec[] vecs = {new Vec(0, 0, 0), new Vec(5, 5, 5), new Vec(1, 1, 1), new Vec(5, 5, 4.5)};
+        ClosestPairND.Result result = ClosestPairND.find(VecSet.of(vecs));
+        assertEquals(0.25, result.getDistanceSquared(), 0);
+        assertEquals(1 + 3, result.getFirst() + result.getSecond());
+        assertEquals(4.5, VecSet.of(vecs).toVec(3).get(2), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsMixedDimensions() {
+        VecSet.of(new Vec[]{new Vec(1, 2), new Vec(1, 2, 3)});
+    }
+}
@@ -0,0 +1,123 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ClosestPairServiceTest {
+    private static List<PointSet> batch(int count, long seed) {
+        // mostly small problems, every tenth one large enough for divide and conquer
+        List<PointSet> sets = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int n = i % 10 == 0 ? 2000 + i : 2 + i % 300;
+            PointGenerator generator = i % 3 == 0 ? PointGenerator.duplicates(0.5) : PointGenerator.uniform();
+            sets.add(generator.generate(n, seed + i));
+        }
+        return sets;
+    }
+
+    private static void check(List<PointSet> sets, List<ClosestPairResult> results) {
+        assertEquals(sets.size(), results.size());
+        ClosestPairEngine engine = new ClosestPairEngine();
+        for (int i = 0; i < sets.size(); i++) {
+            PointSet points = sets.get(i);
+            ClosestPairResult result = results.get(i);
+            assertEquals(engine.findClosestPair(points).getDistanceSquared(), result.getDistanceSquared(), 0);
+            assertNotEquals(result.getFirst(), result.getSecond());
+            assertEquals(result.getDistanceSquared(), points.distanceSquared(result.getFirst(), result.getSecond()), 0);
+        }
+    }
+
+    @Test
+    public void testBatchMatchesEngine() {
+        List<PointSet> sets = batch(500, 1);
+        try (ClosestPairService service = new ClosestPairService(3)) {
+            check(sets, service.findAll(sets));
+            ClosestPairService.Counters counters = service.getCounters();
+            assertEquals(500, counters.getProblems());
+            assertEquals(sets.stream().filter(p -> p.size() <= ClosestPairService.BRUTE_FORCE_MAX_POINTS).count(),
+                    counters.getBruteForce());
+            assertEquals(sets.stream().mapToLong(PointSet::size).sum(), counters.getPoints());
+            assertEquals(0, counters.getFailures());
+            assertTrue(counters.getProblemsPerSecond() > 0);
+
+            service.resetCounters();
+            assertEquals(0, service.getCounters().getProblems());
+            assertTrue(service.findAll(new ArrayList<>()).isEmpty());
+        }
+    }
+
+    @Test
+    public void testSharedByConcurrentCallers() throws Exception {
+        try (ClosestPairService service = new ClosestPairService(2)) {
+            List<CompletableFuture<List<ClosestPairResult>>> batches = new ArrayList<>();
+            List<List<PointSet>> inputs = new ArrayList<>();
+            for (int k = 0; k < 4; k++) {
+                List<PointSet> sets = batch(200, 1000 * k);
+                inputs.add(sets);
+                batches.add(service.findAllAsync(sets));
+            }
+            List<Thread> callers = new ArrayList<>();
+            List<Throwable> errors = new ArrayList<>();
+            for (int k = 0; k < 3; k++) {
+                List<PointSet> sets = batch(100, 5000 * (k + 1));
+                Thread caller = new Thread(() -> {
+                    try {
+                        List<ClosestPairResult> results = new ArrayList<>();
+                        for (PointSet points : sets) {
+                            results.add(service.findClosestPair(points));
+                        }
+                        check(sets, results);
+                    } catch (Throwable e) {
+                        synchronized (errors) {
+                            errors.add(e);
+                        }
+                    }
+                });
+                callers.add(caller);
+                caller.start();
+            }
+            PointSet large = PointGenerator.clustered(5, 0.01).generate(30000, 7);
+            ClosestPairResult single = service.findClosestPairAsync(large).get(60, TimeUnit.SECONDS);
+            for (Thread caller : callers) {
+                caller.join();
+            }
+            assertTrue(errors.toString(), errors.isEmpty());
+            for (int k = 0; k < batches.size(); k++) {
+                check(inputs.get(k), batches.get(k).get(60, TimeUnit.SECONDS));
+            }
+            assertEquals(new ClosestPairEngine().findClosestPair(large).getDistanceSquared(),
+                    single.getDistanceSquared(), 0);
+            assertEquals(4 * 200 + 3 * 100 + 1, service.getCounters().getProblems());
+        }
+    }
+
+    @Test
+    public void testBruteForceMatchesEngine() {
+        for (int n = 2; n <= ClosestPairService.BRUTE_FORCE_MAX_POINTS; n += 17) {
+            PointSet points = PointGenerator.gridWithJitter(0.1).generate(n, n);
+            assertEquals(new ClosestPairEngine().findClosestPair(points).getDistanceSquared(),
+                    ClosestPairService.bruteForce(points).getDistanceSquared(), 0);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsSmallProblem() {
+        List<PointSet> sets = batch(5, 2);
+        sets.add(new PointSet(new double[]{1}, new double[]{2}));
+        try (ClosestPairService service = new ClosestPairService(1)) {
+            service.findAll(sets);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsAfterClose() throws InterruptedException {
+        ClosestPairService service = new ClosestPairService(1);
+        service.close();
+        assertTrue(service.awaitTermination(10, TimeUnit.SECONDS));
+        service.findAll(batch(3, 3));
+    }
+}
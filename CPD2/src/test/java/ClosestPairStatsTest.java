@@ -0,0 +1,114 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ClosestPairStatsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PointSet randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble();
+            ys[i] = random.nextDouble();
+        }
+        return new PointSet(xs, ys);
+    }
+
+    @Test
+    public void testStatsAreOptIn() {
+        PointSet points = randomPoints(1000, 1);
+        assertNull(new ClosestPairEngine().findClosestPair(points).getStats());
+
+        FastNeighbors neighbors = new FastNeighbors(new Vec2[]{new Vec2(0, 0), new Vec2(1, 1), new Vec2(3, 3)});
+        neighbors.findClosestPair();
+        assertNull(neighbors.getLastStats());
+    }
+
+    @Test
+    public void testEngineStats() {
+        int n = 100000;
+        PointSet points = randomPoints(n, 2);
+        ClosestPairEngine engine = new ClosestPairEngine(1 << 10);
+        engine.setCollectStats(true);
+        ClosestPairStats sequential = engine.findClosestPair(points).getStats();
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ClosestPairStats parallel;
+        try {
+            parallel = engine.findClosestPair(points, pool).getStats();
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(n, sequential.getPoints());
+        // halving down to ranges of at most three points
+        assertEquals(32 - Integer.numberOfLeadingZeros((n - 1) / 3), sequential.getMaxDepth());
+        assertEquals(1, sequential.getStrips(0));
+        assertTrue(sequential.getStripPoints(0) > 0 && sequential.getStripPoints(0) < n);
+        assertTrue(sequential.getDistanceEvaluations() > n / 2 && sequential.getDistanceEvaluations() < 10L * n);
+        assertTrue(sequential.getTotalNanos() >= sequential.getSortNanos() + sequential.getMergeNanos());
+
+        // the parallel search runs the same recursion
+        assertEquals(sequential.getDistanceEvaluations(), parallel.getDistanceEvaluations());
+        assertEquals(sequential.getMaxDepth(), parallel.getMaxDepth());
+        for (int depth = 0; depth <= sequential.getMaxDepth(); depth++) {
+            assertEquals(sequential.getStripPoints(depth), parallel.getStripPoints(depth));
+        }
+    }
+
+    @Test
+    public void testFastNeighborsStats() {
+        PointSet points = randomPoints(5000, 3);
+        Vec2[] vecs = new Vec2[points.size()];
+        for (int i = 0; i < vecs.length; i++) {
+            vecs[i] = points.toVec2(i);
+        }
+        FastNeighbors neighbors = new FastNeighbors(vecs);
+        neighbors.setCollectStats(true);
+        neighbors.findClosestPair();
+        ClosestPairStats stats = neighbors.getLastStats();
+        assertEquals(5000, stats.getPoints());
+        assertTrue(stats.getDistanceEvaluations() > 0);
+        assertTrue(stats.getAllocatedBytes() != 0);
+        assertEquals(0, stats.getMergeNanos());
+
+        neighbors.findClosestPair(ForkJoinPool.commonPool());
+        assertNotSame(stats, neighbors.getLastStats());
+        assertEquals(5000, neighbors.getLastStats().getPoints());
+    }
+
+    @Test
+    public void testJfrEvents() throws IOException {
+        Path file = folder.newFile("run.jfr").toPath();
+        try (Recording recording = new Recording()) {
+            recording.enable("cpd2.ClosestPair");
+            recording.start();
+            ClosestPairEngine engine = new ClosestPairEngine();
+            engine.findClosestPair(randomPoints(2000, 4));
+            engine.setCollectStats(true);
+            engine.findClosestPair(randomPoints(3000, 5));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(2, events.size());
+        assertEquals(2000, events.get(0).getInt("points"));
+        assertEquals(-1, events.get(0).getLong("distanceEvaluations"));
+        assertEquals(3000, events.get(1).getInt("points"));
+        assertTrue(events.get(1).getLong("distanceEvaluations") > 0);
+        assertEquals("divide and conquer", events.get(1).getString("algorithm"));
+    }
+}
@@ -0,0 +1,92 @@
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class ConvexHullTest {
+
+    private static int[] graham(PointSet points) {
+        Vec2[] vectors = new Vec2[points.size()];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = points.toVec2(i);
+        }
+        Vec2[] hull = ConvexHull.grahamScan(vectors);
+        int[] result = new int[hull.length];
+        for (int i = 0; i < hull.length; i++) {
+            for (int j = 0; j < vectors.length; j++) {
+                if (vectors[j] == hull[i]) {
+                    result[i] = j;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertSameHull(PointSet points, int[] expected, int[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(points.getX(expected[i]), points.getX(actual[i]), 0.0);
+            assertEquals(points.getY(expected[i]), points.getY(actual[i]), 0.0);
+        }
+    }
+
+    private static void assertAllAgree(PointSet points) {
+        int[] chain = ConvexHull.monotoneChain(points);
+        assertSameHull(points, chain, graham(points));
+        assertSameHull(points, chain, ConvexHull.parallel(points, ForkJoinPool.commonPool(), 7));
+        assertSameHull(points, chain, ConvexHull.parallel(points));
+
+        // every point lies inside or on the hull, and every turn is a strict left turn
+        for (int i = 0; i < chain.length && chain.length >= 3; i++) {
+            int a = chain[i];
+            int b = chain[(i + 1) % chain.length];
+            int c = chain[(i + 2) % chain.length];
+            assertEquals(1, Predicates.orientation(points.getX(a), points.getY(a),
+                    points.getX(b), points.getY(b), points.getX(c), points.getY(c)));
+            for (int p = 0; p < points.size(); p++) {
+                assertTrue(Predicates.orientation(points.getX(a), points.getY(a),
+                        points.getX(b), points.getY(b), points.getX(p), points.getY(p)) >= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testSquare() {
+        PointSet points = new PointSet(new double[]{1, 0, 2, 1, 0, 2, 2, 0}, new double[]{1, 0, 2, 0, 2, 0, 1, 1});
+        int[] hull = ConvexHull.monotoneChain(points);
+        assertArrayEquals(new int[]{1, 5, 2, 4}, hull);
+        assertAllAgree(points);
+    }
+
+    @Test
+    public void testRandomClouds() {
+        Random random = new Random(1);
+        for (int k = 0; k < 20; k++) {
+            int n = 1 + random.nextInt(300);
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                // a coarse lattice produces duplicates and collinear edge points
+                xs[i] = k % 2 == 0 ? random.nextInt(12) : random.nextGaussian();
+                ys[i] = k % 2 == 0 ? random.nextInt(12) : random.nextGaussian();
+            }
+            assertAllAgree(new PointSet(xs, ys));
+        }
+    }
+
+    @Test
+    public void testDegenerateInputs() {
+        assertEquals(0, ConvexHull.monotoneChain(new PointSet(new double[0], new double[0])).length);
+        assertEquals(0, ConvexHull.grahamScan(new Vec2[0]).length);
+
+        PointSet same = new PointSet(new double[]{3, 3, 3}, new double[]{4, 4, 4});
+        assertEquals(1, ConvexHull.monotoneChain(same).length);
+        assertAllAgree(same);
+
+        PointSet line = new PointSet(new double[]{0, 3, 1, 2, 3}, new double[]{0, 3, 1, 2, 3});
+        assertArrayEquals(new int[]{0, 1}, ConvexHull.monotoneChain(line));
+        assertAllAgree(line);
+    }
+}
@@ -0,0 +1,138 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class DelaunayTest {
+    /**
+     * Checks that every triangle turns counterclockwise, that the half-edges pair up,
+     * that no neighbour's far vertex lies strictly inside a triangle's circumcircle
+     * (which makes the whole triangulation Delaunay) and that the counts fit Euler's formula.
+     */
+    private static void checkTriangulation(PointSet points, Delaunay delaunay, int distinct) {
+        int[] triangles = delaunay.triangles();
+        int[] halfedges = delaunay.halfedges();
+        int hull = 0;
+        for (int e = 0; e < triangles.length; e++) {
+            int t = e - e % 3;
+            int a = triangles[t];
+            int b = triangles[t + 1];
+            int c = triangles[t + 2];
+            assertTrue(Predicates.orient2d(points.getX(a), points.getY(a), points.getX(b), points.getY(b),
+                    points.getX(c), points.getY(c)) > 0);
+            int o = halfedges[e];
+            if (o < 0) {
+                hull++;
+                continue;
+            }
+            assertEquals(e, halfedges[o]);
+            assertEquals(triangles[e], triangles[o % 3 == 2 ? o - 2 : o + 1]);
+            int far = triangles[o % 3 == 0 ? o + 2 : o - 1];
+            assertTrue(Predicates.inCircle(points.getX(a), points.getY(a), points.getX(b), points.getY(b),
+                    points.getX(c), points.getY(c), points.getX(far), points.getY(far)) <= 0);
+        }
+        assertEquals(2 * distinct - 2 - hull, delaunay.triangleCount());
+        assertEquals(3 * distinct - 3 - hull, delaunay.edges().length / 2);
+    }
+
+    private static double nearestDistance(PointSet points, int i) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int j = 0; j < points.size(); j++) {
+            if (j != i) {
+                best = Math.min(best, points.distanceSquared(i, j));
+            }
+        }
+        return best;
+    }
+
+    private static double primLength(PointSet points) {
+        int n = points.size();
+        double[] best = new double[n];
+        boolean[] done = new boolean[n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[0] = 0;
+        double total = 0;
+        for (int k = 0; k < n; k++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!done[i] && (next < 0 || best[i] < best[next])) {
+                    next = i;
+                }
+            }
+            done[next] = true;
+            total += Math.sqrt(best[next]);
+            for (int i = 0; i < n; i++) {
+                best[i] = Math.min(best[i], points.distanceSquared(next, i));
+            }
+        }
+        return total;
+    }
+
+    private static double treeLength(PointSet points, int[] tree) {
+        double total = 0;
+        for (int k = 0; k < tree.length; k += 2) {
+            total += Math.sqrt(points.distanceSquared(tree[k], tree[k + 1]));
+        }
+        return total;
+    }
+
+    @Test
+    public void testRandomPoints() {
+        PointSet points = PointGenerator.uniform().generate(20000, 1);
+        checkTriangulation(points, new Delaunay(points), points.size());
+        PointSet clustered = PointGenerator.clustered(10, 0.001).generate(20000, 2);
+        checkTriangulation(clustered, new Delaunay(clustered), clustered.size());
+    }
+
+    @Test
+    public void testCocircularGrid() {
+        // every cell of an exact grid has four cocircular corners
+        PointSet points = PointGenerator.gridWithJitter(0).generate(4900, 3);
+        Delaunay delaunay = new Delaunay(points);
+        checkTriangulation(points, delaunay, points.size());
+        int[] nearest = delaunay.nearestNeighbours();
+        for (int i = 0; i < points.size(); i += 7) {
+            assertEquals(nearestDistance(points, i), points.distanceSquared(i, nearest[i]), 0);
+        }
+    }
+
+    @Test
+    public void testNearestNeighboursAndSpanningTree() {
+        PointSet points = PointGenerator.duplicates(0.8).generate(1500, 4);
+        Delaunay delaunay = new Delaunay(points);
+        int[] nearest = delaunay.nearestNeighbours();
+        for (int i = 0; i < points.size(); i++) {
+            assertNotEquals(i, nearest[i]);
+            assertEquals(nearestDistance(points, i), points.distanceSquared(i, nearest[i]), 0);
+        }
+        int[] tree = delaunay.minimumSpanningTree();
+        assertEquals(2 * (points.size() - 1), tree.length);
+        assertEquals(primLength(points), treeLength(points, tree), 1e-9);
+    }
+
+    @Test
+    public void testCollinearPoints() {
+        PointSet points = PointGenerator.collinear().generate(500, 5);
+        Delaunay delaunay = new Delaunay(points);
+        assertEquals(0, delaunay.triangleCount());
+        int[] nearest = delaunay.nearestNeighbours();
+        for (int i = 0; i < points.size(); i++) {
+            assertEquals(nearestDistance(points, i), points.distanceSquared(i, nearest[i]), 0);
+        }
+        assertEquals(primLength(points), treeLength(points, delaunay.minimumSpanningTree()), 1e-9);
+    }
+
+    @Test
+    public void testSmallInputs() {
+        Delaunay triangle = new Delaunay(new Vec2[]{new Vec2(0, 0), new Vec2(0, 1), new Vec2(1, 0)});
+        assertEquals(1, triangle.triangleCount());
+        assertArrayEquals(new int[]{-1, -1, -1}, triangle.halfedges());
+        assertEquals(2, treeLength(triangle.points(), triangle.minimumSpanningTree()), 0);
+
+        Delaunay single = new Delaunay(new Vec2[]{new Vec2(3, 4)});
+        assertArrayEquals(new int[]{-1}, single.nearestNeighbours());
+        assertEquals(0, single.minimumSpanningTree().length);
+        assertEquals(0, new Delaunay(new Vec2[0]).edges().length);
+    }
+}
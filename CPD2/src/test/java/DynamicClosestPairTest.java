@@ -0,0 +1,134 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class DynamicClosestPairTest {
+
+    private static double bruteForce(List<Vec2> points) {
+        double best = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            for (int j = i + 1; j < points.size(); j++) {
+                best = Math.min(best, FastNeighborsTest.distance(points.get(i), points.get(j)));
+            }
+        }
+        return best;
+    }
+
+    @Test
+    public void testRandomInsertionsAndRemovals() {
+        Random random = new Random(5);
+        DynamicClosestPair pairs = new DynamicClosestPair();
+        List<Vec2> points = new ArrayList<>();
+        List<Integer> handles = new ArrayList<>();
+
+        for (int step = 0; step < 3000; step++) {
+            if (points.size() < 2 || random.nextInt(3) != 0) {
+                // a small range in every fifth step brings in copies of earlier locations
+                int range = step % 5 == 0 ? 20 : 1000;
+                Vec2 point = new Vec2(random.nextInt(range), random.nextInt(range));
+                handles.add(pairs.insert(point));
+                points.add(point);
+            } else {
+                int victim = random.nextInt(points.size());
+                assertTrue(pairs.remove(handles.remove(victim)));
+                points.remove(victim);
+            }
+
+            assertEquals(points.size(), pairs.size());
+            if (step % 50 == 0 || points.size() < 40) {
+                assertEquals(bruteForce(points), pairs.getDistance(), 0.0);
+                if (points.size() >= 2) {
+                    assertEquals(pairs.getDistance(), FastNeighborsTest.distance(pairs.getClosestPair()), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRemovingHubOfSpiral() {
+        // every point of the spiral is inserted closer to the centre than all earlier ones,
+        // so they all take the centre as candidate
+        DynamicClosestPair pairs = new DynamicClosestPair();
+        List<Vec2> points = new ArrayList<>();
+        int centre = pairs.insert(new Vec2(0, 0));
+        for (int i = 0; i < 300; i++) {
+            double radius = 1000 * Math.pow(0.4, i);
+            double angle = i * 2.4;
+            Vec2 point = new Vec2(radius * Math.cos(angle), radius * Math.sin(angle));
+            pairs.insert(point);
+            points.add(point);
+        }
+        assertTrue(pairs.remove(centre));
+        assertEquals(bruteForce(points), pairs.getDistance(), 0.0);
+    }
+
+    @Test
+    public void testCopiesOfOneLocation() {
+        DynamicClosestPair pairs = new DynamicClosestPair();
+        pairs.insert(new Vec2(5, 5));
+        List<Integer> copies = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            copies.add(pairs.insert(new Vec2(1, 1)));
+        }
+        int far = pairs.insert(new Vec2(4, 5));
+        assertEquals(0, pairs.getDistance(), 0.0);
+        assertEquals(2002, pairs.size());
+
+        // the first handle at the location goes first, the location stays for the other copies
+        Random random = new Random(6);
+        assertTrue(pairs.remove(copies.remove(0)));
+        while (copies.size() > 1) {
+            int[] handles = pairs.getClosestHandles();
+            assertNotEquals(handles[0], handles[1]);
+            assertEquals(1.0, pairs.get(handles[0]).getX(), 0.0);
+            assertEquals(0, FastNeighborsTest.distance(pairs.getClosestPair()), 0.0);
+            assertTrue(pairs.remove(copies.remove(random.nextInt(copies.size()))));
+        }
+        assertEquals(1.0, pairs.getDistance(), 0.0);
+        assertEquals(1.0, pairs.get(copies.get(0)).getX(), 0.0);
+
+        assertTrue(pairs.remove(far));
+        assertEquals(Math.hypot(4, 4), pairs.getDistance(), 0.0);
+        assertTrue(pairs.remove(copies.get(0)));
+        assertEquals(Double.POSITIVE_INFINITY, pairs.getDistance(), 0.0);
+        assertNull(pairs.getClosestPair());
+    }
+
+    @Test
+    public void testRemovingClosestPairRestoresNextBest() {
+        DynamicClosestPair pairs = new DynamicClosestPair();
+        pairs.insert(new Vec2(0, 0));
+        int a = pairs.insert(new Vec2(10, 0));
+        pairs.insert(new Vec2(10, 1));
+        assertEquals(1.0, pairs.getDistance(), 0.0);
+
+        assertTrue(pairs.remove(a));
+        assertFalse(pairs.remove(a));
+        assertEquals(Math.hypot(10, 1), pairs.getDistance(), 0.0);
+    }
+
+    @Test
+    public void testSlidingWindowByCountAndAge() {
+        SlidingWindowClosestPair window = SlidingWindowClosestPair.lastPoints(3);
+        window.insert(new Vec2(0, 0));
+        window.insert(new Vec2(0, 1));
+        window.insert(new Vec2(0, 5));
+        assertEquals(1.0, window.getDistance(), 0.0);
+        window.insert(new Vec2(0, 9));
+        assertEquals(3, window.size());
+        assertEquals(4.0, window.getDistance(), 0.0);
+
+        SlidingWindowClosestPair timed = SlidingWindowClosestPair.maxAge(10);
+        timed.insert(new Vec2(0, 0), 0);
+        timed.insert(new Vec2(0, 1), 5);
+        timed.insert(new Vec2(0, 3), 12);
+        assertEquals(2.0, timed.getDistance(), 0.0);
+        timed.expire(15);
+        assertEquals(1, timed.size());
+        assertNull(timed.getClosestPair());
+    }
+}
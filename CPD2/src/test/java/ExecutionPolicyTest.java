@@ -0,0 +1,49 @@
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+public class ExecutionPolicyTest {
+    @Test
+    public void testChunksCoverRangeOnce() {
+        for (ExecutionPolicy policy : new ExecutionPolicy[]{ExecutionPolicy.SEQUENTIAL, ExecutionPolicy.adaptive(0, 7),
+                ExecutionPolicy.adaptive(50, 10)}) {
+            for (int n : new int[]{0, 1, 7, 8, 49, 50, 1000}) {
+                AtomicIntegerArray hits = new AtomicIntegerArray(n);
+                AtomicIntegerArray ranges = new AtomicIntegerArray(Math.max(1, policy.rangeCount(n)));
+                policy.forEachChunk(n, (from, to) -> {
+                    ranges.incrementAndGet(from / policy.getChunkSize());
+                    for (int i = from; i < to; i++) {
+                        hits.incrementAndGet(i);
+                    }
+                });
+                for (int i = 0; i < n; i++) {
+                    assertEquals(1, hits.get(i));
+                }
+                for (int r = 0; r < policy.rangeCount(n); r++) {
+                    assertEquals(1, ranges.get(r));
+                }
+                assertEquals(n * (n - 1) / 2.0, policy.sumChunks(n, (from, to) -> {
+                    double sum = 0;
+                    for (int i = from; i < to; i++) {
+                        sum += i;
+                    }
+                    return sum;
+                }), 0);
+            }
+        }
+    }
+
+    @Test
+    public void testLengthNearIntegerLimit() {
+        ExecutionPolicy policy = ExecutionPolicy.adaptive(0, 1 << 30);
+        int n = Integer.MAX_VALUE - 1;
+        assertEquals(2, policy.chunkCount(n));
+        assertEquals(n, policy.sumChunks(n, (from, to) -> to - from), 0);
+        AtomicIntegerArray ranges = new AtomicIntegerArray(policy.rangeCount(n));
+        policy.forEachChunk(n, (from, to) -> ranges.incrementAndGet(from / policy.getChunkSize()));
+        assertEquals(1, ranges.get(0));
+        assertEquals(1, ranges.get(1));
+    }
+}
@@ -0,0 +1,141 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ExternalClosestPairTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void check(PointSet points, ExternalClosestPair.Result result) {
+        double expected = new ClosestPairEngine().findClosestPair(points).getDistanceSquared();
+        assertEquals(expected, result.getDistanceSquared(), 0);
+        assertNotEquals(result.getFirst(), result.getSecond());
+        assertEquals(expected, points.distanceSquared((int) result.getFirst(), (int) result.getSecond()), 0);
+    }
+
+    @Test
+    public void testSpilledRunsMatchInMemory() throws IOException {
+        // the smallest budget holds 16384 points per run and merges 8 runs at a time, so this takes two levels
+        PointSet points = PointGenerator.uniform().generate(200000, 1);
+        Path file = folder.newFile("points.bin").toPath();
+        PointFile.write(file, points);
+        File temp = folder.newFolder("runs");
+
+        ExternalClosestPair search = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, temp.toPath());
+        check(points, search.findClosestPair(PointFile.open(file)));
+        assertEquals(0, temp.list().length);
+    }
+
+    @Test
+    public void testCsvInput() throws IOException {
+        PointSet points = PointGenerator.clustered(20, 0.01).generate(60000, 2);
+        Path file = folder.newFile("points.csv").toPath();
+        CSVExporter.writeColumns(file.toString(), ",", new String[]{"x", "y"}, points.xs(), points.ys());
+
+        ExternalClosestPair search = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, folder.getRoot().toPath());
+        ExternalClosestPair.Result result = search.findClosestPair(file, ",", true);
+        check(points, result);
+        assertEquals(points.getX((int) result.getFirst()), result.toVec2Pair()[0].getX(), 0);
+    }
+
+    @Test
+    public void testSeveralParts() throws IOException {
+        PointSet points = PointGenerator.gridWithJitter(0.3).generate(50000, 3);
+        int split = 20000;
+        Path first = folder.newFile("first.bin").toPath();
+        Path second = folder.newFile("second.bin").toPath();
+        PointFile.write(first, false, Arrays.copyOf(points.xs(), split), Arrays.copyOf(points.ys(), split));
+        PointFile.write(second, false, Arrays.copyOfRange(points.xs(), split, points.size()),
+                Arrays.copyOfRange(points.ys(), split, points.size()));
+
+        ExternalClosestPair small = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, folder.getRoot().toPath());
+        check(points, small.findClosestPair(PointFile.open(first), PointFile.open(second)));
+        // everything fits in one run here
+        check(points, new ExternalClosestPair().findClosestPair(PointFile.open(first), PointFile.open(second)));
+    }
+
+    @Test
+    public void testDuplicates() throws IOException {
+        PointSet points = PointGenerator.duplicates(0.9).generate(100000, 4);
+        Path file = folder.newFile("points.bin").toPath();
+        PointFile.write(file, points);
+        ExternalClosestPair search = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, folder.getRoot().toPath());
+        ExternalClosestPair.Result result = search.findClosestPair(PointFile.open(file));
+        assertEquals(0, result.getDistanceSquared(), 0);
+        assertEquals(0, points.distanceSquared((int) result.getFirst(), (int) result.getSecond()), 0);
+    }
+
+    @Test
+    public void testVerticalLineLargerThanSlab() throws IOException {
+        // the smallest budget solves 8192 points per slab, so the whole line is carried as a band
+        double[] xs = new double[100000];
+        double[] ys = new double[xs.length];
+        for (int i = 0; i < ys.length; i++) {
+            ys[i] = (i * 7919L) % ys.length + (i == 60000 ? 0.25 : 0);
+        }
+        Path file = folder.newFile("line.bin").toPath();
+        PointFile.write(file, new PointSet(xs, ys));
+        File temp = folder.newFolder("runs");
+        ExternalClosestPair.Result result = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, temp.toPath())
+                .findClosestPair(PointFile.open(file));
+        check(new PointSet(xs, ys), result);
+        assertEquals(0.75 * 0.75, result.getDistanceSquared(), 0);
+        assertEquals(0, result.toVec2Pair()[1].getX(), 0);
+        assertEquals(0, temp.list().length);
+    }
+
+    @Test
+    public void testColumnsLargerThanSlab() throws IOException {
+        // four vertical lines of 10000 points, each within the closest distance of the next,
+        // so the band of one line carries the whole next line into another band
+        int n = 40000;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = 0.7 * (i % 4);
+            ys[i] = i / 4 + 0.25 * (i % 4);
+        }
+        Path file = folder.newFile("columns.csv").toPath();
+        CSVExporter.writeColumns(file.toString(), ",", new String[]{"x", "y"}, xs, ys);
+        ExternalClosestPair search = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, folder.getRoot().toPath());
+        check(new PointSet(xs, ys), search.findClosestPair(file, ",", true));
+    }
+
+    @Test
+    public void testBandWithinBand() throws IOException {
+        // the band of a vertical line holds a dense horizontal row, which is too large for a slab along y as well
+        int column = 30000;
+        int row = 20000;
+        double[] xs = new double[column + row];
+        double[] ys = new double[xs.length];
+        for (int i = 0; i < column; i++) {
+            ys[i] = i;
+        }
+        for (int i = 0; i < row; i++) {
+            xs[column + i] = 0.1 + i * 1e-5;
+            ys[column + i] = 15000.5;
+        }
+        Path file = folder.newFile("cross.bin").toPath();
+        PointFile.write(file, new PointSet(xs, ys));
+        File temp = folder.newFolder("runs");
+        ExternalClosestPair.Result result = new ExternalClosestPair(ExternalClosestPair.MIN_MEMORY, temp.toPath())
+                .findClosestPair(PointFile.open(file));
+        check(new PointSet(xs, ys), result);
+        assertEquals(15000.5, result.toVec2Pair()[0].getY(), 0);
+        assertEquals(0, temp.list().length);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsSinglePoint() throws IOException {
+        Path file = folder.newFile("one.bin").toPath();
+        PointFile.write(file, new PointSet(new double[]{1}, new double[]{2}));
+        new ExternalClosestPair().findClosestPair(PointFile.open(file));
+    }
+}
@@ -1,4 +1,8 @@
 import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
 import static org.junit.Assert.*;
 
 public class FastNeighborsTest {
@@ -59,4 +63,116 @@ public class FastNeighborsTest {
         assertTrue((result[0].compareTo(new Vec2(-1, 2)) == 0 && result[1].compareTo(new Vec2(0, 0)) == 0) ||
                 (result[0].compareTo(new Vec2(0, 0)) == 0 && result[1].compareTo(new Vec2(-1, 2)) == 0));
     }
+
+    @Test
+    public void testClosestPairNotOverriddenByFartherHalf() {
+        Vec2[] points = {
+                new Vec2(0, 0),
+                new Vec2(1, 0),
+                new Vec2(10, 0),
+                new Vec2(15, 0),
+                new Vec2(100, 0),
+                new Vec2(200, 0)
+        };
+
+        Vec2[] result = new FastNeighbors(points).findClosestPair();
+
+        assertEquals(1.0, distance(result[0], result[1]), 0.0);
+    }
+
+    @Test
+    public void testEngineMatchesFastNeighbors() {
+        Random random = new Random(42);
+        ClosestPairEngine engine = new ClosestPairEngine();
+        for (int n : new int[]{2, 3, 4, 7, 100, 1000, 5000}) {
+            Vec2[] points = randomPoints(random, n);
+
+            Vec2[] expected = new FastNeighbors(points).findClosestPair();
+            ClosestPairResult result = engine.findClosestPair(PointSet.of(points));
+
+            assertEquals(distance(expected[0], expected[1]), result.getDistance(), 1e-12);
+            assertEquals(result.getDistance(),
+                    distance(points[result.getFirst()], points[result.getSecond()]), 1e-12);
+        }
+    }
+
+    @Test
+    public void testEngineWithDuplicatePoints() {
+        Vec2[] points = {
+                new Vec2(3, 3),
+                new Vec2(1, 1),
+                new Vec2(5, 9),
+                new Vec2(1, 1),
+                new Vec2(8, 2)
+        };
+
+        ClosestPairResult result = new ClosestPairEngine().findClosestPair(PointSet.of(points));
+
+        assertEquals(0.0, result.getDistance(), 0.0);
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        Random random = new Random(7);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int n : new int[]{2, 5, 64, 1000, 20000}) {
+                PointSet points = PointSet.of(randomPoints(random, n));
+
+                ClosestPairResult sequential = new ClosestPairEngine(8).findClosestPair(points);
+                ClosestPairResult parallel = new ClosestPairEngine(8).findClosestPair(points, pool);
+
+                assertEquals(sequential.getFirst(), parallel.getFirst());
+                assertEquals(sequential.getSecond(), parallel.getSecond());
+                assertEquals(sequential.getDistanceSquared(), parallel.getDistanceSquared(), 0.0);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testGridMatchesDivideAndConquer() {
+        Random random = new Random(11);
+        for (int n : new int[]{2, 3, 10, 1000, 50000}) {
+            PointSet points = PointSet.of(randomPoints(random, n));
+
+            ClosestPairResult expected = new ClosestPairEngine().findClosestPair(points);
+            ClosestPairResult result = new GridClosestPair(n).findClosestPair(points);
+
+            assertEquals(expected.getDistanceSquared(), result.getDistanceSquared(), 0.0);
+            assertEquals(result.getDistanceSquared(),
+                    points.distanceSquared(result.getFirst(), result.getSecond()), 0.0);
+        }
+    }
+
+    @Test
+    public void testStrategySelection() {
+        Random random = new Random(3);
+        Vec2[] points = randomPoints(random, 20000);
+        double expected = distance(new FastNeighbors(points).findClosestPair());
+
+        for (ClosestPairStrategy strategy : ClosestPairStrategy.values()) {
+            assertEquals(expected, distance(new FastNeighbors(points).findClosestPair(strategy)), 1e-12);
+        }
+        assertEquals(ClosestPairStrategy.GRID, ClosestPairStrategy.choose(PointSet.of(points)));
+        assertEquals(ClosestPairStrategy.DIVIDE_AND_CONQUER,
+                ClosestPairStrategy.choose(PointSet.of(randomPoints(random, 100))));
+    }
+
+    static Vec2[] randomPoints(Random random, int n) {
+        Vec2[] points = new Vec2[n];
+        for (int i = 0; i < n; i++) {
+            points[i] = new Vec2(random.nextDouble() * 1000, random.nextDouble() * 1000);
+        }
+        return points;
+    }
+
+    static double distance(Vec2[] pair) {
+        return distance(pair[0], pair[1]);
+    }
+
+    static double distance(Vec2 p1, Vec2 p2) {
+        return Math.hypot(p1.getX() - p2.getX(), p1.getY() - p2.getY());
+    }
 }
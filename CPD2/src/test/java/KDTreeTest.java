@@ -0,0 +1,112 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class KDTreeTest {
+
+    private static PointSet randomPoints(Random random, int n) {
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextInt(200) * 0.5;
+            ys[i] = random.nextDouble() * 100;
+        }
+        return new PointSet(xs, ys);
+    }
+
+    private static double distanceSquared(PointSet points, int i, double x, double y) {
+        double dx = points.getX(i) - x;
+        double dy = points.getY(i) - y;
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        Random random = new Random(1);
+        PointSet points = randomPoints(random, 2000);
+        KDTree tree = new KDTree(points);
+
+        for (int q = 0; q < 500; q++) {
+            double x = random.nextDouble() * 120 - 10;
+            double y = random.nextDouble() * 120 - 10;
+            double expected = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < points.size(); i++) {
+                expected = Math.min(expected, distanceSquared(points, i, x, y));
+            }
+            assertEquals(expected, distanceSquared(points, tree.nearest(x, y), x, y), 0.0);
+        }
+    }
+
+    @Test
+    public void testKNearestMatchesBruteForce() {
+        Random random = new Random(2);
+        PointSet points = randomPoints(random, 1000);
+        KDTree tree = new KDTree(points);
+
+        for (int q = 0; q < 100; q++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            double[] expected = new double[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                expected[i] = distanceSquared(points, i, x, y);
+            }
+            Arrays.sort(expected);
+
+            int[] result = tree.kNearest(x, y, 10);
+            assertEquals(10, result.length);
+            for (int i = 0; i < result.length; i++) {
+                assertEquals(expected[i], distanceSquared(points, result[i], x, y), 0.0);
+            }
+        }
+        assertEquals(1000, tree.kNearest(0, 0, 5000).length);
+    }
+
+    @Test
+    public void testWithinRadiusMatchesBruteForce() {
+        Random random = new Random(3);
+        PointSet points = randomPoints(random, 1000);
+        KDTree tree = new KDTree(points);
+
+        for (int q = 0; q < 100; q++) {
+            double x = random.nextDouble() * 100;
+            double y = random.nextDouble() * 100;
+            double r = random.nextDouble() * 15;
+            int expected = 0;
+            for (int i = 0; i < points.size(); i++) {
+                if (distanceSquared(points, i, x, y) <= r * r) {
+                    expected++;
+                }
+            }
+            int[] result = tree.withinRadius(x, y, r);
+            assertEquals(expected, result.length);
+            for (int i : result) {
+                assertTrue(distanceSquared(points, i, x, y) <= r * r);
+            }
+        }
+    }
+
+    @Test
+    public void testBatchQueries() {
+        Random random = new Random(4);
+        PointSet points = randomPoints(random, 500);
+        KDTree tree = new KDTree(points);
+        double[] qx = new double[300];
+        double[] qy = new double[300];
+        for (int i = 0; i < qx.length; i++) {
+            qx[i] = random.nextDouble() * 100;
+            qy[i] = random.nextDouble() * 100;
+        }
+
+        int[] nearest = tree.nearest(qx, qy);
+        int[][] kNearest = tree.kNearest(qx, qy, 3);
+
+        for (int i = 0; i < qx.length; i++) {
+            assertEquals(tree.nearest(qx[i], qy[i]), nearest[i]);
+            assertArrayEquals(tree.kNearest(qx[i], qy[i], 3), kNearest[i]);
+        }
+        assertEquals(-1, new KDTree(new Vec2[0]).nearest(1, 1));
+    }
+}
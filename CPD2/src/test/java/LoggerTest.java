@@ -0,0 +1,135 @@
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class LoggerTest {
+    private static final String NL = System.lineSeparator();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @After
+    public void tearDown() throws IOException {
+        Logger.stopAsync();
+        Logger.setLevel(Logger.Level.INFO);
+    }
+
+    private static String captureConsole(Runnable action) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        try {
+            action.run();
+        } finally {
+            System.setOut(console);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testWriteAndWriteLine() {
+        String output = captureConsole(() -> {
+            Logger.write(1, "a", 2.5);
+            Logger.writeLine("x", null);
+        });
+        assertEquals("1 a 2.5x" + NL + "null" + NL, output);
+    }
+
+    @Test
+    public void testDisabledLevelsAreNotFormatted() {
+        int[] formatted = new int[1];
+        Object expensive = new Object() {
+            @Override
+            public String toString() {
+                formatted[0]++;
+                return "value";
+            }
+        };
+        String output = captureConsole(() -> {
+            Logger.setLevel(Logger.Level.WARN);
+            Logger.debug(expensive);
+            Logger.info(expensive);
+            Logger.write(expensive);
+            Logger.warn("low", "disk");
+            Logger.error(expensive);
+        });
+        assertEquals("WARN low disk" + NL + "ERROR value" + NL, output);
+        assertEquals(1, formatted[0]);
+        assertFalse(Logger.isEnabled(Logger.Level.INFO));
+    }
+
+    @Test
+    public void testAsyncConsoleOutput() {
+        String long1 = "x".repeat(1000) + "é€";
+        String output = captureConsole(() -> {
+            Logger.startAsync(16, Logger.Overflow.BLOCK);
+            Logger.write("first");
+            Logger.writeLine("", long1);
+            Logger.flush();
+        });
+        assertEquals("first" + NL + long1 + NL, output);
+    }
+
+    @Test
+    public void testAsyncFileKeepsEveryMessageInThreadOrder() throws Exception {
+        Path file = folder.newFile("log.txt").toPath();
+        Logger.startAsync(file, 64, Logger.Overflow.BLOCK);
+        int threads = 4;
+        int messages = 20000;
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < messages; i++) {
+                    Logger.info("thread", id, "message", i);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        assertEquals(0, Logger.droppedMessages());
+        Logger.stopAsync();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(threads * messages, lines.size());
+        int[] next = new int[threads];
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            assertEquals("INFO", parts[0]);
+            int id = Integer.parseInt(parts[2]);
+            assertEquals(next[id]++, Integer.parseInt(parts[4]));
+        }
+    }
+
+    @Test
+    public void testAsyncDropWhenFull() throws Exception {
+        Path file = folder.newFile("drop.txt").toPath();
+        Logger.startAsync(file, 2, Logger.Overflow.DROP);
+        int messages = 100000;
+        for (int i = 0; i < messages; i++) {
+            Logger.writeLine(i);
+        }
+        Logger.flush();
+        long dropped = Logger.droppedMessages();
+        Logger.stopAsync();
+
+        List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+        assertEquals(messages, lines.size() + dropped);
+        for (int i = 1; i < lines.size(); i++) {
+            assertTrue(Integer.parseInt(lines.get(i)) > Integer.parseInt(lines.get(i - 1)));
+        }
+    }
+}
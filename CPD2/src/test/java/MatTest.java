@@ -0,0 +1,115 @@
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class MatTest {
+    private static Mat random(int rows, int cols, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] data = new double[rows * cols];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextDouble() * 2 - 1;
+        }
+        return new Mat(rows, cols, data);
+    }
+
+    private static Mat naiveProduct(Mat a, Mat b) {
+        Mat c = new Mat(a.rows(), b.cols());
+        for (int i = 0; i < a.rows(); i++) {
+            for (int j = 0; j < b.cols(); j++) {
+                double sum = 0;
+                for (int k = 0; k < a.cols(); k++) {
+                    sum += a.get(i, k) * b.get(k, j);
+                }
+                c.set(i, j, sum);
+            }
+        }
+        return c;
+    }
+
+    @Test
+    public void testProductMatchesNaive() {
+        // odd sizes exercise the partial tiles; the large ones span several blocks and run in parallel
+        int[][] shapes = {{1, 1, 1}, {3, 5, 7}, {17, 9, 33}, {130, 300, 70}, {200, 600, 530}};
+        for (int[] shape : shapes) {
+            Mat a = random(shape[0], shape[1], shape[0]);
+            Mat b = random(shape[1], shape[2], shape[2]);
+            assertArrayEquals(naiveProduct(a, b).data(), a.multiply(b).data(), 1e-10);
+        }
+    }
+
+    @Test
+    public void testMatrixVectorProduct() {
+        Mat a = random(1031, 517, 1);
+        Vec x = random(1, 517, 2).asVec();
+        Vec y = a.multiply(x);
+        for (int i = 0; i < a.rows(); i++) {
+            assertEquals(a.row(i).dot(x), y.get(i), 1e-10);
+        }
+        Vec out = new Vec(1031);
+        assertSame(out, a.multiply(x, out));
+        assertArrayEquals(y.data, out.data, 0);
+
+        // vectors grown at both ends keep their elements in the middle of a larger array
+        Vec grown = Vec.withCapacity(0);
+        Vec target = Vec.withCapacity(0);
+        for (int j = 0; j < x.size(); j++) {
+            grown.expandStart(x.get(x.size() - 1 - j));
+        }
+        for (int i = 0; i < a.rows(); i++) {
+            target.expandEnd(-1);
+        }
+        target.expandStart(-1);
+        target.shrinkStart();
+        a.multiply(grown, target);
+        for (int i = 0; i < a.rows(); i++) {
+            assertEquals(y.get(i), target.get(i), 0);
+        }
+        Mat row = Mat.ofRows(grown);
+        assertEquals(x.get(516), row.get(0, 516), 0);
+        Mat wrapped = Mat.wrap(grown, 1, 517);
+        assertEquals(517, grown.capacity());
+        assertEquals(x.get(3), wrapped.get(0, 3), 0);
+    }
+
+    @Test
+    public void testTranspose() {
+        Mat a = random(70, 45, 3);
+        Mat t = a.transpose();
+        assertEquals(45, t.rows());
+        for (int i = 0; i < 70; i++) {
+            for (int j = 0; j < 45; j++) {
+                assertEquals(a.get(i, j), t.get(j, i), 0);
+            }
+        }
+        Mat square = random(67, 67, 4);
+        Mat expected = square.transpose();
+        assertArrayEquals(expected.data(), square.transposeInPlace().data(), 0);
+    }
+
+    @Test
+    public void testViewsShareElements() {
+        Vec v = new Vec(1, 2, 3, 4, 5, 6);
+        Mat m = Mat.wrap(v, 2, 3);
+        m.set(1, 0, 40);
+        assertEquals(40, v.get(3), 0);
+        assertSame(m.data(), m.asVec().data);
+        assertEquals(new Vec(2, 40).toString(), m.column(1).sub(new Vec(0, -35)).toString());
+
+        Mat identity = Mat.identity(3);
+        assertArrayEquals(m.data(), m.multiply(identity).data(), 0);
+        m.scaleInPlace(2).subInPlace(Mat.ofRows(new Vec(2, 4, 6), new Vec(80, 10, 12)));
+        assertArrayEquals(new double[6], m.data(), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsMismatchedShapes() {
+        new Mat(2, 3).multiply(new Mat(2, 3));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testRejectsNonSquareInPlaceTranspose() {
+        new Mat(2, 3).transposeInPlace();
+    }
+}
@@ -0,0 +1,115 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.DoubleBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PointFileTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static PointSet randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextDouble() * 100 - 50;
+            ys[i] = random.nextGaussian();
+        }
+        return new PointSet(xs, ys);
+    }
+
+    @Test
+    public void testRoundTripWithBounds() throws IOException {
+        PointSet points = randomPoints(300000, 1);
+        Path path = folder.newFile("points.bin").toPath();
+        PointFile.write(path, points);
+
+        PointFile file = PointFile.open(path);
+        assertEquals(points.size(), file.size());
+        assertEquals(2, file.dimension());
+        assertTrue(file.hasBounds());
+        double minX = Double.POSITIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < points.size(); i++) {
+            minX = Math.min(minX, points.getX(i));
+            maxY = Math.max(maxY, points.getY(i));
+        }
+        assertEquals(minX, file.min(0), 0);
+        assertEquals(maxY, file.max(1), 0);
+
+        DoubleBuffer xs = file.xs();
+        assertTrue(xs.isDirect());
+        assertTrue(xs.isReadOnly());
+        assertEquals(points.getX(12345), xs.get(12345), 0);
+        assertArrayEquals(points.xs(), file.toPointSet().xs(), 0);
+        assertArrayEquals(points.ys(), file.toPointSet().ys(), 0);
+    }
+
+    @Test
+    public void testColumnsWithoutBounds() throws IOException {
+        double[][] columns = {{1, 2, 3}, {4, 5, 6}, {7, 8, 9}};
+        Path path = folder.newFile("xyz.bin").toPath();
+        PointFile.write(path, false, columns);
+
+        PointFile file = PointFile.open(path);
+        assertEquals(3, file.dimension());
+        assertFalse(file.hasBounds());
+        for (int d = 0; d < 3; d++) {
+            double[] values = new double[3];
+            file.column(d).get(values);
+            assertArrayEquals(columns[d], values, 0);
+        }
+        assertEquals(32 + 3 * 3 * 8, Files.size(path));
+    }
+
+    @Test
+    public void testBoundsOfManyColumns() throws IOException {
+        // at the largest dimension the bounds alone are larger than the write buffer
+        double[][] columns = new double[1 << 16][];
+        for (int d = 0; d < columns.length; d++) {
+            columns[d] = new double[]{d, -d};
+        }
+        Path path = folder.newFile("wide.bin").toPath();
+        PointFile.write(path, true, columns);
+        assertEquals(32 + columns.length * (2 * 8 + 2 * 8), Files.size(path));
+    }
+
+    @Test
+    public void testClosestPairOnMappedColumns() throws IOException {
+        PointSet points = randomPoints(20000, 2);
+        Path path = folder.newFile("cp.bin").toPath();
+        PointFile.write(path, points);
+        PointFile file = PointFile.open(path);
+
+        ClosestPairResult expected = new ClosestPairEngine().findClosestPair(points);
+        ClosestPairResult actual = new ClosestPairEngine().findClosestPair(file.xs(), file.ys());
+        assertEquals(expected.getDistanceSquared(), actual.getDistanceSquared(), 0);
+        assertEquals(Math.min(expected.getFirst(), expected.getSecond()), Math.min(actual.getFirst(), actual.getSecond()));
+        assertEquals(Math.max(expected.getFirst(), expected.getSecond()), Math.max(actual.getFirst(), actual.getSecond()));
+        assertEquals(points.getX(actual.getFirst()), actual.toVec2Pair()[0].getX(), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException {
+        Path path = folder.newFile("data.csv").toPath();
+        Files.write(path, "x;y\n1;2\n3;4\n5;6\n7;8\n9;10\n".getBytes());
+        PointFile.open(path);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsTruncatedFile() throws IOException {
+        Path path = folder.newFile("short.bin").toPath();
+        PointFile.write(path, randomPoints(100, 3));
+        byte[] bytes = Files.readAllBytes(path);
+        Files.write(path, Arrays.copyOf(bytes, bytes.length - 8));
+        PointFile.open(path);
+    }
+}
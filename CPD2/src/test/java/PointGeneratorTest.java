@@ -0,0 +1,99 @@
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class PointGeneratorTest {
+    private static final int N = 200000;
+
+    @Test
+    public void testSameSeedSamePointsOnAnyPool() throws Exception {
+        PointGenerator generator = PointGenerator.clustered(8, 0.01);
+        PointSet common = generator.generate(N, 7);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            PointSet alone = single.submit(() -> generator.generate(N, 7)).get();
+            assertArrayEquals(common.xs(), alone.xs(), 0);
+            assertArrayEquals(common.ys(), alone.ys(), 0);
+        } finally {
+            single.shutdown();
+        }
+        assertNotEquals(common.getX(0), generator.generate(N, 8).getX(0), 0);
+    }
+
+    @Test
+    public void testVec2MatchesArrays() {
+        PointGenerator generator = PointGenerator.duplicates(0.5);
+        PointSet points = generator.generate(100001, 3);
+        Vec2[] vectors = generator.generateVec2(100001, 3);
+        for (int i = 0; i < vectors.length; i++) {
+            assertEquals(points.getX(i), vectors[i].getX(), 0);
+            assertEquals(points.getY(i), vectors[i].getY(), 0);
+        }
+    }
+
+    @Test
+    public void testUniformInUnitSquare() {
+        PointSet points = PointGenerator.uniform().generate(N, 1);
+        double sum = 0;
+        for (int i = 0; i < N; i++) {
+            assertTrue(points.getX(i) >= 0 && points.getX(i) < 1);
+            assertTrue(points.getY(i) >= 0 && points.getY(i) < 1);
+            sum += points.getX(i);
+        }
+        assertEquals(0.5, sum / N, 0.01);
+    }
+
+    @Test
+    public void testExactGrid() {
+        PointSet points = PointGenerator.gridWithJitter(0).generate(100, 1);
+        for (int i = 0; i < 100; i++) {
+            assertEquals((i % 10 + 0.5) / 10, points.getX(i), 0);
+            assertEquals((i / 10 + 0.5) / 10, points.getY(i), 0);
+        }
+        assertEquals(0.01, new ClosestPairEngine().findClosestPair(points).getDistanceSquared(), 1e-15);
+    }
+
+    @Test
+    public void testCollinear() {
+        PointSet points = PointGenerator.collinear().generate(1000, 1);
+        for (int i = 2; i < 1000; i++) {
+            assertEquals(0, Predicates.orient2d(points.getX(0), points.getY(0), points.getX(1), points.getY(1),
+                    points.getX(i), points.getY(i)), 0);
+        }
+    }
+
+    @Test
+    public void testDuplicates() {
+        PointSet points = PointGenerator.duplicates(0.1).generate(N, 1);
+        Set<Double> distinct = new HashSet<>();
+        for (int i = 0; i < N; i++) {
+            distinct.add(points.getX(i));
+        }
+        assertTrue(distinct.size() <= N / 10);
+        assertEquals(0, new ClosestPairEngine().findClosestPair(points).getDistanceSquared(), 0);
+    }
+
+    @Test
+    public void testClusterSpread() {
+        PointSet points = PointGenerator.clustered(1, 0.001).generate(N, 5);
+        double mean = 0;
+        for (int i = 0; i < N; i++) {
+            mean += points.getX(i);
+        }
+        mean /= N;
+        double variance = 0;
+        for (int i = 0; i < N; i++) {
+            variance += (points.getX(i) - mean) * (points.getX(i) - mean);
+        }
+        assertEquals(0.001, Math.sqrt(variance / N), 1e-4);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsBadJitter() {
+        PointGenerator.gridWithJitter(2);
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class PredicatesTest {
+
+    private static int exactOrientation(double ax, double ay, double bx, double by, double cx, double cy) {
+        BigDecimal left = new BigDecimal(ax).subtract(new BigDecimal(cx))
+                .multiply(new BigDecimal(by).subtract(new BigDecimal(cy)));
+        BigDecimal right = new BigDecimal(ay).subtract(new BigDecimal(cy))
+                .multiply(new BigDecimal(bx).subtract(new BigDecimal(cx)));
+        return left.subtract(right).signum();
+    }
+
+    @Test
+    public void testNearlyCollinearPoints() {
+        Random random = new Random(1);
+        for (int k = 0; k < 20000; k++) {
+            // points on the line y = x, nudged by a few ulps
+            double scale = Math.pow(2, random.nextInt(60) - 30);
+            double ax = random.nextDouble() * scale;
+            double bx = random.nextDouble() * scale;
+            double cx = random.nextDouble() * scale;
+            double ay = ax + (random.nextInt(5) - 2) * Math.ulp(ax);
+            double by = bx + (random.nextInt(5) - 2) * Math.ulp(bx);
+            double cy = cx;
+            assertEquals(exactOrientation(ax, ay, bx, by, cx, cy), Predicates.orientation(ax, ay, bx, by, cx, cy));
+        }
+    }
+
+    @Test
+    public void testExactOrientationDoesNotAllocate() {
+        java.lang.management.ThreadMXBean bean = java.lang.management.ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemoryEnabled()) {
+            return;
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        long thread = Thread.currentThread().getId();
+        // exactly collinear points always take the exact path
+        Predicates.orient2d(0.1, 0.1, 0.2, 0.2, 0.3, 0.3);
+        long before = threads.getThreadAllocatedBytes(thread);
+        int sum = 0;
+        for (int k = 0; k < 100000; k++) {
+            double x = 0.1 + k * 1e-7;
+            sum += Predicates.orientation(x, x, 0.5, 0.5, 0.3, 0.3);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        assertEquals(0, sum);
+        // a fresh expansion per call would be more than 10 MB here
+        assertTrue(allocated + " bytes", allocated < 100000);
+    }
+
+    @Test
+    public void testClassicFailureCase() {
+        // a naive evaluation gets the sign of this grid of nearly collinear points wrong
+        double bx = 12;
+        double by = 12;
+        double cx = 24;
+        double cy = 24;
+        for (int i = 0; i < 64; i++) {
+            for (int j = 0; j < 64; j++) {
+                double ax = 0.5 + i * Math.ulp(0.5);
+                double ay = 0.5 + j * Math.ulp(0.5);
+                assertEquals(exactOrientation(ax, ay, bx, by, cx, cy), Predicates.orientation(ax, ay, bx, by, cx, cy));
+            }
+        }
+    }
+
+    @Test
+    public void testTurns() {
+        Vec2 a = new Vec2(0, 0);
+        Vec2 b = new Vec2(1, 0);
+        assertEquals(-1, Vec2.isTurnedCW(a, b, new Vec2(2, 1)));
+        assertEquals(1, Vec2.isTurnedCW(a, b, new Vec2(2, -1)));
+        assertEquals(0, Vec2.isTurnedCW(a, b, new Vec2(1e30, 0)));
+        assertEquals(0, Vec2.isTurnedCW(a, b, b));
+        assertTrue(Predicates.orient2d(0, 0, 1, 0, 0, 1) > 0);
+    }
+
+    @Test
+    public void testNearlyCocircularPoints() {
+        // a, b, c lie on the unit circle; d is the fourth point on it, moved by up to a few ulps
+        for (int i = -4; i <= 4; i++) {
+            for (int j = -4; j <= 4; j++) {
+                double dx = i * Double.MIN_NORMAL;
+                double dy = -1 + j * Math.ulp(1.0);
+                double sign = Math.signum(Predicates.inCircle(1, 0, 0, 1, -1, 0, dx, dy));
+                assertEquals(Predicates.inCircleExact(1, 0, 0, 1, -1, 0, dx, dy), sign, 0);
+                assertEquals(j > 0 ? 1 : (j < 0 || i != 0 ? -1 : 0), sign, 0);
+            }
+        }
+        Random random = new Random(2);
+        for (int k = 0; k < 20000; k++) {
+            double angle = random.nextDouble() * 2 * Math.PI;
+            double dx = Math.cos(angle) * 1e3 + 7;
+            double dy = Math.sin(angle) * 1e3 - 3;
+            assertEquals(Predicates.inCircleExact(1007, -3, 7, 997, -993, -3, dx, dy),
+                    Math.signum(Predicates.inCircle(1007, -3, 7, 997, -993, -3, dx, dy)), 0);
+        }
+    }
+}
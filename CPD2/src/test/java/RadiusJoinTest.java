@@ -0,0 +1,101 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class RadiusJoinTest {
+    private static List<Long> bruteForce(PointSet a, PointSet b, double radius, boolean sameSet) {
+        List<Long> pairs = new ArrayList<>();
+        for (int i = 0; i < a.size(); i++) {
+            for (int j = sameSet ? i + 1 : 0; j < b.size(); j++) {
+                double dx = a.getX(i) - b.getX(j);
+                double dy = a.getY(i) - b.getY(j);
+                if (dx * dx + dy * dy <= radius * radius) {
+                    pairs.add((long) i << 32 | j);
+                }
+            }
+        }
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    private static List<Long> sorted(PairBuffer buffer) {
+        List<Long> pairs = new ArrayList<>();
+        for (int k = 0; k < buffer.size(); k++) {
+            pairs.add((long) buffer.getFirst(k) << 32 | buffer.getSecond(k));
+        }
+        Collections.sort(pairs);
+        return pairs;
+    }
+
+    @Test
+    public void testMatchesBruteForce() {
+        PointSet uniform = PointGenerator.uniform().generate(3000, 1);
+        assertEquals(bruteForce(uniform, uniform, 0.02, true), sorted(RadiusJoin.pairs(uniform, 0.02)));
+        PointSet clustered = PointGenerator.clustered(5, 0.01).generate(3000, 2);
+        assertEquals(bruteForce(clustered, clustered, 0.005, true), sorted(RadiusJoin.pairs(clustered, 0.005)));
+        PointSet duplicates = PointGenerator.duplicates(0.2).generate(2000, 3);
+        assertEquals(bruteForce(duplicates, duplicates, 1e-3, true), sorted(RadiusJoin.pairs(duplicates, 1e-3)));
+    }
+
+    @Test
+    public void testPairsAtExactlyTheRadius() {
+        double[] xs = new double[400];
+        double[] ys = new double[400];
+        for (int i = 0; i < 400; i++) {
+            xs[i] = i % 20 * 0.25;
+            ys[i] = i / 20 * 0.25;
+        }
+        // every grid point has its 2 to 4 axis neighbours at exactly the radius
+        assertEquals(2 * 20 * 19, RadiusJoin.pairs(new PointSet(xs, ys), 0.25).size());
+    }
+
+    @Test
+    public void testParallelMatchesSequential() {
+        PointSet points = PointGenerator.uniform().generate(300000, 4);
+        PairBuffer sequential = new PairBuffer();
+        RadiusJoin.forEachPair(points, 0.002, sequential);
+        PairBuffer parallel = RadiusJoin.pairs(points, 0.002);
+        assertTrue(parallel.size() > 100000);
+        assertArrayEquals(sequential.toArray(), parallel.toArray());
+
+        List<Long> streamed = Collections.synchronizedList(new ArrayList<>());
+        RadiusJoin.forEachPair(points, 0.002, ExecutionPolicy.PARALLEL,
+                (first, second, distSq) -> streamed.add((long) first << 32 | second));
+        Collections.sort(streamed);
+        assertEquals(sorted(sequential), streamed);
+    }
+
+    @Test
+    public void testBichromatic() {
+        PointSet a = PointGenerator.uniform().generate(2000, 5);
+        PointSet b = PointGenerator.clustered(3, 0.1).generate(3000, 6);
+        assertEquals(bruteForce(a, b, 0.01, false), sorted(RadiusJoin.pairs(a, b, 0.01)));
+
+        Vec2[] far = {new Vec2(100, 100), new Vec2(0.5, 0.5)};
+        PairBuffer pairs = RadiusJoin.pairs(far, new Vec2[]{new Vec2(0.5, 0.5001)}, 0.01);
+        assertEquals(1, pairs.size());
+        assertEquals(1, pairs.getFirst(0));
+        assertEquals(0, pairs.getSecond(0));
+    }
+
+    @Test
+    public void testPairBufferGrows() {
+        PairBuffer buffer = new PairBuffer(0);
+        for (int i = 0; i < 1000; i++) {
+            buffer.add(i, -i);
+        }
+        assertEquals(1000, buffer.size());
+        assertEquals(-999, buffer.getSecond(999));
+        buffer.clear();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsZeroRadius() {
+        RadiusJoin.pairs(PointGenerator.uniform().generate(10, 1), 0);
+    }
+}
@@ -0,0 +1,74 @@
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.*;
+
+public class VPTreeTest {
+    private static VecSet randomPoints(int n, int d, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] coords = new double[n * d];
+        for (int i = 0; i < coords.length; i++) {
+            coords[i] = random.nextDouble() * random.nextDouble();
+        }
+        return new VecSet(coords, d);
+    }
+
+    private static double distanceSquared(VecSet points, int i, double[] query) {
+        double dist = 0;
+        for (int k = 0; k < query.length; k++) {
+            double diff = points.get(i, k) - query[k];
+            dist += diff * diff;
+        }
+        return dist;
+    }
+
+    @Test
+    public void testNearestMatchesBruteForce() {
+        for (int d : new int[]{2, 3, 10, 32}) {
+            VecSet points = randomPoints(3000, d, d);
+            VPTree tree = new VPTree(points);
+            VecSet queries = randomPoints(200, d, 100 + d);
+            int[] batch = tree.nearest(queries);
+            for (int q = 0; q < queries.size(); q++) {
+                double[] query = Arrays.copyOfRange(queries.coords(), q * d, (q + 1) * d);
+                double best = Double.POSITIVE_INFINITY;
+                for (int i = 0; i < points.size(); i++) {
+                    best = Math.min(best, distanceSquared(points, i, query));
+                }
+                assertEquals(best, distanceSquared(points, tree.nearest(query), query), 1e-12);
+                assertEquals(best, distanceSquared(points, batch[q], query), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testKNearest() {
+        VecSet points = randomPoints(2000, 8, 3);
+        VPTree tree = new VPTree(points);
+        double[] query = randomPoints(1, 8, 4).coords();
+        Integer[] expected = IntStream.range(0, points.size()).boxed()
+                .sorted(Comparator.comparingDouble(i -> distanceSquared(points, i, query)))
+                .limit(10).toArray(Integer[]::new);
+        assertArrayEquals(Arrays.stream(expected).mapToInt(Integer::intValue).toArray(), tree.kNearest(query, 10));
+        assertEquals(2000, tree.kNearest(query, 5000).length);
+    }
+
+    @Test
+    public void testNearestOtherPoint() {
+        VecSet points = randomPoints(500, 5, 5);
+        VPTree tree = new VPTree(points);
+        double[] self = Arrays.copyOfRange(points.coords(), 42 * 5, 43 * 5);
+        assertEquals(42, tree.nearest(self));
+        assertNotEquals(42, tree.nearest(self, i -> i != 42));
+        assertEquals(-1, new VPTree(new VecSet(new double[0], 5)).nearest(self));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsWrongDimension() {
+        new VPTree(randomPoints(10, 3, 1)).nearest(new double[2]);
+    }
+}
@@ -0,0 +1,71 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VecExprTest {
+    private static final ExecutionPolicy SMALL_CHUNKS = ExecutionPolicy.adaptive(0, 700);
+
+    private static Vec randomVec(Random random, int n) {
+        double[] data = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = random.nextDouble() * 10 - 5;
+        }
+        return new Vec(data);
+    }
+
+    @Test
+    public void testMatchesEagerOperations() {
+        Random random = new Random(1);
+        // sizes around the block and chunk boundaries
+        for (int n : new int[]{1, 5, 1023, 1024, 1025, 5000, 200000}) {
+            Vec a = randomVec(random, n);
+            Vec b = randomVec(random, n);
+            Vec c = randomVec(random, n);
+            Vec d = randomVec(random, n).add(20.0);
+            Vec expected = a.add(b).mul(c.sub(d)).div(3.0);
+            Vec nested = c.mul(a.add(b.div(d))).sub(a.mul(b).mul(2.0)).add(1.0);
+            for (ExecutionPolicy policy : new ExecutionPolicy[]{ExecutionPolicy.SEQUENTIAL, SMALL_CHUNKS}) {
+                VecExpr expr = a.lazy().add(b).mul(c.lazy().sub(d)).div(3.0);
+                assertArrayEquals(expected.data, expr.eval(policy).data, 0);
+                VecExpr deep = c.lazy().mul(a.lazy().add(b.lazy().div(d))).sub(a.lazy().mul(b).mul(2.0)).add(1.0);
+                assertArrayEquals(nested.data, deep.eval(policy).data, 0);
+                assertArrayEquals(a.mul(-1.0).data, a.lazy().negate().eval(policy).data, 0);
+
+                assertEquals(expected.dot(nested), expr.dot(deep, policy), 1e-9 * n);
+                assertEquals(expected.dot(a), expr.dot(a.lazy(), policy), 1e-9 * n);
+                assertEquals(expected.length(), expr.length(policy), 1e-9 * n);
+                assertEquals(expected.dot(new Vec(n).add(1.0)), expr.sum(policy), 1e-9 * n);
+            }
+        }
+    }
+
+    @Test
+    public void testIntoOperand() {
+        Random random = new Random(2);
+        Vec a = randomVec(random, 10000);
+        Vec b = randomVec(random, 10000);
+        Vec expected = b.mul(2.0).add(a);
+        Vec out = new Vec(10000);
+        assertSame(out, b.lazy().mul(2.0).add(a).into(out, SMALL_CHUNKS));
+        assertArrayEquals(expected.data, out.data, 0);
+        // the target is read by the right operand after the left one is computed
+        assertSame(a, b.lazy().mul(2.0).add(a).into(a, SMALL_CHUNKS));
+        assertArrayEquals(expected.data, a.data, 0);
+    }
+
+    @Test
+    public void testReadsOperandsWhenEvaluated() {
+        Vec a = new Vec(1, 2, 3);
+        VecExpr expr = a.lazy().mul(a);
+        a.set(0, 4);
+        assertArrayEquals(new double[]{16, 4, 9}, expr.eval().data, 0);
+        assertEquals(Math.sqrt(16 * 16 + 16 + 81), expr.length(), 1e-12);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengthsRejected() {
+        new Vec(1, 2).lazy().add(new Vec(1, 2, 3));
+    }
+}
@@ -0,0 +1,224 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class VecTest {
+    private static final ExecutionPolicy SMALL_CHUNKS = ExecutionPolicy.adaptive(0, 7);
+
+    private static Vec randomVec(Random random, int n) {
+        double[] data = new double[n];
+        for (int i = 0; i < n; i++) {
+            data[i] = random.nextDouble() * 10 - 5;
+        }
+        return new Vec(data);
+    }
+
+    private static void assertVecEquals(Vec expected, Vec actual, double delta) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), delta);
+        }
+    }
+
+    @Test
+    public void testPoliciesAgree() {
+        Random random = new Random(1);
+        for (int n : new int[]{1, 2, 3, 7, 8, 100, 1001}) {
+            Vec a = randomVec(random, n);
+            Vec b = randomVec(random, n).add(10.0);
+
+            for (ExecutionPolicy policy : new ExecutionPolicy[]{ExecutionPolicy.PARALLEL, SMALL_CHUNKS}) {
+                assertEquals(a.dot(b, ExecutionPolicy.SEQUENTIAL), a.dot(b, policy), 1e-9);
+                assertEquals(a.length(ExecutionPolicy.SEQUENTIAL), a.length(policy), 1e-9);
+                assertVecEquals(a.add(b, ExecutionPolicy.SEQUENTIAL), a.add(b, policy), 0.0);
+                assertVecEquals(a.sub(b, ExecutionPolicy.SEQUENTIAL), a.sub(b, policy), 0.0);
+                assertVecEquals(a.mul(b, ExecutionPolicy.SEQUENTIAL), a.mul(b, policy), 0.0);
+                assertVecEquals(a.div(b, ExecutionPolicy.SEQUENTIAL), a.div(b, policy), 0.0);
+                assertVecEquals(a.mul(3.0, ExecutionPolicy.SEQUENTIAL), a.mul(3.0, policy), 0.0);
+                assertVecEquals(a.sub(1.5, ExecutionPolicy.SEQUENTIAL), a.sub(1.5, policy), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testBasicArithmetic() {
+        Vec a = new Vec(1, 2, 3);
+        Vec b = new Vec(4, 5, 6);
+
+        assertEquals(32.0, a.dot(b), 0.0);
+        assertEquals(5.0, new Vec(3, 4).length(), 0.0);
+        assertVecEquals(new Vec(5, 7, 9), a.add(b), 0.0);
+        assertVecEquals(new Vec(-3, -3, -3), a.sub(b), 0.0);
+        assertVecEquals(new Vec(4, 10, 18), a.mul(b), 0.0);
+        assertVecEquals(new Vec(0.5, 1, 1.5), a.div(2), 0.0);
+        assertVecEquals(new Vec(-3, 6, -3), a.cross(b), 0.0);
+    }
+
+    @Test
+    public void testInPlaceAndOutputVariants() {
+        Vec a = new Vec(1, 2, 3);
+        Vec b = new Vec(4, 5, 6);
+        Vec out = new Vec(3);
+
+        assertSame(out, a.add(b, out));
+        assertVecEquals(new Vec(5, 7, 9), out, 0.0);
+        assertVecEquals(new Vec(2, 4, 6), a.mul(2.0, out), 0.0);
+        assertVecEquals(new Vec(1, 2, 3), a, 0.0);
+
+        Vec c = new Vec(1, 2, 3);
+        assertSame(c, c.addInPlace(b).scaleInPlace(2).subInPlace(1.0).divInPlace(new Vec(1, 3, 17)));
+        assertVecEquals(new Vec(9, 13.0 / 3, 1), c, 1e-15);
+    }
+
+    @Test
+    public void testFusedKernels() {
+        Random random = new Random(2);
+        for (int n : new int[]{3, 1000}) {
+            Vec x = randomVec(random, n);
+            Vec y = randomVec(random, n);
+            Vec expectedAxpy = y.add(x.mul(2.5));
+            Vec expectedAxpby = x.mul(2.5).add(y.mul(-0.5));
+            Vec expectedLerp = x.add(y.sub(x).mul(0.25));
+
+            assertVecEquals(expectedLerp, x.lerp(y, 0.25), 1e-12);
+            assertVecEquals(expectedAxpby, new Vec(y.data.clone()).axpby(2.5, x, -0.5, SMALL_CHUNKS), 1e-12);
+            assertVecEquals(expectedAxpy, y.axpy(2.5, x), 1e-12);
+        }
+        assertVecEquals(new Vec(1, 2), new Vec(1, 2).lerp(new Vec(5, 6), 0), 0.0);
+        assertVecEquals(new Vec(5, 6), new Vec(1, 2).lerp(new Vec(5, 6), 1), 0.0);
+    }
+
+    @Test
+    public void testVectorizedKernelsMatchScalarLoops() {
+        // the Java 17 overlay with the Vector API module, or the scalar baseline everywhere else
+        Random random = new Random(3);
+        int n = 1003;
+        double[] a = randomVec(random, n + 5).data;
+        double[] b = randomVec(random, n + 5).data;
+        double[] out = new double[n + 5];
+
+        double dot = 0;
+        for (int i = 0; i < n; i++) {
+            dot += a[i + 3] * b[i + 1];
+        }
+        assertEquals(dot, VectorizedKernels.dot(a, 3, b, 1, n), 1e-9);
+
+        VectorizedKernels.sub(a, 3, b, 1, out, 2, n);
+        for (int i = 0; i < n; i++) {
+            assertEquals(a[i + 3] - b[i + 1], out[i + 2], 0.0);
+        }
+        VectorizedKernels.div(a, 1, 4.0, out, 5, n);
+        for (int i = 0; i < n; i++) {
+            assertEquals(a[i + 1] / 4.0, out[i + 5], 0.0);
+        }
+    }
+
+    @Test
+    public void testVecReachesVectorApiKernels() {
+        // only the Java 17 run of the multi-release profile sets this property
+        assumeTrue(Boolean.getBoolean("cpd2.expectVectorApi"));
+        assertTrue(VectorizedKernels.ENABLED);
+        Random random = new Random(4);
+        int n = 1000;
+        Vec a = randomVec(random, n);
+        Vec b = randomVec(random, n);
+        double dot = 0;
+        for (int i = 0; i < n; i++) {
+            dot += a.get(i) * b.get(i);
+        }
+        assertEquals(dot, a.dot(b), 1e-9);
+        assertEquals(a.get(7) + b.get(7), a.add(b).get(7), 0.0);
+        assertTrue(VectorizedKernels.vectorApiUsed());
+    }
+
+    /**
+     * Builds the vector (values) with spare room on both sides of it.
+     */
+    private static Vec withRoom(double... values) {
+        Vec vec = Vec.withCapacity(4);
+        for (int i = values.length / 2; i < values.length; i++) {
+            vec.expandEnd(values[i]);
+        }
+        for (int i = values.length / 2 - 1; i >= 0; i--) {
+            vec.expandStart(values[i]);
+        }
+        vec.expandEnd(99);
+        vec.shrinkEnd();
+        vec.expandStart(99);
+        vec.shrinkStart();
+        return vec;
+    }
+
+    @Test
+    public void testGrowableEnds() {
+        Vec vec = Vec.withCapacity(0);
+        assertEquals(0, vec.size());
+        int n = 100000;
+        int reallocations = 0;
+        double[] backing = vec.data;
+        for (int i = 0; i < n; i++) {
+            vec.expandEnd(i);
+            vec.expandStart(-i - 1);
+            if (vec.data != backing) {
+                reallocations++;
+                backing = vec.data;
+            }
+        }
+        // the array grows geometrically, so it is reallocated a logarithmic number of times
+        assertTrue(reallocations < 50);
+        assertEquals(2 * n, vec.size());
+        assertTrue(vec.capacity() >= vec.size());
+        for (int i = 0; i < 2 * n; i++) {
+            assertEquals(i - n, vec.get(i), 0.0);
+        }
+
+        for (int i = 0; i < n / 2; i++) {
+            vec.shrinkStart();
+            vec.shrinkEnd();
+        }
+        assertEquals(n, vec.size());
+        assertEquals(-n / 2, vec.get(0), 0.0);
+        assertEquals(n / 2 - 1, vec.get(n - 1), 0.0);
+        vec.trimToSize();
+        assertEquals(n, vec.capacity());
+        assertEquals(-n / 2, vec.get(0), 0.0);
+    }
+
+    @Test
+    public void testOperationsUseLogicalRange() {
+        Vec a = withRoom(1, 2, 3);
+        Vec b = withRoom(4, 5, 6);
+        assertTrue(a.capacity() > a.size());
+        assertEquals("(1.0, 2.0, 3.0)", a.toString());
+        assertEquals(32.0, a.dot(b), 0.0);
+        assertEquals(Math.sqrt(14), a.length(), 0.0);
+        assertVecEquals(new Vec(5, 7, 9), a.add(b), 0.0);
+        assertVecEquals(new Vec(-3, -3, -3), a.sub(b, SMALL_CHUNKS), 0.0);
+        assertVecEquals(new Vec(2, 3, 4), a.add(1.0), 0.0);
+        assertVecEquals(new Vec(7, 8, 9), a.lerp(b, 2, withRoom(0, 0, 0)), 0.0);
+        assertVecEquals(new Vec(2, 3, 4), a.lazy().mul(2.0).add(b).div(3.0).eval(), 1e-15);
+        assertEquals(32.0, a.lazy().dot(b), 0.0);
+
+        Vec out = withRoom(0, 0, 0);
+        a.lazy().add(b).into(out);
+        assertVecEquals(new Vec(5, 7, 9), out, 0.0);
+        a.lazy().add(a).into(a);
+        assertVecEquals(new Vec(2, 4, 6), a, 0.0);
+        a.addInPlace(b).uniform(-1);
+        assertVecEquals(new Vec(-1, -1, -1), a, 0.0);
+        assertVecEquals(new Vec(4, 5, 6), b, 0.0);
+
+        Vec2 point = new Vec2(1, 2);
+        point.expandStart(0);
+        point.shrinkStart();
+        assertEquals(2, point.getY(), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDifferentLengthsRejected() {
+        new Vec(1, 2).add(new Vec(1, 2, 3));
+    }
+}